@@ -1,21 +1,26 @@
 package com.foomoo.box;
 
-import com.foomoo.box.model.Vector;
+import com.foomoo.box.metrics.FrameTimeMonitor;
+import com.foomoo.box.metrics.Metrics;
+import com.foomoo.box.solver.AsyncSolver;
+import com.foomoo.box.solver.HintSearch;
+import com.foomoo.box.solver.IdaStarSolver;
+import com.foomoo.box.solver.SolverLevel;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
 
 public class App extends Application {
 
-    private static final Vector UP_CELL = new Vector(-1, 0);
-    private static final Vector DOWN_CELL = new Vector(1, 0);
-    private static final Vector LEFT_CELL = new Vector(0, -1);
-    private static final Vector RIGHT_CELL = new Vector(0, 1);
+    private static final Logger LOGGER = Logger.getLogger(App.class.getName());
 
     private static final String BOARD_DEF = "" +
             "XXXXXXXX\n" +
@@ -29,7 +34,13 @@ public class App extends Application {
             "X        XXX\n" +
             "XXX";
 
-    private final Board board = new Board(BoardDefinition.fromString(BOARD_DEF));
+    private static final long HINT_TIMEOUT_MILLIS = 5000;
+
+    private final BoardDefinition definition = BoardDefinition.fromString(BOARD_DEF);
+    private final Board board = new Board(definition);
+    private final SolverLevel level = SolverLevel.fromDefinition(definition);
+
+    private HintSearch hintSearch;
 
     @Override
     public void start(Stage stage) throws Exception {
@@ -39,33 +50,80 @@ public class App extends Application {
         });
 
         stage.setTitle("Box Pusher");
+        hintSearch = createHintSearch(stage);
 
-        optionalPlayer.ifPresent(player -> addKeyHandler(view, player));
+        addKeyHandler(view);
         stage.setScene(view);
+        Metrics.install();
+        new FrameTimeMonitor().start();
         stage.show();
     }
 
-    private void addKeyHandler(Scene scene, Block block) {
-        scene.addEventHandler(KeyEvent.KEY_PRESSED, ke -> {
-            Cell currentCell = board.getCellForPiece(block);
-
+    private void addKeyHandler(BoardView view) {
+        final MoveInputQueue inputQueue = view.getInputQueue();
+        view.addEventHandler(KeyEvent.KEY_PRESSED, ke -> {
             KeyCode keyCode = ke.getCode();
+            boolean moved = false;
             switch (keyCode) {
                 case UP:
-                    board.movePieceTo(block, currentCell.translate(UP_CELL));
+                    moved = inputQueue.submit(Direction.UP);
                     break;
                 case LEFT:
-                    board.movePieceTo(block, currentCell.translate(LEFT_CELL));
+                    moved = inputQueue.submit(Direction.LEFT);
                     break;
                 case DOWN:
-                    board.movePieceTo(block, currentCell.translate(DOWN_CELL));
+                    moved = inputQueue.submit(Direction.DOWN);
                     break;
                 case RIGHT:
-                    board.movePieceTo(block, currentCell.translate(RIGHT_CELL));
+                    moved = inputQueue.submit(Direction.RIGHT);
+                    break;
+                case H:
+                    hintSearch.start(currentLevel());
                     break;
                 case ESCAPE:
+                    LOGGER.fine(inputQueue::toString);
+                    hintSearch.cancel();
                     Platform.exit();
             }
+
+            // A hint for the previous position is stale, so search again from the new one.
+            if (moved) {
+                hintSearch.restart(currentLevel());
+            }
         });
     }
+
+    /**
+     * Gets the SolverLevel for the current position on the board.
+     *
+     * @return The SolverLevel.
+     */
+    private SolverLevel currentLevel() {
+        final int[] cells = board.getPieceCellIndices();
+        return level.withPieceCells(cells[0], Arrays.copyOfRange(cells, 1, cells.length));
+    }
+
+    /**
+     * Create a HintSearch running on a background thread and reporting its progress and hints in the stage's title.
+     *
+     * @param stage The stage.
+     * @return The HintSearch.
+     */
+    static HintSearch createHintSearch(final Stage stage) {
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "hint-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final AsyncSolver solver = new AsyncSolver(() -> new IdaStarSolver.Builder().build(), executor);
+
+        return new HintSearch(solver, HINT_TIMEOUT_MILLIS, Platform::runLater,
+                progress -> stage.setTitle(String.format("Box Pusher - searching: %,d nodes/s, bound %d",
+                        progress.getNodesPerSecond(), progress.getBound())),
+                solution -> stage.setTitle(solution
+                        .map(found -> found.getMoves().isEmpty() ? "Box Pusher - solved"
+                                : String.format("Box Pusher - hint: %s (%d moves to go)",
+                                Character.toUpperCase(found.getMoves().charAt(0)), found.getMoveCount()))
+                        .orElse("Box Pusher - no hint found")));
+    }
 }
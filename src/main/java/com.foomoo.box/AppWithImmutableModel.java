@@ -1,7 +1,10 @@
 package com.foomoo.box;
 
-import com.foomoo.box.model.Vector;
+import com.foomoo.box.metrics.FrameTimeMonitor;
+import com.foomoo.box.metrics.Metrics;
 import com.foomoo.box.model.immutable.BoardModel;
+import com.foomoo.box.solver.HintSearch;
+import com.foomoo.box.solver.SolverLevel;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.input.KeyCode;
@@ -9,17 +12,30 @@ import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
 import scala.Option;
 
+import java.util.logging.Logger;
+
 public class AppWithImmutableModel extends Application {
 
-    private static final Vector UP_CELL = new Vector(-1, 0);
-    private static final Vector DOWN_CELL = new Vector(1, 0);
-    private static final Vector LEFT_CELL = new Vector(0, -1);
-    private static final Vector RIGHT_CELL = new Vector(0, 1);
+    private static final Logger LOGGER = Logger.getLogger(AppWithImmutableModel.class.getName());
 
     private static final Player player = new Player("P1");
 
     private BoardModel model;
 
+    private BoardViewImmutableModel2 view;
+
+    private HintSearch hintSearch;
+
+    private final MoveInputQueue inputQueue = new MoveInputQueue(direction -> {
+        final Option<BoardModel> nextModelOption = model.move(direction);
+        if (nextModelOption.isEmpty()) {
+            return false;
+        }
+        model = nextModelOption.get();
+        view.setNextBoardModel(model);
+        return true;
+    });
+
     @Override
     public void start(Stage stage) throws Exception {
 
@@ -32,46 +48,48 @@ public class AppWithImmutableModel extends Application {
                 .targetCell(new Target("T2"), new Cell(5, 5))
                 .build();
 
-        final BoardViewImmutableModel2 view = new BoardViewImmutableModel2(model);
+        view = new BoardViewImmutableModel2(model, inputQueue);
 
         stage.setTitle("Box Pusher");
+        hintSearch = App.createHintSearch(stage);
 
-        addKeyHandler(view);
+        addKeyHandler();
         stage.setScene(view.getScene());
+        Metrics.install();
+        new FrameTimeMonitor().start();
         stage.show();
     }
 
-    private void addKeyHandler(final BoardViewImmutableModel2 view) {
+    private void addKeyHandler() {
         view.getScene().addEventHandler(KeyEvent.KEY_PRESSED, ke -> {
 
-            final Option<Cell> playerCellOption = model.getBlockCell(player);
-            if (playerCellOption.isDefined()) {
-                final Cell currentCell = playerCellOption.get();
-
-                final KeyCode keyCode = ke.getCode();
-                Option<BoardModel> nextModelOption = scala.Option.apply(null);
-                switch (keyCode) {
-                    case UP:
-                        nextModelOption = model.movePlayerPieceTo(currentCell.translate(UP_CELL));
-                        break;
-                    case LEFT:
-                        nextModelOption = model.movePlayerPieceTo(currentCell.translate(LEFT_CELL));
-                        break;
-                    case DOWN:
-                        nextModelOption = model.movePlayerPieceTo(currentCell.translate(DOWN_CELL));
-                        break;
-                    case RIGHT:
-                        nextModelOption = model.movePlayerPieceTo(currentCell.translate(RIGHT_CELL));
-                        break;
-                    case ESCAPE:
-                        Platform.exit();
-                }
-
-                if (nextModelOption.isDefined()) {
-                    final BoardModel nextModel = nextModelOption.get();
-                    model = nextModel;
-                    view.setNextBoardModel(nextModel);
-                }
+            final KeyCode keyCode = ke.getCode();
+            boolean moved = false;
+            switch (keyCode) {
+                case UP:
+                    moved = inputQueue.submit(Direction.UP);
+                    break;
+                case LEFT:
+                    moved = inputQueue.submit(Direction.LEFT);
+                    break;
+                case DOWN:
+                    moved = inputQueue.submit(Direction.DOWN);
+                    break;
+                case RIGHT:
+                    moved = inputQueue.submit(Direction.RIGHT);
+                    break;
+                case H:
+                    hintSearch.start(SolverLevel.fromModel(model));
+                    break;
+                case ESCAPE:
+                    LOGGER.fine(inputQueue::toString);
+                    hintSearch.cancel();
+                    Platform.exit();
+            }
+
+            // A hint for the previous model is stale, so search again from the new one.
+            if (moved) {
+                hintSearch.restart(SolverLevel.fromModel(model));
             }
         });
     }
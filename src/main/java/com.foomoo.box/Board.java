@@ -1,24 +1,27 @@
 package com.foomoo.box;
 
-import com.foomoo.box.model.Vector;
+import com.foomoo.box.metrics.Counter;
+import com.foomoo.box.metrics.LatencyHistogram;
+import com.foomoo.box.metrics.Metrics;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.value.WritableValue;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Defines the game layout and enforces movement rules.
  * <p>
- * Notifies a PieceMovedHandler when pieces are moved on the board. Intended for use by the UI.
+ * Notifies a MoveEventHandler once for each logical move, listing every piece displaced by the move and every target
+ * whose completion changed. Also notifies a PieceMovedHandler as each individual piece is moved. Intended for use by
+ * the UI.
  * <p>
  * Maintains a boolean property for each target which is true when the target is satisfied.
  * <p>
@@ -26,14 +29,36 @@ import java.util.stream.Stream;
  */
 public class Board {
 
+    private static final LatencyHistogram MOVE_LATENCY = Metrics.histogram("board.move");
+    private static final Counter REJECTED_MOVES = Metrics.counter("board.move.rejected");
+
     final BoardDefinition definition;
+    final CellTable cellTable;
+    final PieceRegistry registry;
     Player player;
-    final Map<Block, Cell> blocksMap = new HashMap<>();
-    final Map<Target, TargetData> targetsDataMap = new HashMap<>();
+
+    // The packed cell index of each piece, indexed by piece id.
+    final int[] pieceCells;
+
+    // The id of the piece occupying each cell, indexed by packed cell index. PieceRegistry.NONE if unoccupied.
+    final Occupancy occupants;
+
+    // The packed cell index and completion property of each target, indexed by target id.
+    final int[] targetCells;
+    final BooleanProperty[] targetsComplete;
 
     final BooleanProperty complete = new SimpleBooleanProperty();
 
     PieceMovedHandler pieceMovedHandler;
+    MoveEventHandler moveEventHandler;
+
+    // The pieces displaced by the logical move in progress, with the packed cells they moved between.
+    private final int[] movedPieces;
+    private final int[] movedFrom;
+    private final int[] movedTo;
+    private int movedCount;
+    // Scratch array ordering the moved pieces by id.
+    private final int[] movedOrder;
 
     /**
      * Construct a Board using the given BoardDefinition to define the starting state.
@@ -42,33 +67,31 @@ public class Board {
      */
     public Board(final BoardDefinition boardDefinition) {
         definition = boardDefinition;
+        cellTable = new CellTable(0, 0, definition.getHeight(), definition.getWidth());
+        registry = definition.getPieceRegistry();
+        player = registry.getPlayer().orElse(null);
 
-        definition.getPlayerCell().ifPresent(cell -> {
-            player = new Player("@");
-            blocksMap.put(player, cell);
-        });
-
-        blocksMap.putAll(boardDefinition.getBlockCells());
+        occupants = new Occupancy(definition.getHeight(), definition.getWidth());
 
-        boardDefinition.getTargetCells().forEach((target, cell) -> {
-            BooleanProperty property = new SimpleBooleanProperty();
-
-            TargetData targetData = new TargetData();
-            targetData.cell = cell;
-            targetData.complete = property;
-
-            targetsDataMap.put(target, targetData);
+        pieceCells = new int[registry.getPieceCount()];
+        for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+            pieceCells[pieceId] = cellTable.index(definition.getPieceCell(pieceId));
+            occupants.set(pieceCells[pieceId], pieceId);
+        }
 
-            rebindCompletionProperty();
-        });
+        targetCells = new int[registry.getTargetCount()];
+        targetsComplete = new BooleanProperty[registry.getTargetCount()];
+        for (int targetId = 0; targetId < targetCells.length; targetId++) {
+            targetCells[targetId] = cellTable.index(definition.getTargetCell(targetId));
+            targetsComplete[targetId] = new SimpleBooleanProperty();
+        }
 
-        boardDefinition.getBlockTargetMap().forEach((block, target) -> {
-            TargetData data = targetsDataMap.computeIfAbsent(target, t -> {
-                throw new RuntimeException("Target does not exist on Board: " + t);
-            });
+        movedPieces = new int[pieceCells.length];
+        movedFrom = new int[pieceCells.length];
+        movedTo = new int[pieceCells.length];
+        movedOrder = new int[pieceCells.length];
 
-            data.block = block;
-        });
+        rebindCompletionProperty();
     }
 
     /**
@@ -80,6 +103,15 @@ public class Board {
         this.pieceMovedHandler = pieceMovedHandler;
     }
 
+    /**
+     * Set the handler to be notified once for each logical move, after all the pieces it displaces have moved.
+     *
+     * @param moveEventHandler Handler to call.
+     */
+    public void setMoveEventHandler(final MoveEventHandler moveEventHandler) {
+        this.moveEventHandler = moveEventHandler;
+    }
+
     /**
      * Gets the number of horizontal cells that are required to span the cells in play for the Board.
      *
@@ -105,7 +137,17 @@ public class Board {
      * @return True if the cell is on the board and bounded by the walls of the game.
      */
     public boolean isSpaceOnBoard(final Cell cell) {
-        return (cell.getColumn() < getCellColumns()) && (cell.getRow() < getCellRows()) && !definition.cellIsWall(cell.getRow(), cell.getColumn());
+        return isSpaceOnBoard(cellTable.index(cell));
+    }
+
+    /**
+     * Is the cell with the given packed index on the board.
+     *
+     * @param index The packed index of the cell to test.
+     * @return True if the cell is on the board and bounded by the walls of the game.
+     */
+    private boolean isSpaceOnBoard(final int index) {
+        return index >= 0 && !definition.cellIsWall(cellTable.getRow(index), cellTable.getColumn(index));
     }
 
     /**
@@ -123,9 +165,9 @@ public class Board {
      */
     private void rebindCompletionProperty() {
         complete.unbind();
-        List<Property<Boolean>> targetProperties = targetsDataMap.values().stream().map(targetData -> targetData.complete).collect(Collectors.toList());
+        List<Property<Boolean>> targetProperties = Arrays.asList(targetsComplete);
         complete.bind(Bindings.createBooleanBinding(() -> targetProperties.stream().map(WritableValue::getValue).allMatch(Boolean::booleanValue),
-                targetProperties.toArray(new Property[1])));
+                targetsComplete));
     }
 
     /**
@@ -138,16 +180,18 @@ public class Board {
     }
 
     /**
-     * Get the target's data, throwing an exception if the target is not part of this board.
+     * Get the target's id, throwing an exception if the target is not part of this board.
      *
-     * @param target The target to get the data for.
-     * @return The target's data.
+     * @param target The target to get the id for.
+     * @return The target's id.
      * @throws RuntimeException if the Target is not part of this Board.
      */
-    private TargetData getTargetData(final Target target) {
-        return targetsDataMap.computeIfAbsent(target, t -> {
-            throw new RuntimeException("Target does not exist on Board: " + t);
-        });
+    private int getTargetId(final Target target) {
+        final int targetId = registry.getTargetId(target);
+        if (targetId == PieceRegistry.NONE) {
+            throw new RuntimeException("Target does not exist on Board: " + target);
+        }
+        return targetId;
     }
 
     /**
@@ -158,7 +202,7 @@ public class Board {
      * @throws RuntimeException if the Target is not part of this Board.
      */
     public Property<Boolean> getPropertyForTarget(final Target target) {
-        return getTargetData(target).complete;
+        return targetsComplete[getTargetId(target)];
     }
 
     /**
@@ -169,7 +213,7 @@ public class Board {
      * @throws RuntimeException if the Target is not part of this Board.
      */
     public Cell getCellForTarget(final Target target) {
-        return getTargetData(target).cell;
+        return cellTable.cell(targetCells[getTargetId(target)]);
     }
 
     /**
@@ -178,7 +222,7 @@ public class Board {
      * @return A Stream of Targets
      */
     public Stream<Target> targets() {
-        return targetsDataMap.keySet().stream();
+        return IntStream.range(0, registry.getTargetCount()).mapToObj(registry::getTarget);
     }
 
     /**
@@ -189,11 +233,22 @@ public class Board {
      * @throws RuntimeException if Block is not part of this Board.
      */
     public Cell getCellForPiece(final Block block) {
-        Cell cell = blocksMap.get(block);
-        if (cell == null) {
+        return cellTable.cell(pieceCells[getPieceId(block)]);
+    }
+
+    /**
+     * Get the piece's id, throwing an exception if the piece is not part of this board.
+     *
+     * @param block The piece to get the id for.
+     * @return The piece's id.
+     * @throws RuntimeException if Block is not part of this Board.
+     */
+    private int getPieceId(final Block block) {
+        final int pieceId = registry.getPieceId(block);
+        if (pieceId == PieceRegistry.NONE) {
             throw new RuntimeException("Block not not part of board: " + block);
         }
-        return cell;
+        return pieceId;
     }
 
     /**
@@ -203,7 +258,22 @@ public class Board {
      * @return An Optional of the Block at the requested Cell. Optional will be absent if no Block was found.
      */
     public Optional<Block> getPieceAtCell(final Cell cell) {
-        return blocksMap.entrySet().stream().filter(entry -> entry.getValue().equals(cell)).map(Map.Entry::getKey).findAny();
+        final int index = cellTable.index(cell);
+        if (index < 0 || occupants.get(index) == PieceRegistry.NONE) {
+            return Optional.empty();
+        }
+        return Optional.of(registry.getPiece(occupants.get(index)));
+    }
+
+    /**
+     * Gets the interned Cell instance for the given position. Cells returned by the Board are always interned.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return The Cell.
+     */
+    public Cell getCell(final int row, final int column) {
+        return cellTable.cell(row, column);
     }
 
     /**
@@ -227,17 +297,20 @@ public class Board {
         return xIndexStream.flatMap(x -> {
             IntStream yIndexStream = IntStream.range(0, getCellRows());
 
-            return yIndexStream.mapToObj(y -> new Cell(y, x));
+            return yIndexStream.mapToObj(y -> cellTable.cell(y, x));
         });
     }
 
     /**
-     * Get a stream of cell positions on the board.
+     * Get a stream of cell positions on the board. Areas of the definition which are entirely wall are skipped without
+     * being examined.
      *
      * @return Stream of cell positions.
      */
     public Stream<Cell> cellPositionsOnBoard() {
-        return cellPositions().filter(this::isSpaceOnBoard);
+        final Stream.Builder<Cell> cells = Stream.builder();
+        definition.getWalls().forEach(false, (row, column) -> cells.add(cellTable.cell(row, column)));
+        return cells.build();
     }
 
     /**
@@ -249,106 +322,212 @@ public class Board {
      * @param targetCell The location to move the block to.
      */
     public void movePieceTo(final Block block, final Cell targetCell) {
-        movePieceTo(block, targetCell, 2, false);
+        Direction.fromVector(targetCell.subtract(getCellForPiece(block))).ifPresent(direction -> move(block, direction));
     }
 
     /**
-     * Sets the location of the given Block to the given Cell.
+     * Move the player one cell in the given direction, pushing other pieces out of the way if needed.
+     * <p>
+     * Works on packed cell indices and does not allocate, other than in any PieceMovedHandler.
      *
-     * @param block The Block to set to the new location.
-     * @param cell  The Cell to place the Block at.
-     * @throws RuntimeException if the Block is not part of this Board.
+     * @param direction The direction to move the player.
+     * @return True if the player was moved.
      */
-    private void setPiecePosition(final Block block, final Cell cell) {
-        Cell currentCell = getCellForPiece(block);
+    public boolean move(final Direction direction) {
+        return player != null && timedMove(registry.getPlayerId(), direction);
+    }
+
+    /**
+     * Move the given Block one cell in the given direction, pushing other pieces out of the way if needed.
+     *
+     * @param block     The Block to move.
+     * @param direction The direction to move the Block.
+     * @return True if the Block was moved.
+     * @throws RuntimeException if Block is not part of this Board.
+     */
+    public boolean move(final Block block, final Direction direction) {
+        return timedMove(getPieceId(block), direction);
+    }
 
-        // Do nothing if there is no change in position requested for the block.
-        if (currentCell.equals(cell)) {
-            return;
+    private boolean timedMove(final int pieceId, final Direction direction) {
+        final long start = System.nanoTime();
+        final boolean moved = finishMove(movePiece(pieceId, direction, 2));
+        MOVE_LATENCY.recordSince(start);
+        if (!moved) {
+            REJECTED_MOVES.increment();
         }
+        return moved;
+    }
 
-        blocksMap.put(block, cell);
-        if (pieceMovedHandler != null) {
-            pieceMovedHandler.pieceMoved(block, cell);
+    /**
+     * Gets the packed index of the cell of each piece, where the packed index of a cell is
+     * <code>row * getCellColumns() + column</code>.
+     *
+     * @return A copy of the packed cells, indexed by piece id.
+     */
+    public int[] getPieceCellIndices() {
+        return pieceCells.clone();
+    }
+
+    /**
+     * Place every piece at the given packed cell index without applying the movement rules, such as when resuming a
+     * saved game. The PieceMovedHandler is notified of each piece placed, and the MoveEventHandler is notified once of
+     * every piece whose cell changed.
+     *
+     * @param cells The packed cell of each piece, indexed by piece id.
+     * @throws RuntimeException if the cells do not hold one free cell on the board for each piece.
+     */
+    public void restorePieceCellIndices(final int[] cells) {
+        if (cells.length != pieceCells.length) {
+            throw new RuntimeException("Expected " + pieceCells.length + " piece cells, got " + cells.length);
+        }
+        final int[] sorted = cells.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            final int cell = sorted[i];
+            if (cell < 0 || cell >= cellTable.size() || !isSpaceOnBoard(cell) || (i > 0 && sorted[i - 1] == cell)) {
+                throw new RuntimeException("Piece cell is not a free cell on the board: " + cell);
+            }
+        }
+
+        for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+            occupants.set(pieceCells[pieceId], PieceRegistry.NONE);
+        }
+        for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+            occupants.set(cells[pieceId], pieceId);
+            if (pieceCells[pieceId] != cells[pieceId]) {
+                recordMoved(pieceId, pieceCells[pieceId], cells[pieceId]);
+            }
+            pieceCells[pieceId] = cells[pieceId];
+            piecePlaced(pieceId, cells[pieceId]);
+        }
+        finishMove(true);
+    }
+
+    /**
+     * Sets the location of the given piece to the cell with the given packed index.
+     *
+     * @param pieceId The id of the piece to set to the new location.
+     * @param to      The packed index of the cell to place the piece at.
+     */
+    private void setPiecePosition(final int pieceId, final int to) {
+        recordMoved(pieceId, pieceCells[pieceId], to);
+        occupants.set(pieceCells[pieceId], PieceRegistry.NONE);
+        occupants.set(to, pieceId);
+        pieceCells[pieceId] = to;
+        piecePlaced(pieceId, to);
+    }
+
+    private void recordMoved(final int pieceId, final int from, final int to) {
+        movedPieces[movedCount] = pieceId;
+        movedFrom[movedCount] = from;
+        movedTo[movedCount] = to;
+        movedCount++;
+    }
+
+    /**
+     * Complete a logical move, notifying the MoveEventHandler of the pieces it displaced if the move succeeded.
+     * <p>
+     * The event is only built when a handler is set, so moves without one do not allocate.
+     *
+     * @param moved True if the move succeeded.
+     * @return The value of <code>moved</code>.
+     */
+    private boolean finishMove(final boolean moved) {
+        if (moved && moveEventHandler != null && movedCount > 0) {
+            moveEventHandler.moved(buildMoveEvent());
         }
+        movedCount = 0;
+        return moved;
+    }
 
-        // If there is a target for this block, update its complete property.
-        Optional<Map.Entry<Target, TargetData>> possibleTarget;
-        possibleTarget = targetsDataMap.entrySet().stream().filter(entry -> block.equals(entry.getValue().block)).findAny();
-        possibleTarget.ifPresent(entry -> {
-                    TargetData data = entry.getValue();
-                    data.complete.set(data.cell.equals(cell));
+    /**
+     * Build a MoveEvent from the pieces recorded as moved, listing the pieces in id order.
+     *
+     * @return The MoveEvent.
+     */
+    private MoveEvent buildMoveEvent() {
+        // A move displaces only a few pieces, so an insertion sort suffices.
+        for (int i = 0; i < movedCount; i++) {
+            int j = i;
+            for (; j > 0 && movedPieces[movedOrder[j - 1]] > movedPieces[i]; j--) {
+                movedOrder[j] = movedOrder[j - 1];
+            }
+            movedOrder[j] = i;
+        }
+
+        final Block[] pieces = new Block[movedCount];
+        final Cell[] from = new Cell[movedCount];
+        final Cell[] to = new Cell[movedCount];
+        final List<Target> completed = new ArrayList<>();
+        final List<Target> uncompleted = new ArrayList<>();
+        for (int i = 0; i < movedCount; i++) {
+            final int moved = movedOrder[i];
+            pieces[i] = registry.getPiece(movedPieces[moved]);
+            from[i] = cellTable.cell(movedFrom[moved]);
+            to[i] = cellTable.cell(movedTo[moved]);
+
+            final int targetId = registry.getTargetForPiece(movedPieces[moved]);
+            if (targetId != PieceRegistry.NONE) {
+                final boolean wasComplete = targetCells[targetId] == movedFrom[moved];
+                final boolean isComplete = targetCells[targetId] == movedTo[moved];
+                if (isComplete && !wasComplete) {
+                    completed.add(registry.getTarget(targetId));
+                } else if (wasComplete && !isComplete) {
+                    uncompleted.add(registry.getTarget(targetId));
                 }
-        );
+            }
+        }
+        return new MoveEvent(pieces, from, to, completed, uncompleted);
     }
 
     /**
-     * Tests whether the distance between the start and end location is permitted.
+     * Notify the PieceMovedHandler and update the target completion of a piece placed at the given packed index.
      *
-     * @param startCell The start cell of the move.
-     * @param endCell   The end cell of the move.
-     * @return True if the move is permitted, false otherwise. Note this does not take into account whether the end
-     * location is occupied and whether any occurpying block can be pushed out of the way.
+     * @param pieceId The id of the piece placed.
+     * @param to      The packed index of the cell the piece was placed at.
      */
-    private boolean moveVectorPermitted(final Cell startCell, final Cell endCell) {
-        Vector diff = endCell.subtract(startCell);
-        return (Math.abs(diff.getX()) == 1) ^ (Math.abs(diff.getY()) == 1);
+    private void piecePlaced(final int pieceId, final int to) {
+        if (pieceMovedHandler != null) {
+            pieceMovedHandler.pieceMoved(registry.getPiece(pieceId), cellTable.cell(to));
+        }
+
+        // If there is a target for this piece, update its complete property.
+        final int targetId = registry.getTargetForPiece(pieceId);
+        if (targetId != PieceRegistry.NONE) {
+            targetsComplete[targetId].set(targetCells[targetId] == to);
+        }
     }
 
     /**
-     * If possible, moves the given Block to the specified cell, pushing other pieces out of the way if needed.
+     * If possible, moves the given Block one cell in the given direction, pushing other pieces out of the way if needed.
      * <p>
      * The number of blocks which can be pushed is specified by <code>canPushBlockCount</code>.
      * <p>
-     * If <code>dryRun</code> is true, don't perform the move, just report on whether it is possible.
-     * <p>
      * Other pieces will only be pushed out of the way if they can move to another cell in the same direction as the
      * requested block. If the block to be moved/pushed is blocked by a wall, or another block if the number of pieces
-     * that can be moved has been exceeded, then the move cannot be completed.
+     * that can be moved has been exceeded, then the move cannot be completed and no pieces are moved.
      * <p>
      * If any pieces are moved the board's PieceMovedHandler will be notified.
      *
-     * @param block             The Block to move.
-     * @param targetCell        The cell to move the Block to.
-     * @param canPushBlockCount The number of Pieces the given Block can move if the target cell is occupied.
-     * @param dryRun            If true, don't actually perform the move, just report on whether it is possible.
+     * @param pieceId           The id of the piece to move.
+     * @param direction         The direction to move the piece.
+     * @param canPushBlockCount The number of Pieces the given piece can move if the target cell is occupied.
      * @return The move was succesfully performed.
      */
-    private boolean movePieceTo(final Block block, final Cell targetCell, final int canPushBlockCount, final boolean dryRun) {
-        Cell currentCell = blocksMap.get(block);
-        if (!moveVectorPermitted(currentCell, targetCell)) {
+    private boolean movePiece(final int pieceId, final Direction direction, final int canPushBlockCount) {
+        final int to = cellTable.neighbour(pieceCells[pieceId], direction);
+        if (!isSpaceOnBoard(to)) {
             return false;
         }
 
-        if (!isSpaceOnBoard(targetCell)) {
+        final int occupant = occupants.get(to);
+        if (occupant != PieceRegistry.NONE && (canPushBlockCount <= 0 || !movePiece(occupant, direction, canPushBlockCount - 1))) {
             return false;
         }
 
-        if (isSpaceFree(targetCell)) {
-            if (!dryRun) {
-                setPiecePosition(block, targetCell);
-            }
-            return true;
-        }
-
-        if (canPushBlockCount <= 0) {
-            return false;
-        }
-
-        Optional<Block> possiblePiece = getPieceAtCell(targetCell);
-        if (!possiblePiece.isPresent()) {
-            throw new RuntimeException("Block missing at cell but marked as occupied: " + targetCell);
-        }
-
-        Vector diff = targetCell.subtract(blocksMap.get(block));
-
-        if (movePieceTo(possiblePiece.get(), targetCell.translate(diff), canPushBlockCount - 1, dryRun)) {
-            if (!dryRun) {
-                setPiecePosition(block, targetCell);
-            }
-            return true;
-        }
-        return false;
+        setPiecePosition(pieceId, to);
+        return true;
     }
 
     /**
@@ -360,11 +539,10 @@ public class Board {
     }
 
     /**
-     * Storage class for data related to a target.
+     * Interface to be implemented by the handler called once for each logical move.
      */
-    private static class TargetData {
-        Cell cell;
-        Block block;
-        BooleanProperty complete;
+    @FunctionalInterface
+    public interface MoveEventHandler {
+        void moved(MoveEvent event);
     }
 }
@@ -1,5 +1,8 @@
 package com.foomoo.box;
 
+import com.foomoo.box.metrics.LatencyHistogram;
+import com.foomoo.box.metrics.Metrics;
+
 import java.util.*;
 
 /**
@@ -7,23 +10,37 @@ import java.util.*;
  */
 public class BoardDefinition {
 
+    private static final LatencyHistogram PARSE_LATENCY = Metrics.histogram("definition.parse");
+
     private int width;
     private int height;
-    private boolean[][] wallCells;
+    private TileGrid walls;
     private Cell playerCell;
 
     private Map<Block, Cell> blocks;
     private Map<Target, Cell> targets;
     private Map<Block, Target> blockTargetMap;
 
-    private BoardDefinition(int width, int height, boolean[][] wallCells, Cell playerCell, Map<Block, Cell> blocks, Map<Target, Cell> targets, Map<Block, Target> blockTargetMap) {
+    private PieceRegistry registry;
+    private Cell[] pieceCells;
+    private Cell[] targetCells;
+
+    private BoardDefinition(int width, int height, TileGrid walls, Cell playerCell, Map<Block, Cell> blocks, Map<Target, Cell> targets, Map<Block, Target> blockTargetMap, PieceRegistry registry) {
         this.width = width;
         this.height = height;
-        this.wallCells = wallCells;
+        this.walls = walls;
         this.playerCell = playerCell;
         this.blocks = blocks;
         this.targets = targets;
         this.blockTargetMap = blockTargetMap;
+        this.registry = registry;
+
+        pieceCells = new Cell[registry.getPieceCount()];
+        registry.getPlayer().ifPresent(player -> pieceCells[registry.getPlayerId()] = playerCell);
+        blocks.forEach((block, cell) -> pieceCells[registry.getPieceId(block)] = cell);
+
+        targetCells = new Cell[registry.getTargetCount()];
+        targets.forEach((target, cell) -> targetCells[registry.getTargetId(target)] = cell);
     }
 
     public int getWidth() {
@@ -34,9 +51,24 @@ public class BoardDefinition {
         return height;
     }
 
+    /**
+     * Is the given position a wall. Positions beyond the end of a short row, or outside of the definition, are walls.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return True if the position is a wall.
+     */
     public boolean cellIsWall(int row, int column) {
-        boolean[] rowWalls = wallCells[row];
-        return (rowWalls.length <= column) || rowWalls[column];
+        return walls.get(row, column);
+    }
+
+    /**
+     * Gets the walls of the definition as a TileGrid, which stores large areas of floor or wall compactly.
+     *
+     * @return The TileGrid, with a set value for each wall.
+     */
+    public TileGrid getWalls() {
+        return walls;
     }
 
     public Optional<Cell> getPlayerCell() {
@@ -55,7 +87,107 @@ public class BoardDefinition {
         return blockTargetMap;
     }
 
+    /**
+     * Gets the registry of dense ids for the pieces and targets of this definition. The player piece is the Player
+     * returned by the registry.
+     *
+     * @return The PieceRegistry.
+     */
+    public PieceRegistry getPieceRegistry() {
+        return registry;
+    }
+
+    /**
+     * Gets the starting cell of the piece with the given id.
+     *
+     * @param pieceId The piece id from the PieceRegistry.
+     * @return The Cell.
+     */
+    public Cell getPieceCell(final int pieceId) {
+        return pieceCells[pieceId];
+    }
+
+    /**
+     * Gets the cell of the target with the given id.
+     *
+     * @param targetId The target id from the PieceRegistry.
+     * @return The Cell.
+     */
+    public Cell getTargetCell(final int targetId) {
+        return targetCells[targetId];
+    }
+
+    /**
+     * Gets the definition string for this definition, in the form accepted by {@link #fromString(String)}. Every row
+     * is written to the full width of the definition, with cells beyond the end of shorter rows written as walls.
+     *
+     * @return The definition string.
+     */
+    public String toDefinitionString() {
+        return join(render());
+    }
+
+    /**
+     * Create a new definition by applying the given symmetry to this definition. Pieces and targets keep their text.
+     *
+     * @param symmetry The symmetry to apply.
+     * @return The transformed BoardDefinition.
+     */
+    public BoardDefinition transform(final Symmetry symmetry) {
+        final char[][] grid = render();
+        final int rows = symmetry.transformedRows(height, width);
+        final int columns = symmetry.transformedColumns(height, width);
+        final char[][] transformed = new char[rows][columns];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                transformed[symmetry.transformRow(row, column, height, width)]
+                        [symmetry.transformColumn(row, column, height, width)] = grid[row][column];
+            }
+        }
+        return fromString(join(transformed));
+    }
+
+    /**
+     * Render the definition as a grid of definition characters.
+     *
+     * @return The grid, indexed by row then column.
+     */
+    private char[][] render() {
+        final char[][] grid = new char[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                grid[row][column] = cellIsWall(row, column) ? 'X' : ' ';
+            }
+        }
+        if (playerCell != null) {
+            grid[playerCell.getRow()][playerCell.getColumn()] = '@';
+        }
+        blocks.forEach((block, cell) -> grid[cell.getRow()][cell.getColumn()] = block.getText().charAt(0));
+        targets.forEach((target, cell) -> grid[cell.getRow()][cell.getColumn()] = target.getText().charAt(0));
+        return grid;
+    }
+
+    private static String join(final char[][] grid) {
+        final StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < grid.length; row++) {
+            if (row > 0) {
+                builder.append('\n');
+            }
+            builder.append(grid[row]);
+        }
+        return builder.toString();
+    }
+
     public static BoardDefinition fromString(final String boardDefinition) {
+        final long start = System.nanoTime();
+        try {
+            return parse(boardDefinition);
+        } finally {
+            PARSE_LATENCY.recordSince(start);
+        }
+    }
+
+    private static BoardDefinition parse(final String boardDefinition) {
         if (boardDefinition.isEmpty()) {
             throw new RuntimeException("Board definition string cannot be empty.");
         }
@@ -63,31 +195,48 @@ public class BoardDefinition {
         Cell playerCell = null;
         String rowStrings[] = boardDefinition.split("\n");
         int rowCount = rowStrings.length;
-        int colCount = 0;
+        int colCount = Arrays.stream(rowStrings).mapToInt(String::length).max().orElse(0);
 
-        boolean[][] wallCells = new boolean[rowStrings.length][];
+        // Every cell starts as a wall, so cells beyond the end of short rows remain walls.
+        TileGrid.Builder wallBuilder = new TileGrid.Builder(rowCount, colCount, true);
         Map<Block, Cell> blockMap = new HashMap<>();
         Map<Target, Cell> targetMap = new HashMap<>();
         Map<Block, Target> blockTargetMap = new HashMap<>();
+        PieceRegistry.Builder registryBuilder = new PieceRegistry.Builder();
 
         for (int row = 0; row < rowStrings.length; row++) {
             String rowString = rowStrings[row];
-            wallCells[row] = new boolean[rowString.length()];
-            colCount = Math.max(colCount, rowString.length());
 
             for (int col = 0; col < rowString.length(); col++) {
                 String textAtCell = rowString.substring(col, col + 1);
 
                 if (textAtCell.equals("X")) {
-                    wallCells[row][col] = true;
-                } else if (textAtCell.equals("@")) {
+                    continue;
+                }
+
+                wallBuilder.set(row, col, false);
+                if (textAtCell.equals("@")) {
+                    if (playerCell == null) {
+                        registryBuilder.player(new Player(textAtCell));
+                    }
                     playerCell = new Cell(row, col);
                 } else if (Character.isUpperCase(textAtCell.codePointAt(0))) {
-                    blockMap.put(new Block(textAtCell), new Cell(row, col));
+                    Block block = new Block(textAtCell);
+                    if (blockMap.put(block, new Cell(row, col)) == null) {
+                        registryBuilder.block(block);
+                    }
                 } else if (Character.isLowerCase(textAtCell.codePointAt(0))) {
-                    targetMap.put(new Target(textAtCell), new Cell(row, col));
+                    Target target = new Target(textAtCell);
+                    if (targetMap.put(target, new Cell(row, col)) == null) {
+                        registryBuilder.target(target);
+                    }
                 }
             }
+
+            // Release the storage of uniform tiles as each band of rows is completed.
+            if ((row + 1) % TileGrid.TILE_SIZE == 0) {
+                wallBuilder.compactTileRow(row / TileGrid.TILE_SIZE);
+            }
         }
 
         // We have our Blocks and Targets. Now try to find those that are associated with each other.
@@ -96,8 +245,9 @@ public class BoardDefinition {
             targetMap.keySet().stream().filter(target -> target.getText().equals(possibleTargetText))
                     .findFirst().ifPresent(target -> blockTargetMap.put(block, target));
         });
+        blockTargetMap.forEach(registryBuilder::link);
 
-        return new BoardDefinition(colCount, rowCount, wallCells, playerCell, blockMap, targetMap, blockTargetMap);
+        return new BoardDefinition(colCount, rowCount, wallBuilder.build(), playerCell, blockMap, targetMap, blockTargetMap, registryBuilder.build());
     }
 
 }
@@ -1,10 +1,7 @@
 package com.foomoo.box;
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
-import javafx.beans.property.Property;
+import com.foomoo.box.metrics.LatencyHistogram;
+import com.foomoo.box.metrics.Metrics;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -25,8 +22,16 @@ import java.util.Optional;
  * Provides a view of the Board, animating movement of blocks in response to notification of piece movement,
  * indicating when a block has reached its target, and calling a BoardCellClickedHandler in response to mouse clicks
  * on a cell.
+ * <p>
+ * The Board's MoveEvents are coalesced and applied once per pulse, so several moves within a frame cause a single
+ * update of the scene.
+ * <p>
+ * Player moves should be submitted through the view's MoveInputQueue, which applies them to the Board immediately and
+ * records the latency until they are shown. Animations are shortened when the view falls behind the Board.
  */
 public class BoardView extends Scene {
+    private static final LatencyHistogram UPDATE_LATENCY = Metrics.histogram("view.update");
+
     private static final int CELL_WIDTH = 100;
     private static final int CELL_HEIGHT = 100;
 
@@ -34,12 +39,20 @@ public class BoardView extends Scene {
     // the blocks.
     private final Map<Block, Pane> piecesPaneMap = new HashMap<>();
 
+    private final Map<Target, Pane> targetsPaneMap = new HashMap<>();
+
+    private final PaneAnimator animator = new PaneAnimator(Duration.seconds(0.5));
+    private final MoveInputQueue inputQueue;
+    private final FrameLatencyTimer frameLatency;
+
     public BoardView(Board board, BoardCellClickedHandler handler) {
         this(board, handler, new Group());
     }
 
     private BoardView(final Board board, final BoardCellClickedHandler handler, final Group group) {
         super(group, board.getCellColumns() * CELL_WIDTH, board.getCellRows() * CELL_HEIGHT, Color.WHITE);
+        inputQueue = new MoveInputQueue(board::move);
+        frameLatency = new FrameLatencyTimer(inputQueue);
 
         board.targets().forEach(target -> {
             Cell cell = board.getCellForTarget(target);
@@ -54,16 +67,7 @@ public class BoardView extends Scene {
             stackPane.setStyle("-fx-border-color: lightskyblue; -fx-background-color: lightskyblue");
 
             group.getChildren().add(stackPane);
-
-            Property<Boolean> property = board.getPropertyForTarget(target);
-            property.addListener((observable, oldValue, newValue) -> {
-
-                if (newValue) {
-                    stackPane.setStyle("-fx-border-color: greenyellow; -fx-background-color: greenyellow");
-                } else {
-                    stackPane.setStyle("-fx-border-color: lightskyblue; -fx-background-color: lightskyblue");
-                }
-            });
+            targetsPaneMap.put(target, stackPane);
         });
 
         board.cellPositionsOnBoard().forEach(cell -> {
@@ -100,18 +104,7 @@ public class BoardView extends Scene {
             }
         });
 
-        board.setPieceMovedHandler((piece, point) -> {
-            Pane pane = piecesPaneMap.get(piece);
-            if (pane == null) {
-                throw new RuntimeException("Label not found for Block");
-            } else {
-                Timeline moving = new Timeline(Animation.INDEFINITE,
-                        new KeyFrame(Duration.seconds(0.5), new KeyValue(pane.translateXProperty(), point.getColumn() * CELL_WIDTH)),
-                        new KeyFrame(Duration.seconds(0.5), new KeyValue(pane.translateYProperty(), point.getRow() * CELL_HEIGHT))
-                );
-                moving.play();
-            }
-        });
+        board.setMoveEventHandler(new MoveEventCoalescer(this::applyMoveEvent)::submit);
 
         board.getCompleteProperty().addListener(((observable1, oldValue1, newValue1) -> {
             if (newValue1) {
@@ -121,6 +114,42 @@ public class BoardView extends Scene {
         }));
     }
 
+    /**
+     * Gets the queue through which player moves should be submitted.
+     *
+     * @return The MoveInputQueue.
+     */
+    public MoveInputQueue getInputQueue() {
+        return inputQueue;
+    }
+
+    /**
+     * Animate the pieces and update the targets changed by a MoveEvent.
+     *
+     * @param event The event, possibly merged from several moves.
+     */
+    private void applyMoveEvent(final MoveEvent event) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < event.getMovedCount(); i++) {
+            final Cell point = event.getToCell(i);
+            final Pane pane = piecesPaneMap.get(event.getPiece(i));
+            if (pane == null) {
+                throw new RuntimeException("Label not found for Block");
+            } else {
+                animator.moveTo(pane, point.getColumn() * CELL_WIDTH, point.getRow() * CELL_HEIGHT,
+                        inputQueue.getPendingCount());
+            }
+        }
+
+        event.getCompletedTargets().forEach(target ->
+                targetsPaneMap.get(target).setStyle("-fx-border-color: greenyellow; -fx-background-color: greenyellow"));
+        event.getUncompletedTargets().forEach(target ->
+                targetsPaneMap.get(target).setStyle("-fx-border-color: lightskyblue; -fx-background-color: lightskyblue"));
+
+        frameLatency.updated();
+        UPDATE_LATENCY.recordSince(start);
+    }
+
     @FunctionalInterface
     interface BoardCellClickedHandler {
         void cellClicked(Cell clickedCell);
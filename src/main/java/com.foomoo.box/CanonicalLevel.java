@@ -0,0 +1,143 @@
+package com.foomoo.box;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The canonical form of a level under the eight {@link Symmetry symmetries} of the grid, so that rotated and mirrored
+ * copies of a level can be recognised as the same puzzle.
+ * <p>
+ * The canonical form is the transformed definition with the lexicographically smallest definition string, ignoring
+ * the player; ties are broken by the full definition string. Moves found for the canonical form are mapped back to
+ * the original level through the inverse symmetry.
+ */
+public final class CanonicalLevel {
+
+    private final BoardDefinition definition;
+    private final String definitionString;
+    private final Symmetry symmetry;
+
+    private CanonicalLevel(final BoardDefinition definition, final String definitionString, final Symmetry symmetry) {
+        this.definition = definition;
+        this.definitionString = definitionString;
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * Find the canonical form of the given definition.
+     *
+     * @param original The definition.
+     * @return The CanonicalLevel.
+     */
+    public static CanonicalLevel of(final BoardDefinition original) {
+        final String[] rows = original.toDefinitionString().split("\n");
+        final int height = original.getHeight();
+        final int width = original.getWidth();
+
+        Symmetry bestSymmetry = null;
+        String bestLayout = null;
+        String bestString = null;
+        for (Symmetry symmetry : Symmetry.values()) {
+            final int transformedColumns = symmetry.transformedColumns(height, width);
+            final char[] transformed = new char[symmetry.transformedRows(height, width) * (transformedColumns + 1) - 1];
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    final int index = symmetry.transformRow(row, column, height, width) * (transformedColumns + 1)
+                            + symmetry.transformColumn(row, column, height, width);
+                    transformed[index] = rows[row].charAt(column);
+                }
+            }
+            for (int index = transformedColumns; index < transformed.length; index += transformedColumns + 1) {
+                transformed[index] = '\n';
+            }
+
+            final String string = new String(transformed);
+            final String layout = string.replace('@', ' ');
+            final int comparison = bestLayout == null ? -1 : layout.compareTo(bestLayout);
+            if (comparison < 0 || (comparison == 0 && string.compareTo(bestString) < 0)) {
+                bestSymmetry = symmetry;
+                bestLayout = layout;
+                bestString = string;
+            }
+        }
+
+        return new CanonicalLevel(BoardDefinition.fromString(bestString), bestString, bestSymmetry);
+    }
+
+    /**
+     * Gets the distinct levels of the given definitions, keeping the first of each set of symmetric copies.
+     *
+     * @param definitions The definitions.
+     * @return The distinct definitions, in their original order.
+     */
+    public static List<BoardDefinition> distinct(final Collection<BoardDefinition> definitions) {
+        final Set<CanonicalLevel> seen = new HashSet<>();
+        final List<BoardDefinition> distinct = new ArrayList<>();
+        for (BoardDefinition definition : definitions) {
+            if (seen.add(of(definition))) {
+                distinct.add(definition);
+            }
+        }
+        return distinct;
+    }
+
+    public BoardDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Gets the definition string of the canonical form, which identifies the level and all its symmetric copies.
+     *
+     * @return The definition string.
+     */
+    public String getDefinitionString() {
+        return definitionString;
+    }
+
+    /**
+     * Gets the symmetry which maps the original definition onto the canonical form.
+     *
+     * @return The Symmetry.
+     */
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Map moves made on the original definition to the equivalent moves on the canonical form.
+     *
+     * @param moves The moves in LURD notation.
+     * @return The canonical moves.
+     */
+    public String toCanonicalMoves(final String moves) {
+        return symmetry.applyToMoves(moves);
+    }
+
+    /**
+     * Map moves made on the canonical form back to the equivalent moves on the original definition.
+     *
+     * @param moves The moves in LURD notation.
+     * @return The original moves.
+     */
+    public String toOriginalMoves(final String moves) {
+        return symmetry.inverse().applyToMoves(moves);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof CanonicalLevel && definitionString.equals(((CanonicalLevel) obj).definitionString);
+    }
+
+    @Override
+    public int hashCode() {
+        return definitionString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CanonicalLevel(" + symmetry + ")\n" + definitionString;
+    }
+}
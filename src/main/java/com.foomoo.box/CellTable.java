@@ -0,0 +1,196 @@
+package com.foomoo.box;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A table of interned Cell instances covering a rectangular area, addressed by packed int index.
+ * <p>
+ * The packed index of a cell is <code>(row - minRow) * columns + (column - minColumn)</code>. Moving between cells by
+ * index avoids allocating Cell and Vector objects, and callers which need Cell objects get the same canonical
+ * instance for each position.
+ * <p>
+ * Cells are created a {@value TileGrid#TILE_SIZE}×{@value TileGrid#TILE_SIZE} tile at a time, when a cell of the tile
+ * is first requested, so large tables which are only used in part hold few Cells. Tables may be shared between
+ * threads.
+ */
+public final class CellTable {
+
+    private final int minRow;
+    private final int minColumn;
+    private final int rows;
+    private final int columns;
+    private final int tileColumns;
+    private final AtomicReferenceArray<Cell[]> tiles;
+
+    /**
+     * Construct a table covering the given area.
+     *
+     * @param minRow    The first row covered.
+     * @param minColumn The first column covered.
+     * @param rows      The number of rows covered.
+     * @param columns   The number of columns covered.
+     */
+    public CellTable(final int minRow, final int minColumn, final int rows, final int columns) {
+        this.minRow = minRow;
+        this.minColumn = minColumn;
+        this.rows = rows;
+        this.columns = columns;
+        this.tileColumns = (columns + TileGrid.TILE_MASK) >> TileGrid.TILE_SHIFT;
+        this.tiles = new AtomicReferenceArray<>(((rows + TileGrid.TILE_MASK) >> TileGrid.TILE_SHIFT) * tileColumns);
+    }
+
+    /**
+     * Construct a table covering the rectangle bounded by the two corner cells.
+     *
+     * @param corner1 The first corner.
+     * @param corner2 The second corner.
+     * @return The CellTable.
+     */
+    public static CellTable spanning(final Cell corner1, final Cell corner2) {
+        final Cell min = Cell.minimalCell(corner1, corner2);
+        final Cell max = Cell.maximalCell(corner1, corner2);
+        return new CellTable(min.getRow(), min.getColumn(), max.getRow() - min.getRow() + 1,
+                max.getColumn() - min.getColumn() + 1);
+    }
+
+    /**
+     * Gets the number of cells in the table.
+     *
+     * @return The cell count.
+     */
+    public int size() {
+        return rows * columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Does the table cover both of the given corner cells, and so everything between them.
+     *
+     * @param corner1 The first corner.
+     * @param corner2 The second corner.
+     * @return True if the table covers the rectangle bounded by the corners.
+     */
+    public boolean covers(final Cell corner1, final Cell corner2) {
+        return index(corner1) >= 0 && index(corner2) >= 0;
+    }
+
+    /**
+     * Gets the packed index of the given position.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return The packed index, or -1 if the position is not covered by the table.
+     */
+    public int index(final int row, final int column) {
+        final int tableRow = row - minRow;
+        final int tableColumn = column - minColumn;
+        if (tableRow < 0 || tableRow >= rows || tableColumn < 0 || tableColumn >= columns) {
+            return -1;
+        }
+        return tableRow * columns + tableColumn;
+    }
+
+    /**
+     * Gets the packed index of the given cell.
+     *
+     * @param cell The cell.
+     * @return The packed index, or -1 if the cell is not covered by the table.
+     */
+    public int index(final Cell cell) {
+        return index(cell.getRow(), cell.getColumn());
+    }
+
+    /**
+     * Gets the interned Cell for the given packed index.
+     *
+     * @param index The packed index.
+     * @return The Cell.
+     */
+    public Cell cell(final int index) {
+        return cellAt(index / columns, index % columns);
+    }
+
+    /**
+     * Gets a Cell for the given position, interned if the position is covered by the table.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return The Cell.
+     */
+    public Cell cell(final int row, final int column) {
+        final int index = index(row, column);
+        return index < 0 ? new Cell(row, column) : cellAt(row - minRow, column - minColumn);
+    }
+
+    /**
+     * Gets the canonical instance of the given cell if it is covered by the table.
+     *
+     * @param cell The cell to intern.
+     * @return The interned Cell, or the given Cell if it is not covered by the table.
+     */
+    public Cell intern(final Cell cell) {
+        final int index = index(cell);
+        return index < 0 ? cell : cellAt(cell.getRow() - minRow, cell.getColumn() - minColumn);
+    }
+
+    /**
+     * Gets the interned Cell at the given position relative to the table, creating its tile if needed.
+     *
+     * @param tableRow    The row within the table.
+     * @param tableColumn The column within the table.
+     * @return The Cell.
+     */
+    private Cell cellAt(final int tableRow, final int tableColumn) {
+        final int tileIndex = (tableRow >> TileGrid.TILE_SHIFT) * tileColumns + (tableColumn >> TileGrid.TILE_SHIFT);
+        Cell[] tile = tiles.get(tileIndex);
+        if (tile == null) {
+            tile = createTile(tileIndex);
+        }
+        return tile[(tableRow & TileGrid.TILE_MASK) << TileGrid.TILE_SHIFT | (tableColumn & TileGrid.TILE_MASK)];
+    }
+
+    private Cell[] createTile(final int tileIndex) {
+        final int rowBase = (tileIndex / tileColumns) << TileGrid.TILE_SHIFT;
+        final int columnBase = (tileIndex % tileColumns) << TileGrid.TILE_SHIFT;
+        final Cell[] tile = new Cell[TileGrid.TILE_SIZE * TileGrid.TILE_SIZE];
+        for (int row = 0; row < TileGrid.TILE_SIZE; row++) {
+            for (int column = 0; column < TileGrid.TILE_SIZE; column++) {
+                tile[row << TileGrid.TILE_SHIFT | column] =
+                        new Cell(minRow + rowBase + row, minColumn + columnBase + column);
+            }
+        }
+        // Another thread may have created the tile first, in which case its Cells are the interned ones.
+        return tiles.compareAndSet(tileIndex, null, tile) ? tile : tiles.get(tileIndex);
+    }
+
+    public int getRow(final int index) {
+        return minRow + index / columns;
+    }
+
+    public int getColumn(final int index) {
+        return minColumn + index % columns;
+    }
+
+    /**
+     * Gets the packed index of the cell adjacent to the given one in the given direction.
+     *
+     * @param index     The packed index.
+     * @param direction The direction to step.
+     * @return The neighbouring packed index, or -1 if the neighbour is not covered by the table.
+     */
+    public int neighbour(final int index, final Direction direction) {
+        final int row = index / columns + direction.getRowDelta();
+        final int column = index % columns + direction.getColumnDelta();
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+}
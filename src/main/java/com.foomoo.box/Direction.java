@@ -0,0 +1,112 @@
+package com.foomoo.box;
+
+import com.foomoo.box.model.Vector;
+
+import java.util.Optional;
+
+/**
+ * The four directions in which a piece can be moved, with the row and column offset of each.
+ * <p>
+ * Declared in LURD order (left, up, right, down) so that the ordinal can be used directly as a compact move code.
+ */
+public enum Direction {
+    LEFT(0, -1, 'l'),
+    UP(-1, 0, 'u'),
+    RIGHT(0, 1, 'r'),
+    DOWN(1, 0, 'd');
+
+    private static final Direction[] VALUES = values();
+
+    private final int rowDelta;
+    private final int columnDelta;
+    private final char lurd;
+    private final Vector vector;
+
+    Direction(final int rowDelta, final int columnDelta, final char lurd) {
+        this.rowDelta = rowDelta;
+        this.columnDelta = columnDelta;
+        this.lurd = lurd;
+        this.vector = new Vector(rowDelta, columnDelta);
+    }
+
+    public int getRowDelta() {
+        return rowDelta;
+    }
+
+    public int getColumnDelta() {
+        return columnDelta;
+    }
+
+    /**
+     * Gets the lower case LURD character for this direction.
+     *
+     * @return The LURD character.
+     */
+    public char getLurd() {
+        return lurd;
+    }
+
+    /**
+     * Gets the shared Vector instance representing this direction.
+     *
+     * @return The Vector.
+     */
+    public Vector getVector() {
+        return vector;
+    }
+
+    /**
+     * Gets the direction opposite to this one.
+     *
+     * @return The opposite Direction.
+     */
+    public Direction opposite() {
+        return VALUES[(ordinal() + 2) & 3];
+    }
+
+    /**
+     * Gets the Direction with the given ordinal without allocating a copy of the values array.
+     *
+     * @param ordinal The ordinal.
+     * @return The Direction.
+     */
+    public static Direction fromOrdinal(final int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Gets the Direction for the given LURD character. Upper and lower case characters are accepted.
+     *
+     * @param lurd The character.
+     * @return Optional of the Direction. Absent if the character is not a LURD move.
+     */
+    public static Optional<Direction> fromLurd(final char lurd) {
+        switch (Character.toLowerCase(lurd)) {
+            case 'l':
+                return Optional.of(LEFT);
+            case 'u':
+                return Optional.of(UP);
+            case 'r':
+                return Optional.of(RIGHT);
+            case 'd':
+                return Optional.of(DOWN);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the Direction matching the given unit vector.
+     *
+     * @param vector The vector.
+     * @return Optional of the Direction. Absent if the vector is not a unit step horizontally or vertically.
+     */
+    public static Optional<Direction> fromVector(final Vector vector) {
+        for (Direction direction : VALUES) {
+            if (direction.rowDelta == vector.getX() && direction.columnDelta == vector.getY()) {
+                return Optional.of(direction);
+            }
+        }
+        return Optional.empty();
+    }
+}
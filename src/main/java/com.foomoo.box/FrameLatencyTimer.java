@@ -0,0 +1,47 @@
+package com.foomoo.box;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Records the input to frame latency of moves in a MoveInputQueue once the frame showing them has been rendered.
+ * <p>
+ * A view calls {@link #updated()} after changing the scene graph to show the pending moves. The frame of that pulse is
+ * rendered after its animation timers have run, so the latency is stamped at the start of the next pulse. Only the moves
+ * pending at the update are stamped; moves input in between are shown by a later frame.
+ * <p>
+ * The timer only runs while a stamp is due. Updates must be made on the JavaFX application thread, at most once per
+ * pulse.
+ */
+public class FrameLatencyTimer extends AnimationTimer {
+
+    private final MoveInputQueue inputQueue;
+    private int shownMoves;
+
+    /**
+     * Construct a FrameLatencyTimer recording latencies in the given queue.
+     *
+     * @param inputQueue The queue.
+     */
+    public FrameLatencyTimer(final MoveInputQueue inputQueue) {
+        this.inputQueue = inputQueue;
+    }
+
+    /**
+     * Note that the scene graph now shows every pending move.
+     */
+    public void updated() {
+        if (shownMoves > 0) {
+            // This pulse ran the update before the stamp, so the earlier update's frame has already been rendered.
+            inputQueue.frameRendered(System.nanoTime(), shownMoves);
+        }
+        shownMoves = inputQueue.getPendingCount();
+        start();
+    }
+
+    @Override
+    public void handle(final long now) {
+        stop();
+        inputQueue.frameRendered(System.nanoTime(), shownMoves);
+        shownMoves = 0;
+    }
+}
@@ -0,0 +1,126 @@
+package com.foomoo.box;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes a single logical move on a Board: every piece displaced by the move, and every target whose completion
+ * changed as a result.
+ * <p>
+ * Events may be merged, so that a view can apply all the moves made within one frame together.
+ */
+public final class MoveEvent {
+
+    private final Block[] pieces;
+    private final Cell[] fromCells;
+    private final Cell[] toCells;
+    private final List<Target> completedTargets;
+    private final List<Target> uncompletedTargets;
+
+    MoveEvent(final Block[] pieces, final Cell[] fromCells, final Cell[] toCells, final List<Target> completedTargets,
+              final List<Target> uncompletedTargets) {
+        this.pieces = pieces;
+        this.fromCells = fromCells;
+        this.toCells = toCells;
+        this.completedTargets = Collections.unmodifiableList(completedTargets);
+        this.uncompletedTargets = Collections.unmodifiableList(uncompletedTargets);
+    }
+
+    /**
+     * Gets the number of pieces displaced.
+     *
+     * @return The moved piece count.
+     */
+    public int getMovedCount() {
+        return pieces.length;
+    }
+
+    public Block getPiece(final int index) {
+        return pieces[index];
+    }
+
+    public Cell getFromCell(final int index) {
+        return fromCells[index];
+    }
+
+    public Cell getToCell(final int index) {
+        return toCells[index];
+    }
+
+    /**
+     * Gets the targets which became complete.
+     *
+     * @return Unmodifiable List of Targets.
+     */
+    public List<Target> getCompletedTargets() {
+        return completedTargets;
+    }
+
+    /**
+     * Gets the targets which became incomplete.
+     *
+     * @return Unmodifiable List of Targets.
+     */
+    public List<Target> getUncompletedTargets() {
+        return uncompletedTargets;
+    }
+
+    /**
+     * Combine this event with one which followed it. Each piece moves from its cell before this event to its cell after
+     * the later event, and targets report only their net change in completion.
+     *
+     * @param later The event which followed this one.
+     * @return The merged MoveEvent.
+     */
+    public MoveEvent merge(final MoveEvent later) {
+        final Map<Block, Cell[]> moves = new LinkedHashMap<>();
+        for (int i = 0; i < pieces.length; i++) {
+            moves.put(pieces[i], new Cell[]{fromCells[i], toCells[i]});
+        }
+        for (int i = 0; i < later.pieces.length; i++) {
+            final Cell[] move = moves.get(later.pieces[i]);
+            if (move == null) {
+                moves.put(later.pieces[i], new Cell[]{later.fromCells[i], later.toCells[i]});
+            } else {
+                move[1] = later.toCells[i];
+            }
+        }
+
+        final Block[] mergedPieces = new Block[moves.size()];
+        final Cell[] mergedFrom = new Cell[moves.size()];
+        final Cell[] mergedTo = new Cell[moves.size()];
+        int index = 0;
+        for (Map.Entry<Block, Cell[]> entry : moves.entrySet()) {
+            mergedPieces[index] = entry.getKey();
+            mergedFrom[index] = entry.getValue()[0];
+            mergedTo[index] = entry.getValue()[1];
+            index++;
+        }
+
+        // A target changing twice has returned to its original state.
+        final List<Target> completed = new ArrayList<>(completedTargets);
+        final List<Target> uncompleted = new ArrayList<>(uncompletedTargets);
+        for (Target target : later.completedTargets) {
+            if (!uncompleted.remove(target)) {
+                completed.add(target);
+            }
+        }
+        for (Target target : later.uncompletedTargets) {
+            if (!completed.remove(target)) {
+                uncompleted.add(target);
+            }
+        }
+
+        return new MoveEvent(mergedPieces, mergedFrom, mergedTo, completed, uncompleted);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MoveEvent(pieces=%s, to=%s, completed=%s, uncompleted=%s)", Arrays.toString(pieces),
+                Arrays.toString(toCells), completedTargets, uncompletedTargets);
+    }
+}
@@ -0,0 +1,49 @@
+package com.foomoo.box;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects the MoveEvents submitted between JavaFX pulses and delivers them, merged into one event, at the next pulse.
+ * <p>
+ * The timer only runs while an event is pending. Events must be submitted on the JavaFX application thread.
+ */
+public class MoveEventCoalescer extends AnimationTimer {
+
+    private final Consumer<MoveEvent> consumer;
+    private MoveEvent pending;
+
+    /**
+     * Construct a MoveEventCoalescer delivering merged events to the given consumer.
+     *
+     * @param consumer Consumer to apply each merged event, called once per pulse at most.
+     */
+    public MoveEventCoalescer(final Consumer<MoveEvent> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Queue an event for delivery at the next pulse.
+     *
+     * @param event The event.
+     */
+    public void submit(final MoveEvent event) {
+        if (pending == null) {
+            pending = event;
+            start();
+        } else {
+            pending = pending.merge(event);
+        }
+    }
+
+    @Override
+    public void handle(final long now) {
+        stop();
+        final MoveEvent event = pending;
+        pending = null;
+        if (event != null) {
+            consumer.accept(event);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.foomoo.box;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Applies the player's moves to the game as soon as they are input, and tracks the inputs which have not yet been
+ * shown on screen.
+ * <p>
+ * Because moves are applied immediately, the game state never waits on animation. Views can use
+ * {@link #getPendingCount()} to compress their animations when they fall behind, and call
+ * {@link #frameRendered(long, int)} once a frame showing the new state has been rendered, which records the latency
+ * from input to frame for each move shown. A {@link FrameLatencyTimer} makes that call once the frame is rendered.
+ * <p>
+ * Not thread safe. Intended for use on the JavaFX application thread.
+ */
+public class MoveInputQueue {
+
+    // Latencies are recorded in a histogram of one millisecond buckets, with the last bucket counting all longer ones.
+    private static final int HISTOGRAM_BUCKETS = 1001;
+    private static final long NANOS_PER_BUCKET = 1_000_000L;
+
+    private final Predicate<Direction> mover;
+
+    // Ring buffer of the input times of moves not yet rendered.
+    private long[] pending = new long[16];
+    private int pendingHead;
+    private int pendingCount;
+
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+    private long latencyCount;
+    private long latencyTotalNanos;
+    private long latencyMaxNanos;
+
+    /**
+     * Construct a MoveInputQueue applying moves with the given function.
+     *
+     * @param mover Function applying a move to the game, returning true if the game changed.
+     */
+    public MoveInputQueue(final Predicate<Direction> mover) {
+        this.mover = mover;
+    }
+
+    /**
+     * Apply a move input now.
+     *
+     * @param direction The direction to move.
+     * @return True if the game changed.
+     */
+    public boolean submit(final Direction direction) {
+        return submit(direction, System.nanoTime());
+    }
+
+    /**
+     * Apply a move input received at the given time.
+     *
+     * @param direction  The direction to move.
+     * @param inputNanos The {@link System#nanoTime()} at which the input was received.
+     * @return True if the game changed.
+     */
+    public boolean submit(final Direction direction, final long inputNanos) {
+        if (!mover.test(direction)) {
+            return false;
+        }
+        if (pendingCount == pending.length) {
+            final long[] grown = new long[pending.length * 2];
+            for (int i = 0; i < pendingCount; i++) {
+                grown[i] = pending[(pendingHead + i) % pending.length];
+            }
+            pending = grown;
+            pendingHead = 0;
+        }
+        pending[(pendingHead + pendingCount) % pending.length] = inputNanos;
+        pendingCount++;
+        return true;
+    }
+
+    /**
+     * Gets the number of applied moves not yet shown in a rendered frame.
+     *
+     * @return The pending move count.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Record that a frame showing every pending move has been rendered.
+     *
+     * @param frameNanos The {@link System#nanoTime()} of the frame.
+     */
+    public void frameRendered(final long frameNanos) {
+        frameRendered(frameNanos, pendingCount);
+    }
+
+    /**
+     * Record that a frame showing the given number of the oldest pending moves has been rendered. Later moves were
+     * input after the frame was drawn, so remain pending.
+     *
+     * @param frameNanos The {@link System#nanoTime()} of the frame.
+     * @param moves      The number of pending moves shown by the frame.
+     */
+    public void frameRendered(final long frameNanos, final int moves) {
+        for (int shown = Math.min(moves, pendingCount); shown > 0; shown--) {
+            final long latency = Math.max(0, frameNanos - pending[pendingHead]);
+            pendingHead = (pendingHead + 1) % pending.length;
+            pendingCount--;
+
+            histogram[(int) Math.min(HISTOGRAM_BUCKETS - 1, latency / NANOS_PER_BUCKET)]++;
+            latencyCount++;
+            latencyTotalNanos += latency;
+            latencyMaxNanos = Math.max(latencyMaxNanos, latency);
+        }
+    }
+
+    /**
+     * Gets the number of moves whose input to frame latency has been recorded.
+     *
+     * @return The latency count.
+     */
+    public long getLatencyCount() {
+        return latencyCount;
+    }
+
+    public long getMeanLatencyNanos() {
+        return latencyCount == 0 ? 0 : latencyTotalNanos / latencyCount;
+    }
+
+    public long getMaxLatencyNanos() {
+        return latencyMaxNanos;
+    }
+
+    /**
+     * Gets an upper bound of the given percentile of recorded latencies, to the nearest millisecond.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if no latencies have been recorded.
+     */
+    public long getLatencyPercentileNanos(final double percentile) {
+        final long rank = (long) Math.ceil(latencyCount * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank && seen > 0) {
+                return bucket == HISTOGRAM_BUCKETS - 1 ? latencyMaxNanos
+                        : Math.min(latencyMaxNanos, (bucket + 1) * NANOS_PER_BUCKET);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Clear the recorded latencies.
+     */
+    public void resetLatencies() {
+        Arrays.fill(histogram, 0);
+        latencyCount = 0;
+        latencyTotalNanos = 0;
+        latencyMaxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MoveInputQueue(pending=%d, latencies=%d, mean=%.1fms, p99=%.1fms, max=%.1fms)",
+                pendingCount, latencyCount, getMeanLatencyNanos() / 1e6, getLatencyPercentileNanos(99) / 1e6,
+                latencyMaxNanos / 1e6);
+    }
+}
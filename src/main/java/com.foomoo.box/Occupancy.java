@@ -0,0 +1,80 @@
+package com.foomoo.box;
+
+import java.util.Arrays;
+
+/**
+ * The piece occupying each cell of a Board, addressed by packed cell index.
+ * <p>
+ * Storage is allocated a {@value TileGrid#TILE_SIZE}×{@value TileGrid#TILE_SIZE} tile at a time, when a piece first
+ * enters the tile, so boards with large empty areas only hold storage for the areas pieces have visited.
+ */
+final class Occupancy {
+
+    private static final int TILE_CELLS = TileGrid.TILE_SIZE * TileGrid.TILE_SIZE;
+
+    private final int columns;
+    private final int tileColumns;
+    private final int[][] tiles;
+
+    /**
+     * Construct an Occupancy with every cell unoccupied.
+     *
+     * @param rows    The number of rows.
+     * @param columns The number of columns.
+     */
+    Occupancy(final int rows, final int columns) {
+        this.columns = columns;
+        this.tileColumns = (columns + TileGrid.TILE_MASK) >> TileGrid.TILE_SHIFT;
+        this.tiles = new int[((rows + TileGrid.TILE_MASK) >> TileGrid.TILE_SHIFT) * tileColumns][];
+    }
+
+    /**
+     * Gets the piece occupying the given cell.
+     *
+     * @param index The packed cell index.
+     * @return The piece id, or {@link PieceRegistry#NONE}.
+     */
+    int get(final int index) {
+        final int row = index / columns;
+        final int column = index % columns;
+        final int[] tile = tiles[tileIndex(row, column)];
+        return tile == null ? PieceRegistry.NONE : tile[offset(row, column)];
+    }
+
+    /**
+     * Sets the piece occupying the given cell.
+     *
+     * @param index   The packed cell index.
+     * @param pieceId The piece id, or {@link PieceRegistry#NONE}.
+     */
+    void set(final int index, final int pieceId) {
+        final int row = index / columns;
+        final int column = index % columns;
+        final int tileIndex = tileIndex(row, column);
+        if (tiles[tileIndex] == null) {
+            if (pieceId == PieceRegistry.NONE) {
+                return;
+            }
+            tiles[tileIndex] = new int[TILE_CELLS];
+            Arrays.fill(tiles[tileIndex], PieceRegistry.NONE);
+        }
+        tiles[tileIndex][offset(row, column)] = pieceId;
+    }
+
+    /**
+     * Gets the number of tiles with storage allocated.
+     *
+     * @return The allocated tile count.
+     */
+    int getAllocatedTileCount() {
+        return (int) Arrays.stream(tiles).filter(tile -> tile != null).count();
+    }
+
+    private int tileIndex(final int row, final int column) {
+        return (row >> TileGrid.TILE_SHIFT) * tileColumns + (column >> TileGrid.TILE_SHIFT);
+    }
+
+    private static int offset(final int row, final int column) {
+        return (row & TileGrid.TILE_MASK) << TileGrid.TILE_SHIFT | (column & TileGrid.TILE_MASK);
+    }
+}
@@ -0,0 +1,70 @@
+package com.foomoo.box;
+
+import com.foomoo.box.metrics.Counter;
+import com.foomoo.box.metrics.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Animates nodes between cells, keeping at most one animation running per node.
+ * <p>
+ * A new move for a node replaces any animation still in progress, continuing from the node's current position. When
+ * the view has fallen behind the game by several moves, the animation is shortened in proportion, so the view catches
+ * up rather than building up lag.
+ * <p>
+ * The number of animations running across all animators is tracked by the {@value #ACTIVE_COUNTER} counter.
+ */
+public class PaneAnimator {
+
+    public static final String ACTIVE_COUNTER = "fx.animations.active";
+
+    private static final Counter ACTIVE = Metrics.counter(ACTIVE_COUNTER);
+
+    private final Duration moveDuration;
+    private final Map<Node, Timeline> running = new HashMap<>();
+
+    /**
+     * Construct a PaneAnimator.
+     *
+     * @param moveDuration The duration of the animation of a single move.
+     */
+    public PaneAnimator(final Duration moveDuration) {
+        this.moveDuration = moveDuration;
+    }
+
+    /**
+     * Animate a node to the given position.
+     *
+     * @param node         The node to move.
+     * @param x            The target x translation.
+     * @param y            The target y translation.
+     * @param pendingMoves The number of moves the view is catching up with. Values above one shorten the animation.
+     */
+    public void moveTo(final Node node, final double x, final double y, final int pendingMoves) {
+        final Timeline previous = running.remove(node);
+        if (previous != null) {
+            previous.stop();
+            ACTIVE.decrement();
+        }
+
+        final Duration duration = moveDuration.divide(Math.max(1, pendingMoves));
+        final Timeline timeline = new Timeline(
+                new KeyFrame(duration, new KeyValue(node.translateXProperty(), x)),
+                new KeyFrame(duration, new KeyValue(node.translateYProperty(), y))
+        );
+        timeline.setOnFinished(event -> {
+            if (running.remove(node, timeline)) {
+                ACTIVE.decrement();
+            }
+        });
+        running.put(node, timeline);
+        ACTIVE.increment();
+        timeline.play();
+    }
+}
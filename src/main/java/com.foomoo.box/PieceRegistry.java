@@ -0,0 +1,195 @@
+package com.foomoo.box;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Assigns each piece and each target of a level a dense int id, so that positions and links can be held in arrays
+ * indexed by id rather than in maps keyed by object.
+ * <p>
+ * Pieces (the player and the blocks) and targets are numbered separately, each from zero, in the order in which they
+ * were registered. The player, if present, is always piece 0.
+ */
+public final class PieceRegistry {
+
+    /**
+     * Id returned when a piece or target is not registered, or has no linked counterpart.
+     */
+    public static final int NONE = -1;
+
+    private final Block[] pieces;
+    private final Target[] targets;
+    private final int[] pieceTargets;
+    private final int[] targetPieces;
+    private final boolean hasPlayer;
+    private final Map<Block, Integer> pieceIds = new HashMap<>();
+    private final Map<Target, Integer> targetIds = new HashMap<>();
+
+    private PieceRegistry(final Builder builder) {
+        pieces = builder.pieces.toArray(new Block[builder.pieces.size()]);
+        targets = builder.targets.toArray(new Target[builder.targets.size()]);
+        hasPlayer = builder.player != null;
+
+        for (int id = 0; id < pieces.length; id++) {
+            pieceIds.put(pieces[id], id);
+        }
+        for (int id = 0; id < targets.length; id++) {
+            targetIds.put(targets[id], id);
+        }
+
+        pieceTargets = new int[pieces.length];
+        targetPieces = new int[targets.length];
+        Arrays.fill(pieceTargets, NONE);
+        Arrays.fill(targetPieces, NONE);
+        builder.links.forEach((block, target) -> {
+            final int pieceId = getPieceId(block);
+            final int targetId = getTargetId(target);
+            if (pieceId == NONE || targetId == NONE) {
+                throw new RuntimeException("Cannot link unregistered pieces: " + block + ", " + target);
+            }
+            pieceTargets[pieceId] = targetId;
+            targetPieces[targetId] = pieceId;
+        });
+    }
+
+    /**
+     * Gets the number of pieces, including the player.
+     *
+     * @return The piece count.
+     */
+    public int getPieceCount() {
+        return pieces.length;
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    public Block getPiece(final int pieceId) {
+        return pieces[pieceId];
+    }
+
+    public Target getTarget(final int targetId) {
+        return targets[targetId];
+    }
+
+    /**
+     * Gets the id of the given piece.
+     *
+     * @param block The piece.
+     * @return The id, or {@link #NONE} if the piece is not registered.
+     */
+    public int getPieceId(final Block block) {
+        final Integer id = pieceIds.get(block);
+        return id == null ? NONE : id;
+    }
+
+    /**
+     * Gets the id of the given target.
+     *
+     * @param target The target.
+     * @return The id, or {@link #NONE} if the target is not registered.
+     */
+    public int getTargetId(final Target target) {
+        final Integer id = targetIds.get(target);
+        return id == null ? NONE : id;
+    }
+
+    /**
+     * Gets the id of the player piece.
+     *
+     * @return The player's id, or {@link #NONE} if there is no player.
+     */
+    public int getPlayerId() {
+        return hasPlayer ? 0 : NONE;
+    }
+
+    public Optional<Player> getPlayer() {
+        return hasPlayer ? Optional.of((Player) pieces[0]) : Optional.empty();
+    }
+
+    /**
+     * Gets the id of the first piece which is not the player. Blocks have consecutive ids from this id to
+     * {@link #getPieceCount()}.
+     *
+     * @return The first block id.
+     */
+    public int getFirstBlockId() {
+        return hasPlayer ? 1 : 0;
+    }
+
+    /**
+     * Gets the target linked to the given piece.
+     *
+     * @param pieceId The piece id.
+     * @return The linked target's id, or {@link #NONE} if the piece has no target.
+     */
+    public int getTargetForPiece(final int pieceId) {
+        return pieceTargets[pieceId];
+    }
+
+    /**
+     * Gets the piece linked to the given target.
+     *
+     * @param targetId The target id.
+     * @return The linked piece's id, or {@link #NONE} if no piece is linked to the target.
+     */
+    public int getPieceForTarget(final int targetId) {
+        return targetPieces[targetId];
+    }
+
+    /**
+     * Builder for PieceRegistry instances.
+     */
+    public static class Builder {
+        private final List<Block> pieces = new ArrayList<>();
+        private final List<Target> targets = new ArrayList<>();
+        private final Map<Block, Target> links = new HashMap<>();
+        private Player player;
+
+        /**
+         * Register the player. The player is always given piece id 0.
+         *
+         * @param player The player.
+         * @return This builder.
+         */
+        public Builder player(final Player player) {
+            if (this.player != null) {
+                throw new RuntimeException("Player already registered: " + this.player);
+            }
+            this.player = player;
+            pieces.add(0, player);
+            return this;
+        }
+
+        public Builder block(final Block block) {
+            pieces.add(block);
+            return this;
+        }
+
+        public Builder target(final Target target) {
+            targets.add(target);
+            return this;
+        }
+
+        /**
+         * Link a block to the target it must reach.
+         *
+         * @param block  The block.
+         * @param target The target.
+         * @return This builder.
+         */
+        public Builder link(final Block block, final Target target) {
+            links.put(block, target);
+            return this;
+        }
+
+        public PieceRegistry build() {
+            return new PieceRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.foomoo.box;
+
+import com.foomoo.box.model.Vector;
+
+/**
+ * The eight symmetries of a rectangular grid: the rotations and reflections which map the grid onto a grid of the
+ * same or transposed dimensions.
+ * <p>
+ * Each symmetry is applied to a vector by optionally swapping its row and column components, then optionally negating
+ * each component.
+ */
+public enum Symmetry {
+    IDENTITY(false, false, false),
+    ROTATE_CLOCKWISE(true, false, true),
+    ROTATE_HALF(false, true, true),
+    ROTATE_ANTICLOCKWISE(true, true, false),
+    FLIP_ROWS(false, true, false),
+    FLIP_COLUMNS(false, false, true),
+    TRANSPOSE(true, false, false),
+    ANTI_TRANSPOSE(true, true, true);
+
+    private final boolean swap;
+    private final boolean negateRow;
+    private final boolean negateColumn;
+
+    Symmetry(final boolean swap, final boolean negateRow, final boolean negateColumn) {
+        this.swap = swap;
+        this.negateRow = negateRow;
+        this.negateColumn = negateColumn;
+    }
+
+    /**
+     * Gets the symmetry which reverses this one.
+     *
+     * @return The inverse Symmetry.
+     */
+    public Symmetry inverse() {
+        // Swapping then negating (a, b) is reversed by swapping then negating (b, a).
+        final boolean inverseNegateRow = swap ? negateColumn : negateRow;
+        final boolean inverseNegateColumn = swap ? negateRow : negateColumn;
+        for (Symmetry symmetry : values()) {
+            if (symmetry.swap == swap && symmetry.negateRow == inverseNegateRow
+                    && symmetry.negateColumn == inverseNegateColumn) {
+                return symmetry;
+            }
+        }
+        throw new RuntimeException("No inverse for " + this);
+    }
+
+    /**
+     * Gets the number of rows of a grid after this symmetry is applied.
+     *
+     * @param rows    The number of rows of the original grid.
+     * @param columns The number of columns of the original grid.
+     * @return The transformed row count.
+     */
+    public int transformedRows(final int rows, final int columns) {
+        return swap ? columns : rows;
+    }
+
+    /**
+     * Gets the number of columns of a grid after this symmetry is applied.
+     *
+     * @param rows    The number of rows of the original grid.
+     * @param columns The number of columns of the original grid.
+     * @return The transformed column count.
+     */
+    public int transformedColumns(final int rows, final int columns) {
+        return swap ? rows : columns;
+    }
+
+    /**
+     * Gets the row a cell is moved to by this symmetry.
+     *
+     * @param row     The row of the cell.
+     * @param column  The column of the cell.
+     * @param rows    The number of rows of the grid.
+     * @param columns The number of columns of the grid.
+     * @return The transformed row.
+     */
+    public int transformRow(final int row, final int column, final int rows, final int columns) {
+        final int value = swap ? column : row;
+        return negateRow ? transformedRows(rows, columns) - 1 - value : value;
+    }
+
+    /**
+     * Gets the column a cell is moved to by this symmetry.
+     *
+     * @param row     The row of the cell.
+     * @param column  The column of the cell.
+     * @param rows    The number of rows of the grid.
+     * @param columns The number of columns of the grid.
+     * @return The transformed column.
+     */
+    public int transformColumn(final int row, final int column, final int rows, final int columns) {
+        final int value = swap ? row : column;
+        return negateColumn ? transformedColumns(rows, columns) - 1 - value : value;
+    }
+
+    /**
+     * Apply this symmetry to a cell of a grid of the given dimensions.
+     *
+     * @param cell    The cell.
+     * @param rows    The number of rows of the grid.
+     * @param columns The number of columns of the grid.
+     * @return The cell in the transformed grid.
+     */
+    public Cell apply(final Cell cell, final int rows, final int columns) {
+        return new Cell(transformRow(cell.getRow(), cell.getColumn(), rows, columns),
+                transformColumn(cell.getRow(), cell.getColumn(), rows, columns));
+    }
+
+    /**
+     * Apply this symmetry to a vector.
+     *
+     * @param vector The vector.
+     * @return The transformed vector.
+     */
+    public Vector apply(final Vector vector) {
+        final int x = swap ? vector.getY() : vector.getX();
+        final int y = swap ? vector.getX() : vector.getY();
+        return new Vector(negateRow ? -x : x, negateColumn ? -y : y);
+    }
+
+    /**
+     * Apply this symmetry to a direction.
+     *
+     * @param direction The direction.
+     * @return The transformed direction.
+     */
+    public Direction apply(final Direction direction) {
+        return Direction.fromVector(apply(direction.getVector())).get();
+    }
+
+    /**
+     * Apply this symmetry to each move of a sequence of moves in LURD notation, preserving the case of each move.
+     *
+     * @param moves The moves.
+     * @return The transformed moves.
+     */
+    public String applyToMoves(final String moves) {
+        final char[] transformed = new char[moves.length()];
+        for (int i = 0; i < moves.length(); i++) {
+            final char move = moves.charAt(i);
+            final char lurd = apply(Direction.fromLurd(move).orElseThrow(
+                    () -> new RuntimeException("Invalid move: " + move))).getLurd();
+            transformed[i] = Character.isUpperCase(move) ? Character.toUpperCase(lurd) : lurd;
+        }
+        return new String(transformed);
+    }
+}
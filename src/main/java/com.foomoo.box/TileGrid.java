@@ -0,0 +1,221 @@
+package com.foomoo.box;
+
+import java.util.Arrays;
+
+/**
+ * A rectangular grid of booleans stored as {@value #TILE_SIZE}×{@value #TILE_SIZE} tiles of bits.
+ * <p>
+ * Tiles whose bits are all clear or all set share the {@link #EMPTY} and {@link #FULL} instances, so memory scales
+ * with the area of the grid that has detail rather than with its bounding rectangle. Iteration skips uniform tiles
+ * which cannot contain the value sought.
+ * <p>
+ * Positions outside of the grid read as the grid's outside value. A TileGrid is immutable once built.
+ */
+public final class TileGrid {
+
+    static final int TILE_SHIFT = 5;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+    static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int TILE_WORDS = TILE_SIZE * TILE_SIZE / Long.SIZE;
+
+    private static final long[] EMPTY = new long[TILE_WORDS];
+    private static final long[] FULL = new long[TILE_WORDS];
+
+    static {
+        Arrays.fill(FULL, -1L);
+    }
+
+    private final int rows;
+    private final int columns;
+    private final int tileColumns;
+    private final boolean outsideValue;
+    private final long[][] tiles;
+
+    private TileGrid(final Builder builder) {
+        this.rows = builder.rows;
+        this.columns = builder.columns;
+        this.tileColumns = builder.tileColumns;
+        this.outsideValue = builder.outsideValue;
+        for (int tileRow = 0; tileRow * TILE_SIZE < rows; tileRow++) {
+            builder.compactTileRow(tileRow);
+        }
+        this.tiles = builder.tiles.clone();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the value at the given position.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return The value, or the outside value if the position is not within the grid.
+     */
+    public boolean get(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return outsideValue;
+        }
+        final long[] tile = tiles[(row >> TILE_SHIFT) * tileColumns + (column >> TILE_SHIFT)];
+        final int bit = (row & TILE_MASK) << TILE_SHIFT | (column & TILE_MASK);
+        return (tile[bit >> 6] & 1L << bit) != 0;
+    }
+
+    /**
+     * Visit every position within the grid holding the given value, in row major order within each tile. Tiles are
+     * visited in row major order, and uniform tiles of the other value are skipped without being examined.
+     *
+     * @param value   The value sought.
+     * @param visitor The visitor to call with each position.
+     */
+    public void forEach(final boolean value, final CellVisitor visitor) {
+        final long[] skip = value ? EMPTY : FULL;
+        for (int tile = 0; tile < tiles.length; tile++) {
+            if (tiles[tile] == skip) {
+                continue;
+            }
+            final int rowBase = (tile / tileColumns) << TILE_SHIFT;
+            final int columnBase = (tile % tileColumns) << TILE_SHIFT;
+            final int rowEnd = Math.min(TILE_SIZE, rows - rowBase);
+            final int columnEnd = Math.min(TILE_SIZE, columns - columnBase);
+            for (int row = 0; row < rowEnd; row++) {
+                for (int column = 0; column < columnEnd; column++) {
+                    final int bit = row << TILE_SHIFT | column;
+                    if (((tiles[tile][bit >> 6] & 1L << bit) != 0) == value) {
+                        visitor.visit(rowBase + row, columnBase + column);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tiles with their own storage, i.e. those which are not uniformly clear or set.
+     *
+     * @return The count of allocated tiles.
+     */
+    public int getAllocatedTileCount() {
+        int count = 0;
+        for (long[] tile : tiles) {
+            if (tile != EMPTY && tile != FULL) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Visitor of grid positions.
+     */
+    @FunctionalInterface
+    public interface CellVisitor {
+        void visit(int row, int column);
+    }
+
+    /**
+     * Builder for TileGrid instances.
+     * <p>
+     * Tiles are copied from the shared instances when first changed. Writing positions in row major order and calling
+     * {@link #compactTileRow(int)} after each band of {@value #TILE_SIZE} rows returns uniform tiles to the shared
+     * instances as the grid is built, so the builder never holds storage for the whole bounding rectangle.
+     */
+    public static class Builder {
+        private final int rows;
+        private final int columns;
+        private final int tileColumns;
+        private final boolean outsideValue;
+        private final long[][] tiles;
+
+        /**
+         * Construct a Builder for a grid with every position initially set to the given value.
+         *
+         * @param rows         The number of rows.
+         * @param columns      The number of columns.
+         * @param initialValue The initial value of every position, also read for positions outside of the grid.
+         */
+        public Builder(final int rows, final int columns, final boolean initialValue) {
+            this.rows = rows;
+            this.columns = columns;
+            this.tileColumns = (columns + TILE_MASK) >> TILE_SHIFT;
+            this.outsideValue = initialValue;
+            this.tiles = new long[((rows + TILE_MASK) >> TILE_SHIFT) * tileColumns][];
+            Arrays.fill(tiles, initialValue ? FULL : EMPTY);
+        }
+
+        /**
+         * Set the value at the given position.
+         *
+         * @param row    The row.
+         * @param column The column.
+         * @param value  The value.
+         * @return This builder.
+         * @throws RuntimeException if the position is not within the grid.
+         */
+        public Builder set(final int row, final int column, final boolean value) {
+            if (row < 0 || row >= rows || column < 0 || column >= columns) {
+                throw new RuntimeException("Position is outside of the grid: " + row + "," + column);
+            }
+            final int index = (row >> TILE_SHIFT) * tileColumns + (column >> TILE_SHIFT);
+            final int bit = (row & TILE_MASK) << TILE_SHIFT | (column & TILE_MASK);
+            if (((tiles[index][bit >> 6] & 1L << bit) != 0) != value) {
+                if (tiles[index] == EMPTY || tiles[index] == FULL) {
+                    tiles[index] = tiles[index].clone();
+                }
+                tiles[index][bit >> 6] ^= 1L << bit;
+            }
+            return this;
+        }
+
+        /**
+         * Return any uniform tiles in the given band of rows to the shared instances.
+         *
+         * @param tileRow The band of rows, i.e. the row divided by {@value #TILE_SIZE}.
+         * @return This builder.
+         */
+        public Builder compactTileRow(final int tileRow) {
+            for (int index = tileRow * tileColumns; index < (tileRow + 1) * tileColumns; index++) {
+                tiles[index] = compactTile(index);
+            }
+            return this;
+        }
+
+        /**
+         * Gets the shared instance equivalent to the given tile if its positions within the grid are uniform. Bits
+         * of edge tiles lying beyond the grid are ignored.
+         *
+         * @param index The tile index.
+         * @return The shared instance, or the tile itself if not uniform.
+         */
+        private long[] compactTile(final int index) {
+            final long[] tile = tiles[index];
+            if (tile == EMPTY || tile == FULL) {
+                return tile;
+            }
+            final int rowEnd = Math.min(TILE_SIZE, rows - ((index / tileColumns) << TILE_SHIFT));
+            final int columnEnd = Math.min(TILE_SIZE, columns - ((index % tileColumns) << TILE_SHIFT));
+            final boolean first = (tile[0] & 1L) != 0;
+            for (int row = 0; row < rowEnd; row++) {
+                for (int column = 0; column < columnEnd; column++) {
+                    final int bit = row << TILE_SHIFT | column;
+                    if (((tile[bit >> 6] & 1L << bit) != 0) != first) {
+                        return tile;
+                    }
+                }
+            }
+            return first ? FULL : EMPTY;
+        }
+
+        public TileGrid build() {
+            return new TileGrid(this);
+        }
+    }
+}
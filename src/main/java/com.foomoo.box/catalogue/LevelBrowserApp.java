@@ -0,0 +1,94 @@
+package com.foomoo.box.catalogue;
+
+import com.foomoo.box.metrics.FrameTimeMonitor;
+import com.foomoo.box.metrics.Metrics;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.ImageView;
+import javafx.stage.Stage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Browses the levels of a pack with thumbnail previews.
+ * <p>
+ * Usage: {@code LevelBrowserApp <pack file> [thumbnail directory]}. Only the visible rows of the list request
+ * thumbnails, which are rendered in the background and cached.
+ */
+public class LevelBrowserApp extends Application {
+
+    private ThumbnailCache thumbnails;
+
+    @Override
+    public void start(Stage stage) throws Exception {
+        final Path pack = Paths.get(getParameters().getUnnamed().get(0));
+        final LevelCatalogue catalogue = LevelCatalogue.open(pack);
+
+        final ThumbnailCache.Builder builder = new ThumbnailCache.Builder();
+        if (getParameters().getUnnamed().size() > 1) {
+            final Path directory = Paths.get(getParameters().getUnnamed().get(1));
+            Files.createDirectories(directory);
+            builder.directory(directory);
+        }
+        thumbnails = builder.build();
+
+        final ListView<Integer> list = new ListView<>();
+        list.getItems().setAll(IntStream.range(0, catalogue.size()).boxed().collect(Collectors.toList()));
+        list.setCellFactory(view -> new LevelCell(catalogue));
+
+        stage.setTitle("Box Pusher - " + pack.getFileName() + " (" + catalogue.size() + " levels)");
+        stage.setScene(new Scene(list, 400, 600));
+        Metrics.install();
+        new FrameTimeMonitor().start();
+        stage.show();
+    }
+
+    @Override
+    public void stop() {
+        thumbnails.close();
+    }
+
+    /**
+     * List cell showing the thumbnail and size of a level. A thumbnail arriving after the cell has been reused for
+     * another level is ignored.
+     */
+    private class LevelCell extends ListCell<Integer> {
+        private final LevelCatalogue catalogue;
+        private final ImageView imageView = new ImageView();
+
+        LevelCell(final LevelCatalogue catalogue) {
+            this.catalogue = catalogue;
+        }
+
+        @Override
+        protected void updateItem(final Integer level, final boolean empty) {
+            super.updateItem(level, empty);
+            imageView.setImage(null);
+            if (empty || level == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            setText(String.format("Level %d: %dx%d, %d blocks", level + 1, catalogue.getWidth(level),
+                    catalogue.getHeight(level), catalogue.getBlockCount(level)));
+            setGraphic(imageView);
+            thumbnails.get(catalogue, level).thenAcceptAsync(thumbnail -> {
+                if (level.equals(getItem())) {
+                    imageView.setImage(thumbnail.toImage());
+                }
+            }, Platform::runLater);
+        }
+    }
+
+    public static void main(final String[] args) {
+        launch(args);
+    }
+}
@@ -0,0 +1,386 @@
+package com.foomoo.box.catalogue;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Random access to the levels of a pack without parsing the pack.
+ * <p>
+ * A pack is a text file of level definition strings separated by empty lines, as written by the level generator.
+ * Lines starting with {@code ;} are titles or comments and are ignored. When a pack is first opened a side index is
+ * built holding the position, dimensions, block count and content hash of each level, and written alongside the pack.
+ * Later opens memory-map the index and the pack, so opening costs the same however many levels the pack holds. A
+ * BoardDefinition is only parsed when a level is requested, and the most recently requested definitions are kept.
+ * <p>
+ * The index is rebuilt if the pack's size or modification time no longer match those recorded in the index. All
+ * values are big-endian:
+ * <pre>
+ *   int    magic ("BXLC")
+ *   int    format version
+ *   long   pack size in bytes
+ *   long   pack modification time in milliseconds
+ *   int    level count, N
+ *   int    reserved
+ *   N x { long offset; int length; int width; int height; int block count; long content hash }
+ * </pre>
+ * The content hash is the 64-bit FNV-1a hash of the level's bytes with carriage returns removed. Widths and block
+ * counts are taken from the UTF-8 decoded characters as BoardDefinition reads them.
+ */
+public final class LevelCatalogue {
+
+    public static final int MAGIC = 0x42584C43;
+    public static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 32;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int CACHED_DEFINITIONS = 64;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ByteBuffer pack;
+    private final ByteBuffer index;
+    private final int levelCount;
+    private final Map<Integer, BoardDefinition> definitions =
+            new LinkedHashMap<Integer, BoardDefinition>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Integer, BoardDefinition> eldest) {
+                    return size() > CACHED_DEFINITIONS;
+                }
+            };
+
+    private LevelCatalogue(final ByteBuffer pack, final ByteBuffer index) throws IOException {
+        this.pack = pack;
+        this.index = index;
+        this.levelCount = index.getInt(24);
+        if ((long) levelCount * ENTRY_BYTES + HEADER_BYTES > index.limit()) {
+            throw new IOException("Level catalogue index is truncated.");
+        }
+    }
+
+    /**
+     * Gets the path of the index for the given pack.
+     *
+     * @param pack The pack file.
+     * @return The path of the index file.
+     */
+    public static Path indexPathFor(final Path pack) {
+        return pack.resolveSibling(pack.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Open the catalogue of the given pack, building its index if the index is missing or out of date.
+     *
+     * @param pack The pack file, no larger than 2GB.
+     * @return The LevelCatalogue.
+     * @throws IOException if the pack cannot be read, or its index cannot be read or written.
+     */
+    public static LevelCatalogue open(final Path pack) throws IOException {
+        final Path indexFile = indexPathFor(pack);
+        ByteBuffer index = mapIndex(pack, indexFile);
+        if (index == null) {
+            buildIndex(pack, indexFile);
+            index = mapIndex(pack, indexFile);
+            if (index == null) {
+                throw new IOException("Level catalogue index does not match its pack: " + indexFile);
+            }
+        }
+        return new LevelCatalogue(map(pack), index);
+    }
+
+    /**
+     * Map the given index, if it is a current index of the pack.
+     *
+     * @return The mapped index, or null if the index does not exist or is not current.
+     * @throws IOException if the index is not a level catalogue index or cannot be read.
+     */
+    private static ByteBuffer mapIndex(final Path pack, final Path indexFile) throws IOException {
+        final ByteBuffer index;
+        try {
+            index = map(indexFile);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (index.limit() < HEADER_BYTES || index.getInt(0) != MAGIC) {
+            throw new IOException("Not a level catalogue index.");
+        }
+        if (index.getInt(4) != VERSION || index.getLong(8) != Files.size(pack)
+                || index.getLong(16) != Files.getLastModifiedTime(pack).toMillis()) {
+            return null;
+        }
+        return index;
+    }
+
+    private static ByteBuffer map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Scan the given pack and write its index. The index is written alongside and then moved into place, so readers
+     * never see a partial index.
+     *
+     * @param pack      The pack file.
+     * @param indexFile The index file to write.
+     * @throws IOException if the pack cannot be read or the index cannot be written.
+     */
+    public static void buildIndex(final Path pack, final Path indexFile) throws IOException {
+        final long packSize = Files.size(pack);
+        final long packModified = Files.getLastModifiedTime(pack).toMillis();
+
+        final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        final DataOutputStream entries = new DataOutputStream(entryBytes);
+        final LevelScanner scanner = new LevelScanner(entries);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(pack))) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                scanner.accept(b);
+            }
+        }
+        scanner.endLine();
+        scanner.endLevel();
+
+        final Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(packSize);
+            out.writeLong(packModified);
+            out.writeInt(scanner.levelCount);
+            out.writeInt(0);
+            entryBytes.writeTo(out);
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return levelCount;
+    }
+
+    public int getWidth(final int level) {
+        return index.getInt(entry(level) + 12);
+    }
+
+    public int getHeight(final int level) {
+        return index.getInt(entry(level) + 16);
+    }
+
+    /**
+     * Gets the number of blocks in the given level, i.e. the number of upper case letters other than wall markers.
+     *
+     * @param level The level number, from 0.
+     * @return The block count.
+     */
+    public int getBlockCount(final int level) {
+        return index.getInt(entry(level) + 20);
+    }
+
+    /**
+     * Gets the content hash of the given level, identifying the level independently of its position in the pack.
+     *
+     * @param level The level number, from 0.
+     * @return The content hash.
+     */
+    public long getContentHash(final int level) {
+        return index.getLong(entry(level) + 24);
+    }
+
+    /**
+     * Gets the definition string of the given level, read from the mapped pack without parsing.
+     *
+     * @param level The level number, from 0.
+     * @return The definition string.
+     */
+    public String getDefinitionString(final int level) {
+        final long offset = index.getLong(entry(level));
+        final int length = index.getInt(entry(level) + 8);
+        if (offset < 0 || offset + length > pack.limit()) {
+            throw new RuntimeException("Level " + level + " lies outside of its pack.");
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer contents = pack.duplicate();
+        contents.position((int) offset);
+        contents.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8).replace("\r", "");
+    }
+
+    /**
+     * Gets the definition of the given level, parsing it on first request.
+     *
+     * @param level The level number, from 0.
+     * @return The BoardDefinition.
+     */
+    public BoardDefinition getDefinition(final int level) {
+        synchronized (definitions) {
+            final BoardDefinition cached = definitions.get(level);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final BoardDefinition definition = BoardDefinition.fromString(getDefinitionString(level));
+        synchronized (definitions) {
+            definitions.put(level, definition);
+        }
+        return definition;
+    }
+
+    /**
+     * Gets the number of levels whose definitions have been parsed and are currently held.
+     *
+     * @return The count of held definitions.
+     */
+    public int getMaterialisedCount() {
+        synchronized (definitions) {
+            return definitions.size();
+        }
+    }
+
+    private int entry(final int level) {
+        if (level < 0 || level >= levelCount) {
+            throw new IndexOutOfBoundsException("Level " + level + " is not in the catalogue of " + levelCount);
+        }
+        return HEADER_BYTES + level * ENTRY_BYTES;
+    }
+
+    /**
+     * Splits a pack into levels one byte at a time, writing an index entry as each level ends. Characters are decoded
+     * from UTF-8 as their last byte arrives.
+     */
+    private static final class LevelScanner {
+        private final DataOutputStream entries;
+        private int levelCount;
+
+        private long position;
+        private long lineStart;
+        private int lineLength;
+        private boolean comment;
+        private int codePoint;
+        private int continuationBytes;
+
+        private long levelStart = -1;
+        private long levelEnd;
+        private int width;
+        private int height;
+        private int blocks;
+        private long hash;
+
+        LevelScanner(final DataOutputStream entries) {
+            this.entries = entries;
+        }
+
+        void accept(final int b) throws IOException {
+            if (b == '\n') {
+                endLine();
+                position++;
+                lineStart = position;
+                return;
+            }
+            position++;
+            if (b == '\r') {
+                return;
+            }
+            if (lineLength == 0 && continuationBytes == 0) {
+                comment = b == ';';
+                if (!comment && levelStart < 0) {
+                    levelStart = lineStart;
+                    hash = FNV_OFFSET;
+                } else if (!comment && height > 0) {
+                    hash = (hash ^ '\n') * FNV_PRIME;
+                }
+            }
+            if (!comment) {
+                hash = (hash ^ b) * FNV_PRIME;
+            }
+            if (decode(b)) {
+                // BoardDefinition reads a column per UTF-16 unit, so a supplementary character is two columns of
+                // surrogates, neither of which is a block.
+                lineLength += Character.charCount(codePoint);
+                if (!comment && codePoint != 'X' && Character.charCount(codePoint) == 1
+                        && Character.isUpperCase(codePoint)) {
+                    blocks++;
+                }
+            }
+        }
+
+        /**
+         * Add the given byte to the character being decoded.
+         *
+         * @return True if the byte completes a character. A byte which cannot start a sequence completes as U+FFFD.
+         */
+        private boolean decode(final int b) {
+            if (continuationBytes > 0 && (b & 0xC0) == 0x80) {
+                codePoint = codePoint << 6 | b & 0x3F;
+                return --continuationBytes == 0;
+            }
+            // A byte other than a continuation cuts short any unfinished sequence, which counts as one character.
+            final int unfinished = continuationBytes > 0 ? 1 : 0;
+            if (b < 0x80) {
+                codePoint = b;
+                continuationBytes = 0;
+            } else if ((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                continuationBytes = 1;
+            } else if ((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                continuationBytes = 2;
+            } else if ((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                continuationBytes = 3;
+            } else {
+                codePoint = 0xFFFD;
+                continuationBytes = 0;
+            }
+            lineLength += unfinished;
+            return continuationBytes == 0;
+        }
+
+        void endLine() throws IOException {
+            if (continuationBytes > 0) {
+                lineLength++;
+                continuationBytes = 0;
+            }
+            if (lineLength == 0 || comment) {
+                endLevel();
+            } else {
+                width = Math.max(width, lineLength);
+                height++;
+                levelEnd = position;
+            }
+            lineLength = 0;
+            comment = false;
+        }
+
+        void endLevel() throws IOException {
+            if (levelStart >= 0) {
+                entries.writeLong(levelStart);
+                entries.writeInt((int) (levelEnd - levelStart));
+                entries.writeInt(width);
+                entries.writeInt(height);
+                entries.writeInt(blocks);
+                entries.writeLong(hash);
+                levelCount++;
+            }
+            levelStart = -1;
+            width = 0;
+            height = 0;
+            blocks = 0;
+        }
+    }
+}
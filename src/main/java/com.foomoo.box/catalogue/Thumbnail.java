@@ -0,0 +1,77 @@
+package com.foomoo.box.catalogue;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A rendered level preview, held as non-premultiplied ARGB pixels.
+ * <p>
+ * The JavaFX Image is created from the pixels when first requested, so thumbnails can be rendered and cached without
+ * the JavaFX toolkit.
+ */
+public final class Thumbnail {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private volatile Image image;
+
+    Thumbnail(final int width, final int height, final int[] pixels) {
+        if (pixels.length != width * height) {
+            throw new RuntimeException("Thumbnail of " + width + "x" + height + " cannot hold " + pixels.length
+                    + " pixels");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the colour of the given pixel.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return The colour in ARGB form.
+     */
+    public int getArgb(final int x, final int y) {
+        return pixels[y * width + x];
+    }
+
+    /**
+     * Gets the number of bytes used by the thumbnail's pixels, used to bound the size of a ThumbnailCache.
+     *
+     * @return The size in bytes.
+     */
+    public long getByteSize() {
+        return (long) pixels.length * Integer.BYTES;
+    }
+
+    int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Gets the thumbnail as an Image, writing the pixels into a WritableImage on first request.
+     *
+     * @return The Image.
+     */
+    public Image toImage() {
+        Image result = image;
+        if (result == null) {
+            final WritableImage writable = new WritableImage(width, height);
+            writable.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0,
+                    width);
+            image = result = writable;
+        }
+        return result;
+    }
+}
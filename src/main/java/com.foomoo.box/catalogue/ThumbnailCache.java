@@ -0,0 +1,376 @@
+package com.foomoo.box.catalogue;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cache of level thumbnails, rendered on background threads and keyed by the content hash of each level.
+ * <p>
+ * Thumbnails are held in memory up to a total pixel size, evicting the least recently used first. If a directory is
+ * given, rendered thumbnails are also written there and read back on later misses, so previews survive restarts
+ * without being rendered again. The directory is kept within its own size budget by deleting the least recently
+ * used files. Requests for a thumbnail already being loaded share its future.
+ * <p>
+ * A thumbnail is added to the cache before its future completes, so a caller woken by the future sees it cached.
+ * Futures complete on the cache's threads; JavaFX callers should hand results to the FX thread, for example with
+ * {@code thenAcceptAsync(consumer, Platform::runLater)}. Disk files hold the width and height followed by the deflated
+ * ARGB pixels, all big-endian.
+ */
+public final class ThumbnailCache implements Closeable {
+
+    private static final int MAGIC = 0x42585448;
+    private static final String FILE_SUFFIX = ".thumb";
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    // Deflate never compresses by more than this ratio, bounding the pixels a file of a given length can hold.
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    private final ThumbnailRenderer renderer;
+    private final long maxBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final ExecutorService executor;
+
+    private final Map<Long, Thumbnail> thumbnails = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, CompletableFuture<Thumbnail>> pending = new HashMap<>();
+    private long totalBytes;
+    private long hits;
+    private long diskHits;
+    private long renders;
+
+    // Total size of the disk tier's files, or -1 until the directory has been measured. Guarded by diskLock.
+    private final Object diskLock = new Object();
+    private long diskBytes = -1;
+
+    private ThumbnailCache(final Builder builder) {
+        this.renderer = new ThumbnailRenderer(builder.cellPixels);
+        this.maxBytes = builder.maxBytes;
+        this.directory = builder.directory;
+        this.maxDiskBytes = builder.maxDiskBytes;
+        this.executor = Executors.newFixedThreadPool(builder.threads, runnable -> {
+            final Thread thread = new Thread(runnable, "thumbnail-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the thumbnail of a level in a catalogue. The level's definition is parsed on a background thread if the
+     * thumbnail is not already cached, without being kept by the catalogue.
+     *
+     * @param catalogue The catalogue.
+     * @param level     The level number, from 0.
+     * @return Future of the Thumbnail.
+     */
+    public CompletableFuture<Thumbnail> get(final LevelCatalogue catalogue, final int level) {
+        return get(catalogue.getContentHash(level),
+                () -> BoardDefinition.fromString(catalogue.getDefinitionString(level)));
+    }
+
+    /**
+     * Gets the thumbnail of a level, loading it from disk or rendering it in the background if it is not in memory.
+     *
+     * @param key        The content hash of the level.
+     * @param definition Supplier of the level's definition, called on a background thread if rendering is needed.
+     * @return Future of the Thumbnail.
+     */
+    public synchronized CompletableFuture<Thumbnail> get(final long key, final Supplier<BoardDefinition> definition) {
+        final Thumbnail cached = thumbnails.get(key);
+        if (cached != null) {
+            hits++;
+            return CompletableFuture.completedFuture(cached);
+        }
+        final CompletableFuture<Thumbnail> loading = pending.get(key);
+        if (loading != null) {
+            return loading;
+        }
+
+        final CompletableFuture<Thumbnail> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                final Thumbnail thumbnail = load(key, definition);
+                completed(key, thumbnail);
+                return thumbnail;
+            } catch (RuntimeException e) {
+                completed(key, null);
+                throw e;
+            }
+        }, executor);
+        pending.put(key, future);
+        return future;
+    }
+
+    /**
+     * Gets the thumbnail of a level if it is held in memory.
+     *
+     * @param key The content hash of the level.
+     * @return Optional of the Thumbnail.
+     */
+    public synchronized Optional<Thumbnail> getIfPresent(final long key) {
+        return Optional.ofNullable(thumbnails.get(key));
+    }
+
+    private Thumbnail load(final long key, final Supplier<BoardDefinition> definition) {
+        if (directory != null) {
+            try {
+                final Path entry = entryPath(key);
+                final Thumbnail stored = read(entry);
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                synchronized (this) {
+                    diskHits++;
+                }
+                return stored;
+            } catch (NoSuchFileException e) {
+                // Not stored, so render below.
+            } catch (IOException e) {
+                // Unreadable entries are replaced by a fresh render.
+            }
+        }
+
+        final Thumbnail thumbnail = renderer.render(definition.get());
+        synchronized (this) {
+            renders++;
+        }
+        if (directory != null) {
+            try {
+                final Path entry = entryPath(key);
+                write(entry, thumbnail);
+                addDiskBytes(Files.size(entry));
+            } catch (IOException e) {
+                // The disk tier is an optimisation; the thumbnail is still returned.
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Record the end of a load, caching the thumbnail if there is one. Called on the loading thread before the load's
+     * future completes.
+     */
+    private synchronized void completed(final long key, final Thumbnail thumbnail) {
+        pending.remove(key);
+        if (thumbnail == null || thumbnails.containsKey(key)) {
+            return;
+        }
+        thumbnails.put(key, thumbnail);
+        totalBytes += thumbnail.getByteSize();
+
+        final Iterator<Thumbnail> eldest = thumbnails.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getByteSize();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Account for a file written to the disk tier, deleting the least recently used files if the tier is over budget.
+     */
+    private void addDiskBytes(final long bytes) throws IOException {
+        synchronized (diskLock) {
+            if (diskBytes < 0) {
+                // The directory is measured once, and the new file is already included.
+                diskBytes = 0;
+                for (Path file : listEntries()) {
+                    diskBytes += Files.size(file);
+                }
+            } else {
+                diskBytes += bytes;
+            }
+            if (diskBytes <= maxDiskBytes) {
+                return;
+            }
+
+            final List<Path> entries = listEntries();
+            entries.sort(Comparator.comparing(ThumbnailCache::lastModified));
+            for (Iterator<Path> eldest = entries.iterator(); diskBytes > maxDiskBytes && eldest.hasNext(); ) {
+                final Path file = eldest.next();
+                final long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    diskBytes -= size;
+                }
+            }
+        }
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static FileTime lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path entryPath(final long key) {
+        return directory.resolve(String.format("%016x-%d%s", key, renderer.getCellPixels(), FILE_SUFFIX));
+    }
+
+    private static Thumbnail read(final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a thumbnail.");
+            }
+            final int width = in.readInt();
+            final int height = in.readInt();
+            final long pixelBytes = (long) width * height * Integer.BYTES;
+            if (width <= 0 || height <= 0 || pixelBytes > (Files.size(file) - HEADER_BYTES) * MAX_DEFLATE_RATIO) {
+                throw new IOException("Thumbnail size " + width + "x" + height + " does not fit its file.");
+            }
+            final DataInputStream pixelsIn = new DataInputStream(new InflaterInputStream(in));
+            final int[] pixels = new int[width * height];
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = pixelsIn.readInt();
+            }
+            return new Thumbnail(width, height, pixels);
+        }
+    }
+
+    private static void write(final Path file, final Thumbnail thumbnail) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(thumbnail.getWidth());
+            out.writeInt(thumbnail.getHeight());
+            final DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+            final DataOutputStream pixelsOut = new DataOutputStream(deflater);
+            for (int pixel : thumbnail.getPixels()) {
+                pixelsOut.writeInt(pixel);
+            }
+            pixelsOut.flush();
+            deflater.finish();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return thumbnails.size();
+    }
+
+    /**
+     * Gets the number of requests answered from memory.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of thumbnails read from the disk tier.
+     *
+     * @return The disk hit count.
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getRenders() {
+        return renders;
+    }
+
+    /**
+     * Stop the cache's rendering threads. Pending requests may not complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Builder for ThumbnailCache instances.
+     */
+    public static class Builder {
+        private int cellPixels = 4;
+        private long maxBytes = 32L * 1024 * 1024;
+        private Path directory;
+        private long maxDiskBytes = 256L * 1024 * 1024;
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        /**
+         * Set the width and height in pixels of each cell of a thumbnail.
+         *
+         * @param cellPixels The cell size.
+         * @return This builder.
+         */
+        public Builder cellPixels(final int cellPixels) {
+            this.cellPixels = cellPixels;
+            return this;
+        }
+
+        /**
+         * Set the maximum total pixel size of the thumbnails held in memory.
+         *
+         * @param maxBytes The memory budget in bytes.
+         * @return This builder.
+         */
+        public Builder maxBytes(final long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Set the directory of the disk tier. Thumbnails are only held in memory if no directory is set.
+         *
+         * @param directory The directory, which must exist.
+         * @return This builder.
+         */
+        public Builder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Set the maximum total size of the files in the disk tier.
+         *
+         * @param maxDiskBytes The disk budget in bytes.
+         * @return This builder.
+         */
+        public Builder maxDiskBytes(final long maxDiskBytes) {
+            this.maxDiskBytes = maxDiskBytes;
+            return this;
+        }
+
+        public Builder threads(final int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public ThumbnailCache build() {
+            return new ThumbnailCache(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.foomoo.box.catalogue;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.PieceRegistry;
+
+import java.util.Arrays;
+
+/**
+ * Paints level previews directly into pixel buffers, with a square block of pixels for each cell.
+ * <p>
+ * No scene graph is built, so rendering is cheap and may be done on any thread. Colours follow those of the BoardView:
+ * floor is white and targets light sky blue, with walls, blocks and the player in solid colours.
+ */
+public final class ThumbnailRenderer {
+
+    public static final int WALL = 0xFF404040;
+    public static final int FLOOR = 0xFFFFFFFF;
+    public static final int TARGET = 0xFF87CEFA;
+    public static final int BLOCK = 0xFFCD853F;
+    public static final int PLAYER = 0xFFDC143C;
+
+    private final int cellPixels;
+
+    /**
+     * Construct a ThumbnailRenderer.
+     *
+     * @param cellPixels The width and height in pixels of each cell.
+     */
+    public ThumbnailRenderer(final int cellPixels) {
+        if (cellPixels < 1) {
+            throw new RuntimeException("Cells must be at least one pixel in size");
+        }
+        this.cellPixels = cellPixels;
+    }
+
+    public int getCellPixels() {
+        return cellPixels;
+    }
+
+    /**
+     * Render the thumbnail of the given level.
+     *
+     * @param definition The level.
+     * @return The Thumbnail.
+     */
+    public Thumbnail render(final BoardDefinition definition) {
+        final int width = definition.getWidth() * cellPixels;
+        final int height = definition.getHeight() * cellPixels;
+        final int[] pixels = new int[width * height];
+        Arrays.fill(pixels, FLOOR);
+
+        definition.getWalls().forEach(true, (row, column) -> fillCell(pixels, width, row, column, WALL));
+
+        final PieceRegistry registry = definition.getPieceRegistry();
+        for (int targetId = 0; targetId < registry.getTargetCount(); targetId++) {
+            final Cell cell = definition.getTargetCell(targetId);
+            fillCell(pixels, width, cell.getRow(), cell.getColumn(), TARGET);
+        }
+        for (int pieceId = 0; pieceId < registry.getPieceCount(); pieceId++) {
+            final Cell cell = definition.getPieceCell(pieceId);
+            fillCell(pixels, width, cell.getRow(), cell.getColumn(),
+                    pieceId == registry.getPlayerId() ? PLAYER : BLOCK);
+        }
+        return new Thumbnail(width, height, pixels);
+    }
+
+    private void fillCell(final int[] pixels, final int width, final int row, final int column, final int argb) {
+        for (int y = row * cellPixels; y < (row + 1) * cellPixels; y++) {
+            Arrays.fill(pixels, y * width + column * cellPixels, y * width + (column + 1) * cellPixels, argb);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.CellTable;
+import com.foomoo.box.PieceRegistry;
+
+import java.util.Arrays;
+
+/**
+ * Base for GameEngines, holding the fixed layout of the level and tracking the completion of targets as pieces move.
+ * <p>
+ * Cells are identified internally by their packed index in a CellTable spanning the definition.
+ */
+abstract class AbstractGameEngine implements GameEngine {
+
+    final BoardDefinition definition;
+    final PieceRegistry registry;
+    final CellTable cellTable;
+
+    private final boolean[] floor;
+    private final int[] targetCells;
+    private final int[] targetAtCell;
+    private final boolean[] targetsComplete;
+    private int completeCount;
+    private MoveDiff lastDiff = MoveDiff.EMPTY;
+    // Scratch array ordering the pieces of a move, grown as needed.
+    private int[] order = new int[4];
+
+    AbstractGameEngine(final BoardDefinition definition) {
+        this.definition = definition;
+        this.registry = definition.getPieceRegistry();
+        this.cellTable = new CellTable(0, 0, definition.getHeight(), definition.getWidth());
+
+        floor = new boolean[cellTable.size()];
+        for (int cell = 0; cell < floor.length; cell++) {
+            floor[cell] = !definition.cellIsWall(cellTable.getRow(cell), cellTable.getColumn(cell));
+        }
+
+        targetCells = new int[registry.getTargetCount()];
+        targetAtCell = new int[cellTable.size()];
+        Arrays.fill(targetAtCell, PieceRegistry.NONE);
+        for (int targetId = 0; targetId < targetCells.length; targetId++) {
+            targetCells[targetId] = cellTable.index(definition.getTargetCell(targetId));
+            targetAtCell[targetCells[targetId]] = targetId;
+        }
+        targetsComplete = new boolean[targetCells.length];
+    }
+
+    /**
+     * Gets the piece occupying the cell with the given packed index.
+     *
+     * @param cell The packed cell index.
+     * @return The piece id, or {@link PieceRegistry#NONE}.
+     */
+    abstract int getPieceAtIndex(int cell);
+
+    /**
+     * Gets the packed index of the cell of the given piece.
+     *
+     * @param pieceId The piece id.
+     * @return The packed cell index.
+     */
+    abstract int getPieceCellIndex(int pieceId);
+
+    /**
+     * Evaluate the completion of every target. Called by subclasses once their piece state is initialised.
+     */
+    void initialiseTargets() {
+        completeCount = 0;
+        for (int targetId = 0; targetId < targetCells.length; targetId++) {
+            targetsComplete[targetId] = evaluateTarget(targetId);
+            completeCount += targetsComplete[targetId] ? 1 : 0;
+        }
+    }
+
+    boolean isFloorIndex(final int cell) {
+        return cell >= 0 && floor[cell];
+    }
+
+    @Override
+    public BoardDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public Cell getPieceCell(final int pieceId) {
+        return cellTable.cell(getPieceCellIndex(pieceId));
+    }
+
+    @Override
+    public int getPieceAt(final Cell cell) {
+        final int index = cellTable.index(cell);
+        return index < 0 ? PieceRegistry.NONE : getPieceAtIndex(index);
+    }
+
+    @Override
+    public boolean isFloor(final Cell cell) {
+        return isFloorIndex(cellTable.index(cell));
+    }
+
+    @Override
+    public boolean isTargetComplete(final int targetId) {
+        return targetsComplete[targetId];
+    }
+
+    @Override
+    public boolean isComplete() {
+        return completeCount == targetCells.length;
+    }
+
+    @Override
+    public MoveDiff getLastDiff() {
+        return lastDiff;
+    }
+
+    /**
+     * Record the pieces moved by a move or undo, updating the completion of the targets at the cells they left and
+     * entered.
+     *
+     * @param pieces    The ids of the pieces moved.
+     * @param fromCells The packed cell each piece moved from.
+     * @param toCells   The packed cell each piece moved to.
+     * @param count     The number of pieces moved.
+     */
+    void recordMove(final int[] pieces, final int[] fromCells, final int[] toCells, final int count) {
+        // Order the moved pieces by id, so that diffs are the same whichever engine produced them. A move pushes only a
+        // few pieces, so an insertion sort suffices.
+        if (order.length < count) {
+            order = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i;
+            for (; j > 0 && pieces[order[j - 1]] > pieces[i]; j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = i;
+        }
+
+        final int[] movedPieces = new int[count];
+        final Cell[] from = new Cell[count];
+        final Cell[] to = new Cell[count];
+        final int[] changedTargets = new int[count * 2];
+        int changedCount = 0;
+        for (int i = 0; i < count; i++) {
+            movedPieces[i] = pieces[order[i]];
+            from[i] = cellTable.cell(fromCells[order[i]]);
+            to[i] = cellTable.cell(toCells[order[i]]);
+            changedCount = addTarget(changedTargets, changedCount, targetAtCell[fromCells[order[i]]]);
+            changedCount = addTarget(changedTargets, changedCount, targetAtCell[toCells[order[i]]]);
+        }
+        Arrays.sort(changedTargets, 0, changedCount);
+
+        final int[] completed = new int[changedCount];
+        final int[] uncompleted = new int[changedCount];
+        int completedCount = 0;
+        int uncompletedCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            final int targetId = changedTargets[i];
+            final boolean complete = evaluateTarget(targetId);
+            if (complete != targetsComplete[targetId]) {
+                targetsComplete[targetId] = complete;
+                if (complete) {
+                    completed[completedCount++] = targetId;
+                    completeCount++;
+                } else {
+                    uncompleted[uncompletedCount++] = targetId;
+                    completeCount--;
+                }
+            }
+        }
+
+        lastDiff = new MoveDiff(movedPieces, from, to, Arrays.copyOf(completed, completedCount),
+                Arrays.copyOf(uncompleted, uncompletedCount));
+    }
+
+    private static int addTarget(final int[] targets, final int count, final int targetId) {
+        if (targetId == PieceRegistry.NONE) {
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            if (targets[i] == targetId) {
+                return count;
+            }
+        }
+        targets[count] = targetId;
+        return count + 1;
+    }
+
+    private boolean evaluateTarget(final int targetId) {
+        final int occupant = getPieceAtIndex(targetCells[targetId]);
+        if (occupant == PieceRegistry.NONE || occupant == registry.getPlayerId()) {
+            return false;
+        }
+        final int required = registry.getPieceForTarget(targetId);
+        return required == PieceRegistry.NONE || required == occupant;
+    }
+}
@@ -0,0 +1,128 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Direction;
+import com.foomoo.box.PieceRegistry;
+
+import java.util.Arrays;
+
+/**
+ * GameEngine holding the game state in mutable arrays indexed by piece id and packed cell index.
+ * <p>
+ * Moves update the arrays in place. Each move is recorded as its direction and the number of blocks pushed, so that
+ * undo can pull the blocks back.
+ */
+public final class ArrayGameEngine extends AbstractGameEngine {
+
+    private final int[] pieceCells;
+    private final int[] occupants;
+
+    // Scratch space for the pieces moved by a single move or undo.
+    private final int[] chain = new int[PLAYER_PUSH_STRENGTH + 1];
+    private final int[] fromCells = new int[PLAYER_PUSH_STRENGTH + 1];
+    private final int[] toCells = new int[PLAYER_PUSH_STRENGTH + 1];
+
+    // Each entry holds a move's direction ordinal in the low two bits and the number of blocks pushed above them.
+    private int[] moves = new int[64];
+    private int moveCount;
+
+    public ArrayGameEngine(final BoardDefinition definition) {
+        super(definition);
+        pieceCells = new int[registry.getPieceCount()];
+        occupants = new int[cellTable.size()];
+        Arrays.fill(occupants, PieceRegistry.NONE);
+        for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+            pieceCells[pieceId] = cellTable.index(definition.getPieceCell(pieceId));
+            occupants[pieceCells[pieceId]] = pieceId;
+        }
+        initialiseTargets();
+    }
+
+    @Override
+    int getPieceAtIndex(final int cell) {
+        return occupants[cell];
+    }
+
+    @Override
+    int getPieceCellIndex(final int pieceId) {
+        return pieceCells[pieceId];
+    }
+
+    @Override
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    @Override
+    public boolean move(final Direction direction) {
+        final int player = registry.getPlayerId();
+        if (player == PieceRegistry.NONE) {
+            return false;
+        }
+
+        chain[0] = player;
+        int count = 1;
+        int next = cellTable.neighbour(pieceCells[player], direction);
+        while (true) {
+            if (!isFloorIndex(next)) {
+                return false;
+            }
+            if (occupants[next] == PieceRegistry.NONE) {
+                break;
+            }
+            if (count > PLAYER_PUSH_STRENGTH) {
+                return false;
+            }
+            chain[count++] = occupants[next];
+            next = cellTable.neighbour(next, direction);
+        }
+
+        // Shift the chain starting from the far end.
+        for (int i = count - 1; i >= 0; i--) {
+            movePiece(i, chain[i], direction);
+        }
+
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = direction.ordinal() | (count - 1) << 2;
+        recordMove(chain, fromCells, toCells, count);
+        return true;
+    }
+
+    @Override
+    public boolean undo() {
+        if (moveCount == 0) {
+            return false;
+        }
+
+        final int move = moves[--moveCount];
+        final Direction direction = Direction.fromOrdinal(move & 3);
+        final int count = (move >> 2) + 1;
+
+        // The player first steps back, then each pushed block is pulled into the cell behind it.
+        int cell = pieceCells[registry.getPlayerId()];
+        for (int i = 0; i < count; i++) {
+            chain[i] = occupants[cell];
+            cell = cellTable.neighbour(cell, direction);
+        }
+        for (int i = 0; i < count; i++) {
+            movePiece(i, chain[i], direction.opposite());
+        }
+
+        recordMove(chain, fromCells, toCells, count);
+        return true;
+    }
+
+    private void movePiece(final int index, final int pieceId, final Direction direction) {
+        final int from = pieceCells[pieceId];
+        final int to = cellTable.neighbour(from, direction);
+        fromCells[index] = from;
+        toCells[index] = to;
+        if (occupants[from] == pieceId) {
+            occupants[from] = PieceRegistry.NONE;
+        }
+        occupants[to] = pieceId;
+        pieceCells[pieceId] = to;
+    }
+}
@@ -0,0 +1,111 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Direction;
+import com.foomoo.box.catalogue.LevelCatalogue;
+import com.foomoo.box.metrics.FrameTimeMonitor;
+import com.foomoo.box.metrics.Metrics;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays a level using a selectable GameEngine.
+ * <p>
+ * Usage: {@code EngineApp [--engine=array|persistent] [level file]} or
+ * {@code EngineApp [--engine=array|persistent] --pack=<pack file> [--level=n]}. Arrow keys move, backspace undoes.
+ * When playing from a pack, page up and page down select the previous and next levels; only the levels played are
+ * parsed.
+ */
+public class EngineApp extends Application {
+
+    private static final String BOARD_DEF = "" +
+            "XXXXXXXX\n" +
+            "X@ A   X\n" +
+            "X   B  X\n" +
+            "X  a b X\n" +
+            "XXXXXXXX";
+
+    private EngineType type;
+    private LevelCatalogue catalogue;
+    private int levelNumber;
+
+    @Override
+    public void start(Stage stage) throws Exception {
+        final Map<String, String> named = getParameters().getNamed();
+        final List<String> unnamed = getParameters().getUnnamed();
+
+        type = EngineType.fromName(named.getOrDefault("engine", "array"));
+        if (named.containsKey("pack")) {
+            catalogue = LevelCatalogue.open(Paths.get(named.get("pack")));
+            levelNumber = Integer.parseInt(named.getOrDefault("level", "0"));
+            show(stage, catalogue.getDefinition(levelNumber));
+        } else {
+            final String level = unnamed.isEmpty() ? BOARD_DEF
+                    : new String(Files.readAllBytes(Paths.get(unnamed.get(0))), StandardCharsets.UTF_8);
+            show(stage, BoardDefinition.fromString(level));
+        }
+        Metrics.install();
+        new FrameTimeMonitor().start();
+        stage.show();
+    }
+
+    private void show(final Stage stage, final BoardDefinition definition) {
+        final GameEngine engine = type.create(definition);
+        final EngineView view = new EngineView(engine);
+
+        view.addEventHandler(KeyEvent.KEY_PRESSED, ke -> {
+            boolean changed = false;
+            switch (ke.getCode()) {
+                case UP:
+                    changed = engine.move(Direction.UP);
+                    break;
+                case LEFT:
+                    changed = engine.move(Direction.LEFT);
+                    break;
+                case DOWN:
+                    changed = engine.move(Direction.DOWN);
+                    break;
+                case RIGHT:
+                    changed = engine.move(Direction.RIGHT);
+                    break;
+                case BACK_SPACE:
+                    changed = engine.undo();
+                    break;
+                case PAGE_UP:
+                    selectLevel(stage, levelNumber - 1);
+                    break;
+                case PAGE_DOWN:
+                    selectLevel(stage, levelNumber + 1);
+                    break;
+                case ESCAPE:
+                    Platform.exit();
+            }
+            if (changed) {
+                view.update();
+            }
+        });
+
+        stage.setTitle("Box Pusher (" + type.name().toLowerCase() + " engine)"
+                + (catalogue == null ? "" : " - level " + (levelNumber + 1) + " of " + catalogue.size()));
+        stage.setScene(view);
+    }
+
+    private void selectLevel(final Stage stage, final int level) {
+        if (catalogue != null && level >= 0 && level < catalogue.size()) {
+            levelNumber = level;
+            show(stage, catalogue.getDefinition(level));
+        }
+    }
+
+    public static void main(final String[] args) {
+        launch(args);
+    }
+}
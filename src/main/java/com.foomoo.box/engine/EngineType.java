@@ -0,0 +1,52 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * The available GameEngine implementations.
+ */
+public enum EngineType {
+
+    /**
+     * Mutable arrays updated in place. Cheapest per move.
+     */
+    ARRAY(ArrayGameEngine::new),
+
+    /**
+     * Immutable BoardModel snapshots. Cheapest undo.
+     */
+    PERSISTENT(PersistentGameEngine::new);
+
+    private final Function<BoardDefinition, GameEngine> factory;
+
+    EngineType(final Function<BoardDefinition, GameEngine> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Create a new engine of this type at the start of the given level.
+     *
+     * @param definition The level.
+     * @return The GameEngine.
+     */
+    public GameEngine create(final BoardDefinition definition) {
+        return factory.apply(definition);
+    }
+
+    /**
+     * Gets the EngineType with the given name, ignoring case.
+     *
+     * @param name The engine name, such as "array" or "persistent".
+     * @return The EngineType.
+     */
+    public static EngineType fromName(final String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown engine: " + name);
+        }
+    }
+}
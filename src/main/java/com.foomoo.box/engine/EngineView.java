@@ -0,0 +1,137 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.PaneAnimator;
+import com.foomoo.box.PieceRegistry;
+import com.foomoo.box.metrics.LatencyHistogram;
+import com.foomoo.box.metrics.Metrics;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeType;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+/**
+ * Provides a view of a GameEngine, animating the pieces and target highlights described by the engine's MoveDiff after
+ * each move or undo.
+ * <p>
+ * Updates are applied once per pulse, animating each changed piece straight to its current cell however many moves
+ * were made within the frame.
+ */
+public class EngineView extends Scene {
+    private static final LatencyHistogram UPDATE_LATENCY = Metrics.histogram("view.update");
+
+    private static final int CELL_WIDTH = 100;
+    private static final int CELL_HEIGHT = 100;
+
+    private static final String TARGET_STYLE = "-fx-border-color: lightskyblue; -fx-background-color: lightskyblue";
+    private static final String COMPLETE_TARGET_STYLE = "-fx-border-color: greenyellow; -fx-background-color: greenyellow";
+
+    private final GameEngine engine;
+    private final StackPane[] piecePanes;
+    private final StackPane[] targetPanes;
+    private final Label finishedLabel = new Label("Finished");
+
+    private final PaneAnimator animator = new PaneAnimator(Duration.seconds(0.2));
+
+    // The pieces moved since the last pulse, indexed by piece id.
+    private final boolean[] dirtyPieces;
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(final long now) {
+            stop();
+            applyUpdates();
+        }
+    };
+
+    public EngineView(final GameEngine engine) {
+        this(engine, new Group());
+    }
+
+    private EngineView(final GameEngine engine, final Group group) {
+        super(group, engine.getDefinition().getWidth() * CELL_WIDTH, engine.getDefinition().getHeight() * CELL_HEIGHT,
+                Color.WHITE);
+        this.engine = engine;
+
+        final BoardDefinition definition = engine.getDefinition();
+        final PieceRegistry registry = engine.getRegistry();
+
+        targetPanes = new StackPane[registry.getTargetCount()];
+        for (int targetId = 0; targetId < targetPanes.length; targetId++) {
+            targetPanes[targetId] = cellPane(registry.getTarget(targetId).getText(), definition.getTargetCell(targetId));
+            group.getChildren().add(targetPanes[targetId]);
+        }
+
+        for (int row = 0; row < definition.getHeight(); row++) {
+            for (int column = 0; column < definition.getWidth(); column++) {
+                if (engine.isFloor(new Cell(row, column))) {
+                    final Rectangle r = new Rectangle(CELL_WIDTH * column, CELL_HEIGHT * row, CELL_WIDTH, CELL_HEIGHT);
+                    r.setFill(Color.rgb(0, 0, 0, 0));
+                    r.setStrokeType(StrokeType.CENTERED);
+                    r.setStroke(Color.BLACK);
+                    group.getChildren().add(r);
+                }
+            }
+        }
+
+        dirtyPieces = new boolean[registry.getPieceCount()];
+        piecePanes = new StackPane[registry.getPieceCount()];
+        for (int pieceId = 0; pieceId < piecePanes.length; pieceId++) {
+            piecePanes[pieceId] = cellPane(registry.getPiece(pieceId).getText(), engine.getPieceCell(pieceId));
+            group.getChildren().add(piecePanes[pieceId]);
+        }
+
+        group.getChildren().add(finishedLabel);
+        refreshTargets();
+    }
+
+    /**
+     * Update the view following a move or undo of the engine. The scene is updated at the next pulse.
+     */
+    public void update() {
+        final MoveDiff diff = engine.getLastDiff();
+        for (int i = 0; i < diff.getMovedCount(); i++) {
+            dirtyPieces[diff.getMovedPiece(i)] = true;
+        }
+        pulse.start();
+    }
+
+    private void applyUpdates() {
+        final long start = System.nanoTime();
+        for (int pieceId = 0; pieceId < dirtyPieces.length; pieceId++) {
+            if (dirtyPieces[pieceId]) {
+                dirtyPieces[pieceId] = false;
+                final StackPane pane = piecePanes[pieceId];
+                final Cell to = engine.getPieceCell(pieceId);
+                animator.moveTo(pane, to.getColumn() * CELL_WIDTH, to.getRow() * CELL_HEIGHT, 1);
+            }
+        }
+        refreshTargets();
+        UPDATE_LATENCY.recordSince(start);
+    }
+
+    private void refreshTargets() {
+        for (int targetId = 0; targetId < targetPanes.length; targetId++) {
+            targetPanes[targetId].setStyle(engine.isTargetComplete(targetId) ? COMPLETE_TARGET_STYLE : TARGET_STYLE);
+        }
+        finishedLabel.setVisible(engine.isComplete());
+    }
+
+    private static StackPane cellPane(final String text, final Cell cell) {
+        final Label label = new Label(text);
+        label.setFont(new Font(CELL_HEIGHT / 2));
+
+        final StackPane stackPane = new StackPane(label);
+        stackPane.setPrefWidth(CELL_WIDTH);
+        stackPane.setPrefHeight(CELL_HEIGHT);
+        stackPane.setTranslateX(cell.getColumn() * CELL_WIDTH);
+        stackPane.setTranslateY(cell.getRow() * CELL_HEIGHT);
+        return stackPane;
+    }
+}
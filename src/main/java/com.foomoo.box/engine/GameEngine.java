@@ -0,0 +1,86 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.Direction;
+import com.foomoo.box.PieceRegistry;
+
+/**
+ * The rules and state of a game in progress, independent of how the state is held.
+ * <p>
+ * Pieces and targets are identified by their ids in the PieceRegistry of the engine's BoardDefinition. The player may
+ * push a chain of at most {@link #PLAYER_PUSH_STRENGTH} blocks. A target is complete when its linked block is on it,
+ * or, for a target without a linked block, when any block other than the player is on it.
+ */
+public interface GameEngine {
+
+    int PLAYER_PUSH_STRENGTH = 2;
+
+    BoardDefinition getDefinition();
+
+    default PieceRegistry getRegistry() {
+        return getDefinition().getPieceRegistry();
+    }
+
+    /**
+     * Move the player one cell in the given direction, pushing blocks out of the way if possible.
+     *
+     * @param direction The direction to move.
+     * @return True if the player moved.
+     */
+    boolean move(Direction direction);
+
+    /**
+     * Reverse the most recent move.
+     *
+     * @return True if a move was undone, false if no moves have been made.
+     */
+    boolean undo();
+
+    /**
+     * Gets the number of moves made and not undone.
+     *
+     * @return The move count.
+     */
+    int getMoveCount();
+
+    /**
+     * Gets the current cell of the given piece.
+     *
+     * @param pieceId The piece id.
+     * @return The Cell.
+     */
+    Cell getPieceCell(int pieceId);
+
+    /**
+     * Gets the piece occupying the given cell.
+     *
+     * @param cell The cell.
+     * @return The piece id, or {@link PieceRegistry#NONE} if the cell is empty or not on the board.
+     */
+    int getPieceAt(Cell cell);
+
+    /**
+     * Is the given cell a floor cell which pieces may occupy.
+     *
+     * @param cell The cell.
+     * @return True if the cell is on the board and not a wall.
+     */
+    boolean isFloor(Cell cell);
+
+    boolean isTargetComplete(int targetId);
+
+    /**
+     * Is every target complete.
+     *
+     * @return True if the level has been completed.
+     */
+    boolean isComplete();
+
+    /**
+     * Gets the changes made by the most recent successful move or undo.
+     *
+     * @return The MoveDiff, empty if no move has been made.
+     */
+    MoveDiff getLastDiff();
+}
@@ -0,0 +1,99 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.Cell;
+
+import java.util.Arrays;
+
+/**
+ * The changes made to a game by a single move or undo: the pieces which moved, and the targets which became complete
+ * or incomplete.
+ */
+public final class MoveDiff {
+
+    /**
+     * Diff of a game in which nothing has changed.
+     */
+    public static final MoveDiff EMPTY = new MoveDiff(new int[0], new Cell[0], new Cell[0], new int[0], new int[0]);
+
+    private final int[] pieces;
+    private final Cell[] fromCells;
+    private final Cell[] toCells;
+    private final int[] completedTargets;
+    private final int[] uncompletedTargets;
+
+    MoveDiff(final int[] pieces, final Cell[] fromCells, final Cell[] toCells, final int[] completedTargets,
+             final int[] uncompletedTargets) {
+        this.pieces = pieces;
+        this.fromCells = fromCells;
+        this.toCells = toCells;
+        this.completedTargets = completedTargets;
+        this.uncompletedTargets = uncompletedTargets;
+    }
+
+    /**
+     * Gets the number of pieces which moved.
+     *
+     * @return The moved piece count.
+     */
+    public int getMovedCount() {
+        return pieces.length;
+    }
+
+    /**
+     * Gets the id of a moved piece. Pieces are listed in increasing id order.
+     *
+     * @param index The index of the moved piece, less than {@link #getMovedCount()}.
+     * @return The piece id.
+     */
+    public int getMovedPiece(final int index) {
+        return pieces[index];
+    }
+
+    public Cell getFromCell(final int index) {
+        return fromCells[index];
+    }
+
+    public Cell getToCell(final int index) {
+        return toCells[index];
+    }
+
+    /**
+     * Gets the ids of the targets which became complete, in increasing id order.
+     *
+     * @return A copy of the target ids.
+     */
+    public int[] getCompletedTargets() {
+        return completedTargets.clone();
+    }
+
+    /**
+     * Gets the ids of the targets which became incomplete, in increasing id order.
+     *
+     * @return A copy of the target ids.
+     */
+    public int[] getUncompletedTargets() {
+        return uncompletedTargets.clone();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof MoveDiff)) {
+            return false;
+        }
+        final MoveDiff diff = (MoveDiff) obj;
+        return Arrays.equals(pieces, diff.pieces) && Arrays.equals(fromCells, diff.fromCells)
+                && Arrays.equals(toCells, diff.toCells) && Arrays.equals(completedTargets, diff.completedTargets)
+                && Arrays.equals(uncompletedTargets, diff.uncompletedTargets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(pieces) * 31 + Arrays.hashCode(toCells);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MoveDiff(pieces=%s, to=%s, completed=%s, uncompleted=%s)", Arrays.toString(pieces),
+                Arrays.toString(toCells), Arrays.toString(completedTargets), Arrays.toString(uncompletedTargets));
+    }
+}
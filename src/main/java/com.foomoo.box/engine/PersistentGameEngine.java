@@ -0,0 +1,106 @@
+package com.foomoo.box.engine;
+
+import com.foomoo.box.Block;
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Direction;
+import com.foomoo.box.PieceRegistry;
+import com.foomoo.box.model.immutable.BoardModel;
+import scala.Option;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * GameEngine backed by the immutable BoardModel.
+ * <p>
+ * Each move produces a new BoardModel sharing structure with its predecessor, and undo simply restores the previous
+ * model, so undo is cheap however many blocks the move pushed. The pieces changed by a move or undo are those the
+ * later model records as moved, so neither visits the pieces which stayed put.
+ */
+public final class PersistentGameEngine extends AbstractGameEngine {
+
+    private final Deque<BoardModel> history = new ArrayDeque<>();
+    private BoardModel model;
+
+    // Scratch space for the pieces moved by a single move or undo.
+    private final int[] moved;
+    private final int[] fromCells;
+    private final int[] toCells;
+
+    public PersistentGameEngine(final BoardDefinition definition) {
+        super(definition);
+        model = BoardModel.fromDefinition(definition);
+        moved = new int[registry.getPieceCount()];
+        fromCells = new int[registry.getPieceCount()];
+        toCells = new int[registry.getPieceCount()];
+        initialiseTargets();
+    }
+
+    /**
+     * Gets the BoardModel holding the current state of the game.
+     *
+     * @return The BoardModel.
+     */
+    public BoardModel getModel() {
+        return model;
+    }
+
+    @Override
+    int getPieceAtIndex(final int cell) {
+        final Option<Block> block = model.getBlockAtCell(cellTable.cell(cell));
+        return block.isEmpty() ? PieceRegistry.NONE : registry.getPieceId(block.get());
+    }
+
+    @Override
+    int getPieceCellIndex(final int pieceId) {
+        return cellTable.index(model.getBlockCell(registry.getPiece(pieceId)).get());
+    }
+
+    @Override
+    public int getMoveCount() {
+        return history.size();
+    }
+
+    @Override
+    public boolean move(final Direction direction) {
+        if (registry.getPlayerId() == PieceRegistry.NONE) {
+            return false;
+        }
+        final Option<BoardModel> next = model.move(direction);
+        if (next.isEmpty()) {
+            return false;
+        }
+        history.push(model);
+        changeModel(next.get(), next.get());
+        return true;
+    }
+
+    @Override
+    public boolean undo() {
+        if (history.isEmpty()) {
+            return false;
+        }
+        changeModel(history.pop(), model);
+        return true;
+    }
+
+    /**
+     * Change to the given model, recording the pieces moved by the move between it and the current model.
+     *
+     * @param next  The model to change to.
+     * @param later Whichever of the two models was produced by the move between them.
+     */
+    private void changeModel(final BoardModel next, final BoardModel later) {
+        final List<Block> blocks = later.getMovedBlocks();
+        final int count = blocks.size();
+        for (int i = 0; i < count; i++) {
+            final Block block = blocks.get(i);
+            moved[i] = registry.getPieceId(block);
+            fromCells[i] = cellTable.index(model.getBlockCell(block).get());
+            toCells[i] = cellTable.index(next.getBlockCell(block).get());
+        }
+        model = next;
+        recordMove(moved, fromCells, toCells, count);
+    }
+}
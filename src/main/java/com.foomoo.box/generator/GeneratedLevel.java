@@ -0,0 +1,86 @@
+package com.foomoo.box.generator;
+
+import com.foomoo.box.BoardDefinition;
+
+/**
+ * A level produced by the {@link LevelGenerator}, with the measures used to score it.
+ */
+public final class GeneratedLevel {
+
+    private final String definitionString;
+    private final long seed;
+    private final int pullCount;
+    private final int pushDistance;
+    private final int boxChanges;
+    private final int score;
+
+    GeneratedLevel(final String definitionString, final long seed, final int pullCount, final int pushDistance,
+                   final int boxChanges, final int score) {
+        this.definitionString = definitionString;
+        this.seed = seed;
+        this.pullCount = pullCount;
+        this.pushDistance = pushDistance;
+        this.boxChanges = boxChanges;
+        this.score = score;
+    }
+
+    /**
+     * Gets the level as a definition string, in the form accepted by {@link BoardDefinition#fromString(String)}.
+     *
+     * @return The definition string.
+     */
+    public String getDefinitionString() {
+        return definitionString;
+    }
+
+    public BoardDefinition getDefinition() {
+        return BoardDefinition.fromString(definitionString);
+    }
+
+    /**
+     * Gets the seed from which the level was generated. Generating with the same seed and settings gives the same
+     * level.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of block pulls made from the solved position, which bounds the pushes needed to solve.
+     *
+     * @return The pull count.
+     */
+    public int getPullCount() {
+        return pullCount;
+    }
+
+    /**
+     * Gets the total Manhattan distance of the blocks from their targets, a lower bound on the pushes needed to solve.
+     *
+     * @return The push distance.
+     */
+    public int getPushDistance() {
+        return pushDistance;
+    }
+
+    /**
+     * Gets the number of times consecutive pulls moved a different block, a measure of how much the blocks interact.
+     *
+     * @return The box change count.
+     */
+    public int getBoxChanges() {
+        return boxChanges;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GeneratedLevel(seed=%d, score=%d, pulls=%d, pushDistance=%d, boxChanges=%d)",
+                seed, score, pullCount, pushDistance, boxChanges);
+    }
+}
@@ -0,0 +1,390 @@
+package com.foomoo.box.generator;
+
+import com.foomoo.box.Direction;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates levels by playing backwards from a solved position.
+ * <p>
+ * Each level starts from a random wall layout with every block on its target. The player then makes random moves in
+ * which it may pull the chain of blocks behind it, the reverse of a push under the rules of the BoardModel. Every
+ * generated level can therefore be solved by reversing the pulls. Many candidate walks are made from each solved
+ * position, spread over the cores of a ForkJoinPool, and the candidate with the best score is kept. The score rewards
+ * push distance, the total distance of the blocks from their targets, and box interaction, the number of times the
+ * walk switched between blocks.
+ * <p>
+ * Levels are deterministic given the seed and settings, however many threads are used.
+ */
+public final class LevelGenerator {
+
+    /**
+     * The maximum number of blocks pulled at once, matching the player's push strength.
+     */
+    public static final int PULL_STRENGTH = 2;
+
+    // Block letters, skipping X which denotes a wall.
+    private static final String BLOCK_LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWYZ";
+    private static final int MAX_LAYOUT_ATTEMPTS = 100;
+    private static final int BOX_CHANGE_WEIGHT = 2;
+
+    private final int width;
+    private final int height;
+    private final int blockCount;
+    private final double wallDensity;
+    private final int steps;
+    private final int candidates;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    private LevelGenerator(final Builder builder) {
+        if (builder.blockCount < 1 || builder.blockCount > BLOCK_LETTERS.length()) {
+            throw new RuntimeException("Block count must be between 1 and " + BLOCK_LETTERS.length());
+        }
+        if (builder.width < 4 || builder.height < 4) {
+            throw new RuntimeException("Levels must be at least 4 cells wide and high");
+        }
+        this.width = builder.width;
+        this.height = builder.height;
+        this.blockCount = builder.blockCount;
+        this.wallDensity = builder.wallDensity;
+        this.steps = builder.steps;
+        this.candidates = builder.candidates;
+        this.seed = builder.seed;
+        this.pool = builder.pool;
+    }
+
+    /**
+     * Gets a stream of generated levels. Levels are generated lazily, in order, as the stream is consumed.
+     *
+     * @param count The number of levels.
+     * @return The Stream of levels.
+     */
+    public Stream<GeneratedLevel> generate(final int count) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final long[] levelSeeds = LongStream.generate(random::nextLong).limit(count).toArray();
+        return Arrays.stream(levelSeeds).mapToObj(this::generateLevel);
+    }
+
+    /**
+     * Generate the level for the given seed.
+     *
+     * @param levelSeed The seed.
+     * @return The best scoring level generated.
+     * @throws RuntimeException if no valid level could be generated with the generator's settings.
+     */
+    public GeneratedLevel generateLevel(final long levelSeed) {
+        final SplittableRandom random = new SplittableRandom(levelSeed);
+        for (int attempt = 0; attempt < MAX_LAYOUT_ATTEMPTS; attempt++) {
+            final SolvedPosition solved = SolvedPosition.create(width, height, blockCount, wallDensity, random);
+            if (solved == null) {
+                continue;
+            }
+
+            final long[] candidateSeeds = LongStream.generate(random::nextLong).limit(candidates).toArray();
+            final Candidate best = pool.submit(() -> IntStream.range(0, candidateSeeds.length).parallel()
+                    .mapToObj(candidate -> new Candidate(solved, candidate, candidateSeeds[candidate]))
+                    .filter(Candidate::isValid)
+                    .max(Comparator.comparingInt((Candidate candidate) -> candidate.score)
+                            .thenComparingInt(candidate -> -candidate.index))
+                    .orElse(null)).join();
+
+            if (best != null) {
+                return new GeneratedLevel(best.render(), levelSeed, best.pulls, best.pushDistance, best.boxChanges,
+                        best.score);
+            }
+        }
+        throw new RuntimeException("Could not generate a level with seed " + levelSeed);
+    }
+
+    /**
+     * A wall layout with every block on its target, from which candidate levels are generated.
+     */
+    private static final class SolvedPosition {
+        final int width;
+        final boolean[] floor;
+        final int[] targetCells;
+        final int playerCell;
+
+        private SolvedPosition(final int width, final boolean[] floor, final int[] targetCells, final int playerCell) {
+            this.width = width;
+            this.floor = floor;
+            this.targetCells = targetCells;
+            this.playerCell = playerCell;
+        }
+
+        /**
+         * Create a random solved position, keeping only the largest connected area of floor.
+         *
+         * @return The SolvedPosition, or null if the floor is too small for the blocks and player.
+         */
+        static SolvedPosition create(final int width, final int height, final int blockCount,
+                                     final double wallDensity, final SplittableRandom random) {
+            final boolean[] floor = new boolean[width * height];
+            for (int row = 1; row < height - 1; row++) {
+                for (int column = 1; column < width - 1; column++) {
+                    floor[row * width + column] = random.nextDouble() >= wallDensity;
+                }
+            }
+
+            final int[] region = largestRegion(floor, width);
+            Arrays.fill(floor, false);
+            for (int cell : region) {
+                floor[cell] = true;
+            }
+            if (region.length < blockCount * 2 + 1) {
+                return null;
+            }
+
+            // A partial shuffle picks distinct cells for the targets and the player.
+            final int[] cells = region.clone();
+            for (int i = 0; i <= blockCount; i++) {
+                final int j = i + random.nextInt(cells.length - i);
+                final int swap = cells[i];
+                cells[i] = cells[j];
+                cells[j] = swap;
+            }
+            return new SolvedPosition(width, floor, Arrays.copyOf(cells, blockCount), cells[blockCount]);
+        }
+
+        private static int[] largestRegion(final boolean[] floor, final int width) {
+            final int[] regionOf = new int[floor.length];
+            final int[] queue = new int[floor.length];
+            int[] largest = new int[0];
+            int regions = 0;
+            for (int start = 0; start < floor.length; start++) {
+                if (!floor[start] || regionOf[start] != 0) {
+                    continue;
+                }
+                regions++;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                regionOf[start] = regions;
+                while (head < tail) {
+                    final int cell = queue[head++];
+                    for (Direction direction : Direction.values()) {
+                        final int next = cell + direction.getRowDelta() * width + direction.getColumnDelta();
+                        // Border cells are never floor, so the step never leaves the grid from a floor cell.
+                        if (floor[next] && regionOf[next] == 0) {
+                            regionOf[next] = regions;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+                if (tail > largest.length) {
+                    largest = Arrays.copyOf(queue, tail);
+                }
+            }
+            return largest;
+        }
+    }
+
+    /**
+     * A random reverse walk from a solved position.
+     */
+    private final class Candidate {
+        final SolvedPosition solved;
+        final int index;
+        final int[] blockCells;
+        int playerCell;
+        int pulls;
+        int boxChanges;
+        int pushDistance;
+        int score;
+
+        Candidate(final SolvedPosition solved, final int index, final long candidateSeed) {
+            this.solved = solved;
+            this.index = index;
+            this.blockCells = solved.targetCells.clone();
+            this.playerCell = solved.playerCell;
+            walk(new SplittableRandom(candidateSeed));
+        }
+
+        private void walk(final SplittableRandom random) {
+            final int[] occupants = new int[solved.floor.length];
+            Arrays.fill(occupants, -1);
+            for (int block = 0; block < blockCells.length; block++) {
+                occupants[blockCells[block]] = block;
+            }
+
+            final Direction[] directions = Direction.values();
+            int lastBlock = -1;
+            for (int step = 0; step < steps; step++) {
+                final Direction direction = directions[random.nextInt(directions.length)];
+                final int delta = direction.getRowDelta() * width + direction.getColumnDelta();
+                final int to = playerCell + delta;
+                if (!solved.floor[to] || occupants[to] >= 0) {
+                    continue;
+                }
+
+                // Count the chain of blocks behind the player which could follow it, then pull a random number of
+                // them. Border cells are never floor, so stepping back from a floor cell stays within the grid.
+                int available = 0;
+                int behind = playerCell - delta;
+                while (available < PULL_STRENGTH && solved.floor[behind] && occupants[behind] >= 0) {
+                    available++;
+                    behind -= delta;
+                }
+                final int pulled = random.nextInt(available + 1);
+
+                occupants[to] = -1;
+                int cell = playerCell;
+                for (int i = 0; i < pulled; i++) {
+                    final int block = occupants[cell - delta];
+                    occupants[cell] = block;
+                    blockCells[block] = cell;
+                    if (block != lastBlock) {
+                        boxChanges += lastBlock >= 0 ? 1 : 0;
+                        lastBlock = block;
+                    }
+                    cell -= delta;
+                }
+                occupants[cell] = -1;
+                playerCell = to;
+                pulls += pulled > 0 ? 1 : 0;
+            }
+
+            for (int block = 0; block < blockCells.length; block++) {
+                pushDistance += Math.abs(blockCells[block] / width - solved.targetCells[block] / width)
+                        + Math.abs(blockCells[block] % width - solved.targetCells[block] % width);
+            }
+            score = pushDistance + BOX_CHANGE_WEIGHT * boxChanges;
+        }
+
+        /**
+         * Is the candidate a usable level. A definition string holds one piece per cell, so no block or the player may
+         * finish on a target.
+         *
+         * @return True if the candidate can be rendered as a level.
+         */
+        boolean isValid() {
+            if (pulls == 0) {
+                return false;
+            }
+            for (int target : solved.targetCells) {
+                if (target == playerCell) {
+                    return false;
+                }
+                for (int block : blockCells) {
+                    if (block == target) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        String render() {
+            final char[] grid = new char[solved.floor.length];
+            for (int cell = 0; cell < grid.length; cell++) {
+                grid[cell] = solved.floor[cell] ? ' ' : 'X';
+            }
+            for (int block = 0; block < blockCells.length; block++) {
+                grid[blockCells[block]] = BLOCK_LETTERS.charAt(block);
+                grid[solved.targetCells[block]] = Character.toLowerCase(BLOCK_LETTERS.charAt(block));
+            }
+            grid[playerCell] = '@';
+
+            final StringBuilder builder = new StringBuilder();
+            for (int row = 0; row * width < grid.length; row++) {
+                if (row > 0) {
+                    builder.append('\n');
+                }
+                builder.append(grid, row * width, width);
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Builder for LevelGenerator instances.
+     */
+    public static class Builder {
+        private int width = 10;
+        private int height = 8;
+        private int blockCount = 3;
+        private double wallDensity = 0.2;
+        private int steps = 300;
+        private int candidates = 64;
+        private long seed = System.nanoTime();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Set the size of the generated levels, including their outer walls.
+         *
+         * @param width  The number of columns.
+         * @param height The number of rows.
+         * @return This builder.
+         */
+        public Builder size(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        public Builder blocks(final int blockCount) {
+            this.blockCount = blockCount;
+            return this;
+        }
+
+        /**
+         * Set the proportion of interior cells which start as walls.
+         *
+         * @param wallDensity The density, from 0 to 1.
+         * @return This builder.
+         */
+        public Builder wallDensity(final double wallDensity) {
+            this.wallDensity = wallDensity;
+            return this;
+        }
+
+        /**
+         * Set the number of random moves in each reverse walk.
+         *
+         * @param steps The step count.
+         * @return This builder.
+         */
+        public Builder steps(final int steps) {
+            this.steps = steps;
+            return this;
+        }
+
+        /**
+         * Set the number of candidate walks made for each level.
+         *
+         * @param candidates The candidate count.
+         * @return This builder.
+         */
+        public Builder candidates(final int candidates) {
+            this.candidates = candidates;
+            return this;
+        }
+
+        public Builder seed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Set the pool used to generate candidates in parallel.
+         *
+         * @param pool The ForkJoinPool.
+         * @return This builder.
+         */
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public LevelGenerator build() {
+            return new LevelGenerator(this);
+        }
+    }
+}
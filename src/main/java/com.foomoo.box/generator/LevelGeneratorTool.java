@@ -0,0 +1,88 @@
+package com.foomoo.box.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Command line tool to generate levels, written to standard output as they are produced.
+ * <pre>
+ *   LevelGeneratorTool [--count=N] [--width=W] [--height=H] [--blocks=B] [--steps=S] [--candidates=C] [--seed=S]
+ *                      [--format=def|xsb]
+ * </pre>
+ * The def format writes definition strings separated by blank lines; the xsb format writes an XSB pack.
+ */
+public final class LevelGeneratorTool {
+
+    private static final String USAGE = "Usage: LevelGeneratorTool [--count=N] [--width=W] [--height=H] [--blocks=B]"
+            + " [--steps=S] [--candidates=C] [--seed=S] [--format=def|xsb]";
+
+    private LevelGeneratorTool() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final LevelGenerator.Builder builder = new LevelGenerator.Builder();
+        int count = 1;
+        int width = 10;
+        int height = 8;
+        boolean xsb = false;
+        try {
+            for (String arg : args) {
+                final int equals = arg.indexOf('=');
+                final String name = equals < 0 ? arg : arg.substring(0, equals);
+                final String value = equals < 0 ? "" : arg.substring(equals + 1);
+                switch (name) {
+                    case "--count":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "--width":
+                        width = Integer.parseInt(value);
+                        break;
+                    case "--height":
+                        height = Integer.parseInt(value);
+                        break;
+                    case "--blocks":
+                        builder.blocks(Integer.parseInt(value));
+                        break;
+                    case "--steps":
+                        builder.steps(Integer.parseInt(value));
+                        break;
+                    case "--candidates":
+                        builder.candidates(Integer.parseInt(value));
+                        break;
+                    case "--seed":
+                        builder.seed(Long.parseLong(value));
+                        break;
+                    case "--format":
+                        if (!value.equals("def") && !value.equals("xsb")) {
+                            throw new IllegalArgumentException(value);
+                        }
+                        xsb = value.equals("xsb");
+                        break;
+                    default:
+                        throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        final Iterator<GeneratedLevel> levels = builder.size(width, height).build().generate(count).iterator();
+        for (int number = 1; levels.hasNext(); number++) {
+            final GeneratedLevel level = levels.next();
+            if (xsb) {
+                XsbFormat.appendLevel(out, Integer.toString(number), level.getDefinition());
+            } else {
+                out.append(level.getDefinitionString()).append("\n\n");
+            }
+            out.flush();
+            System.err.println(number + ": " + level);
+        }
+    }
+}
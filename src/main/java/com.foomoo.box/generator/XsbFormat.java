@@ -0,0 +1,59 @@
+package com.foomoo.box.generator;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.IOException;
+
+/**
+ * Writes levels in the XSB format used by most Sokoban level collections.
+ * <p>
+ * XSB has no notion of linking blocks to particular targets, so block letters become {@code $} and target letters
+ * {@code .} and a level written to XSB cannot be read back with its links. Each level of a pack is preceded by a
+ * {@code ;} title line and followed by a blank line.
+ */
+public final class XsbFormat {
+
+    private XsbFormat() {
+    }
+
+    /**
+     * Gets the given level in XSB form, one line per row without a trailing newline.
+     *
+     * @param definition The level.
+     * @return The XSB text.
+     */
+    public static String toXsb(final BoardDefinition definition) {
+        final char[] chars = definition.toDefinitionString().toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = toXsbChar(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Append a level to an XSB pack.
+     *
+     * @param out        The Appendable holding the pack.
+     * @param title      The title of the level.
+     * @param definition The level.
+     * @throws IOException if the level cannot be appended.
+     */
+    public static void appendLevel(final Appendable out, final String title, final BoardDefinition definition)
+            throws IOException {
+        out.append("; ").append(title).append('\n')
+                .append(toXsb(definition)).append("\n\n");
+    }
+
+    private static char toXsbChar(final char c) {
+        if (c == 'X') {
+            return '#';
+        } else if (c == '@' || c == ' ' || c == '\n') {
+            return c;
+        } else if (Character.isUpperCase(c)) {
+            return '$';
+        } else if (Character.isLowerCase(c)) {
+            return '.';
+        }
+        return ' ';
+    }
+}
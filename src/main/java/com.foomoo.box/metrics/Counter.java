@@ -0,0 +1,35 @@
+package com.foomoo.box.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count which may be updated from many threads without locking. Counters may go down as well as up, so can also
+ * track the number of things currently active.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void decrement() {
+        value.decrement();
+    }
+
+    public void add(final long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,27 @@
+package com.foomoo.box.metrics;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Records the time between JavaFX pulses in the {@value #HISTOGRAM} histogram. While the monitor is started, pulses
+ * run every frame, so frames delayed by slow event handlers or layout show as long intervals. Intervals over
+ * {@value #MAX_FRAME_MILLIS}ms, such as while the application is suspended, are ignored.
+ */
+public final class FrameTimeMonitor extends AnimationTimer {
+
+    public static final String HISTOGRAM = "fx.frame";
+
+    private static final long MAX_FRAME_MILLIS = 1000;
+
+    private final LatencyHistogram frames = Metrics.histogram(HISTOGRAM);
+    private long lastPulse;
+
+    @Override
+    public void handle(final long now) {
+        final long interval = now - lastPulse;
+        if (lastPulse != 0 && interval < MAX_FRAME_MILLIS * 1_000_000) {
+            frames.record(interval);
+        }
+        lastPulse = now;
+    }
+}
@@ -0,0 +1,133 @@
+package com.foomoo.box.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds, recorded without locking.
+ * <p>
+ * Buckets are log-linear in the manner of HdrHistogram: each power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so reported values are within about 6% of the recorded values. Durations of
+ * 2<sup>{@value #MAX_EXPONENT}</sup> nanoseconds (about 18 minutes) or more share the last bucket, whose percentiles
+ * are reported as the maximum. Bucket counts are striped by thread, so threads recording at once rarely update the
+ * same memory.
+ * <p>
+ * Reads sum the stripes and are not atomic with respect to concurrent recording.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + 1;
+
+    private static final int STRIPES = Math.min(16,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos The duration in nanoseconds. Negative durations are recorded as zero.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKETS + bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Record the time elapsed since the given start time.
+     *
+     * @param startNanos The start time, from {@link System#nanoTime()}.
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanNanos() {
+        final long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Gets the duration at the given percentile, as the upper bound of the bucket in which it lies.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentileNanos(final double percentile) {
+        final long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < STRIPES * BUCKETS; i++) {
+            final long bucketCount = counts.get(i);
+            buckets[i % BUCKETS] += bucketCount;
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(bucket), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES * BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS
+                + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    static long bucketUpperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,127 @@
+package com.foomoo.box.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Registry of the application's counters and latency histograms.
+ * <p>
+ * Metrics are created on first use by name and live for the life of the application, so hot paths look them up once
+ * and keep them in static fields. Recording never locks, so metrics are always on.
+ * <p>
+ * {@link #install()} exposes the metrics through JMX and starts the periodic log dump. The dump period in seconds is
+ * read from the {@value #LOG_PERIOD_PROPERTY} system property, defaulting to {@value #DEFAULT_LOG_PERIOD_SECONDS};
+ * a period of zero disables the dump.
+ */
+public final class Metrics {
+
+    public static final String OBJECT_NAME = "com.foomoo.box:type=Metrics";
+    public static final String LOG_PERIOD_PROPERTY = "box.metrics.logPeriodSeconds";
+    public static final long DEFAULT_LOG_PERIOD_SECONDS = 60;
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private static MetricsLogger logger;
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets the counter with the given name, creating it if necessary.
+     *
+     * @param name The name.
+     * @return The Counter.
+     */
+    public static Counter counter(final String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Gets the latency histogram with the given name, creating it if necessary.
+     *
+     * @param name The name.
+     * @return The LatencyHistogram.
+     */
+    public static LatencyHistogram histogram(final String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets the current value of every counter.
+     *
+     * @return The values keyed by name, in name order.
+     */
+    public static Map<String, Long> getCounterValues() {
+        final Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    /**
+     * Gets a value from every histogram.
+     *
+     * @param value The function reading the value from a histogram.
+     * @return The values keyed by histogram name, in name order.
+     */
+    static Map<String, Long> getHistogramValues(final ToLongFunction<LatencyHistogram> value) {
+        final Map<String, Long> values = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> values.put(name, value.applyAsLong(histogram)));
+        return values;
+    }
+
+    static LatencyHistogram findHistogram(final String name) {
+        return HISTOGRAMS.get(name);
+    }
+
+    /**
+     * Gets a summary of every metric, one per line in name order, with histogram durations in microseconds.
+     *
+     * @return The summary.
+     */
+    public static String summary() {
+        final StringBuilder summary = new StringBuilder();
+        getCounterValues().forEach((name, value) -> summary.append(name).append(' ').append(value).append('\n'));
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> summary.append(String.format(
+                "%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n", name, histogram.getCount(),
+                histogram.getMeanNanos() / 1000, histogram.getValueAtPercentileNanos(50) / 1000.0,
+                histogram.getValueAtPercentileNanos(99) / 1000.0, histogram.getMaxNanos() / 1000.0)));
+        return summary.toString();
+    }
+
+    /**
+     * Reset every metric to zero. Counters tracking active things will be wrong until those things finish.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Register the metrics MBean and start the periodic log dump. Later calls have no effect.
+     *
+     * @throws RuntimeException if the MBean cannot be registered.
+     */
+    public static synchronized void install() {
+        if (logger != null) {
+            return;
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another class loader; its metrics are reported instead.
+        } catch (JMException e) {
+            throw new RuntimeException("Could not register metrics MBean.", e);
+        }
+        logger = new MetricsLogger(Long.getLong(LOG_PERIOD_PROPERTY, DEFAULT_LOG_PERIOD_SECONDS));
+    }
+}
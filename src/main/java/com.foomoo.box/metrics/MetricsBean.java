@@ -0,0 +1,50 @@
+package com.foomoo.box.metrics;
+
+import java.util.Map;
+
+/**
+ * The MetricsMXBean registered by {@link Metrics#install()}.
+ */
+final class MetricsBean implements MetricsMXBean {
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return Metrics.getCounterValues();
+    }
+
+    @Override
+    public Map<String, Long> getHistogramCounts() {
+        return Metrics.getHistogramValues(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getMedianNanos() {
+        return Metrics.getHistogramValues(histogram -> histogram.getValueAtPercentileNanos(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return Metrics.getHistogramValues(histogram -> histogram.getValueAtPercentileNanos(99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        return Metrics.getHistogramValues(LatencyHistogram::getMaxNanos);
+    }
+
+    @Override
+    public long getValueAtPercentileNanos(final String name, final double percentile) {
+        final LatencyHistogram histogram = Metrics.findHistogram(name);
+        return histogram == null ? 0 : histogram.getValueAtPercentileNanos(percentile);
+    }
+
+    @Override
+    public String getSummary() {
+        return Metrics.summary();
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
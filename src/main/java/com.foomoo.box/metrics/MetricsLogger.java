@@ -0,0 +1,41 @@
+package com.foomoo.box.metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically writes the metrics summary to the {@code com.foomoo.box.metrics} logger, on a daemon thread.
+ */
+final class MetricsLogger {
+
+    private static final Logger LOGGER = Logger.getLogger("com.foomoo.box.metrics");
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Construct a MetricsLogger.
+     *
+     * @param periodSeconds The period between dumps, or zero for no dumps.
+     */
+    MetricsLogger(final long periodSeconds) {
+        if (periodSeconds <= 0) {
+            executor = null;
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-logger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private void dump() {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Metrics:\n" + Metrics.summary());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.foomoo.box.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface through which the {@link Metrics} are exposed over JMX, under the name
+ * {@value Metrics#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Gets the current value of every counter.
+     *
+     * @return The counter values keyed by name.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Gets the number of durations recorded by every histogram.
+     *
+     * @return The counts keyed by histogram name.
+     */
+    Map<String, Long> getHistogramCounts();
+
+    Map<String, Long> getMedianNanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getMaxNanos();
+
+    /**
+     * Gets the duration at the given percentile of the named histogram.
+     *
+     * @param name       The histogram name.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The duration in nanoseconds, or 0 if there is no such histogram.
+     */
+    long getValueAtPercentileNanos(String name, double percentile);
+
+    /**
+     * Gets a summary of every metric, one per line.
+     *
+     * @return The summary.
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,117 @@
+package com.foomoo.box.save;
+
+import com.foomoo.box.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Compact record of the moves made in a game. Each move is held as a 2-bit direction ordinal and a push flag bit, so
+ * a history of 100,000 moves takes under 40KB.
+ */
+public final class MoveHistory {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] directions;
+    private byte[] pushes;
+    private int size;
+
+    public MoveHistory() {
+        this(new byte[directionBytes(INITIAL_CAPACITY)], new byte[pushBytes(INITIAL_CAPACITY)], 0);
+    }
+
+    MoveHistory(final byte[] directions, final byte[] pushes, final int size) {
+        this.directions = directions;
+        this.pushes = pushes;
+        this.size = size;
+    }
+
+    /**
+     * Create a history from moves in LURD notation, in which pushes are written in upper case.
+     *
+     * @param moves The moves.
+     * @return The MoveHistory.
+     * @throws RuntimeException if the moves contain a character other than l, u, r and d in either case.
+     */
+    public static MoveHistory fromLurd(final String moves) {
+        final MoveHistory history = new MoveHistory();
+        for (int i = 0; i < moves.length(); i++) {
+            final char move = moves.charAt(i);
+            history.add(Direction.fromLurd(move).orElseThrow(() -> new RuntimeException("Invalid move: " + move)),
+                    Character.isUpperCase(move));
+        }
+        return history;
+    }
+
+    static int directionBytes(final int moves) {
+        return (moves + 3) / 4;
+    }
+
+    static int pushBytes(final int moves) {
+        return (moves + 7) / 8;
+    }
+
+    /**
+     * Record a move.
+     *
+     * @param direction The direction the player moved.
+     * @param pushed    Whether the move pushed a block.
+     */
+    public void add(final Direction direction, final boolean pushed) {
+        if (size == directions.length * 4) {
+            directions = Arrays.copyOf(directions, Math.max(directions.length * 2, directionBytes(INITIAL_CAPACITY)));
+            pushes = Arrays.copyOf(pushes, pushBytes(directions.length * 4));
+        }
+        directions[size >> 2] |= direction.ordinal() << ((size & 3) * 2);
+        if (pushed) {
+            pushes[size >> 3] |= 1 << (size & 7);
+        }
+        size++;
+    }
+
+    /**
+     * Remove the most recent move, such as when it is undone.
+     */
+    public void removeLast() {
+        if (size == 0) {
+            throw new RuntimeException("Move history is empty.");
+        }
+        size--;
+        directions[size >> 2] &= ~(3 << ((size & 3) * 2));
+        pushes[size >> 3] &= ~(1 << (size & 7));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Direction getDirection(final int move) {
+        return Direction.fromOrdinal((directions[move >> 2] >> ((move & 3) * 2)) & 3);
+    }
+
+    public boolean isPush(final int move) {
+        return (pushes[move >> 3] & (1 << (move & 7))) != 0;
+    }
+
+    /**
+     * Gets the moves in LURD notation, with pushes in upper case.
+     *
+     * @return The moves.
+     */
+    public String toLurd() {
+        final char[] moves = new char[size];
+        for (int move = 0; move < size; move++) {
+            final char lurd = getDirection(move).getLurd();
+            moves[move] = isPush(move) ? Character.toUpperCase(lurd) : lurd;
+        }
+        return new String(moves);
+    }
+
+    byte[] getDirectionBytes() {
+        return directions;
+    }
+
+    byte[] getPushBytes() {
+        return pushes;
+    }
+}
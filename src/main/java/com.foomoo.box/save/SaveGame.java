@@ -0,0 +1,265 @@
+package com.foomoo.box.save;
+
+import com.foomoo.box.Board;
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.PieceRegistry;
+import com.foomoo.box.model.immutable.BoardModel;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of a game in progress: the level, the current cell of every piece and the history of moves made.
+ * <p>
+ * A game is resumed by placing each piece at its saved cell rather than by replaying the history. Snapshots are
+ * stored in a versioned binary format, in which unsigned varints are 7 bits per byte, least significant group first:
+ * <pre>
+ *   int      magic ("BXSV")
+ *   byte     format version
+ *   varint   length of the level definition string, then its UTF-8 bytes
+ *   varint   piece count, then the packed cell (row * width + column) of each piece as a varint, in piece id order
+ *   varint   move count, then 2-bit direction ordinals, four to a byte, then push flags, eight to a byte
+ *   int      CRC32 of all preceding bytes
+ * </pre>
+ */
+public final class SaveGame {
+
+    public static final int MAGIC = 0x42585356;
+    public static final int VERSION = 1;
+
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final BoardDefinition definition;
+    private final int[] pieceCells;
+    private final MoveHistory history;
+
+    private SaveGame(final BoardDefinition definition, final int[] pieceCells, final MoveHistory history) {
+        this.definition = definition;
+        this.pieceCells = pieceCells;
+        this.history = history;
+    }
+
+    /**
+     * Create a snapshot of the given Board.
+     *
+     * @param definition The definition the Board was created from.
+     * @param board      The Board.
+     * @param history    The moves made on the Board.
+     * @return The SaveGame.
+     */
+    public static SaveGame of(final BoardDefinition definition, final Board board, final MoveHistory history) {
+        return new SaveGame(definition, board.getPieceCellIndices(), history);
+    }
+
+    /**
+     * Create a snapshot of the given BoardModel.
+     *
+     * @param definition The definition the BoardModel was created from.
+     * @param model      The BoardModel.
+     * @param history    The moves made to reach the BoardModel.
+     * @return The SaveGame.
+     */
+    public static SaveGame of(final BoardDefinition definition, final BoardModel model, final MoveHistory history) {
+        final PieceRegistry registry = definition.getPieceRegistry();
+        final int[] cells = new int[registry.getPieceCount()];
+        for (int pieceId = 0; pieceId < cells.length; pieceId++) {
+            final Cell cell = model.getBlockCell(registry.getPiece(pieceId)).get();
+            cells[pieceId] = cell.getRow() * definition.getWidth() + cell.getColumn();
+        }
+        return new SaveGame(definition, cells, history);
+    }
+
+    /**
+     * Read a snapshot by memory-mapping the given file.
+     *
+     * @param file The file to read.
+     * @return The SaveGame.
+     * @throws IOException if the file cannot be read, or is not a valid save game.
+     */
+    public static SaveGame read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write the snapshot to the given file. The file is written alongside and then moved into place, so that an
+     * interrupted save never replaces a good one.
+     *
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path file) throws IOException {
+        final ByteBuffer buffer = encode();
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Encode the snapshot into a buffer ready for writing.
+     *
+     * @return The buffer, positioned at the start of the snapshot.
+     */
+    ByteBuffer encode() {
+        final byte[] level = definition.toDefinitionString().getBytes(StandardCharsets.UTF_8);
+        final int moves = history.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 1 + MAX_VARINT_BYTES * (3 + pieceCells.length)
+                + level.length + MoveHistory.directionBytes(moves) + MoveHistory.pushBytes(moves) + Integer.BYTES);
+
+        buffer.putInt(MAGIC).put((byte) VERSION);
+        putVarint(buffer, level.length);
+        buffer.put(level);
+        putVarint(buffer, pieceCells.length);
+        for (int cell : pieceCells) {
+            putVarint(buffer, cell);
+        }
+        putVarint(buffer, moves);
+        buffer.put(history.getDirectionBytes(), 0, MoveHistory.directionBytes(moves));
+        buffer.put(history.getPushBytes(), 0, MoveHistory.pushBytes(moves));
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode a snapshot from the given buffer.
+     *
+     * @param buffer The buffer holding the whole snapshot from position zero.
+     * @return The SaveGame.
+     * @throws IOException if the buffer does not hold a valid save game.
+     */
+    static SaveGame decode(final ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < Integer.BYTES * 2 + 1 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a save game.");
+        }
+        if (buffer.get(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported save game version: " + buffer.get(Integer.BYTES));
+        }
+
+        final int checksumOffset = buffer.limit() - Integer.BYTES;
+        final ByteBuffer checked = buffer.duplicate();
+        checked.position(0).limit(checksumOffset);
+        final CRC32 crc = new CRC32();
+        crc.update(checked);
+        if ((int) crc.getValue() != buffer.getInt(checksumOffset)) {
+            throw new IOException("Save game checksum does not match.");
+        }
+
+        try {
+            final ByteBuffer input = buffer.duplicate();
+            input.position(Integer.BYTES + 1).limit(checksumOffset);
+
+            final byte[] level = new byte[getVarint(input)];
+            input.get(level);
+            final BoardDefinition definition;
+            try {
+                definition = BoardDefinition.fromString(new String(level, StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                throw new IOException("Save game level is not valid.", e);
+            }
+
+            final int[] pieceCells = new int[getVarint(input)];
+            if (pieceCells.length != definition.getPieceRegistry().getPieceCount()) {
+                throw new IOException("Save game piece count does not match its level.");
+            }
+            for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+                pieceCells[pieceId] = getVarint(input);
+                if (pieceCells[pieceId] < 0 || pieceCells[pieceId] >= definition.getWidth() * definition.getHeight()) {
+                    throw new IOException("Save game piece cell is outside its level.");
+                }
+            }
+
+            final int moves = getVarint(input);
+            final byte[] directions = new byte[MoveHistory.directionBytes(moves)];
+            final byte[] pushes = new byte[MoveHistory.pushBytes(directions.length * 4)];
+            input.get(directions);
+            input.get(pushes, 0, MoveHistory.pushBytes(moves));
+
+            return new SaveGame(definition, pieceCells, new MoveHistory(directions, pushes, moves));
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Save game is truncated.", e);
+        }
+    }
+
+    public BoardDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Gets the saved cell of each piece.
+     *
+     * @return A copy of the packed cells, indexed by piece id.
+     */
+    public int[] getPieceCells() {
+        return pieceCells.clone();
+    }
+
+    public MoveHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Create a Board with the pieces at their saved cells.
+     *
+     * @return The Board.
+     */
+    public Board toBoard() {
+        final Board board = new Board(definition);
+        board.restorePieceCellIndices(pieceCells);
+        return board;
+    }
+
+    /**
+     * Create a BoardModel with the pieces at their saved cells.
+     *
+     * @return The BoardModel.
+     */
+    public BoardModel toModel() {
+        final PieceRegistry registry = definition.getPieceRegistry();
+        final BoardModel.BoardModelBuilder builder = new BoardModel.BoardModelBuilder(
+                BoardModel.fromDefinition(definition));
+        for (int pieceId = 0; pieceId < pieceCells.length; pieceId++) {
+            builder.blockCell(registry.getPiece(pieceId), new Cell(pieceCells[pieceId] / definition.getWidth(),
+                    pieceCells[pieceId] % definition.getWidth()));
+        }
+        return builder.build();
+    }
+
+    private static void putVarint(final ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(final ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+            final byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Save game varint is too long.");
+    }
+}
@@ -0,0 +1,194 @@
+package com.foomoo.box.server;
+
+import com.foomoo.box.Block;
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.Direction;
+import com.foomoo.box.PieceRegistry;
+import com.foomoo.box.model.immutable.BoardModel;
+import com.foomoo.box.model.immutable.BoardModelDiff;
+import scala.Option;
+
+import java.util.Optional;
+
+/**
+ * A single player's game, holding the current immutable BoardModel and responding to commands of the line protocol.
+ * <p>
+ * Commands, one per line:
+ * <pre>
+ *   MOVE &lt;lurd&gt;        Move the player once for each LURD character.
+ *   BOARD               Describe the level and the current position of every piece.
+ *   RESET               Return to the start of the level.
+ *   LEVEL &lt;definition&gt;  Start a new level, with rows of the definition separated by '|'.
+ *   QUIT                End the session.
+ * </pre>
+ * Each move is answered by a single line, either <code>MOVED n piece:row,col ... [+target ...] [-target ...]
+ * [SOLVED]</code> listing the pieces which moved and the targets which became satisfied (+) or unsatisfied (-), or
+ * <code>BLOCKED n</code>, where n is the number of moves made so far. <code>BOARD</code>, <code>RESET</code> and
+ * <code>LEVEL</code> are answered by a <code>BOARD definition</code> line followed by a <code>STATE n piece:row,col
+ * ...</code> line. Errors are answered by an <code>ERROR message</code> line.
+ */
+public final class GameSession {
+
+    private static final char ROW_SEPARATOR = '|';
+
+    private BoardDefinition definition;
+    private BoardModel start;
+    private BoardModel model;
+    private int moveCount;
+    private boolean closed;
+
+    public GameSession(final BoardDefinition definition) {
+        setLevel(definition);
+    }
+
+    public BoardModel getModel() {
+        return model;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Has the session been ended by a QUIT command.
+     *
+     * @return True if the session is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Is every target satisfied: by its linked block, or by any block other than the player for targets without a
+     * linked block.
+     *
+     * @return True if the level is solved.
+     */
+    public boolean isSolved() {
+        final PieceRegistry registry = definition.getPieceRegistry();
+        for (int targetId = 0; targetId < registry.getTargetCount(); targetId++) {
+            if (!isSatisfied(model, registry, targetId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Handle a single command line, appending the response lines to the given builder.
+     *
+     * @param line     The command line, without its line terminator.
+     * @param response The builder to append response lines to, each terminated by '\n'.
+     */
+    public void handle(final String line, final StringBuilder response) {
+        final String trimmed = line.trim();
+        final int space = trimmed.indexOf(' ');
+        final String command = space < 0 ? trimmed : trimmed.substring(0, space);
+        final String argument = space < 0 ? "" : trimmed.substring(space + 1).trim();
+
+        switch (command.toUpperCase()) {
+            case "MOVE":
+                for (int i = 0; i < argument.length(); i++) {
+                    final Optional<Direction> direction = Direction.fromLurd(argument.charAt(i));
+                    if (direction.isPresent()) {
+                        move(direction.get(), response);
+                    } else {
+                        response.append("ERROR Invalid move: ").append(argument.charAt(i)).append('\n');
+                    }
+                }
+                break;
+            case "BOARD":
+                describe(response);
+                break;
+            case "RESET":
+                model = start;
+                moveCount = 0;
+                describe(response);
+                break;
+            case "LEVEL":
+                try {
+                    setLevel(BoardDefinition.fromString(argument.replace(ROW_SEPARATOR, '\n')));
+                    describe(response);
+                } catch (RuntimeException e) {
+                    response.append("ERROR Invalid level: ").append(e.getMessage()).append('\n');
+                }
+                break;
+            case "QUIT":
+                closed = true;
+                response.append("BYE\n");
+                break;
+            default:
+                response.append("ERROR Unknown command: ").append(command).append('\n');
+        }
+    }
+
+    private void setLevel(final BoardDefinition definition) {
+        this.start = BoardModel.fromDefinition(definition);
+        this.definition = definition;
+        this.model = start;
+        this.moveCount = 0;
+    }
+
+    private void move(final Direction direction, final StringBuilder response) {
+        final Option<BoardModel> next = model.move(direction);
+        if (next.isEmpty()) {
+            response.append("BLOCKED ").append(moveCount).append('\n');
+            return;
+        }
+
+        final BoardModel previous = model;
+        model = next.get();
+        moveCount++;
+
+        // Report moved pieces in piece id order, so that responses are deterministic.
+        final scala.collection.immutable.Set<Block> moved = new BoardModelDiff(previous, model).getMovedBlocks();
+        final PieceRegistry registry = definition.getPieceRegistry();
+        response.append("MOVED ").append(moveCount);
+        for (int pieceId = 0; pieceId < registry.getPieceCount(); pieceId++) {
+            final Block piece = registry.getPiece(pieceId);
+            if (moved.contains(piece)) {
+                appendPiece(response, piece, model.getBlockCell(piece).get());
+            }
+        }
+
+        for (int targetId = 0; targetId < registry.getTargetCount(); targetId++) {
+            final boolean before = isSatisfied(previous, registry, targetId);
+            final boolean after = isSatisfied(model, registry, targetId);
+            if (before != after) {
+                response.append(' ').append(after ? '+' : '-').append(registry.getTarget(targetId).getText());
+            }
+        }
+        if (isSolved()) {
+            response.append(" SOLVED");
+        }
+        response.append('\n');
+    }
+
+    private void describe(final StringBuilder response) {
+        response.append("BOARD ").append(definition.toDefinitionString().replace('\n', ROW_SEPARATOR)).append('\n');
+        response.append("STATE ").append(moveCount);
+        final PieceRegistry registry = definition.getPieceRegistry();
+        for (int pieceId = 0; pieceId < registry.getPieceCount(); pieceId++) {
+            final Block piece = registry.getPiece(pieceId);
+            appendPiece(response, piece, model.getBlockCell(piece).get());
+        }
+        response.append('\n');
+    }
+
+    private static void appendPiece(final StringBuilder response, final Block block, final Cell cell) {
+        response.append(' ').append(block.getText()).append(':').append(cell.getRow()).append(',')
+                .append(cell.getColumn());
+    }
+
+    private static boolean isSatisfied(final BoardModel model, final PieceRegistry registry, final int targetId) {
+        final Option<Block> occupant = model.getBlockAtCell(model.getTargetCell(registry.getTarget(targetId)).get());
+        if (occupant.isEmpty()) {
+            return false;
+        }
+        final int pieceId = registry.getPieceId(occupant.get());
+        final int required = registry.getPieceForTarget(targetId);
+        return pieceId != PieceRegistry.NONE && pieceId != registry.getPlayerId()
+                && (required == PieceRegistry.NONE || required == pieceId);
+    }
+}
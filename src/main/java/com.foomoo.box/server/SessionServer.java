@@ -0,0 +1,290 @@
+package com.foomoo.box.server;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Headless server hosting many {@link GameSession}s over TCP, without a JavaFX Stage per player.
+ * <p>
+ * All connections are served by a single thread running a non-blocking selector loop, so the cost of an idle session
+ * is its BoardModel and a small pair of buffers rather than a thread. Each connection is given a new session on the
+ * level from the level supplier and sent the initial BOARD description.
+ * <p>
+ * A connection is not read while it has output waiting to be sent, so a client which stops reading its responses is
+ * held back by TCP rather than buffered for. Responses to a single read are still queued together, and a client whose
+ * queued output would exceed {@value #MAX_OUTPUT_BYTES} bytes is disconnected.
+ */
+public final class SessionServer implements Closeable {
+
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final int INITIAL_OUTPUT_BYTES = 256;
+    static final int MAX_OUTPUT_BYTES = 1 << 20;
+
+    private final Supplier<BoardDefinition> levels;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+    private volatile int sessionCount;
+
+    /**
+     * Create a server listening on the given address.
+     *
+     * @param levels  Supplies the level for each new session.
+     * @param address The address to listen on. Use port 0 for any free port.
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public SessionServer(final Supplier<BoardDefinition> levels, final InetSocketAddress address) throws IOException {
+        this.levels = levels;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2 || !(args[0].equals("--stdin") || args[0].startsWith("--port="))) {
+            System.err.println("Usage: SessionServer --port=<port>|--stdin <level file>");
+            System.exit(1);
+        }
+
+        final BoardDefinition definition = BoardDefinition.fromString(
+                new String(Files.readAllBytes(Paths.get(args[1])), StandardCharsets.UTF_8));
+        if (args[0].equals("--stdin")) {
+            runSession(new GameSession(definition), new BufferedReader(new InputStreamReader(System.in,
+                    StandardCharsets.UTF_8)), System.out);
+        } else {
+            final int port = Integer.parseInt(args[0].substring("--port=".length()));
+            try (SessionServer server = new SessionServer(() -> definition, new InetSocketAddress(port))) {
+                System.out.println("Listening on port " + server.getPort());
+                server.run();
+            }
+        }
+    }
+
+    /**
+     * Run a single session over the given reader and stream, until the reader is exhausted or the session quits.
+     *
+     * @param session The session.
+     * @param input   The command lines.
+     * @param output  The stream to write responses to.
+     * @throws IOException if the input cannot be read.
+     */
+    public static void runSession(final GameSession session, final BufferedReader input, final PrintStream output)
+            throws IOException {
+        final StringBuilder response = new StringBuilder();
+        session.handle("BOARD", response);
+        output.append(response).flush();
+
+        String line;
+        while (!session.isClosed() && (line = input.readLine()) != null) {
+            response.setLength(0);
+            session.handle(line, response);
+            output.append(response).flush();
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected sessions.
+     *
+     * @return The session count.
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Run the event loop on a new daemon thread.
+     *
+     * @return The thread.
+     */
+    public Thread start() {
+        final Thread thread = new Thread(() -> {
+            try {
+                run();
+            } catch (IOException e) {
+                throw new RuntimeException("Session server failed.", e);
+            }
+        }, "session-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Run the event loop on the calling thread until the server is closed.
+     *
+     * @throws IOException if the selector fails.
+     */
+    public void run() throws IOException {
+        while (running) {
+            selector.select();
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        ((Connection) key.attachment()).read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        ((Connection) key.attachment()).write(key);
+                    }
+                } catch (IOException e) {
+                    disconnect(key);
+                }
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        final Connection connection = new Connection(new GameSession(levels.get()));
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+        sessionCount++;
+        try {
+            connection.respond(key, "BOARD");
+        } catch (IOException e) {
+            disconnect(key);
+        }
+    }
+
+    private void disconnect(final SelectionKey key) {
+        if (key.isValid() && key.attachment() instanceof Connection) {
+            sessionCount--;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // The connection is being dropped regardless.
+        }
+    }
+
+    /**
+     * The buffers and session of a single connection.
+     */
+    private final class Connection {
+        private final GameSession session;
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_BYTES);
+        private final StringBuilder response = new StringBuilder();
+        private ByteBuffer output = ByteBuffer.allocate(INITIAL_OUTPUT_BYTES);
+
+        Connection(final GameSession session) {
+            this.session = session;
+            output.flip();
+        }
+
+        void read(final SelectionKey key) throws IOException {
+            if (((SocketChannel) key.channel()).read(input) < 0) {
+                disconnect(key);
+                return;
+            }
+
+            input.flip();
+            int lineStart = 0;
+            for (int i = 0; i < input.limit(); i++) {
+                if (input.get(i) == '\n') {
+                    final String line = new String(input.array(), lineStart, i - lineStart, StandardCharsets.UTF_8);
+                    respond(key, line);
+                    lineStart = i + 1;
+                    if (session.isClosed()) {
+                        break;
+                    }
+                }
+            }
+            input.position(lineStart);
+            input.compact();
+
+            if (!input.hasRemaining()) {
+                input.clear();
+                response.setLength(0);
+                send(key, response.append("ERROR Line too long\n"));
+            }
+        }
+
+        void respond(final SelectionKey key, final String line) throws IOException {
+            response.setLength(0);
+            session.handle(line, response);
+            send(key, response);
+        }
+
+        /**
+         * Queue the given text for writing, growing the output buffer if necessary, and stop reading until it is sent.
+         * Text is always accepted when nothing is queued, so a single large response can be sent.
+         *
+         * @throws IOException if the queued output would exceed its limit.
+         */
+        private void send(final SelectionKey key, final CharSequence text) throws IOException {
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            if (output.hasRemaining() && output.remaining() + bytes.length > MAX_OUTPUT_BYTES) {
+                throw new IOException("Client is not reading its output.");
+            }
+            if (output.capacity() - output.remaining() < bytes.length) {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(output.capacity() * 2,
+                        output.remaining() + bytes.length));
+                grown.put(output);
+                output = grown;
+            } else {
+                output.compact();
+            }
+            output.put(bytes);
+            output.flip();
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        void write(final SelectionKey key) throws IOException {
+            ((SocketChannel) key.channel()).write(output);
+            if (!output.hasRemaining()) {
+                if (session.isClosed()) {
+                    disconnect(key);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.foomoo.box.solver;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs solves on an injected Executor, returning a CompletableFuture for each.
+ * <p>
+ * Cancelling a returned future stops its solve at the solver's next poll of its {@link SolveMonitor}. A solve which
+ * reaches its deadline completes with an empty result, as for any other solve which did not find a solution.
+ * <p>
+ * Each executor thread solves with its own Solver, created on first use by the given factory and reused for later
+ * solves on that thread, so non thread safe solvers such as {@link IdaStarSolver} may be used.
+ */
+public final class AsyncSolver {
+
+    private final ThreadLocal<Solver> solvers;
+    private final Executor executor;
+
+    /**
+     * Construct an AsyncSolver.
+     *
+     * @param solverFactory Factory creating the solver used by each executor thread.
+     * @param executor      The executor to run solves on.
+     */
+    public AsyncSolver(final Supplier<? extends Solver> solverFactory, final Executor executor) {
+        this.solvers = ThreadLocal.withInitial(solverFactory);
+        this.executor = executor;
+    }
+
+    /**
+     * Solve the given level without a deadline.
+     *
+     * @param level The level to solve.
+     * @return Future of the optional Solution.
+     */
+    public CompletableFuture<Optional<Solution>> solve(final SolverLevel level) {
+        return solve(level, Long.MAX_VALUE, TimeUnit.NANOSECONDS, progress -> {
+        });
+    }
+
+    /**
+     * Solve the given level.
+     *
+     * @param level    The level to solve.
+     * @param timeout  The time allowed for the solve, measured from this call.
+     * @param unit     The unit of the timeout.
+     * @param progress Consumer of progress reports, called on the solving thread.
+     * @return Future of the optional Solution, empty if no solution was found before the deadline.
+     */
+    public CompletableFuture<Optional<Solution>> solve(final SolverLevel level, final long timeout,
+                                                       final TimeUnit unit, final Consumer<SolveProgress> progress) {
+        final CompletableFuture<Optional<Solution>> future = new CompletableFuture<>();
+        final long start = System.nanoTime();
+        final long timeoutNanos = unit.toNanos(timeout);
+
+        final SolveMonitor monitor = new SolveMonitor() {
+            @Override
+            public boolean isCancelled() {
+                return future.isDone() || System.nanoTime() - start >= timeoutNanos;
+            }
+
+            @Override
+            public void progress(final SolveProgress report) {
+                progress.accept(report);
+            }
+        };
+
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(solvers.get().solve(level, monitor));
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,59 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.CanonicalLevel;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Solver which consults a {@link SolutionCache} before delegating to another solver, and stores the solutions that
+ * solver finds.
+ */
+public final class CachedSolver implements Solver {
+
+    private final Solver delegate;
+    private final SolutionCache cache;
+
+    public CachedSolver(final Solver delegate, final SolutionCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<Solution> solve(final SolverLevel level) {
+        return solve(level, SolveMonitor.NONE);
+    }
+
+    @Override
+    public Optional<Solution> solve(final SolverLevel level, final SolveMonitor monitor) {
+        try {
+            final Optional<Solution> cached = cache.get(level);
+            if (cached.isPresent()) {
+                return cached;
+            }
+
+            final Optional<Solution> solution = delegate.solve(level, monitor);
+            if (solution.isPresent()) {
+                cache.put(level, solution.get());
+            }
+            return solution;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to access the solution cache.", e);
+        }
+    }
+
+    /**
+     * Solve the {@link CanonicalLevel canonical form} of the given definition, so that rotated and mirrored copies of
+     * a level share a single cache entry, and map the solution back to the definition.
+     *
+     * @param definition The definition of the level to solve.
+     * @return Optional of the Solution. Empty if the level could not be solved within the solver's limits.
+     */
+    @Override
+    public Optional<Solution> solve(final BoardDefinition definition) {
+        final CanonicalLevel canonical = CanonicalLevel.of(definition);
+        return solve(SolverLevel.fromDefinition(canonical.getDefinition())).map(solution ->
+                new Solution(canonical.toOriginalMoves(solution.getMoves()), solution.getStatistics()));
+    }
+}
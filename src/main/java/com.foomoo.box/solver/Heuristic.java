@@ -0,0 +1,24 @@
+package com.foomoo.box.solver;
+
+/**
+ * Estimates the number of moves remaining to solve a level from a given arrangement of blocks.
+ * <p>
+ * Implementations used by {@link IdaStarSolver} must be admissible, i.e. never overestimate the number of moves, to
+ * guarantee optimal solutions. Implementations are called for every node expanded and so should not allocate.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    /**
+     * Estimate returned for arrangements from which the level cannot be solved.
+     */
+    int DEADLOCK = Integer.MAX_VALUE / 2;
+
+    /**
+     * Estimate the number of moves required to solve the level.
+     *
+     * @param blockCells The packed cell index of each block, indexed by block.
+     * @return The estimated number of moves, or {@link #DEADLOCK} if the level cannot be solved.
+     */
+    int estimate(int[] blockCells);
+}
@@ -0,0 +1,103 @@
+package com.foomoo.box.solver;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Searches for hints for a game in progress, keeping at most one search running.
+ * <p>
+ * Starting a search cancels any stale search for an earlier position. Progress and results are delivered through the
+ * given callback executor, typically <code>Platform::runLater</code>, and only for the latest search.
+ * <p>
+ * Not thread safe. Intended for use on the JavaFX application thread.
+ */
+public final class HintSearch {
+
+    private final AsyncSolver solver;
+    private final long timeoutMillis;
+    private final Executor callbackExecutor;
+    private final Consumer<SolveProgress> progressConsumer;
+    private final Consumer<Optional<Solution>> resultConsumer;
+
+    private CompletableFuture<Optional<Solution>> current;
+
+    // Incremented for each search started or cancelled, so that callbacks from stale searches can be ignored.
+    private int generation;
+
+    /**
+     * Construct a HintSearch.
+     *
+     * @param solver           The solver to search with.
+     * @param timeoutMillis    The time allowed for each search.
+     * @param callbackExecutor Executor on which the consumers are called.
+     * @param progressConsumer Consumer of the progress of the current search.
+     * @param resultConsumer   Consumer of the result of the current search.
+     */
+    public HintSearch(final AsyncSolver solver, final long timeoutMillis, final Executor callbackExecutor,
+                      final Consumer<SolveProgress> progressConsumer,
+                      final Consumer<Optional<Solution>> resultConsumer) {
+        this.solver = solver;
+        this.timeoutMillis = timeoutMillis;
+        this.callbackExecutor = callbackExecutor;
+        this.progressConsumer = progressConsumer;
+        this.resultConsumer = resultConsumer;
+    }
+
+    /**
+     * Start searching from the given position, cancelling any search in progress.
+     *
+     * @param level The position to search from.
+     */
+    public void start(final SolverLevel level) {
+        cancel();
+        final int search = ++generation;
+
+        current = solver.solve(level, timeoutMillis, TimeUnit.MILLISECONDS, progress -> callbackExecutor.execute(() -> {
+            if (search == generation) {
+                progressConsumer.accept(progress);
+            }
+        }));
+
+        // A search which failed is reported as finding no hint.
+        current.whenCompleteAsync((solution, throwable) -> {
+            if (search == generation) {
+                current = null;
+                resultConsumer.accept(throwable == null ? solution : Optional.empty());
+            }
+        }, callbackExecutor);
+    }
+
+    /**
+     * Restart the search from the given position if a search is in progress, such as after the player moves.
+     *
+     * @param level The new position.
+     */
+    public void restart(final SolverLevel level) {
+        if (isRunning()) {
+            start(level);
+        }
+    }
+
+    /**
+     * Is a search in progress.
+     *
+     * @return True if a search has been started and has not delivered its result or been cancelled.
+     */
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    /**
+     * Cancel the search in progress, if any. Its result will not be delivered.
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.Direction;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Iterative deepening A* solver whose memory use is bounded by a fixed-size {@link TranspositionTable}.
+ * <p>
+ * The table is allocated once, when the solver is built, and reused by every solve, so the memory consumed by a solve
+ * job is known up front. The table records, for each state seen, the lowest g at which it was reached and a lower
+ * bound on the cost to solve from it. Revisits at a higher g are pruned and the recorded bound strengthens the
+ * heuristic in later iterations.
+ * <p>
+ * Solutions are optimal in the number of moves provided the heuristic is admissible.
+ * <p>
+ * A solve may be observed by a {@link SolveMonitor}, which is polled every {@value #MONITOR_INTERVAL} nodes and
+ * receives progress at most every {@value #PROGRESS_INTERVAL_MILLIS} milliseconds.
+ * <p>
+ * A {@link SearchTrace} may be given to the builder to receive the nodes expanded, with counts of the children pruned
+ * for each reason. Without one no tracing work is done.
+ * <p>
+ * Not thread safe. Use one solver per thread.
+ */
+public final class IdaStarSolver implements Solver {
+
+    private static final int DIRECTION_COUNT = Direction.values().length;
+
+    static final int MONITOR_INTERVAL = 4096;
+    static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    private final TranspositionTable table;
+    private final Function<SolverLevel, Heuristic> heuristicFactory;
+    private final long maxNodes;
+    private final SearchTrace trace;
+
+    private SearchState state;
+    // The last node searched as a packed pruned children count, added to its parent's counts when tracing.
+    private long lastPruned;
+    private Heuristic heuristic;
+    private char[] path;
+    private int stamp;
+    private long nodes;
+    private long tableHits;
+    private boolean solved;
+    private boolean cutoff;
+    private int solutionLength;
+
+    private SolveMonitor monitor;
+    private boolean cancelled;
+    private long startNanos;
+    private long lastProgressNanos;
+    private int iterations;
+    private int bound;
+
+    private IdaStarSolver(final Builder builder) {
+        this.table = new TranspositionTable(builder.tableMegabytes, builder.policy);
+        this.heuristicFactory = builder.heuristicFactory;
+        this.maxNodes = builder.maxNodes;
+        this.trace = builder.trace;
+    }
+
+    /**
+     * Gets the transposition table used by this solver.
+     *
+     * @return The table.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    @Override
+    public Optional<Solution> solve(final SolverLevel level) {
+        return solve(level, SolveMonitor.NONE);
+    }
+
+    @Override
+    public Optional<Solution> solve(final SolverLevel level, final SolveMonitor monitor) {
+        final long start = System.nanoTime();
+        this.monitor = monitor;
+        startNanos = start;
+        lastProgressNanos = start;
+        cancelled = monitor.isCancelled();
+
+        state = new SearchState(level);
+        heuristic = heuristicFactory.apply(level);
+        path = new char[64];
+        table.clear();
+        nodes = 0;
+        tableHits = 0;
+        solved = false;
+
+        iterations = 0;
+        int threshold = heuristic.estimate(state.getBlockCells());
+        cutoff = true;
+        while (!solved && !cancelled && cutoff && threshold < TranspositionTable.MAX_VALUE && nodes < maxNodes) {
+            iterations++;
+            stamp = iterations;
+            cutoff = false;
+            bound = threshold;
+            monitor.progress(new SolveProgress(nodes, iterations, bound, System.nanoTime() - start));
+            if (trace != null) {
+                trace.iteration(iterations, bound);
+            }
+            threshold = search(0, threshold);
+        }
+
+        final SolveStatistics statistics = new SolveStatistics(nodes, iterations, tableHits, System.nanoTime() - start);
+        final Optional<Solution> solution = solved
+                ? Optional.of(new Solution(new String(path, 0, solutionLength), statistics))
+                : Optional.empty();
+
+        state = null;
+        heuristic = null;
+        path = null;
+        this.monitor = null;
+        return cancelled ? Optional.empty() : solution;
+    }
+
+    /**
+     * Depth first search bounded by the given threshold.
+     *
+     * @param g         The number of moves made to reach the current state.
+     * @param threshold The maximum f to explore.
+     * @return The lowest f found which exceeded the threshold, or the solution length if solved.
+     */
+    private int search(final int g, final int threshold) {
+        int h = heuristic.estimate(state.getBlockCells());
+        if (h >= Heuristic.DEADLOCK) {
+            if (trace != null) {
+                tracePruned(g, h, SearchTrace.Outcome.DEADLOCK);
+            }
+            return Heuristic.DEADLOCK;
+        }
+        if (g + h > threshold) {
+            if (trace != null) {
+                tracePruned(g, h, SearchTrace.Outcome.THRESHOLD);
+            }
+            cutoff = true;
+            return g + h;
+        }
+        if (state.isSolved()) {
+            if (trace != null) {
+                trace.node(state.getKey(), g, h, SearchTrace.Outcome.GOAL, 0);
+                lastPruned = 0;
+            }
+            solved = true;
+            solutionLength = g;
+            return g;
+        }
+
+        final long key = state.getKey();
+        final int slot = table.find(key);
+        if (slot >= 0) {
+            h = Math.max(h, table.getBound(slot));
+            if (h >= TranspositionTable.MAX_VALUE) {
+                if (trace != null) {
+                    tracePruned(g, h, SearchTrace.Outcome.TABLE_DEADLOCK);
+                }
+                tableHits++;
+                return Heuristic.DEADLOCK;
+            }
+            final int seenG = table.getG(slot);
+            if (g + h > threshold) {
+                if (trace != null) {
+                    tracePruned(g, h, SearchTrace.Outcome.TABLE_THRESHOLD);
+                }
+                tableHits++;
+                cutoff = true;
+                return g + h;
+            }
+            if (seenG < g || (seenG == g && table.getStamp(slot) == (stamp & 0xFFFF))) {
+                // The state is explored, or being explored, by a path at least as short. Any solution through this
+                // path within the threshold would be found by that one, so this path only bounds the next threshold.
+                if (trace != null) {
+                    tracePruned(g, h, SearchTrace.Outcome.TRANSPOSITION);
+                }
+                tableHits++;
+                return Math.max(g + h, threshold + 1);
+            }
+        }
+        table.store(key, g, h, stamp);
+
+        if (++nodes >= maxNodes || (nodes % MONITOR_INTERVAL == 0 && pollMonitor())) {
+            if (trace != null) {
+                traceExpanded(key, g, h, 0);
+            }
+            return Heuristic.DEADLOCK;
+        }
+
+        if (g == path.length) {
+            final char[] longerPath = new char[path.length * 2];
+            System.arraycopy(path, 0, longerPath, 0, path.length);
+            path = longerPath;
+        }
+
+        int minimum = Heuristic.DEADLOCK;
+        long prunedChildren = 0;
+        for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+            final int pushed = state.move(direction);
+            if (pushed < 0) {
+                continue;
+            }
+
+            final char move = Direction.fromOrdinal(direction).getLurd();
+            path[g] = pushed > 0 ? Character.toUpperCase(move) : move;
+            final int result = search(g + 1, threshold);
+            state.undo(direction, pushed);
+            if (trace != null) {
+                prunedChildren += lastPruned;
+            }
+
+            if (solved || cancelled) {
+                if (trace != null) {
+                    traceExpanded(key, g, h, prunedChildren);
+                }
+                return result;
+            }
+            minimum = Math.min(minimum, result);
+        }
+
+        table.store(key, g, minimum - g, stamp);
+        if (trace != null) {
+            traceExpanded(key, g, h, prunedChildren);
+        }
+        return minimum;
+    }
+
+    /**
+     * Note a pruned node for its parent's trace record. A pruned root has no parent, so is traced itself.
+     */
+    private void tracePruned(final int g, final int h, final SearchTrace.Outcome outcome) {
+        lastPruned = outcome.addTo(0);
+        if (g == 0) {
+            trace.node(state.getKey(), g, h, outcome, 0);
+        }
+    }
+
+    private void traceExpanded(final long key, final int g, final int h, final long prunedChildren) {
+        trace.node(key, g, h, SearchTrace.Outcome.EXPANDED, prunedChildren);
+        lastPruned = 0;
+    }
+
+    /**
+     * Check whether the solve has been cancelled, and report progress if it is due.
+     *
+     * @return True if the solve should stop.
+     */
+    private boolean pollMonitor() {
+        if (monitor.isCancelled()) {
+            cancelled = true;
+            return true;
+        }
+        final long now = System.nanoTime();
+        if (now - lastProgressNanos >= PROGRESS_INTERVAL_MILLIS * 1_000_000) {
+            lastProgressNanos = now;
+            monitor.progress(new SolveProgress(nodes, iterations, bound, now - startNanos));
+        }
+        return false;
+    }
+
+    /**
+     * Builder for IdaStarSolver instances.
+     */
+    public static class Builder {
+        private int tableMegabytes = 16;
+        private ReplacementPolicy policy = ReplacementPolicy.DEPTH_PREFERRED;
+        private Function<SolverLevel, Heuristic> heuristicFactory = ManhattanHeuristic::new;
+        private long maxNodes = Long.MAX_VALUE;
+        private SearchTrace trace;
+
+        /**
+         * Set the memory budget of the transposition table.
+         *
+         * @param megabytes The size of the table in megabytes.
+         * @return This builder.
+         */
+        public Builder transpositionTableMegabytes(final int megabytes) {
+            this.tableMegabytes = megabytes;
+            return this;
+        }
+
+        public Builder replacementPolicy(final ReplacementPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * Set the function used to create a heuristic for each level solved.
+         *
+         * @param heuristicFactory The heuristic factory.
+         * @return This builder.
+         */
+        public Builder heuristic(final Function<SolverLevel, Heuristic> heuristicFactory) {
+            this.heuristicFactory = heuristicFactory;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of nodes to expand before giving up.
+         *
+         * @param maxNodes The node limit.
+         * @return This builder.
+         */
+        public Builder maxNodes(final long maxNodes) {
+            this.maxNodes = maxNodes;
+            return this;
+        }
+
+        /**
+         * Set the trace to receive the nodes expanded by the solver's searches.
+         *
+         * @param trace The trace, or null for no tracing.
+         * @return This builder.
+         */
+        public Builder trace(final SearchTrace trace) {
+            this.trace = trace;
+            return this;
+        }
+
+        public IdaStarSolver build() {
+            return new IdaStarSolver(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.foomoo.box.solver;
+
+/**
+ * The difficulty of a level estimated by the {@link PlayoutEngine}: the statistics of its random and greedy playouts.
+ */
+public final class LevelDifficulty {
+
+    private final PlayoutStatistics random;
+    private final PlayoutStatistics greedy;
+    private final long elapsedNanos;
+
+    LevelDifficulty(final PlayoutStatistics random, final PlayoutStatistics greedy, final long elapsedNanos) {
+        this.random = random;
+        this.greedy = greedy;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public PlayoutStatistics getRandom() {
+        return random;
+    }
+
+    public PlayoutStatistics getGreedy() {
+        return greedy;
+    }
+
+    /**
+     * Gets the statistics of the given policy.
+     *
+     * @param policy The policy.
+     * @return The PlayoutStatistics.
+     */
+    public PlayoutStatistics get(final PlayoutEngine.Policy policy) {
+        return policy == PlayoutEngine.Policy.RANDOM ? random : greedy;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of playouts made per second over both policies.
+     *
+     * @return The playout rate.
+     */
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : (random.getPlayouts() + greedy.getPlayouts()) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LevelDifficulty(random=%s, greedy=%s, elapsedMs=%d)", random, greedy,
+                elapsedNanos / 1_000_000);
+    }
+}
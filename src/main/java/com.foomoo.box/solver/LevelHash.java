@@ -0,0 +1,89 @@
+package com.foomoo.box.solver;
+
+import java.util.Arrays;
+
+/**
+ * Computes 64-bit hashes of levels, used to key data stored on disk for a level.
+ */
+public final class LevelHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private LevelHash() {
+    }
+
+    /**
+     * Hash the structure of the given level: its floor, its targets and the links between blocks and targets. The
+     * starting positions of the player and blocks are not included, so every start position of a level shares the
+     * same structure hash.
+     *
+     * @param level The level to hash.
+     * @return The hash.
+     */
+    public static long structureHash(final SolverLevel level) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, level.getWidth());
+        hash = mix(hash, level.getHeight());
+        for (int cell = 0; cell < level.getCellCount(); cell++) {
+            hash = mix(hash, level.isFloor(cell) ? 1 : 0);
+        }
+        hash = mix(hash, level.getBlockCount());
+        hash = mix(hash, level.getTargetCount());
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            hash = mix(hash, level.getTargetCell(target));
+            hash = mix(hash, level.getTargetBlock(target));
+        }
+        return hash;
+    }
+
+    /**
+     * Hash the structure and the starting position of the given level. Blocks linked to targets are hashed by their
+     * cells in block order; the cells of the remaining, interchangeable, blocks are hashed in sorted order. The player
+     * is hashed by its {@link PlayerReach#normalisedCell(SolverLevel) normalised cell}, so positions which differ only
+     * in where the player stands within the region it can walk share the same hash.
+     *
+     * @param level The level to hash.
+     * @return The hash.
+     */
+    public static long canonicalHash(final SolverLevel level) {
+        final boolean[] linked = new boolean[level.getBlockCount()];
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            if (level.getTargetBlock(target) != SolverLevel.ANY_BLOCK) {
+                linked[level.getTargetBlock(target)] = true;
+            }
+        }
+
+        final int[] blockCells = level.getBlockCells();
+        final int[] interchangeable = new int[blockCells.length];
+        int interchangeableCount = 0;
+        long hash = structureHash(level);
+        for (int block = 0; block < blockCells.length; block++) {
+            if (linked[block]) {
+                hash = mix(hash, blockCells[block]);
+            } else {
+                interchangeable[interchangeableCount++] = blockCells[block];
+            }
+        }
+        Arrays.sort(interchangeable, 0, interchangeableCount);
+        for (int i = 0; i < interchangeableCount; i++) {
+            hash = mix(hash, interchangeable[i]);
+        }
+        return mix(hash, PlayerReach.normalisedCell(level));
+    }
+
+    /**
+     * Mix an int into the hash, a byte at a time.
+     *
+     * @param hash  The hash so far.
+     * @param value The value to mix in.
+     * @return The new hash.
+     */
+    static long mix(long hash, final int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
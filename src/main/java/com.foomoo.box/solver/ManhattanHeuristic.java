@@ -0,0 +1,43 @@
+package com.foomoo.box.solver;
+
+/**
+ * Heuristic based on the Manhattan distance of each block from its target.
+ * <p>
+ * A single move can push at most {@link SearchState#PLAYER_PUSH_STRENGTH} blocks one cell each, so the summed
+ * distance is divided by the push strength to remain admissible. Targets which may be satisfied by any block use the
+ * distance to the nearest block.
+ */
+public final class ManhattanHeuristic implements Heuristic {
+
+    private final SolverLevel level;
+
+    public ManhattanHeuristic(final SolverLevel level) {
+        this.level = level;
+    }
+
+    @Override
+    public int estimate(final int[] blockCells) {
+        int total = 0;
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            final int targetCell = level.getTargetCell(target);
+            final int block = level.getTargetBlock(target);
+            if (block == SolverLevel.ANY_BLOCK) {
+                if (blockCells.length == 0) {
+                    return Heuristic.DEADLOCK;
+                }
+                int nearest = Integer.MAX_VALUE;
+                for (int cell : blockCells) {
+                    nearest = Math.min(nearest, distance(cell, targetCell));
+                }
+                total += nearest;
+            } else {
+                total += distance(blockCells[block], targetCell);
+            }
+        }
+        return (total + SearchState.PLAYER_PUSH_STRENGTH - 1) / SearchState.PLAYER_PUSH_STRENGTH;
+    }
+
+    private int distance(final int from, final int to) {
+        return Math.abs(level.getRow(from) - level.getRow(to)) + Math.abs(level.getColumn(from) - level.getColumn(to));
+    }
+}
@@ -0,0 +1,52 @@
+package com.foomoo.box.solver;
+
+/**
+ * The result of optimising a solution with the {@link SolutionOptimiser}: the improved moves in LURD notation, with
+ * the move and push counts before and after optimisation.
+ */
+public final class OptimisedSolution {
+
+    private final String originalMoves;
+    private final String moves;
+
+    OptimisedSolution(final String originalMoves, final String moves) {
+        this.originalMoves = originalMoves;
+        this.moves = moves;
+    }
+
+    /**
+     * Gets the optimised moves in LURD notation, with pushes in upper case.
+     *
+     * @return The moves.
+     */
+    public String getMoves() {
+        return moves;
+    }
+
+    public int getMoveCount() {
+        return moves.length();
+    }
+
+    public int getPushCount() {
+        return SolutionOptimiser.countPushes(moves);
+    }
+
+    /**
+     * Gets the number of moves in the solution before optimisation, excluding any made after the level was complete.
+     *
+     * @return The original move count.
+     */
+    public int getOriginalMoveCount() {
+        return originalMoves.length();
+    }
+
+    public int getOriginalPushCount() {
+        return SolutionOptimiser.countPushes(originalMoves);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OptimisedSolution(%s, moves=%d->%d, pushes=%d->%d)", moves, getOriginalMoveCount(),
+                getMoveCount(), getOriginalPushCount(), getPushCount());
+    }
+}
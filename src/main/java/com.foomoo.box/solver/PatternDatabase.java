@@ -0,0 +1,430 @@
+package com.foomoo.box.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table of the optimal number of moves to bring small subsets (patterns) of blocks to their targets, from every
+ * placement of those blocks on the floor of a level.
+ * <p>
+ * Costs are computed for a relaxation of the level in which only the blocks of the pattern exist and the player may
+ * stand anywhere, so they never exceed the true cost and may be used as an admissible heuristic. A placement from
+ * which a pattern cannot reach its targets even in the relaxation is a deadlock.
+ * <p>
+ * A database is keyed by the {@link LevelHash#structureHash(SolverLevel) structure hash} of its level, and stored in a
+ * versioned binary file which is memory-mapped when loaded. All values are big-endian:
+ * <pre>
+ *   int    magic ("BXPD")
+ *   int    format version
+ *   long   level structure hash
+ *   int    level width
+ *   int    level height
+ *   int    floor cell count, F
+ *   int    pattern count, P
+ *   int[F] packed index of each floor cell
+ *   P x { int size; int[2] block indices, -1 if unused; long table offset }
+ *   P x byte[F^size] cost table, indexed by the blocks' floor indices, first block least significant
+ * </pre>
+ */
+public final class PatternDatabase {
+
+    public static final int MAGIC = 0x42585044;
+    public static final int VERSION = 1;
+
+    /**
+     * Largest number of blocks in a single pattern.
+     */
+    public static final int MAX_PATTERN_SIZE = 2;
+
+    /**
+     * Cost recorded for placements from which the pattern cannot be solved.
+     */
+    public static final int UNREACHABLE = 0xFF;
+
+    private static final int MAX_COST = UNREACHABLE - 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int PATTERN_BYTES = Integer.BYTES * (1 + MAX_PATTERN_SIZE) + Long.BYTES;
+    private static final long MAX_TABLE_STATES = 1L << 20;
+    private static final String FILE_SUFFIX = ".pdb";
+
+    private final ByteBuffer buffer;
+    private final long levelHash;
+    private final int floorCount;
+    private final int[] floorIndex;
+    private final int[][] patternBlocks;
+    private final int[] tableOffsets;
+
+    private PatternDatabase(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a pattern database.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pattern database version: " + buffer.getInt(4));
+        }
+
+        levelHash = buffer.getLong(8);
+        final int cellCount = buffer.getInt(16) * buffer.getInt(20);
+        floorCount = buffer.getInt(24);
+        final int patternCount = buffer.getInt(28);
+
+        floorIndex = new int[cellCount];
+        Arrays.fill(floorIndex, -1);
+        for (int i = 0; i < floorCount; i++) {
+            floorIndex[buffer.getInt(HEADER_BYTES + i * Integer.BYTES)] = i;
+        }
+
+        patternBlocks = new int[patternCount][];
+        tableOffsets = new int[patternCount];
+        final int descriptors = HEADER_BYTES + floorCount * Integer.BYTES;
+        for (int pattern = 0; pattern < patternCount; pattern++) {
+            final int descriptor = descriptors + pattern * PATTERN_BYTES;
+            patternBlocks[pattern] = new int[buffer.getInt(descriptor)];
+            for (int i = 0; i < patternBlocks[pattern].length; i++) {
+                patternBlocks[pattern][i] = buffer.getInt(descriptor + Integer.BYTES * (1 + i));
+            }
+            tableOffsets[pattern] = (int) buffer.getLong(descriptor + Integer.BYTES * (1 + MAX_PATTERN_SIZE));
+        }
+    }
+
+    /**
+     * Gets the path of the database for the given level within the given directory.
+     *
+     * @param directory The directory holding pattern databases.
+     * @param level     The level.
+     * @return The path of the database file.
+     */
+    public static Path pathFor(final Path directory, final SolverLevel level) {
+        return directory.resolve(String.format("%016x%s", LevelHash.structureHash(level), FILE_SUFFIX));
+    }
+
+    /**
+     * Load a database by memory-mapping the given file.
+     *
+     * @param file The database file.
+     * @return The PatternDatabase.
+     * @throws IOException if the file cannot be read or is not a supported pattern database.
+     */
+    public static PatternDatabase load(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new PatternDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Build the database for the given level. Blocks linked to targets are grouped into patterns of the given size
+     * in block order; patterns are reduced to single blocks if their tables would be too large.
+     *
+     * @param level       The level.
+     * @param patternSize The number of blocks per pattern, 1 or 2.
+     * @return The PatternDatabase.
+     */
+    public static PatternDatabase build(final SolverLevel level, final int patternSize) {
+        if (patternSize < 1 || patternSize > MAX_PATTERN_SIZE) {
+            throw new IllegalArgumentException("Pattern size must be between 1 and " + MAX_PATTERN_SIZE);
+        }
+
+        final int[] floorCells = new int[level.getCellCount()];
+        int floorCount = 0;
+        for (int cell = 0; cell < level.getCellCount(); cell++) {
+            if (level.isFloor(cell)) {
+                floorCells[floorCount++] = cell;
+            }
+        }
+
+        final int size = Math.pow(floorCount, patternSize) <= MAX_TABLE_STATES ? patternSize : 1;
+        final int[] targetOfBlock = new int[level.getBlockCount()];
+        Arrays.fill(targetOfBlock, -1);
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            if (level.getTargetBlock(target) != SolverLevel.ANY_BLOCK) {
+                targetOfBlock[level.getTargetBlock(target)] = level.getTargetCell(target);
+            }
+        }
+
+        final List<int[]> patterns = new ArrayList<>();
+        int[] pattern = new int[0];
+        for (int block = 0; block < targetOfBlock.length; block++) {
+            if (targetOfBlock[block] >= 0) {
+                pattern = Arrays.copyOf(pattern, pattern.length + 1);
+                pattern[pattern.length - 1] = block;
+                if (pattern.length == size) {
+                    patterns.add(pattern);
+                    pattern = new int[0];
+                }
+            }
+        }
+        if (pattern.length > 0) {
+            patterns.add(pattern);
+        }
+
+        final PatternBuilder builder = new PatternBuilder(level, Arrays.copyOf(floorCells, floorCount));
+        final List<byte[]> tables = new ArrayList<>();
+        long tableBytes = 0;
+        for (int[] blocks : patterns) {
+            final int[] targets = new int[blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+                targets[i] = targetOfBlock[blocks[i]];
+            }
+            final byte[] table = builder.costs(targets);
+            tables.add(table);
+            tableBytes += table.length;
+        }
+
+        final int tablesStart = HEADER_BYTES + floorCount * Integer.BYTES + patterns.size() * PATTERN_BYTES;
+        final ByteBuffer buffer = ByteBuffer.allocate((int) (tablesStart + tableBytes));
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(LevelHash.structureHash(level))
+                .putInt(level.getWidth()).putInt(level.getHeight()).putInt(floorCount).putInt(patterns.size());
+        for (int i = 0; i < floorCount; i++) {
+            buffer.putInt(floorCells[i]);
+        }
+
+        long offset = tablesStart;
+        for (int i = 0; i < patterns.size(); i++) {
+            final int[] blocks = patterns.get(i);
+            buffer.putInt(blocks.length);
+            for (int slot = 0; slot < MAX_PATTERN_SIZE; slot++) {
+                buffer.putInt(slot < blocks.length ? blocks[slot] : -1);
+            }
+            buffer.putLong(offset);
+            offset += tables.get(i).length;
+        }
+        tables.forEach(buffer::put);
+        buffer.flip();
+
+        try {
+            return new PatternDatabase(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Built an invalid pattern database.", e);
+        }
+    }
+
+    /**
+     * Write the database to the given file. The file is written alongside and then moved into place, so readers never
+     * see a partial database.
+     *
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path file) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer contents = buffer.duplicate();
+            contents.rewind();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getLevelHash() {
+        return levelHash;
+    }
+
+    /**
+     * Was this database built for the structure of the given level.
+     *
+     * @param level The level.
+     * @return True if the database can be used with the level.
+     */
+    public boolean matches(final SolverLevel level) {
+        return levelHash == LevelHash.structureHash(level);
+    }
+
+    public int getPatternCount() {
+        return patternBlocks.length;
+    }
+
+    /**
+     * Gets the blocks of the given pattern.
+     *
+     * @param pattern The pattern index.
+     * @return A copy of the block indices.
+     */
+    public int[] getPatternBlocks(final int pattern) {
+        return patternBlocks[pattern].clone();
+    }
+
+    /**
+     * Gets the size in bytes of the database.
+     *
+     * @return The size.
+     */
+    public int getByteSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * Look up the cost of solving the given pattern from the given block placement. Does not allocate.
+     *
+     * @param pattern    The pattern index.
+     * @param blockCells The packed cell index of each block, indexed by block.
+     * @return The cost in moves, or {@link #UNREACHABLE} if the pattern cannot be solved.
+     */
+    public int lookup(final int pattern, final int[] blockCells) {
+        final int[] blocks = patternBlocks[pattern];
+        int index = 0;
+        int multiplier = 1;
+        for (int block : blocks) {
+            final int floor = floorIndex[blockCells[block]];
+            if (floor < 0) {
+                return UNREACHABLE;
+            }
+            index += floor * multiplier;
+            multiplier *= floorCount;
+        }
+        return buffer.get(tableOffsets[pattern] + index) & 0xFF;
+    }
+
+    /**
+     * Computes cost tables by breadth first search backwards from the goal over the relaxed state space of a pattern.
+     */
+    private static final class PatternBuilder {
+        private final SolverLevel level;
+        private final int[] floorCells;
+        private final int[] floorIndex;
+
+        PatternBuilder(final SolverLevel level, final int[] floorCells) {
+            this.level = level;
+            this.floorCells = floorCells;
+            this.floorIndex = new int[level.getCellCount()];
+            Arrays.fill(floorIndex, -1);
+            for (int i = 0; i < floorCells.length; i++) {
+                floorIndex[floorCells[i]] = i;
+            }
+        }
+
+        byte[] costs(final int[] targetCells) {
+            final int size = targetCells.length;
+            final int floorCount = floorCells.length;
+            final int states = (int) Math.pow(floorCount, size);
+            final int[] cells = new int[size];
+            final int[] successors = new int[4 * size];
+
+            // Count, then record, the predecessors of every state.
+            final int[] predecessorStart = new int[states + 1];
+            for (int state = 0; state < states; state++) {
+                final int count = successors(state, cells, successors);
+                for (int i = 0; i < count; i++) {
+                    predecessorStart[successors[i] + 1]++;
+                }
+            }
+            for (int state = 0; state < states; state++) {
+                predecessorStart[state + 1] += predecessorStart[state];
+            }
+            final int[] predecessors = new int[predecessorStart[states]];
+            final int[] fill = Arrays.copyOf(predecessorStart, states);
+            for (int state = 0; state < states; state++) {
+                final int count = successors(state, cells, successors);
+                for (int i = 0; i < count; i++) {
+                    predecessors[fill[successors[i]]++] = state;
+                }
+            }
+
+            final byte[] costs = new byte[states];
+            Arrays.fill(costs, (byte) UNREACHABLE);
+            final int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+
+            for (int i = 0; i < size; i++) {
+                cells[i] = targetCells[i];
+            }
+            final int goal = encode(cells);
+            costs[goal] = 0;
+            queue[tail++] = goal;
+
+            while (head < tail) {
+                final int state = queue[head++];
+                final int next = Math.min((costs[state] & 0xFF) + 1, MAX_COST);
+                for (int i = predecessorStart[state]; i < predecessorStart[state + 1]; i++) {
+                    final int predecessor = predecessors[i];
+                    if ((costs[predecessor] & 0xFF) == UNREACHABLE) {
+                        costs[predecessor] = (byte) next;
+                        queue[tail++] = predecessor;
+                    }
+                }
+            }
+            return costs;
+        }
+
+        /**
+         * Generate the states reachable from the given state by one push of the relaxed level.
+         *
+         * @return The number of successors written.
+         */
+        private int successors(final int state, final int[] cells, final int[] successors) {
+            decode(state, cells);
+            for (int i = 0; i < cells.length; i++) {
+                for (int j = i + 1; j < cells.length; j++) {
+                    if (cells[i] == cells[j]) {
+                        return 0;
+                    }
+                }
+            }
+
+            int count = 0;
+            for (int block = 0; block < cells.length; block++) {
+                final int from = cells[block];
+                for (int direction = 0; direction < 4; direction++) {
+                    final int pusher = level.neighbour(from, SearchState.opposite(direction));
+                    final int to = level.neighbour(from, direction);
+                    if (!level.isFloor(pusher) || occupant(cells, pusher) >= 0 || !level.isFloor(to)) {
+                        continue;
+                    }
+
+                    final int chained = occupant(cells, to);
+                    if (chained >= 0) {
+                        final int beyond = level.neighbour(to, direction);
+                        if (!level.isFloor(beyond) || occupant(cells, beyond) >= 0) {
+                            continue;
+                        }
+                        cells[chained] = beyond;
+                        cells[block] = to;
+                        successors[count++] = encode(cells);
+                        cells[chained] = to;
+                    } else {
+                        cells[block] = to;
+                        successors[count++] = encode(cells);
+                    }
+                    cells[block] = from;
+                }
+            }
+            return count;
+        }
+
+        private static int occupant(final int[] cells, final int cell) {
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == cell) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int encode(final int[] cells) {
+            int state = 0;
+            for (int i = cells.length - 1; i >= 0; i--) {
+                state = state * floorCells.length + floorIndex[cells[i]];
+            }
+            return state;
+        }
+
+        private void decode(int state, final int[] cells) {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = floorCells[state % floorCells.length];
+                state /= floorCells.length;
+            }
+        }
+    }
+}
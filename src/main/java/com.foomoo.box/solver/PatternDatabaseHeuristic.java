@@ -0,0 +1,65 @@
+package com.foomoo.box.solver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Heuristic combining a {@link PatternDatabase} with the {@link ManhattanHeuristic}.
+ * <p>
+ * The estimate is the largest of the Manhattan estimate, the largest single pattern cost, and half the summed pattern
+ * costs. Patterns are disjoint and a move pushes at most {@link SearchState#PLAYER_PUSH_STRENGTH} blocks, so a move
+ * reduces the summed cost by at most the push strength and each of these remains admissible.
+ */
+public final class PatternDatabaseHeuristic implements Heuristic {
+
+    private final PatternDatabase database;
+    private final ManhattanHeuristic manhattan;
+
+    public PatternDatabaseHeuristic(final PatternDatabase database, final SolverLevel level) {
+        if (!database.matches(level)) {
+            throw new RuntimeException("Pattern database " + String.format("%016x", database.getLevelHash())
+                    + " was not built for this level.");
+        }
+        this.database = database;
+        this.manhattan = new ManhattanHeuristic(level);
+    }
+
+    /**
+     * Gets a heuristic factory which loads the pattern database for each level from the given directory, falling back
+     * to the {@link ManhattanHeuristic} for levels without a database.
+     *
+     * @param directory The directory of pattern databases, as written by {@link PatternDatabaseTool}.
+     * @return The heuristic factory.
+     */
+    public static Function<SolverLevel, Heuristic> fromDirectory(final Path directory) {
+        return level -> {
+            final Path file = PatternDatabase.pathFor(directory, level);
+            if (Files.isReadable(file)) {
+                try {
+                    return new PatternDatabaseHeuristic(PatternDatabase.load(file), level);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to load pattern database: " + file, e);
+                }
+            }
+            return new ManhattanHeuristic(level);
+        };
+    }
+
+    @Override
+    public int estimate(final int[] blockCells) {
+        int largest = 0;
+        int total = 0;
+        for (int pattern = 0; pattern < database.getPatternCount(); pattern++) {
+            final int cost = database.lookup(pattern, blockCells);
+            if (cost == PatternDatabase.UNREACHABLE) {
+                return Heuristic.DEADLOCK;
+            }
+            largest = Math.max(largest, cost);
+            total += cost;
+        }
+        final int shared = (total + SearchState.PLAYER_PUSH_STRENGTH - 1) / SearchState.PLAYER_PUSH_STRENGTH;
+        return Math.max(manhattan.estimate(blockCells), Math.max(largest, shared));
+    }
+}
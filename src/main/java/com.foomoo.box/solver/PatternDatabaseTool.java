@@ -0,0 +1,72 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Command line tool to build and inspect pattern databases.
+ * <pre>
+ *   PatternDatabaseTool build &lt;level file&gt; &lt;output directory&gt; [pattern size]
+ *   PatternDatabaseTool info &lt;database file&gt;
+ * </pre>
+ */
+public final class PatternDatabaseTool {
+
+    private static final String USAGE = "Usage: PatternDatabaseTool build <level file> <output directory> [pattern size]\n"
+            + "       PatternDatabaseTool info <database file>";
+
+    private PatternDatabaseTool() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("build")) {
+            final int patternSize = args.length > 3 ? Integer.parseInt(args[3]) : PatternDatabase.MAX_PATTERN_SIZE;
+            build(Paths.get(args[1]), Paths.get(args[2]), patternSize);
+        } else if (args.length == 2 && args[0].equals("info")) {
+            info(PatternDatabase.load(Paths.get(args[1])));
+        } else {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Build the pattern database for the level in the given file and write it to the given directory.
+     *
+     * @param levelFile   The file holding the level definition string.
+     * @param directory   The directory to write the database to.
+     * @param patternSize The number of blocks per pattern.
+     * @return The path of the database written.
+     * @throws IOException if the level cannot be read or the database cannot be written.
+     */
+    public static Path build(final Path levelFile, final Path directory, final int patternSize) throws IOException {
+        final String definition = new String(Files.readAllBytes(levelFile), StandardCharsets.UTF_8);
+        final SolverLevel level = SolverLevel.fromDefinition(BoardDefinition.fromString(definition));
+
+        final long start = System.nanoTime();
+        final PatternDatabase database = PatternDatabase.build(level, patternSize);
+        final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Files.createDirectories(directory);
+        final Path file = PatternDatabase.pathFor(directory, level);
+        database.write(file);
+
+        System.out.println("Built " + file + " in " + elapsedMillis + "ms");
+        info(database);
+        return file;
+    }
+
+    private static void info(final PatternDatabase database) {
+        System.out.println(String.format("Level hash: %016x", database.getLevelHash()));
+        System.out.println("Size: " + database.getByteSize() + " bytes");
+        for (int pattern = 0; pattern < database.getPatternCount(); pattern++) {
+            System.out.println("Pattern " + pattern + ": blocks " + Arrays.toString(database.getPatternBlocks(pattern)));
+        }
+    }
+}
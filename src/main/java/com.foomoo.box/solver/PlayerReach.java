@@ -0,0 +1,116 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Walks of the player through the starting position of a level, moving around blocks without pushing them.
+ */
+final class PlayerReach {
+
+    private static final int UNVISITED = -1;
+
+    private PlayerReach() {
+    }
+
+    /**
+     * Gets the normalised player cell of the level: the lowest cell index the player can walk to from the start
+     * without pushing a block. Positions which differ only in where the player stands within that region share the
+     * same normalised cell.
+     *
+     * @param level The level.
+     * @return The normalised cell.
+     */
+    static int normalisedCell(final SolverLevel level) {
+        final int[] previous = search(level, level.getPlayerCell());
+        for (int cell = 0; cell < previous.length; cell++) {
+            if (previous[cell] != UNVISITED) {
+                return cell;
+            }
+        }
+        return level.getPlayerCell();
+    }
+
+    /**
+     * Gets a shortest walk between two cells in the starting position of the level which pushes no blocks.
+     *
+     * @param level The level.
+     * @param from  The cell to walk from.
+     * @param to    The cell to walk to.
+     * @return The walk in lower case LURD notation.
+     * @throws RuntimeException if there is no such walk.
+     */
+    static String walk(final SolverLevel level, final int from, final int to) {
+        final int[] previous = search(level, from);
+        if (previous[to] == UNVISITED) {
+            throw new RuntimeException("Cell " + to + " cannot be reached from " + from);
+        }
+
+        final StringBuilder moves = new StringBuilder();
+        for (int cell = to; cell != from; cell = previous[cell]) {
+            final int before = previous[cell];
+            for (int direction = 0; direction < Direction.values().length; direction++) {
+                if (level.neighbour(before, direction) == cell) {
+                    moves.append(Direction.fromOrdinal(direction).getLurd());
+                    break;
+                }
+            }
+        }
+        return moves.reverse().toString();
+    }
+
+    /**
+     * Remove walks which immediately retrace their steps, such as <code>lr</code>, from the given moves. Pushes are
+     * never removed.
+     *
+     * @param moves The moves in LURD notation.
+     * @return The simplified moves.
+     */
+    static String simplify(final String moves) {
+        final StringBuilder simplified = new StringBuilder(moves.length());
+        for (int i = 0; i < moves.length(); i++) {
+            final char move = moves.charAt(i);
+            final int last = simplified.length() - 1;
+            if (last >= 0 && Character.isLowerCase(move) && Character.isLowerCase(simplified.charAt(last))
+                    && Direction.fromLurd(move).get().opposite() == Direction.fromLurd(simplified.charAt(last)).get()) {
+                simplified.setLength(last);
+            } else {
+                simplified.append(move);
+            }
+        }
+        return simplified.toString();
+    }
+
+    /**
+     * Breadth first search from the given cell through floor cells not occupied by blocks at the start.
+     *
+     * @return The preceding cell of each reached cell, or UNVISITED.
+     */
+    private static int[] search(final SolverLevel level, final int start) {
+        final boolean[] blocked = new boolean[level.getCellCount()];
+        for (int cell : level.getBlockCells()) {
+            blocked[cell] = true;
+        }
+
+        final int[] previous = new int[level.getCellCount()];
+        Arrays.fill(previous, UNVISITED);
+        final int[] queue = new int[level.getCellCount()];
+        int head = 0;
+        int tail = 0;
+        previous[start] = start;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            final int cell = queue[head++];
+            for (int direction = 0; direction < Direction.values().length; direction++) {
+                final int next = level.neighbour(cell, direction);
+                if (level.isFloor(next) && !blocked[next] && previous[next] == UNVISITED) {
+                    previous[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return previous;
+    }
+}
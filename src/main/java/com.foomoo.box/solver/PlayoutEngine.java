@@ -0,0 +1,379 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.model.immutable.BoardModel;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the difficulty of a level from random playouts: games played from the starting position by a simple policy
+ * until the level is solved, a block is pushed into a deadlock, or a move limit is reached.
+ * <p>
+ * Two policies are played. Random play picks uniformly among the legal moves. Greedy play picks the legal move leaving
+ * the blocks the fewest pushes from their targets, breaking ties at random, so it only pushes a block into a dead cell
+ * when no other move remains. A level which random play often deadlocks and greedy play rarely solves is hard.
+ * <p>
+ * Deadlocks are detected by dead cells: cells from which a block could not reach an eligible target even if it were
+ * the only block on the level.
+ * <p>
+ * Each thread playing a level keeps its own SearchState, which is reset between playouts by copying the starting
+ * arrays, so playouts do not allocate. Playouts are run in chunks spread over the cores of a ForkJoinPool, and each
+ * chunk draws from its own SplittableRandom split from the engine's seed, so results are deterministic given the seed
+ * however many threads are used.
+ */
+public final class PlayoutEngine {
+
+    /**
+     * The policy choosing the moves of a playout.
+     */
+    public enum Policy {
+        RANDOM, GREEDY
+    }
+
+    /**
+     * Push distance of a block on a dead cell, large enough that a sum over blocks including one is still dead.
+     */
+    static final int DEAD = 1 << 24;
+
+    private static final int CHUNK_PLAYOUTS = 256;
+    private static final int ALL_DIRECTIONS = 0xF;
+
+    private final int playouts;
+    private final int maxMoves;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    private PlayoutEngine(final Builder builder) {
+        this.playouts = builder.playouts;
+        this.maxMoves = builder.maxMoves;
+        this.seed = builder.seed;
+        this.pool = builder.pool;
+    }
+
+    /**
+     * Estimate the difficulty of the current state of the given model.
+     *
+     * @param model The model.
+     * @return The LevelDifficulty.
+     */
+    public LevelDifficulty estimate(final BoardModel model) {
+        return estimate(SolverLevel.fromModel(model));
+    }
+
+    /**
+     * Estimate the difficulty of the given level by playing it with each policy.
+     *
+     * @param level The level.
+     * @return The LevelDifficulty.
+     */
+    public LevelDifficulty estimate(final SolverLevel level) {
+        final long start = System.nanoTime();
+        final int[][] distances = pushDistances(level);
+        final ThreadLocal<SearchState> states = ThreadLocal.withInitial(() -> new SearchState(level));
+        final SplittableRandom random = new SplittableRandom(seed);
+        final PlayoutStatistics randomPlay = play(Policy.RANDOM, distances, states, random.split());
+        final PlayoutStatistics greedyPlay = play(Policy.GREEDY, distances, states, random.split());
+        return new LevelDifficulty(randomPlay, greedyPlay, System.nanoTime() - start);
+    }
+
+    private PlayoutStatistics play(final Policy policy, final int[][] distances,
+                                   final ThreadLocal<SearchState> states, final SplittableRandom random) {
+        final int chunks = (playouts + CHUNK_PLAYOUTS - 1) / CHUNK_PLAYOUTS;
+        final SplittableRandom[] chunkRandoms = new SplittableRandom[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            chunkRandoms[chunk] = random.split();
+        }
+
+        final Tally tally = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    final Tally chunkTally = new Tally();
+                    final int count = Math.min(CHUNK_PLAYOUTS, playouts - chunk * CHUNK_PLAYOUTS);
+                    final Playout playout = new Playout(states.get(), distances, chunkRandoms[chunk]);
+                    for (int i = 0; i < count; i++) {
+                        playout.play(policy, chunkTally);
+                    }
+                    return chunkTally;
+                })
+                .reduce(new Tally(), Tally::add)).join();
+
+        return new PlayoutStatistics(policy, tally.playouts, tally.solved, tally.deadlocked, tally.moves,
+                tally.pushes, tally.deadlockPushes);
+    }
+
+    /**
+     * Compute, for each block, the fewest pushes taking it from each cell to an eligible target when it is the only
+     * block on the level. The player is assumed to be able to reach any cell, so the distances are lower bounds.
+     * <p>
+     * A block linked to a target must reach it. Unlinked blocks must reach the targets which accept any block only when
+     * there are no more of those blocks than targets; otherwise any one of them may be left anywhere, and their
+     * distances are all zero.
+     *
+     * @param level The level.
+     * @return The distances indexed by block then packed cell, {@link #DEAD} where no target can be reached.
+     */
+    static int[][] pushDistances(final SolverLevel level) {
+        final boolean[] linked = new boolean[level.getBlockCount()];
+        int anyTargets = 0;
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            if (level.getTargetBlock(target) == SolverLevel.ANY_BLOCK) {
+                anyTargets++;
+            } else {
+                linked[level.getTargetBlock(target)] = true;
+            }
+        }
+        int unlinkedBlocks = 0;
+        for (boolean isLinked : linked) {
+            unlinkedBlocks += isLinked ? 0 : 1;
+        }
+        final boolean anyRequired = unlinkedBlocks <= anyTargets;
+
+        final int[][] distances = new int[level.getBlockCount()][];
+        final int[] queue = new int[level.getCellCount()];
+        for (int block = 0; block < distances.length; block++) {
+            distances[block] = new int[level.getCellCount()];
+            if (!linked[block] && !anyRequired) {
+                continue;
+            }
+            final int[] distance = distances[block];
+            Arrays.fill(distance, DEAD);
+            int head = 0;
+            int tail = 0;
+            for (int target = 0; target < level.getTargetCount(); target++) {
+                final int required = level.getTargetBlock(target);
+                if (linked[block] ? required == block : required == SolverLevel.ANY_BLOCK) {
+                    distance[level.getTargetCell(target)] = 0;
+                    queue[tail++] = level.getTargetCell(target);
+                }
+            }
+
+            // Search backwards by pulls: the block reaches a cell by a push from the cell behind it, which needs
+            // floor behind that again for the player.
+            while (head < tail) {
+                final int cell = queue[head++];
+                for (int direction = 0; direction < 4; direction++) {
+                    final int from = level.neighbour(cell, SearchState.opposite(direction));
+                    if (from < 0 || !level.isFloor(from) || distance[from] != DEAD) {
+                        continue;
+                    }
+                    final int player = level.neighbour(from, SearchState.opposite(direction));
+                    if (player >= 0 && level.isFloor(player)) {
+                        distance[from] = distance[cell] + 1;
+                        queue[tail++] = from;
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Plays successive playouts on a thread's SearchState.
+     */
+    private final class Playout {
+        final SearchState state;
+        final SolverLevel level;
+        final int[][] distances;
+        final SplittableRandom random;
+        final int startDistance;
+        int lastDirection;
+
+        Playout(final SearchState state, final int[][] distances, final SplittableRandom random) {
+            this.state = state;
+            this.level = state.getLevel();
+            this.distances = distances;
+            this.random = random;
+            state.reset();
+            this.startDistance = totalDistance();
+        }
+
+        private int totalDistance() {
+            final int[] blockCells = state.getBlockCells();
+            int total = 0;
+            for (int block = 0; block < blockCells.length; block++) {
+                total += distances[block][blockCells[block]];
+            }
+            return total;
+        }
+
+        void play(final Policy policy, final Tally tally) {
+            state.reset();
+            int distance = startDistance;
+            int pushes = 0;
+            int moves = 0;
+            boolean stuck = distance >= DEAD;
+            while (!stuck && moves < maxMoves) {
+                final int pushed = policy == Policy.RANDOM ? randomMove() : greedyMove(distance);
+                if (pushed < 0) {
+                    // A player unable to move at all is as stuck as one who has deadlocked a block.
+                    stuck = true;
+                    break;
+                }
+                moves++;
+                if (pushed > 0) {
+                    pushes++;
+                    distance += pushedDistance(lastDirection, pushed);
+                    stuck = distance >= DEAD;
+                    if (!stuck && state.isSolved()) {
+                        tally.solved++;
+                        break;
+                    }
+                }
+            }
+
+            tally.playouts++;
+            tally.moves += moves;
+            tally.pushes += pushes;
+            if (stuck) {
+                tally.deadlocked++;
+                tally.deadlockPushes += pushes;
+            }
+        }
+
+        /**
+         * Make a legal move chosen uniformly at random. Directions are drawn until one is legal, skipping those already
+         * found illegal, which keeps the choice uniform over the legal moves.
+         *
+         * @return The number of blocks pushed, or -1 if the player cannot move.
+         */
+        private int randomMove() {
+            int illegal = 0;
+            while (illegal != ALL_DIRECTIONS) {
+                final int direction = random.nextInt(4);
+                if ((illegal & 1 << direction) != 0) {
+                    continue;
+                }
+                final int pushed = state.move(direction);
+                if (pushed >= 0) {
+                    lastDirection = direction;
+                    return pushed;
+                }
+                illegal |= 1 << direction;
+            }
+            return -1;
+        }
+
+        /**
+         * Make the legal move leaving the smallest total push distance, breaking ties uniformly at random.
+         *
+         * @param distance The current total push distance.
+         * @return The number of blocks pushed, or -1 if the player cannot move.
+         */
+        private int greedyMove(final int distance) {
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                final int pushed = state.move(direction);
+                if (pushed < 0) {
+                    continue;
+                }
+                final int next = pushed == 0 ? distance : distance + pushedDistance(direction, pushed);
+                state.undo(direction, pushed);
+                if (next < bestDistance) {
+                    best = direction;
+                    bestDistance = next;
+                    ties = 1;
+                } else if (next == bestDistance && random.nextInt(++ties) == 0) {
+                    best = direction;
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            lastDirection = best;
+            return state.move(best);
+        }
+
+        /**
+         * Gets the change in total push distance made by the blocks pushed by the move just made.
+         */
+        private int pushedDistance(final int direction, final int pushed) {
+            final int back = SearchState.opposite(direction);
+            int change = 0;
+            int cell = state.getPlayerCell();
+            for (int i = 0; i < pushed; i++) {
+                cell = level.neighbour(cell, direction);
+                final int[] distance = distances[state.getOccupant(cell)];
+                change += distance[cell] - distance[level.neighbour(cell, back)];
+            }
+            return change;
+        }
+    }
+
+    /**
+     * Running totals of the playouts of a chunk.
+     */
+    private static final class Tally {
+        long playouts;
+        long solved;
+        long deadlocked;
+        long moves;
+        long pushes;
+        long deadlockPushes;
+
+        Tally add(final Tally other) {
+            final Tally sum = new Tally();
+            sum.playouts = playouts + other.playouts;
+            sum.solved = solved + other.solved;
+            sum.deadlocked = deadlocked + other.deadlocked;
+            sum.moves = moves + other.moves;
+            sum.pushes = pushes + other.pushes;
+            sum.deadlockPushes = deadlockPushes + other.deadlockPushes;
+            return sum;
+        }
+    }
+
+    /**
+     * Builder for PlayoutEngine instances.
+     */
+    public static class Builder {
+        private int playouts = 10000;
+        private int maxMoves = 500;
+        private long seed = System.nanoTime();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Set the number of playouts made with each policy.
+         *
+         * @param playouts The playout count.
+         * @return This builder.
+         */
+        public Builder playouts(final int playouts) {
+            this.playouts = playouts;
+            return this;
+        }
+
+        /**
+         * Set the number of moves after which a playout which has neither solved nor deadlocked the level is stopped.
+         *
+         * @param maxMoves The move limit.
+         * @return This builder.
+         */
+        public Builder maxMoves(final int maxMoves) {
+            this.maxMoves = maxMoves;
+            return this;
+        }
+
+        public Builder seed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Set the pool used to run playouts in parallel.
+         *
+         * @param pool The ForkJoinPool.
+         * @return This builder.
+         */
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public PlayoutEngine build() {
+            return new PlayoutEngine(this);
+        }
+    }
+}
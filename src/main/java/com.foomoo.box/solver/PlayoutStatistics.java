@@ -0,0 +1,95 @@
+package com.foomoo.box.solver;
+
+/**
+ * Statistics of the playouts of a level made with a single {@link PlayoutEngine.Policy}.
+ * <p>
+ * Every playout ends solved, deadlocked or at the move limit.
+ */
+public final class PlayoutStatistics {
+
+    private final PlayoutEngine.Policy policy;
+    private final long playouts;
+    private final long solved;
+    private final long deadlocked;
+    private final long moves;
+    private final long pushes;
+    private final long deadlockPushes;
+
+    PlayoutStatistics(final PlayoutEngine.Policy policy, final long playouts, final long solved, final long deadlocked,
+                      final long moves, final long pushes, final long deadlockPushes) {
+        this.policy = policy;
+        this.playouts = playouts;
+        this.solved = solved;
+        this.deadlocked = deadlocked;
+        this.moves = moves;
+        this.pushes = pushes;
+        this.deadlockPushes = deadlockPushes;
+    }
+
+    public PlayoutEngine.Policy getPolicy() {
+        return policy;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public long getSolvedCount() {
+        return solved;
+    }
+
+    public long getDeadlockCount() {
+        return deadlocked;
+    }
+
+    /**
+     * Gets the number of playouts stopped by the move limit before solving or deadlocking the level.
+     *
+     * @return The playout count.
+     */
+    public long getMoveLimitCount() {
+        return playouts - solved - deadlocked;
+    }
+
+    public double getSolvedRate() {
+        return rate(solved, playouts);
+    }
+
+    public double getDeadlockRate() {
+        return rate(deadlocked, playouts);
+    }
+
+    /**
+     * Gets the mean number of moves made by a playout, whatever its end.
+     *
+     * @return The mean move count.
+     */
+    public double getMeanMoves() {
+        return rate(moves, playouts);
+    }
+
+    public double getMeanPushes() {
+        return rate(pushes, playouts);
+    }
+
+    /**
+     * Gets the mean number of pushes made by the playouts which deadlocked, up to and including the push which
+     * deadlocked the level.
+     *
+     * @return The mean push count, or 0 if no playout deadlocked.
+     */
+    public double getMeanPushesBeforeDeadlock() {
+        return rate(deadlockPushes, deadlocked);
+    }
+
+    private static double rate(final long count, final long total) {
+        return total == 0 ? 0.0 : (double) count / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlayoutStatistics(%s, playouts=%d, solved=%.3f, deadlocked=%.3f, meanPushes=%.1f, "
+                        + "pushesBeforeDeadlock=%.1f)", policy, playouts, getSolvedRate(), getDeadlockRate(),
+                getMeanPushes(), getMeanPushesBeforeDeadlock());
+    }
+}
@@ -0,0 +1,70 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.catalogue.LevelCatalogue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Command line tool to estimate the difficulty of every level of a pack by random playouts, one line per level.
+ * <pre>
+ *   PlayoutTool [--playouts=N] [--moves=M] [--seed=S] &lt;pack file&gt;
+ * </pre>
+ */
+public final class PlayoutTool {
+
+    private static final String USAGE = "Usage: PlayoutTool [--playouts=N] [--moves=M] [--seed=S] <pack file>";
+
+    private PlayoutTool() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final PlayoutEngine.Builder builder = new PlayoutEngine.Builder().seed(0);
+        String pack = null;
+        try {
+            for (String arg : args) {
+                final int equals = arg.indexOf('=');
+                final String name = equals < 0 ? arg : arg.substring(0, equals);
+                final String value = equals < 0 ? "" : arg.substring(equals + 1);
+                switch (name) {
+                    case "--playouts":
+                        builder.playouts(Integer.parseInt(value));
+                        break;
+                    case "--moves":
+                        builder.maxMoves(Integer.parseInt(value));
+                        break;
+                    case "--seed":
+                        builder.seed(Long.parseLong(value));
+                        break;
+                    default:
+                        if (name.startsWith("--") || pack != null) {
+                            throw new IllegalArgumentException(arg);
+                        }
+                        pack = arg;
+                }
+            }
+            if (pack == null) {
+                throw new IllegalArgumentException("No pack file");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        final PlayoutEngine engine = builder.build();
+        final LevelCatalogue catalogue = LevelCatalogue.open(Paths.get(pack));
+        System.out.println("level  random:solved deadlocked pushes-to-deadlock  greedy:solved deadlocked"
+                + " pushes-to-deadlock  playouts/s");
+        for (int level = 0; level < catalogue.size(); level++) {
+            final LevelDifficulty difficulty = engine.estimate(
+                    SolverLevel.fromDefinition(catalogue.getDefinition(level)));
+            final PlayoutStatistics random = difficulty.getRandom();
+            final PlayoutStatistics greedy = difficulty.getGreedy();
+            System.out.println(String.format("%5d  %13.3f %10.3f %18.1f  %13.3f %10.3f %18.1f  %10.0f", level + 1,
+                    random.getSolvedRate(), random.getDeadlockRate(), random.getMeanPushesBeforeDeadlock(),
+                    greedy.getSolvedRate(), greedy.getDeadlockRate(), greedy.getMeanPushesBeforeDeadlock(),
+                    difficulty.getPlayoutsPerSecond()));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.foomoo.box.solver;
+
+/**
+ * Policy used by a {@link TranspositionTable} to choose which entry of a full bucket to overwrite.
+ */
+public enum ReplacementPolicy {
+
+    /**
+     * Keep the entries closest to the root of the search, as they summarise the largest subtrees. Entries from
+     * earlier iterations are always replaced first.
+     */
+    DEPTH_PREFERRED,
+
+    /**
+     * Second-chance replacement. Entries are marked when read and unmarked as the clock hand passes; the first
+     * unmarked entry is replaced.
+     */
+    CLOCK
+}
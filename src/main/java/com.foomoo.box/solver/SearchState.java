@@ -0,0 +1,186 @@
+package com.foomoo.box.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mutable search state for a SolverLevel, supporting move and undo without allocation.
+ * <p>
+ * Follows the push rules of the Board: the player may push a chain of at most two blocks, and each block in the
+ * chain moves one cell in the direction of the player's movement.
+ * <p>
+ * Maintains a Zobrist hash of the player and block positions which is updated incrementally as moves are made.
+ */
+final class SearchState {
+
+    static final int PLAYER_PUSH_STRENGTH = 2;
+
+    private static final int EMPTY = -1;
+
+    private final SolverLevel level;
+    private final int[] blockCells;
+    private final int[] occupants;
+    private final long[] playerKeys;
+    private final long[][] blockKeys;
+
+    // The starting position, copied back by reset.
+    private final int[] startCells;
+    private final int[] startOccupants;
+    private final long startKey;
+
+    private int playerCell;
+    private long key;
+
+    SearchState(final SolverLevel level) {
+        this.level = level;
+        this.blockCells = new int[level.getBlockCount()];
+        this.occupants = new int[level.getCellCount()];
+
+        final Random random = new Random(level.getCellCount() * 31L + level.getBlockCount());
+        playerKeys = randomKeys(random, level.getCellCount());
+        blockKeys = new long[level.getBlockCount()][];
+        for (int block = 0; block < blockKeys.length; block++) {
+            blockKeys[block] = randomKeys(random, level.getCellCount());
+        }
+
+        startCells = level.getBlockCells();
+        startOccupants = new int[occupants.length];
+        Arrays.fill(startOccupants, EMPTY);
+        long key = playerKeys[level.getPlayerCell()];
+        for (int block = 0; block < startCells.length; block++) {
+            startOccupants[startCells[block]] = block;
+            key ^= blockKeys[block][startCells[block]];
+        }
+        startKey = key;
+
+        reset();
+    }
+
+    private static long[] randomKeys(final Random random, final int count) {
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Return the state to the starting position of the level by copying the saved starting arrays.
+     */
+    void reset() {
+        System.arraycopy(startCells, 0, blockCells, 0, blockCells.length);
+        System.arraycopy(startOccupants, 0, occupants, 0, occupants.length);
+        playerCell = level.getPlayerCell();
+        key = startKey;
+    }
+
+    SolverLevel getLevel() {
+        return level;
+    }
+
+    int getPlayerCell() {
+        return playerCell;
+    }
+
+    /**
+     * Gets the live array of block cells. Callers must not modify the array.
+     *
+     * @return The block cells indexed by block.
+     */
+    int[] getBlockCells() {
+        return blockCells;
+    }
+
+    int getOccupant(final int cell) {
+        return occupants[cell];
+    }
+
+    long getKey() {
+        return key;
+    }
+
+    /**
+     * Is every target satisfied by an eligible block.
+     *
+     * @return True if the level has been solved.
+     */
+    boolean isSolved() {
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            final int occupant = occupants[level.getTargetCell(target)];
+            final int required = level.getTargetBlock(target);
+            if (occupant == EMPTY || (required != SolverLevel.ANY_BLOCK && occupant != required)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move the player one cell in the given direction, pushing blocks out of the way if possible.
+     *
+     * @param direction The direction ordinal.
+     * @return The number of blocks pushed, or -1 if the move could not be performed.
+     */
+    int move(final int direction) {
+        final int to = level.neighbour(playerCell, direction);
+        if (to < 0 || !level.isFloor(to)) {
+            return -1;
+        }
+
+        int pushed = 0;
+        int end = to;
+        while (occupants[end] != EMPTY) {
+            if (pushed == PLAYER_PUSH_STRENGTH) {
+                return -1;
+            }
+            pushed++;
+            end = level.neighbour(end, direction);
+            if (end < 0 || !level.isFloor(end)) {
+                return -1;
+            }
+        }
+
+        // Shift the chain of blocks starting from the far end.
+        int cell = end;
+        for (int i = 0; i < pushed; i++) {
+            final int from = level.neighbour(cell, opposite(direction));
+            moveBlock(occupants[from], from, cell);
+            cell = from;
+        }
+
+        key ^= playerKeys[playerCell] ^ playerKeys[to];
+        playerCell = to;
+        return pushed;
+    }
+
+    /**
+     * Reverse a move previously made with {@link #move(int)}.
+     *
+     * @param direction The direction of the move to reverse.
+     * @param pushed    The number of blocks pushed by the move.
+     */
+    void undo(final int direction, final int pushed) {
+        final int back = opposite(direction);
+        final int from = level.neighbour(playerCell, back);
+        key ^= playerKeys[playerCell] ^ playerKeys[from];
+
+        int cell = playerCell;
+        for (int i = 0; i < pushed; i++) {
+            final int next = level.neighbour(cell, direction);
+            moveBlock(occupants[next], next, cell);
+            cell = next;
+        }
+        playerCell = from;
+    }
+
+    private void moveBlock(final int block, final int from, final int to) {
+        occupants[from] = EMPTY;
+        occupants[to] = block;
+        blockCells[block] = to;
+        key ^= blockKeys[block][from] ^ blockKeys[block][to];
+    }
+
+    static int opposite(final int direction) {
+        return (direction + 2) & 3;
+    }
+}
@@ -0,0 +1,124 @@
+package com.foomoo.box.solver;
+
+/**
+ * Receives the nodes expanded by a search, for offline analysis of where a solve spent its time.
+ * <p>
+ * Expanded nodes are reported after their children have been searched, with counts of the children pruned for each
+ * reason, so pruned nodes cost no call of their own. Nodes are reported in depth first postorder: the nodes reported
+ * since the last node with the same g, having a g one greater, are its expanded children. When the goal is reached it
+ * is reported at once, followed by each of its ancestors as the search unwinds. A root which is pruned has no parent to
+ * count it, so is reported itself. A solver given no trace makes no calls and does no tracing work.
+ */
+public interface SearchTrace {
+
+    /**
+     * The outcome of visiting a node: either it was expanded, or the reason it was pruned.
+     */
+    enum Outcome {
+        /**
+         * The node's children were searched.
+         */
+        EXPANDED(false),
+        /**
+         * The node solves the level.
+         */
+        GOAL(false),
+        /**
+         * The heuristic found the node to be a deadlock.
+         */
+        DEADLOCK(true),
+        /**
+         * The node's f exceeded the iteration's threshold.
+         */
+        THRESHOLD(true),
+        /**
+         * The transposition table recorded the node as a deadlock.
+         */
+        TABLE_DEADLOCK(true),
+        /**
+         * The node's f, using the bound recorded in the transposition table, exceeded the threshold.
+         */
+        TABLE_THRESHOLD(true),
+        /**
+         * The node had already been reached by a path at least as short.
+         */
+        TRANSPOSITION(true);
+
+        private static final Outcome[] VALUES = values();
+
+        /**
+         * The number of reasons a node may be pruned, each with a byte of the packed pruned children counts.
+         */
+        public static final int PRUNE_REASONS = VALUES.length - DEADLOCK.ordinal();
+
+        private final boolean pruned;
+
+        Outcome(final boolean pruned) {
+            this.pruned = pruned;
+        }
+
+        public boolean isPruned() {
+            return pruned;
+        }
+
+        /**
+         * Gets the packed pruned children counts with one more child pruned for this reason. The counts are unchanged
+         * if this outcome is not a reason for pruning.
+         *
+         * @param prunedChildren The packed counts.
+         * @return The updated packed counts.
+         */
+        public long addTo(final long prunedChildren) {
+            return pruned ? prunedChildren + (1L << countShift()) : prunedChildren;
+        }
+
+        /**
+         * Gets the number of children pruned for this reason from packed pruned children counts.
+         *
+         * @param prunedChildren The packed counts.
+         * @return The count, or 0 if this outcome is not a reason for pruning.
+         */
+        public int countIn(final long prunedChildren) {
+            return pruned ? (int) (prunedChildren >>> countShift()) & 0xFF : 0;
+        }
+
+        private int countShift() {
+            return (ordinal() - DEADLOCK.ordinal()) * Byte.SIZE;
+        }
+
+        /**
+         * Gets the outcome with the given ordinal.
+         *
+         * @param ordinal The ordinal.
+         * @return The Outcome.
+         * @throws RuntimeException if there is no such outcome.
+         */
+        public static Outcome fromOrdinal(final int ordinal) {
+            if (ordinal < 0 || ordinal >= VALUES.length) {
+                throw new RuntimeException("Unknown search trace outcome: " + ordinal);
+            }
+            return VALUES[ordinal];
+        }
+    }
+
+    /**
+     * Called at the start of each deepening iteration.
+     *
+     * @param iteration The iteration number, from 1.
+     * @param bound     The iteration's f threshold.
+     */
+    void iteration(int iteration, int bound);
+
+    /**
+     * Called for each node expanded once its children have been searched, for the goal, and for a pruned root.
+     *
+     * @param key            The Zobrist key of the node's state.
+     * @param g              The number of moves made to reach the node.
+     * @param h              The heuristic estimate of the moves remaining, including any bound from the transposition
+     *                       table.
+     * @param outcome        The outcome of the visit.
+     * @param prunedChildren The number of the node's children pruned for each reason, packed a byte per reason as
+     *                       built by {@link Outcome#addTo(long)}.
+     */
+    void node(long key, int g, int h, Outcome outcome, long prunedChildren);
+}
@@ -0,0 +1,54 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Command line tool to record and analyse search traces.
+ * <pre>
+ *   SearchTraceTool record &lt;level file&gt; &lt;trace file&gt;
+ *   SearchTraceTool stats &lt;trace file&gt;
+ * </pre>
+ */
+public final class SearchTraceTool {
+
+    private static final String USAGE = "Usage: SearchTraceTool record <level file> <trace file>\n"
+            + "       SearchTraceTool stats <trace file>";
+
+    private SearchTraceTool() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("record")) {
+            final Optional<Solution> solution = record(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.println(solution.map(Solution::toString).orElse("No solution found"));
+        } else if (args.length == 2 && args[0].equals("stats")) {
+            System.out.print(TraceStatistics.read(Paths.get(args[1])).report());
+        } else {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Solve the level in the given file, tracing the search to the given trace file.
+     *
+     * @param levelFile The file holding the level definition string.
+     * @param traceFile The trace file to write.
+     * @return Optional of the Solution found.
+     * @throws IOException if the level cannot be read or the trace cannot be written.
+     */
+    public static Optional<Solution> record(final Path levelFile, final Path traceFile) throws IOException {
+        final String definition = new String(Files.readAllBytes(levelFile), StandardCharsets.UTF_8);
+        final SolverLevel level = SolverLevel.fromDefinition(BoardDefinition.fromString(definition));
+        try (TraceWriter trace = new TraceWriter(traceFile)) {
+            return new IdaStarSolver.Builder().trace(trace).build().solve(level);
+        }
+    }
+}
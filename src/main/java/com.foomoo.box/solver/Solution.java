@@ -0,0 +1,82 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.Direction;
+
+import java.util.Optional;
+
+/**
+ * A sequence of player moves which completes a level, in LURD notation.
+ * <p>
+ * Each move is one of <code>l</code>, <code>u</code>, <code>r</code> or <code>d</code>. A move which pushes one or
+ * more blocks is written in upper case.
+ */
+public final class Solution {
+
+    private final String moves;
+    private final SolveStatistics statistics;
+
+    public Solution(final String moves, final SolveStatistics statistics) {
+        this.moves = moves;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Gets the moves in LURD notation.
+     *
+     * @return The moves.
+     */
+    public String getMoves() {
+        return moves;
+    }
+
+    public int getMoveCount() {
+        return moves.length();
+    }
+
+    /**
+     * Gets the number of moves which push at least one block.
+     *
+     * @return The push count.
+     */
+    public int getPushCount() {
+        int pushes = 0;
+        for (int i = 0; i < moves.length(); i++) {
+            if (Character.isUpperCase(moves.charAt(i))) {
+                pushes++;
+            }
+        }
+        return pushes;
+    }
+
+    public SolveStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Replay the moves against the given level, checking that each move is legal, that pushes are marked as pushes,
+     * and that the level is complete at the end.
+     *
+     * @param level The level.
+     * @return True if this solution solves the level.
+     */
+    public boolean solves(final SolverLevel level) {
+        final SearchState state = new SearchState(level);
+        for (int i = 0; i < moves.length(); i++) {
+            final char move = moves.charAt(i);
+            final Optional<Direction> direction = Direction.fromLurd(move);
+            if (!direction.isPresent()) {
+                return false;
+            }
+            final int pushed = state.move(direction.get().ordinal());
+            if (pushed < 0 || (pushed > 0) != Character.isUpperCase(move)) {
+                return false;
+            }
+        }
+        return state.isSolved();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Solution(%s, moves=%d, pushes=%d)", moves, getMoveCount(), getPushCount());
+    }
+}
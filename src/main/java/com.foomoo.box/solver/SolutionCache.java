@@ -0,0 +1,275 @@
+package com.foomoo.box.solver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * On-disk cache of solutions, keyed by the {@link LevelHash#canonicalHash(SolverLevel) canonical hash} of a level.
+ * <p>
+ * Each solution is held in its own file along with the statistics of the solve which found it. Solutions are stored
+ * from the level's normalised player cell, and a walk to or from the actual player cell is added when storing and
+ * retrieving. A retrieved solution is replayed against the level before being returned; solutions which fail to
+ * replay are removed from the cache.
+ * <p>
+ * The cache is bounded by the total size of its solution files, evicting the least recently used solutions first.
+ * Stores, accesses and removals are recorded in an append-only index from which the recency order is rebuilt when the
+ * cache is opened. The index is rewritten when it grows well beyond the number of cached solutions.
+ */
+public final class SolutionCache implements Closeable {
+
+    private static final String INDEX_FILE = "index.log";
+    private static final String ENTRY_SUFFIX = ".sol";
+    private static final int COMPACTION_SLACK = 64;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<Long, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Writer index;
+    private int indexRecords;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long rejections;
+
+    private SolutionCache(final Path directory, final long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Open the cache in the given directory, creating it if necessary.
+     *
+     * @param directory The cache directory.
+     * @param maxBytes  The maximum total size of the cached solution files.
+     * @return The SolutionCache.
+     * @throws IOException if the directory or its index cannot be read or created.
+     */
+    public static SolutionCache open(final Path directory, final long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        final SolutionCache cache = new SolutionCache(directory, maxBytes);
+        cache.readIndex();
+        cache.index = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        cache.evict();
+        return cache;
+    }
+
+    /**
+     * Gets the cached solution for the given level, if there is one which replays correctly.
+     *
+     * @param level The level.
+     * @return Optional of the Solution, starting from the level's player cell.
+     * @throws IOException if the cache cannot be read.
+     */
+    public synchronized Optional<Solution> get(final SolverLevel level) throws IOException {
+        final long hash = LevelHash.canonicalHash(level);
+        if (!entrySizes.containsKey(hash)) {
+            misses++;
+            return Optional.empty();
+        }
+
+        final Properties entry = new Properties();
+        try (Reader reader = Files.newBufferedReader(entryPath(hash), StandardCharsets.UTF_8)) {
+            entry.load(reader);
+        } catch (NoSuchFileException e) {
+            remove(hash);
+            misses++;
+            return Optional.empty();
+        }
+
+        final String walk = PlayerReach.walk(level, level.getPlayerCell(), PlayerReach.normalisedCell(level));
+        final Solution solution = new Solution(PlayerReach.simplify(walk + entry.getProperty("moves", "")),
+                new SolveStatistics(Long.parseLong(entry.getProperty("nodesExpanded", "0")),
+                        Integer.parseInt(entry.getProperty("iterations", "0")),
+                        Long.parseLong(entry.getProperty("tableHits", "0")),
+                        Long.parseLong(entry.getProperty("elapsedNanos", "0"))));
+
+        if (!solution.solves(level)) {
+            remove(hash);
+            rejections++;
+            return Optional.empty();
+        }
+
+        entrySizes.get(hash);
+        record("A", hash);
+        hits++;
+        return Optional.of(solution);
+    }
+
+    /**
+     * Store the solution for the given level, evicting least recently used solutions if the cache is full.
+     *
+     * @param level    The level.
+     * @param solution The solution, starting from the level's player cell.
+     * @throws IOException if the cache cannot be written.
+     * @throws RuntimeException if the solution does not solve the level.
+     */
+    public synchronized void put(final SolverLevel level, final Solution solution) throws IOException {
+        if (!solution.solves(level)) {
+            throw new RuntimeException("Solution does not solve the level: " + solution);
+        }
+
+        final long hash = LevelHash.canonicalHash(level);
+        final String walk = PlayerReach.walk(level, PlayerReach.normalisedCell(level), level.getPlayerCell());
+        final SolveStatistics statistics = solution.getStatistics();
+
+        final Properties entry = new Properties();
+        entry.setProperty("moves", PlayerReach.simplify(walk + solution.getMoves()));
+        entry.setProperty("nodesExpanded", Long.toString(statistics.getNodesExpanded()));
+        entry.setProperty("iterations", Integer.toString(statistics.getIterations()));
+        entry.setProperty("tableHits", Long.toString(statistics.getTableHits()));
+        entry.setProperty("elapsedNanos", Long.toString(statistics.getElapsedNanos()));
+
+        final Path file = entryPath(hash);
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            entry.store(writer, null);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        final long size = Files.size(file);
+        final Long previousSize = entrySizes.put(hash, size);
+        totalBytes += size - (previousSize == null ? 0 : previousSize);
+        record("P", hash, size);
+        evict();
+    }
+
+    /**
+     * Gets the number of solutions in the cache.
+     *
+     * @return The solution count.
+     */
+    public synchronized int size() {
+        return entrySizes.size();
+    }
+
+    /**
+     * Gets the total size in bytes of the cached solution files.
+     *
+     * @return The total size.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of cached solutions which failed to replay and were removed.
+     *
+     * @return The rejection count.
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.close();
+    }
+
+    private Path entryPath(final long hash) {
+        return directory.resolve(String.format("%016x%s", hash, ENTRY_SUFFIX));
+    }
+
+    private void remove(final long hash) throws IOException {
+        final Long size = entrySizes.remove(hash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        Files.deleteIfExists(entryPath(hash));
+        record("R", hash);
+    }
+
+    private void evict() throws IOException {
+        while (totalBytes > maxBytes && !entrySizes.isEmpty()) {
+            remove(entrySizes.keySet().iterator().next());
+        }
+        if (indexRecords > 2 * entrySizes.size() + COMPACTION_SLACK) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * Rebuild the recency order from the index. Records truncated by a crash are ignored.
+     */
+    private void readIndex() throws IOException {
+        final Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(" ");
+                try {
+                    final long hash = Long.parseUnsignedLong(fields[1], 16);
+                    if (fields[0].equals("P") && fields.length == 3) {
+                        final Long previousSize = entrySizes.put(hash, Long.parseLong(fields[2]));
+                        totalBytes += Long.parseLong(fields[2]) - (previousSize == null ? 0 : previousSize);
+                    } else if (fields[0].equals("A")) {
+                        entrySizes.get(hash);
+                    } else if (fields[0].equals("R")) {
+                        final Long size = entrySizes.remove(hash);
+                        totalBytes -= size == null ? 0 : size;
+                    }
+                    indexRecords++;
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    // Skip the damaged record.
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the index with one store record per cached solution, in recency order.
+     */
+    private void compactIndex() throws IOException {
+        final Path indexFile = directory.resolve(INDEX_FILE);
+        final Path temporary = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Long, Long> entry : entrySizes.entrySet()) {
+                writer.write(String.format("P %016x %d%n", entry.getKey(), entry.getValue()));
+            }
+        }
+
+        index.close();
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        indexRecords = entrySizes.size();
+    }
+
+    private void record(final String type, final long hash) throws IOException {
+        index.write(String.format("%s %016x%n", type, hash));
+        index.flush();
+        indexRecords++;
+    }
+
+    private void record(final String type, final long hash, final long size) throws IOException {
+        index.write(String.format("%s %016x %d%n", type, hash, size));
+        index.flush();
+        indexRecords++;
+    }
+}
@@ -0,0 +1,385 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.Direction;
+import com.foomoo.box.model.immutable.BoardModel;
+import scala.Option;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Shortens solutions, such as those found by a Solver or recorded from a player, while keeping them valid.
+ * <p>
+ * The solution is first replayed to find the position before each push, and the walk leading to each push is replaced
+ * with a shortest walk. The solution is then cut into windows of a few pushes each. Each window is searched breadth
+ * first, move by move, for a shorter route from its starting position to its finishing position, preferring fewer
+ * pushes between routes of equal length. Windows are independent of one another, so are searched in parallel on a
+ * ForkJoinPool. Passes alternate between two sets of window boundaries until a pass makes no improvement.
+ * <p>
+ * The result is never longer than the original. Searches which exceed their node limit keep the original window.
+ */
+public final class SolutionOptimiser {
+
+    private static final int EMPTY = -1;
+
+    private final int windowPushes;
+    private final int maxWindowNodes;
+    private final int maxPasses;
+    private final ForkJoinPool pool;
+
+    private SolutionOptimiser(final Builder builder) {
+        if (builder.windowPushes < 1) {
+            throw new RuntimeException("Windows must contain at least one push");
+        }
+        this.windowPushes = builder.windowPushes;
+        this.maxWindowNodes = builder.maxWindowNodes;
+        this.maxPasses = builder.maxPasses;
+        this.pool = builder.pool;
+    }
+
+    /**
+     * Optimise a solution to the level held by the given BoardModel. The moves are first replayed through the model to
+     * check that each is legal.
+     *
+     * @param model The starting position of the level.
+     * @param moves The solution in LURD notation. The case of each move is ignored.
+     * @return The optimised solution.
+     * @throws RuntimeException if the moves are not legal or do not solve the level.
+     */
+    public OptimisedSolution optimise(final BoardModel model, final String moves) {
+        BoardModel replayed = model;
+        for (int i = 0; i < moves.length(); i++) {
+            final Optional<Direction> direction = Direction.fromLurd(moves.charAt(i));
+            final Option<BoardModel> next = direction.isPresent() ? replayed.move(direction.get()) : Option.empty();
+            if (next.isEmpty()) {
+                throw new RuntimeException("Move " + i + " is not legal: " + moves.charAt(i));
+            }
+            replayed = next.get();
+        }
+        return optimise(SolverLevel.fromModel(model), moves);
+    }
+
+    /**
+     * Optimise a solution to the given level.
+     *
+     * @param level The level.
+     * @param moves The solution in LURD notation. The case of each move is ignored.
+     * @return The optimised solution.
+     * @throws RuntimeException if the moves are not legal or do not solve the level.
+     */
+    public OptimisedSolution optimise(final SolverLevel level, final String moves) {
+        final Replay original = new Replay(level, moves);
+        String current = shortenWalks(level, original);
+        int unchanged = 0;
+        for (int pass = 0; pass < maxPasses && unchanged < 2; pass++) {
+            final String optimised = optimiseWindows(level, current, pass % 2 == 0 ? 0 : (windowPushes + 1) / 2);
+            unchanged = optimised.equals(current) ? unchanged + 1 : 0;
+            current = optimised;
+        }
+        return new OptimisedSolution(original.moves, current);
+    }
+
+    static int countPushes(final String moves) {
+        int pushes = 0;
+        for (int i = 0; i < moves.length(); i++) {
+            if (Character.isUpperCase(moves.charAt(i))) {
+                pushes++;
+            }
+        }
+        return pushes;
+    }
+
+    /**
+     * Replace the walk before each push, and any walk after the level is complete, with a shortest walk.
+     */
+    private static String shortenWalks(final SolverLevel level, final Replay replay) {
+        final StringBuilder moves = new StringBuilder(replay.moves.length());
+        int walkStart = 0;
+        for (int push : replay.pushIndices) {
+            final int[] from = replay.states[walkStart];
+            final int[] to = replay.states[push];
+            moves.append(PlayerReach.walk(level.withPieceCells(from[0], Arrays.copyOfRange(from, 1, from.length)),
+                    from[0], to[0]));
+            moves.append(replay.moves.charAt(push));
+            walkStart = push + 1;
+        }
+        return moves.toString();
+    }
+
+    private String optimiseWindows(final SolverLevel level, final String moves, final int offset) {
+        final Replay replay = new Replay(level, moves);
+
+        // Cut the moves after every windowPushes pushes, starting after the offset'th push.
+        final List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        for (int push = offset - 1; push < replay.pushIndices.length - 1; push += windowPushes) {
+            if (push >= 0) {
+                cuts.add(replay.pushIndices[push] + 1);
+            }
+        }
+        cuts.add(moves.length());
+
+        final String[] windows = pool.submit(() -> IntStream.range(0, cuts.size() - 1).parallel()
+                .mapToObj(window -> searchWindow(level, replay, cuts.get(window), cuts.get(window + 1),
+                        window == cuts.size() - 2))
+                .toArray(String[]::new)).join();
+        return String.join("", windows);
+    }
+
+    /**
+     * Search breadth first for the shortest route between the positions at the given moves.
+     *
+     * @param last True if the window ends the solution, in which case any solved position may finish the route.
+     * @return The moves of the best route found, or the original moves of the window if none is better.
+     */
+    private String searchWindow(final SolverLevel level, final Replay replay, final int from, final int to,
+                                final boolean last) {
+        final String original = replay.moves.substring(from, to);
+        final int originalPushes = countPushes(original);
+        final Node goal = new Node(replay.states[to], null, ' ', 0, 0);
+
+        final Map<Node, Node> visited = new HashMap<>();
+        final ArrayDeque<Node> queue = new ArrayDeque<>();
+        final Node start = new Node(replay.states[from], null, ' ', 0, 0);
+        visited.put(start, start);
+        queue.add(start);
+
+        final int[] occupants = new int[level.getCellCount()];
+        Arrays.fill(occupants, EMPTY);
+        Node best = null;
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            if (best != null && node.depth > best.depth) {
+                break;
+            }
+            if (last ? isSolved(level, node.cells) : node.equals(goal)) {
+                if (best == null || node.pushes < best.pushes) {
+                    best = node;
+                }
+                continue;
+            }
+            if (node.depth >= original.length() || visited.size() > maxWindowNodes) {
+                continue;
+            }
+
+            for (int block = 1; block < node.cells.length; block++) {
+                occupants[node.cells[block]] = block;
+            }
+            for (int direction = 0; direction < Direction.values().length; direction++) {
+                final Node child = expand(level, node, occupants, direction);
+                if (child == null) {
+                    continue;
+                }
+                final Node existing = visited.get(child);
+                if (existing == null) {
+                    visited.put(child, child);
+                    queue.add(child);
+                } else if (existing.depth == child.depth && existing.pushes > child.pushes) {
+                    // The existing node is still queued, so may take the better route before its children are made.
+                    existing.parent = node;
+                    existing.move = child.move;
+                    existing.pushes = child.pushes;
+                }
+            }
+            for (int block = 1; block < node.cells.length; block++) {
+                occupants[node.cells[block]] = EMPTY;
+            }
+        }
+
+        if (best == null || best.depth > original.length()
+                || (best.depth == original.length() && best.pushes >= originalPushes)) {
+            return original;
+        }
+        final char[] route = new char[best.depth];
+        for (Node node = best; node.parent != null; node = node.parent) {
+            route[node.depth - 1] = node.move;
+        }
+        return new String(route);
+    }
+
+    /**
+     * Make the child of a node by moving in the given direction, following the push rules of SearchState.
+     *
+     * @return The child, or null if the move is not legal.
+     */
+    private static Node expand(final SolverLevel level, final Node node, final int[] occupants, final int direction) {
+        final int to = level.neighbour(node.cells[0], direction);
+        if (!level.isFloor(to)) {
+            return null;
+        }
+        int pushed = 0;
+        int end = to;
+        while (occupants[end] != EMPTY) {
+            if (pushed == SearchState.PLAYER_PUSH_STRENGTH) {
+                return null;
+            }
+            pushed++;
+            end = level.neighbour(end, direction);
+            if (!level.isFloor(end)) {
+                return null;
+            }
+        }
+
+        final int[] cells = node.cells.clone();
+        cells[0] = to;
+        int cell = to;
+        for (int i = 0; i < pushed; i++) {
+            final int next = level.neighbour(cell, direction);
+            cells[occupants[cell]] = next;
+            cell = next;
+        }
+        final char lurd = Direction.fromOrdinal(direction).getLurd();
+        return new Node(cells, node, pushed > 0 ? Character.toUpperCase(lurd) : lurd, node.depth + 1,
+                node.pushes + (pushed > 0 ? 1 : 0));
+    }
+
+    private static boolean isSolved(final SolverLevel level, final int[] cells) {
+        for (int target = 0; target < level.getTargetCount(); target++) {
+            final int required = level.getTargetBlock(target);
+            boolean satisfied = false;
+            for (int block = 1; block < cells.length && !satisfied; block++) {
+                satisfied = cells[block] == level.getTargetCell(target)
+                        && (required == SolverLevel.ANY_BLOCK || required == block - 1);
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A position reached during a window search. Positions are equal when their player and block cells are equal.
+     */
+    private static final class Node {
+        final int[] cells;
+        final int hash;
+        final int depth;
+        Node parent;
+        char move;
+        int pushes;
+
+        Node(final int[] cells, final Node parent, final char move, final int depth, final int pushes) {
+            this.cells = cells;
+            this.hash = Arrays.hashCode(cells);
+            this.parent = parent;
+            this.move = move;
+            this.depth = depth;
+            this.pushes = pushes;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Node && Arrays.equals(cells, ((Node) obj).cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A solution replayed against its level, truncated at the move which completes the level.
+     */
+    private static final class Replay {
+        final String moves;
+        // The player cell followed by the block cells before each move, and after the last.
+        final int[][] states;
+        final int[] pushIndices;
+
+        Replay(final SolverLevel level, final String lurd) {
+            final SearchState state = new SearchState(level);
+            final StringBuilder moves = new StringBuilder(lurd.length());
+            final List<int[]> states = new ArrayList<>(lurd.length() + 1);
+            final List<Integer> pushIndices = new ArrayList<>();
+            states.add(snapshot(state));
+            for (int i = 0; i < lurd.length() && !state.isSolved(); i++) {
+                final Optional<Direction> direction = Direction.fromLurd(lurd.charAt(i));
+                final int pushed = direction.isPresent() ? state.move(direction.get().ordinal()) : -1;
+                if (pushed < 0) {
+                    throw new RuntimeException("Move " + i + " is not legal: " + lurd.charAt(i));
+                }
+                if (pushed > 0) {
+                    pushIndices.add(i);
+                }
+                final char lower = direction.get().getLurd();
+                moves.append(pushed > 0 ? Character.toUpperCase(lower) : lower);
+                states.add(snapshot(state));
+            }
+            if (!state.isSolved()) {
+                throw new RuntimeException("Moves do not solve the level");
+            }
+            this.moves = moves.toString();
+            this.states = states.toArray(new int[states.size()][]);
+            this.pushIndices = pushIndices.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static int[] snapshot(final SearchState state) {
+            final int[] blockCells = state.getBlockCells();
+            final int[] cells = new int[blockCells.length + 1];
+            cells[0] = state.getPlayerCell();
+            System.arraycopy(blockCells, 0, cells, 1, blockCells.length);
+            return cells;
+        }
+    }
+
+    /**
+     * Builder for SolutionOptimiser instances.
+     */
+    public static class Builder {
+        private int windowPushes = 4;
+        private int maxWindowNodes = 200_000;
+        private int maxPasses = 6;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Set the number of pushes in each window searched for a shorter route.
+         *
+         * @param windowPushes The pushes per window.
+         * @return This builder.
+         */
+        public Builder windowPushes(final int windowPushes) {
+            this.windowPushes = windowPushes;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of positions visited by the search of a single window.
+         *
+         * @param maxWindowNodes The node limit.
+         * @return This builder.
+         */
+        public Builder maxWindowNodes(final int maxWindowNodes) {
+            this.maxWindowNodes = maxWindowNodes;
+            return this;
+        }
+
+        public Builder maxPasses(final int maxPasses) {
+            this.maxPasses = maxPasses;
+            return this;
+        }
+
+        /**
+         * Set the pool on which windows are searched in parallel.
+         *
+         * @param pool The ForkJoinPool.
+         * @return This builder.
+         */
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public SolutionOptimiser build() {
+            return new SolutionOptimiser(this);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.foomoo.box.solver;
+
+/**
+ * Observes a solve in progress, allowing it to be cancelled and receiving reports of its progress.
+ * <p>
+ * Solvers poll the monitor periodically from the solving thread, so implementations must be cheap and thread safe.
+ */
+public interface SolveMonitor {
+
+    /**
+     * Monitor which never cancels and ignores progress.
+     */
+    SolveMonitor NONE = () -> false;
+
+    /**
+     * Should the solve be abandoned.
+     *
+     * @return True to stop the solve, which will then report that no solution was found.
+     */
+    boolean isCancelled();
+
+    /**
+     * Receive a report of the progress of the solve.
+     *
+     * @param progress The progress so far.
+     */
+    default void progress(final SolveProgress progress) {
+    }
+}
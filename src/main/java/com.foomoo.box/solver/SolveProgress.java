@@ -0,0 +1,55 @@
+package com.foomoo.box.solver;
+
+/**
+ * Snapshot of the progress of a solve.
+ */
+public final class SolveProgress {
+
+    private final long nodesExpanded;
+    private final int iterations;
+    private final int bound;
+    private final long elapsedNanos;
+
+    public SolveProgress(final long nodesExpanded, final int iterations, final int bound, final long elapsedNanos) {
+        this.nodesExpanded = nodesExpanded;
+        this.iterations = iterations;
+        this.bound = bound;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets the best lower bound proven so far on the length of a solution.
+     *
+     * @return The bound, in moves.
+     */
+    public int getBound() {
+        return bound;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the average rate of node expansion over the solve so far.
+     *
+     * @return Nodes expanded per second.
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (long) (nodesExpanded * 1e9 / elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SolveProgress(nodes=%d, nodesPerSecond=%d, bound=%d, elapsedMs=%d)",
+                nodesExpanded, getNodesPerSecond(), bound, elapsedNanos / 1_000_000);
+    }
+}
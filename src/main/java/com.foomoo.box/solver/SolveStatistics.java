@@ -0,0 +1,51 @@
+package com.foomoo.box.solver;
+
+/**
+ * Statistics gathered during a single solve.
+ */
+public final class SolveStatistics {
+
+    private final long nodesExpanded;
+    private final int iterations;
+    private final long tableHits;
+    private final long elapsedNanos;
+
+    public SolveStatistics(final long nodesExpanded, final int iterations, final long tableHits, final long elapsedNanos) {
+        this.nodesExpanded = nodesExpanded;
+        this.iterations = iterations;
+        this.tableHits = tableHits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Gets the number of deepening iterations performed.
+     *
+     * @return The iteration count.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets the number of nodes pruned using the transposition table.
+     *
+     * @return The hit count.
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SolveStatistics(nodes=%d, iterations=%d, tableHits=%d, elapsedMs=%d)",
+                nodesExpanded, iterations, tableHits, elapsedNanos / 1_000_000);
+    }
+}
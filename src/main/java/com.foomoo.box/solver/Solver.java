@@ -0,0 +1,42 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.BoardDefinition;
+
+import java.util.Optional;
+
+/**
+ * Finds a sequence of player moves which completes a level.
+ */
+public interface Solver {
+
+    /**
+     * Solve the given level.
+     *
+     * @param level The level to solve.
+     * @return Optional of the Solution. Empty if the level could not be solved within the solver's limits.
+     */
+    Optional<Solution> solve(SolverLevel level);
+
+    /**
+     * Solve the given level under the observation of a SolveMonitor. Solvers which cannot be cancelled or report
+     * progress ignore the monitor.
+     *
+     * @param level   The level to solve.
+     * @param monitor The monitor.
+     * @return Optional of the Solution. Empty if the level could not be solved within the solver's limits, or the
+     * solve was cancelled.
+     */
+    default Optional<Solution> solve(final SolverLevel level, final SolveMonitor monitor) {
+        return solve(level);
+    }
+
+    /**
+     * Solve the level described by the given BoardDefinition.
+     *
+     * @param definition The definition of the level to solve.
+     * @return Optional of the Solution. Empty if the level could not be solved within the solver's limits.
+     */
+    default Optional<Solution> solve(final BoardDefinition definition) {
+        return solve(SolverLevel.fromDefinition(definition));
+    }
+}
@@ -0,0 +1,277 @@
+package com.foomoo.box.solver;
+
+import com.foomoo.box.Block;
+import com.foomoo.box.BoardDefinition;
+import com.foomoo.box.Cell;
+import com.foomoo.box.CellTable;
+import com.foomoo.box.Direction;
+import com.foomoo.box.PieceRegistry;
+import com.foomoo.box.Target;
+import com.foomoo.box.model.Wall;
+import com.foomoo.box.model.immutable.BoardModel;
+import scala.Option;
+import scala.collection.JavaConverters;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Compact, read-only description of a level for use by the solvers.
+ * <p>
+ * Cells are identified by a packed index of <code>row * width + column</code>. Blocks and targets are identified by
+ * their position in the arrays held by this class, which follows the order of the definition's PieceRegistry.
+ * <p>
+ * A target is satisfied when its linked block occupies the target's cell. Targets without a linked block are
+ * satisfied by any block.
+ */
+public final class SolverLevel {
+
+    /**
+     * Marker for a target that may be satisfied by any block.
+     */
+    public static final int ANY_BLOCK = -1;
+
+    private final int width;
+    private final int height;
+    private final boolean[] floor;
+    private final int playerCell;
+    private final Block[] blocks;
+    private final int[] blockCells;
+    private final Target[] targets;
+    private final int[] targetCells;
+    private final int[] targetBlocks;
+
+    private SolverLevel(int width, int height, boolean[] floor, int playerCell, Block[] blocks, int[] blockCells,
+                        Target[] targets, int[] targetCells, int[] targetBlocks) {
+        this.width = width;
+        this.height = height;
+        this.floor = floor;
+        this.playerCell = playerCell;
+        this.blocks = blocks;
+        this.blockCells = blockCells;
+        this.targets = targets;
+        this.targetCells = targetCells;
+        this.targetBlocks = targetBlocks;
+    }
+
+    /**
+     * Create a SolverLevel from the given BoardDefinition.
+     *
+     * @param definition The definition to convert.
+     * @return The SolverLevel.
+     * @throws RuntimeException if the definition does not contain a player.
+     */
+    public static SolverLevel fromDefinition(final BoardDefinition definition) {
+        final int width = definition.getWidth();
+        final int height = definition.getHeight();
+
+        final boolean[] floor = new boolean[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                floor[row * width + column] = !definition.cellIsWall(row, column);
+            }
+        }
+
+        final Cell playerCell = definition.getPlayerCell().orElseThrow(
+                () -> new RuntimeException("Board definition does not contain a player."));
+
+        // Blocks are numbered from zero in piece id order, skipping the player.
+        final PieceRegistry registry = definition.getPieceRegistry();
+        final int firstBlockId = registry.getFirstBlockId();
+
+        final Block[] blocks = new Block[registry.getPieceCount() - firstBlockId];
+        final int[] blockCells = new int[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = registry.getPiece(firstBlockId + i);
+            blockCells[i] = index(definition.getPieceCell(firstBlockId + i), width);
+        }
+
+        final Target[] targets = new Target[registry.getTargetCount()];
+        final int[] targetCells = new int[targets.length];
+        final int[] targetBlocks = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = registry.getTarget(i);
+            targetCells[i] = index(definition.getTargetCell(i), width);
+            final int pieceId = registry.getPieceForTarget(i);
+            targetBlocks[i] = pieceId == PieceRegistry.NONE ? ANY_BLOCK : pieceId - firstBlockId;
+        }
+
+        return new SolverLevel(width, height, floor, index(playerCell, width), blocks, blockCells, targets,
+                targetCells, targetBlocks);
+    }
+
+    /**
+     * Create a SolverLevel from the current state of the given BoardModel.
+     * <p>
+     * Cells are numbered relative to the model's minimum cell. Wall blocks become walls, and a target is linked to the
+     * block whose text is the upper case form of the target's text, following the convention of BoardDefinition.
+     * Other targets may be satisfied by any block.
+     *
+     * @param model The model to convert.
+     * @return The SolverLevel.
+     */
+    public static SolverLevel fromModel(final BoardModel model) {
+        final CellTable cellTable = model.getCellTable();
+        final Cell minCell = model.getMinCell();
+        final int width = model.getColumnCount();
+        final int height = model.getRowCount();
+
+        // Blocks are numbered in order of their cells, for a stable numbering whatever the model's internal ordering.
+        final boolean[] floor = new boolean[width * height];
+        final List<Block> blocks = new ArrayList<>();
+        final List<Integer> blockCells = new ArrayList<>();
+        int playerCell = -1;
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                final int cell = row * width + column;
+                final Option<Block> block = model.getBlockAtCell(
+                        cellTable.cell(minCell.getRow() + row, minCell.getColumn() + column));
+                floor[cell] = block.isEmpty() || !(block.get() instanceof Wall);
+                if (block.isDefined() && block.get().equals(model.player())) {
+                    playerCell = cell;
+                } else if (block.isDefined() && floor[cell]) {
+                    blocks.add(block.get());
+                    blockCells.add(cell);
+                }
+            }
+        }
+
+        final List<Target> targets = new ArrayList<>(JavaConverters.setAsJavaSetConverter(model.getTargets()).asJava());
+        targets.sort(Comparator.comparing(Target::getText));
+        final int[] targetCells = new int[targets.size()];
+        final int[] targetBlocks = new int[targets.size()];
+        for (int i = 0; i < targetCells.length; i++) {
+            final Cell cell = model.getTargetCell(targets.get(i)).get();
+            targetCells[i] = (cell.getRow() - minCell.getRow()) * width + cell.getColumn() - minCell.getColumn();
+            // indexOf gives -1, i.e. ANY_BLOCK, when there is no block to link to.
+            targetBlocks[i] = blocks.indexOf(new Block(targets.get(i).getText().toUpperCase(Locale.ENGLISH)));
+        }
+
+        return new SolverLevel(width, height, floor, playerCell, blocks.toArray(new Block[blocks.size()]),
+                blockCells.stream().mapToInt(Integer::intValue).toArray(), targets.toArray(new Target[targets.size()]),
+                targetCells, targetBlocks);
+    }
+
+    /**
+     * Gets a copy of this level with the player and blocks at the given cells, such as the position reached part way
+     * through a game.
+     *
+     * @param playerCell The packed cell of the player.
+     * @param blockCells The packed cell of each block, indexed by block.
+     * @return The SolverLevel.
+     * @throws RuntimeException if the number of block cells does not match the level.
+     */
+    public SolverLevel withPieceCells(final int playerCell, final int[] blockCells) {
+        if (blockCells.length != blocks.length) {
+            throw new RuntimeException("Expected " + blocks.length + " block cells, got " + blockCells.length);
+        }
+        return new SolverLevel(width, height, floor, playerCell, blocks, blockCells.clone(), targets, targetCells,
+                targetBlocks);
+    }
+
+    private static int index(final Cell cell, final int width) {
+        return cell.getRow() * width + cell.getColumn();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of packed cell indices used by this level.
+     *
+     * @return The cell count.
+     */
+    public int getCellCount() {
+        return floor.length;
+    }
+
+    /**
+     * Is the given packed cell index a floor cell, i.e. on the board and not a wall.
+     *
+     * @param cell The packed cell index.
+     * @return True if the cell can be occupied.
+     */
+    public boolean isFloor(final int cell) {
+        return cell >= 0 && cell < floor.length && floor[cell];
+    }
+
+    /**
+     * Gets the packed index of the cell adjacent to the given cell in the given direction.
+     *
+     * @param cell      The packed cell index.
+     * @param direction The direction ordinal.
+     * @return The neighbouring packed cell index, or -1 if the neighbour lies outside of the level's bounds.
+     */
+    public int neighbour(final int cell, final int direction) {
+        final Direction step = Direction.fromOrdinal(direction);
+        final int row = cell / width + step.getRowDelta();
+        final int column = cell % width + step.getColumnDelta();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    public int getRow(final int cell) {
+        return cell / width;
+    }
+
+    public int getColumn(final int cell) {
+        return cell % width;
+    }
+
+    public Cell toCell(final int cell) {
+        return new Cell(cell / width, cell % width);
+    }
+
+    public int getPlayerCell() {
+        return playerCell;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    public Block getBlock(final int block) {
+        return blocks[block];
+    }
+
+    /**
+     * Gets the starting cells of the blocks, indexed by block.
+     *
+     * @return A copy of the starting cells.
+     */
+    public int[] getBlockCells() {
+        return blockCells.clone();
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    public Target getTarget(final int target) {
+        return targets[target];
+    }
+
+    public int getTargetCell(final int target) {
+        return targetCells[target];
+    }
+
+    /**
+     * Gets the block linked to the given target.
+     *
+     * @param target The target index.
+     * @return The linked block index, or {@link #ANY_BLOCK} if any block satisfies the target.
+     */
+    public int getTargetBlock(final int target) {
+        return targetBlocks[target];
+    }
+}
@@ -0,0 +1,282 @@
+package com.foomoo.box.solver;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Aggregate statistics of a search trace written by a {@link TraceWriter}, gathered in a single streaming pass.
+ * <p>
+ * Nodes arrive in depth first postorder, so the size of each subtree is known when its root arrives from the sizes of
+ * the subtrees awaiting a parent at the next depth. Once the goal has arrived the rest of its iteration is the solution
+ * path unwinding, giving the heuristic error at each node of the path.
+ */
+public final class TraceStatistics {
+
+    /**
+     * Deepest nodes whose subtrees are ranked by size. The root's subtree is the whole iteration, so is not ranked.
+     */
+    public static final int MAX_RANKED_DEPTH = 3;
+
+    private static final int RANKED_SUBTREES = 10;
+
+    private final long[] outcomeCounts = new long[SearchTrace.Outcome.values().length];
+    private final List<Iteration> iterations = new ArrayList<>();
+    private final PriorityQueue<Subtree> largest = new PriorityQueue<>(Comparator.comparingLong(Subtree::getSize));
+    private final SortedMap<Integer, Integer> heuristicErrors = new TreeMap<>();
+    private long nodeCount;
+    private int solutionLength = -1;
+
+    // The total size of the subtrees of the current iteration awaiting their parent, indexed by g.
+    private long[] pendingSizes = new long[64];
+    private boolean goalReached;
+
+    private TraceStatistics() {
+    }
+
+    /**
+     * Read the statistics of the given trace file.
+     *
+     * @param file The trace file.
+     * @return The TraceStatistics.
+     * @throws IOException if the file cannot be read or is not a supported trace.
+     */
+    public static TraceStatistics read(final Path file) throws IOException {
+        final TraceStatistics statistics = new TraceStatistics();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != TraceWriter.MAGIC) {
+                throw new IOException("Not a search trace.");
+            }
+            if (in.readInt() != TraceWriter.VERSION) {
+                throw new IOException("Unsupported search trace version.");
+            }
+
+            while (true) {
+                final int type;
+                try {
+                    type = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                final long key = in.readLong();
+                final int g = in.readUnsignedShort();
+                final int h = in.readUnsignedShort();
+                long prunedChildren = 0;
+                for (int reason = 0; reason < SearchTrace.Outcome.PRUNE_REASONS; reason++) {
+                    prunedChildren |= (long) in.readUnsignedByte() << reason * Byte.SIZE;
+                }
+                if (type == TraceWriter.ITERATION) {
+                    statistics.startIteration(g, h);
+                } else {
+                    statistics.node(key, g, h, SearchTrace.Outcome.fromOrdinal(type), prunedChildren);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Search trace is truncated.", e);
+        }
+        return statistics;
+    }
+
+    private void startIteration(final int number, final int bound) {
+        Arrays.fill(pendingSizes, 0);
+        goalReached = false;
+        iterations.add(new Iteration(number, bound));
+    }
+
+    private void node(final long key, final int g, final int h, final SearchTrace.Outcome outcome,
+                      final long prunedChildren) {
+        if (g + 1 >= pendingSizes.length) {
+            pendingSizes = Arrays.copyOf(pendingSizes, Math.max(pendingSizes.length * 2, g + 2));
+        }
+
+        long visited = 1;
+        for (SearchTrace.Outcome reason : SearchTrace.Outcome.values()) {
+            final int count = reason.countIn(prunedChildren);
+            outcomeCounts[reason.ordinal()] += count;
+            visited += count;
+        }
+        outcomeCounts[outcome.ordinal()]++;
+        nodeCount += visited;
+        final Iteration iteration = iterations.isEmpty() ? null : iterations.get(iterations.size() - 1);
+        if (iteration != null) {
+            iteration.nodes += visited;
+        }
+
+        // The node adopts the subtrees awaiting a parent one deeper, and awaits its own parent.
+        final long size = visited + pendingSizes[g + 1];
+        pendingSizes[g + 1] = 0;
+        pendingSizes[g] += size;
+        if (g >= 1 && g <= MAX_RANKED_DEPTH) {
+            largest.add(new Subtree(key, g, h, iteration == null ? 0 : iteration.number, size));
+            if (largest.size() > RANKED_SUBTREES) {
+                largest.poll();
+            }
+        }
+
+        if (outcome == SearchTrace.Outcome.GOAL) {
+            solutionLength = g;
+            heuristicErrors.clear();
+            goalReached = true;
+        }
+        if (goalReached) {
+            heuristicErrors.merge(solutionLength - g - h, 1, Integer::sum);
+        }
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the number of nodes with the given outcome.
+     *
+     * @param outcome The outcome.
+     * @return The node count.
+     */
+    public long getOutcomeCount(final SearchTrace.Outcome outcome) {
+        return outcomeCounts[outcome.ordinal()];
+    }
+
+    public List<Iteration> getIterations() {
+        return Collections.unmodifiableList(iterations);
+    }
+
+    /**
+     * Gets the largest subtrees rooted between depths 1 and {@value #MAX_RANKED_DEPTH}, largest first.
+     *
+     * @return The subtrees.
+     */
+    public List<Subtree> getLargestSubtrees() {
+        final List<Subtree> subtrees = new ArrayList<>(largest);
+        subtrees.sort(Comparator.comparingLong(Subtree::getSize).reversed());
+        return subtrees;
+    }
+
+    /**
+     * Gets the length of the solution found, if the trace reached the goal.
+     *
+     * @return The solution length, or -1 if the goal was not reached.
+     */
+    public int getSolutionLength() {
+        return solutionLength;
+    }
+
+    /**
+     * Gets the distribution of the heuristic error along the solution path, i.e. the moves remaining from each node of
+     * the path less the node's h.
+     *
+     * @return The number of path nodes with each error, or an empty map if the goal was not reached.
+     */
+    public SortedMap<Integer, Integer> getHeuristicErrors() {
+        return Collections.unmodifiableSortedMap(heuristicErrors);
+    }
+
+    /**
+     * Gets a readable report of the statistics.
+     *
+     * @return The report, one item per line.
+     */
+    public String report() {
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format("Nodes: %d%n", nodeCount));
+        final long expanded = getOutcomeCount(SearchTrace.Outcome.EXPANDED);
+        for (SearchTrace.Outcome outcome : SearchTrace.Outcome.values()) {
+            report.append(String.format("  %-16s %12d %6.2f%%%n", outcome.name().toLowerCase(),
+                    getOutcomeCount(outcome), nodeCount == 0 ? 0.0 : 100.0 * getOutcomeCount(outcome) / nodeCount));
+        }
+        report.append(String.format("Mean children per expanded node: %.2f%n",
+                expanded == 0 ? 0.0 : (double) (nodeCount - iterations.size()) / expanded));
+
+        report.append("Iterations:\n");
+        for (Iteration iteration : iterations) {
+            report.append(String.format("  %4d bound %5d nodes %12d%n", iteration.number, iteration.bound,
+                    iteration.nodes));
+        }
+
+        report.append("Largest subtrees:\n");
+        for (Subtree subtree : getLargestSubtrees()) {
+            report.append(String.format("  iteration %4d depth %d h %5d key %016x nodes %12d%n", subtree.iteration,
+                    subtree.depth, subtree.h, subtree.key, subtree.size));
+        }
+
+        if (solutionLength < 0) {
+            report.append("Goal not reached\n");
+        } else {
+            report.append(String.format("Heuristic error along the solution path of %d moves:%n", solutionLength));
+            heuristicErrors.forEach((error, count) -> report.append(String.format("  %5d %6d%n", error, count)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * The nodes visited by a single deepening iteration.
+     */
+    public static final class Iteration {
+        private final int number;
+        private final int bound;
+        private long nodes;
+
+        Iteration(final int number, final int bound) {
+            this.number = number;
+            this.bound = bound;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getBound() {
+            return bound;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+    }
+
+    /**
+     * A node and the number of nodes visited in its subtree, including itself.
+     */
+    public static final class Subtree {
+        private final long key;
+        private final int depth;
+        private final int h;
+        private final int iteration;
+        private final long size;
+
+        Subtree(final long key, final int depth, final int h, final int iteration, final long size) {
+            this.key = key;
+            this.depth = depth;
+            this.h = h;
+            this.iteration = iteration;
+            this.size = size;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getIteration() {
+            return iteration;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
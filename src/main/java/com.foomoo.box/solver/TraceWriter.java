@@ -0,0 +1,153 @@
+package com.foomoo.box.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * SearchTrace which writes a compact binary file, read by {@link TraceStatistics}.
+ * <p>
+ * Records are packed into buffers on the search thread and written by a background thread, so the search only stalls
+ * if the disk cannot keep up. All values are big-endian:
+ * <pre>
+ *   int    magic ("BXTR")
+ *   int    format version
+ *   records of {@value #RECORD_BYTES} bytes:
+ *     byte   outcome ordinal, or {@value #ITERATION} for the start of an iteration
+ *     long   state key, or 0 for an iteration
+ *     short  g, or the iteration number, capped at 65535
+ *     short  h, or the iteration bound, capped at 65535
+ *     byte[5] children pruned for each reason, from DEADLOCK to TRANSPOSITION, or 0 for an iteration
+ * </pre>
+ * Only expanded nodes, the goal and a pruned root are recorded, each after its children, so a node's parent is the
+ * next node of the same iteration with a g one less.
+ * <p>
+ * Not thread safe. A writer traces a single solve at a time, and must be closed to complete the file.
+ */
+public final class TraceWriter implements SearchTrace, Closeable {
+
+    public static final int MAGIC = 0x42585452;
+    public static final int VERSION = 2;
+    public static final int RECORD_BYTES = 18;
+    public static final int ITERATION = 0xFF;
+
+    private static final int BUFFER_BYTES = RECORD_BYTES * 65536;
+    private static final int BUFFERS = 3;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<>(BUFFERS);
+    private final Thread writer;
+    private volatile IOException failure;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    /**
+     * Create a TraceWriter, creating or replacing the given file.
+     *
+     * @param file The trace file.
+     * @throws IOException if the file cannot be created.
+     */
+    public TraceWriter(final Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < BUFFERS - 1; i++) {
+            empty.add(ByteBuffer.allocateDirect(BUFFER_BYTES));
+        }
+        buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION);
+
+        writer = new Thread(this::writeBuffers, "search-trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void iteration(final int iteration, final int bound) {
+        record(ITERATION, 0, iteration, bound, 0);
+    }
+
+    @Override
+    public void node(final long key, final int g, final int h, final Outcome outcome, final long prunedChildren) {
+        record(outcome.ordinal(), key, g, h, prunedChildren);
+    }
+
+    private void record(final int type, final long key, final int g, final int h, final long prunedChildren) {
+        if (buffer.remaining() < RECORD_BYTES) {
+            swapBuffer();
+        }
+        buffer.put((byte) type).putLong(key)
+                .putShort((short) Math.min(g, 0xFFFF)).putShort((short) Math.min(Math.max(h, 0), 0xFFFF));
+        for (int reason = 0; reason < Outcome.PRUNE_REASONS; reason++) {
+            buffer.put((byte) (prunedChildren >>> reason * Byte.SIZE));
+        }
+    }
+
+    private void swapBuffer() {
+        buffer.flip();
+        try {
+            full.put(buffer);
+            buffer = empty.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing search trace.", e);
+        }
+        buffer.clear();
+    }
+
+    private void writeBuffers() {
+        try {
+            while (true) {
+                final ByteBuffer next = full.take();
+                if (next == END) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        while (next.hasRemaining()) {
+                            channel.write(next);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                empty.put(next);
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Search trace writer interrupted.", e);
+        }
+    }
+
+    /**
+     * Write any buffered records and close the file.
+     *
+     * @throws IOException if the trace could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.flip();
+            full.put(buffer);
+            full.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing search trace.", e);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
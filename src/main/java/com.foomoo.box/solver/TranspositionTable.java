@@ -0,0 +1,243 @@
+package com.foomoo.box.solver;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, open-addressing transposition table backed by a preallocated array of primitive longs.
+ * <p>
+ * The table never grows, so the memory used by a search is determined entirely by the size requested at
+ * construction. Each entry occupies two longs: the state key, and a packed word holding the lower bound on the cost
+ * to solve from the state, the best g at which the state has been reached, the search iteration which last wrote
+ * the entry, and a reference bit used by the {@link ReplacementPolicy#CLOCK} policy.
+ * <p>
+ * Keys are grouped into buckets of {@value #BUCKET_SIZE} entries. When a bucket is full the
+ * {@link ReplacementPolicy} chooses the entry to overwrite.
+ * <p>
+ * Not thread safe.
+ */
+public final class TranspositionTable {
+
+    /**
+     * Number of bytes used by each entry.
+     */
+    public static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /**
+     * Largest g or bound value which can be stored.
+     */
+    public static final int MAX_VALUE = (1 << 20) - 1;
+
+    static final int BUCKET_SIZE = 4;
+
+    private static final int VALUE_BITS = 20;
+    private static final long VALUE_MASK = MAX_VALUE;
+    private static final int G_SHIFT = VALUE_BITS;
+    private static final int STAMP_SHIFT = 2 * VALUE_BITS;
+    private static final long STAMP_MASK = 0xFFFF;
+    private static final long REFERENCED = 1L << 56;
+
+    private final long[] entries;
+    private final int bucketMask;
+    private final ReplacementPolicy policy;
+
+    private int clockHand;
+    private long stores;
+    private long replacements;
+    private long rejections;
+
+    /**
+     * Construct a table which uses at most the given number of megabytes.
+     *
+     * @param megabytes The memory budget in megabytes.
+     * @param policy    The policy used to choose which entry to replace in a full bucket.
+     * @throws IllegalArgumentException if the budget is too small to hold a single bucket.
+     */
+    public TranspositionTable(final int megabytes, final ReplacementPolicy policy) {
+        final long budgetEntries = ((long) megabytes << 20) / ENTRY_BYTES;
+        if (budgetEntries < BUCKET_SIZE) {
+            throw new IllegalArgumentException("Transposition table budget too small: " + megabytes + "MB");
+        }
+
+        // Round down to a power of two number of buckets which fits in a single array.
+        final long budgetBuckets = Math.min(budgetEntries / BUCKET_SIZE, (Integer.MAX_VALUE - 8) / (2 * BUCKET_SIZE));
+        final int buckets = Integer.highestOneBit((int) budgetBuckets);
+
+        this.entries = new long[buckets * BUCKET_SIZE * 2];
+        this.bucketMask = buckets - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Gets the number of entries the table can hold.
+     *
+     * @return The capacity in entries.
+     */
+    public int getCapacity() {
+        return entries.length / 2;
+    }
+
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Remove all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+        stores = 0;
+        replacements = 0;
+        rejections = 0;
+    }
+
+    /**
+     * Find the entry for the given key, marking it as referenced.
+     *
+     * @param key The state key.
+     * @return The slot holding the entry, or -1 if the key is not present.
+     */
+    public int find(final long key) {
+        final long storedKey = storedKey(key);
+        final int base = bucketBase(storedKey);
+        for (int slot = base; slot < base + BUCKET_SIZE * 2; slot += 2) {
+            if (entries[slot] == storedKey) {
+                entries[slot + 1] |= REFERENCED;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the lower bound on the cost to solve from the state held in the given slot.
+     *
+     * @param slot The slot returned by {@link #find(long)}.
+     * @return The bound.
+     */
+    public int getBound(final int slot) {
+        return (int) (entries[slot + 1] & VALUE_MASK);
+    }
+
+    /**
+     * Gets the best g recorded for the state held in the given slot.
+     *
+     * @param slot The slot returned by {@link #find(long)}.
+     * @return The best g.
+     */
+    public int getG(final int slot) {
+        return (int) ((entries[slot + 1] >>> G_SHIFT) & VALUE_MASK);
+    }
+
+    /**
+     * Gets the iteration stamp of the search which last wrote the given slot.
+     *
+     * @param slot The slot returned by {@link #find(long)}.
+     * @return The stamp.
+     */
+    public int getStamp(final int slot) {
+        return (int) ((entries[slot + 1] >>> STAMP_SHIFT) & STAMP_MASK);
+    }
+
+    /**
+     * Record the given bound and g for a state. If the state is already present the lowest g and highest bound are
+     * kept, otherwise the entry may be dropped if the replacement policy prefers the existing entries.
+     *
+     * @param key   The state key.
+     * @param g     The cost at which the state was reached.
+     * @param bound The lower bound on the cost to solve from the state.
+     * @param stamp The current search iteration. Only the low 16 bits are kept.
+     */
+    public void store(final long key, final int g, final int bound, final int stamp) {
+        final long storedKey = storedKey(key);
+        final int base = bucketBase(storedKey);
+        final int clampedG = Math.min(g, MAX_VALUE);
+        final int clampedBound = Math.min(bound, MAX_VALUE);
+        final int currentStamp = stamp & (int) STAMP_MASK;
+
+        int victim = -1;
+        for (int slot = base; slot < base + BUCKET_SIZE * 2; slot += 2) {
+            if (entries[slot] == storedKey) {
+                final long data = entries[slot + 1];
+                entries[slot + 1] = pack(Math.min(getG(slot), clampedG), Math.max(getBound(slot), clampedBound),
+                        currentStamp) | (data & REFERENCED);
+                stores++;
+                return;
+            }
+            if (victim < 0 && entries[slot] == 0) {
+                victim = slot;
+            }
+        }
+
+        if (victim < 0) {
+            victim = policy == ReplacementPolicy.CLOCK ? clockVictim(base) : depthPreferredVictim(base, clampedG, currentStamp);
+            if (victim < 0) {
+                rejections++;
+                return;
+            }
+            replacements++;
+        }
+
+        entries[victim] = storedKey;
+        entries[victim + 1] = pack(clampedG, clampedBound, currentStamp);
+        stores++;
+    }
+
+    /**
+     * Choose the entry furthest from the root, preferring entries from earlier iterations. Returns -1 if every entry
+     * is closer to the root than the new one.
+     */
+    private int depthPreferredVictim(final int base, final int g, final int stamp) {
+        int victim = -1;
+        long victimScore = -1;
+        for (int slot = base; slot < base + BUCKET_SIZE * 2; slot += 2) {
+            final long score = (getStamp(slot) != stamp ? 1L << 32 : 0L) + getG(slot);
+            if (score > victimScore) {
+                victim = slot;
+                victimScore = score;
+            }
+        }
+        return victimScore >= g ? victim : -1;
+    }
+
+    /**
+     * Sweep the bucket from the clock hand, clearing reference bits until an unreferenced entry is found.
+     */
+    private int clockVictim(final int base) {
+        for (int i = 0; i < BUCKET_SIZE * 2; i++) {
+            final int slot = base + ((clockHand++ & (BUCKET_SIZE - 1)) << 1);
+            if ((entries[slot + 1] & REFERENCED) == 0) {
+                return slot;
+            }
+            entries[slot + 1] &= ~REFERENCED;
+        }
+        return base;
+    }
+
+    private int bucketBase(final long storedKey) {
+        final int hash = (int) (storedKey ^ (storedKey >>> 32));
+        return (hash & bucketMask) * BUCKET_SIZE * 2;
+    }
+
+    /**
+     * Zero marks an empty slot, so remap a zero key.
+     */
+    private static long storedKey(final long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private static long pack(final int g, final int bound, final int stamp) {
+        return ((long) stamp << STAMP_SHIFT) | ((long) g << G_SHIFT) | bound;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getReplacements() {
+        return replacements;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+}
@@ -1,7 +1,6 @@
 package com.foomoo.box
 
 import com.foomoo.box.model.Vector
-import org.apache.commons.lang3.builder.EqualsBuilder
 
 /**
   * Represents a movable block for use on a Board.
@@ -39,5 +38,6 @@ class Block(val text: String) {
     case _ => false
   }
 
-  override def hashCode(): Int = super.hashCode()
+  // Consistent with equals, so that equal blocks can be found in maps regardless of instance.
+  override def hashCode(): Int = text.hashCode
 }
\ No newline at end of file
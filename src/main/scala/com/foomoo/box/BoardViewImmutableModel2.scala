@@ -1,6 +1,6 @@
 package com.foomoo.box
 
-import javafx.animation.{Animation, KeyFrame, Timeline}
+import javafx.animation.AnimationTimer
 import javafx.geometry.Pos
 import javafx.scene.control.Label
 import javafx.scene.layout.{Pane, StackPane}
@@ -10,16 +10,22 @@ import javafx.scene.text.Font
 import javafx.scene.{Group, Scene}
 import javafx.util.Duration
 
+import com.foomoo.box.metrics.{LatencyHistogram, Metrics}
 import com.foomoo.box.model.immutable.{BoardModel, BoardModelDiff}
 
 /**
   * Provides a view of the Board, animating movement of blocks in response to changing to a new BoardModel and calling a
   * BoardCellClickedHandler in response to mouse clicks on a cell.
+  *
+  * New models are applied once per pulse, animating straight to the latest model however many moves were made within
+  * the frame. Animations are shortened while the view is behind the moves pending in the MoveInputQueue.
   */
 object BoardViewImmutableModel2 {
+
+  private val UpdateLatency: LatencyHistogram = Metrics.histogram("view.update")
 }
 
-class BoardViewImmutableModel2(var boardModel: BoardModel) {
+class BoardViewImmutableModel2(var boardModel: BoardModel, inputQueue: MoveInputQueue) {
 
   private val CELL_WIDTH: Int = 50
   private val CELL_HEIGHT: Int = 50
@@ -27,6 +33,20 @@ class BoardViewImmutableModel2(var boardModel: BoardModel) {
   private val blockPaneMap: scala.collection.mutable.Map[Block, Pane] = scala.collection.mutable.Map()
   private val targetPaneMap: scala.collection.mutable.Map[Target, Pane] = scala.collection.mutable.Map()
 
+  private val animator = new PaneAnimator(Duration.seconds(0.5))
+
+  // The latest model set, to be shown at the next pulse.
+  private var pendingModel: BoardModel = boardModel
+
+  private val frameLatency = new FrameLatencyTimer(inputQueue)
+
+  private val pulse = new AnimationTimer {
+    override def handle(now: Long): Unit = {
+      stop()
+      applyPendingModel()
+    }
+  }
+
   private val group: Group = new Group()
   private val scene = new Scene(group, boardModel.getColumnCount * CELL_WIDTH, boardModel.getRowCount * CELL_HEIGHT, Color.WHITE)
 
@@ -68,6 +88,13 @@ class BoardViewImmutableModel2(var boardModel: BoardModel) {
   }
 
   def setNextBoardModel(nextBoardModel: BoardModel): Unit = {
+    pendingModel = nextBoardModel
+    pulse.start()
+  }
+
+  private def applyPendingModel(): Unit = {
+    val start = System.nanoTime
+    val nextBoardModel = pendingModel
     val diff: BoardModelDiff = new BoardModelDiff(boardModel, nextBoardModel)
     diff.getMovedBlocks.foreach(block =>
       nextBoardModel.getBlockCell(block).foreach(cell => {
@@ -75,17 +102,14 @@ class BoardViewImmutableModel2(var boardModel: BoardModel) {
         if (paneOption.isEmpty) {
           throw new RuntimeException("Pane not found for Block: " + block)
         } else {
-          paneOption.foreach(pane => {
-            val moving: Timeline = new Timeline(Animation.INDEFINITE,
-              new KeyFrame(Duration.seconds(0.5), AnimationHelper.createKeyValue(pane.translateXProperty, cell.column * CELL_WIDTH)),
-              new KeyFrame(Duration.seconds(0.5), AnimationHelper.createKeyValue(pane.translateYProperty, cell.row * CELL_HEIGHT))
-            )
-            moving.play()
-          })
+          paneOption.foreach(pane =>
+            animator.moveTo(pane, cell.column * CELL_WIDTH, cell.row * CELL_HEIGHT, inputQueue.getPendingCount))
         }
       }))
 
     boardModel = nextBoardModel
+    frameLatency.updated()
+    BoardViewImmutableModel2.UpdateLatency.recordSince(start)
   }
 
 }
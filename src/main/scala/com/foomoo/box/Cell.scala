@@ -6,7 +6,6 @@ import java.util.stream.{Stream, StreamSupport}
 import java.util.{NoSuchElementException, Spliterators}
 
 import com.foomoo.box.model.Vector
-import org.apache.commons.lang3.builder.{EqualsBuilder, HashCodeBuilder}
 
 /**
   * Represents a location on a Board.
@@ -78,11 +77,12 @@ class Cell(val row: Int, val column: Int) {
       false
     } else {
       val cell: Cell = obj.asInstanceOf[Cell]
-      new EqualsBuilder().append(row, cell.row).append(column, cell.column).isEquals
+      row == cell.row && column == cell.column
     }
   }
 
-  override lazy val hashCode: Int = new HashCodeBuilder().append(row).append(column).toHashCode
+  // Computed eagerly from the coordinates so that hashing a Cell never allocates.
+  override val hashCode: Int = 37 * (17 * 37 + row) + column
 
   override lazy val toString: String = s"Cell($row,$column)"
 }
\ No newline at end of file
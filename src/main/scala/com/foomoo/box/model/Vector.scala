@@ -1,7 +1,5 @@
 package com.foomoo.box.model
 
-import org.apache.commons.lang3.builder.{EqualsBuilder, HashCodeBuilder}
-
 import scala.beans.BeanProperty
 
 /**
@@ -34,8 +32,8 @@ class Vector(@BeanProperty val x: Int, @BeanProperty val y: Int) {
     }
 
     val vector: Vector = obj.asInstanceOf[Vector]
-    new EqualsBuilder().append(x, vector.x).append(y, vector.y).isEquals
+    x == vector.x && y == vector.y
   }
 
-  override lazy val hashCode: Int = new HashCodeBuilder().append(x).append(y).toHashCode
+  override val hashCode: Int = 37 * (17 * 37 + x) + y
 }
\ No newline at end of file
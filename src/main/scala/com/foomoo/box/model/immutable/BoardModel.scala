@@ -1,6 +1,7 @@
 package com.foomoo.box.model.immutable
 
 import com.foomoo.box._
+import com.foomoo.box.metrics.{LatencyHistogram, Metrics}
 import com.foomoo.box.model.Wall
 import com.foomoo.box.model.immutable.BoardModel.BoardModelBuilder
 
@@ -8,33 +9,91 @@ import scala.collection.JavaConversions._
 
 object BoardModel {
 
+  private val MoveLatency: LatencyHistogram = Metrics.histogram("model.move")
+
+  /**
+    * Evaluate the body, recording its duration in the given histogram.
+    *
+    * @param histogram The histogram to record in.
+    * @param body      The code to time.
+    * @return The result of the body.
+    */
+  private[immutable] def timed[T](histogram: LatencyHistogram)(body: => T): T = {
+    val start = System.nanoTime
+    try body finally histogram.recordSince(start)
+  }
+
+  /**
+    * Create a BoardModel with the starting state of the given BoardDefinition. Each wall cell of the definition is
+    * represented by a Wall block.
+    *
+    * @param definition The definition to create the model from.
+    * @return The BoardModel.
+    * @throws RuntimeException if the definition does not contain a player.
+    */
+  def fromDefinition(definition: BoardDefinition): BoardModel = {
+    val registry = definition.getPieceRegistry
+    if (!registry.getPlayer.isPresent) {
+      throw new RuntimeException("Board definition does not contain a player.")
+    }
+
+    val builder = new BoardModelBuilder(registry.getPlayer.get, definition.getPieceCell(registry.getPlayerId))
+    for (pieceId <- registry.getFirstBlockId until registry.getPieceCount) {
+      builder.blockCell(registry.getPiece(pieceId), definition.getPieceCell(pieceId))
+    }
+    for (targetId <- 0 until registry.getTargetCount) {
+      builder.targetCell(registry.getTarget(targetId), definition.getTargetCell(targetId))
+    }
+    definition.getWalls.forEach(true, new TileGrid.CellVisitor {
+      override def visit(row: Int, column: Int): Unit = builder.wall(new Cell(row, column))
+    })
+    builder.build
+  }
+
   class BoardModelBuilder(val player: Player, playerCell: Cell) {
-    val blockCellMap: scala.collection.mutable.Map[Block, Cell] = scala.collection.mutable.Map(player -> playerCell)
-    val targetCellMap: scala.collection.mutable.Map[Target, Cell] = scala.collection.mutable.Map()
+    // Persistent maps, so that a builder derived from a model shares their structure with it and a move only adds the
+    // cells which changed.
+    private var blockCellMap: Map[Block, Cell] = Map(player -> playerCell)
+    private var cellBlockMap: Map[Cell, Block] = Map(playerCell -> player)
+    private var targetCellMap: Map[Target, Cell] = Map()
+
+    // The model this builder was derived from, and the blocks given new cells since, most recent first.
+    private var original: BoardModel = null
+    private var changedBlocks: List[Block] = Nil
 
     var error: Error = null
     var minCell: Cell = null
     var maxCell: Cell = null
+    var cellTable: CellTable = null
 
     def this(originalModel: BoardModel) {
-      this(originalModel.player, originalModel.blockCellMap.get(originalModel.player).get)
-      blockCellMap.putAll(originalModel.blockCellMap)
-      targetCellMap.putAll(originalModel.targetCellMap)
+      this(originalModel.player, originalModel.blockCellMap(originalModel.player))
+      blockCellMap = originalModel.blockCellMap
+      cellBlockMap = originalModel.cellBlockMap
+      targetCellMap = originalModel.targetCellMap
+      cellTable = originalModel.cellTable
+      minCell = originalModel.minCell
+      maxCell = originalModel.maxCell
+      original = originalModel
     }
 
     def blockCell(block: Block, cell: Cell): BoardModel.BoardModelBuilder = {
-      blockCellMap.put(block, cell)
+      // The block's old cell may already have been taken by the block pushing it.
+      blockCellMap.get(block).foreach(previous =>
+        if (cellBlockMap.get(previous).exists(_ == block)) cellBlockMap -= previous)
+      blockCellMap += block -> cell
+      cellBlockMap += cell -> block
+      changedBlocks ::= block
       this
     }
 
     def targetCell(target: Target, cell: Cell): BoardModel.BoardModelBuilder = {
-      targetCellMap.put(target, cell)
+      targetCellMap += target -> cell
       this
     }
 
     def wall(cell: Cell): BoardModel.BoardModelBuilder = {
-      blockCellMap.put(new Wall, cell)
-      this
+      blockCell(new Wall, cell)
     }
 
     def wall(fromCell: Cell, toCell: Cell): BoardModel.BoardModelBuilder = {
@@ -56,21 +115,59 @@ object BoardModel {
 
     private def getAllCells = blockCellMap.values ++ targetCellMap.values
 
+    private def onBoundary(cell: Cell): Boolean = cell.row == minCell.row || cell.row == maxCell.row ||
+      cell.column == minCell.column || cell.column == maxCell.column
+
+    /**
+      * Gets the blocks whose cells differ from those in the original model.
+      */
+    private[immutable] def movedBlocks: List[Block] =
+      changedBlocks.distinct.filter(block => original.blockCellMap.get(block) != blockCellMap.get(block))
+
     def build: BoardModel = {
-      minCell = getAllCells.reduce(Cell.minimalCell)
-      maxCell = getAllCells.reduce(Cell.maximalCell)
-      new BoardModel(this)
+      val moved = if (original == null) Nil else movedBlocks
+
+      // A model derived from another only extends its bounds by the cells entered, unless a block has left a cell on
+      // the boundary, which may shrink them.
+      if (original == null || moved.exists(block => onBoundary(original.blockCellMap(block)))) {
+        minCell = getAllCells.reduce(Cell.minimalCell)
+        maxCell = getAllCells.reduce(Cell.maximalCell)
+      } else {
+        moved.foreach { block =>
+          minCell = Cell.minimalCell(minCell, blockCellMap(block))
+          maxCell = Cell.maximalCell(maxCell, blockCellMap(block))
+        }
+      }
+
+      // Share the cell table of the original model unless pieces have moved beyond it, in which case every cell is
+      // interned in a new table. Otherwise only the cells entered need interning.
+      if (cellTable == null || !cellTable.covers(minCell, maxCell)) {
+        cellTable = CellTable.spanning(minCell, maxCell)
+        blockCellMap = blockCellMap.map { case (block, cell) => block -> cellTable.intern(cell) }
+        targetCellMap = targetCellMap.map { case (target, cell) => target -> cellTable.intern(cell) }
+      } else {
+        moved.foreach(block => blockCellMap += block -> cellTable.intern(blockCellMap(block)))
+      }
+
+      new BoardModel(this, blockCellMap, cellBlockMap, targetCellMap, moved)
     }
   }
 
 }
 
-final class BoardModel(builder: BoardModelBuilder) {
+/**
+  * Immutable state of a board: the cells of the player, blocks, walls and targets.
+  *
+  * The maps between blocks and cells are persistent, so a model derived by a move shares their structure with its
+  * predecessor and the cost of a move depends on the pieces moved, not on the size of the board.
+  */
+final class BoardModel private(builder: BoardModelBuilder, val blockCellMap: Map[Block, Cell],
+                               private[immutable] val cellBlockMap: Map[Cell, Block],
+                               val targetCellMap: Map[Target, Cell], movedBlocks: List[Block]) {
   val player: Player = builder.player
-  val blockCellMap: scala.collection.mutable.Map[Block, Cell] = builder.blockCellMap
-  val targetCellMap: scala.collection.mutable.Map[Target, Cell] = builder.targetCellMap
   val minCell = builder.minCell
   val maxCell = builder.maxCell
+  val cellTable: CellTable = builder.cellTable
 
   /**
     * Move the player to the given cell, pushing other blocks out of the way if necessary.
@@ -79,11 +176,26 @@ final class BoardModel(builder: BoardModelBuilder) {
     * @return An Option of BoardModel specifying the new model following the movement of the player and any other
     *         necessary pieces. The option will be None if the move could not be performed.
     */
-  def movePlayerPieceTo(to: Cell): Option[BoardModel] = {
+  def movePlayerPieceTo(to: Cell): Option[BoardModel] = BoardModel.timed(BoardModel.MoveLatency) {
     val builder: BoardModel.BoardModelBuilder = new BoardModel.BoardModelBuilder(this)
     recursiveBlockMove(builder, player, to, player.getPushStrength)
   }
 
+  /**
+    * Move the player one cell in the given direction, pushing other blocks out of the way if necessary.
+    *
+    * Neighbours are found by packed cell index, and only the cells entered and left are looked up or updated, so the
+    * cost of a move does not depend on the size of the board.
+    *
+    * @param direction The direction to move the player.
+    * @return An Option of BoardModel specifying the new model following the movement of the player and any other
+    *         necessary pieces. The option will be None if the move could not be performed.
+    */
+  def move(direction: Direction): Option[BoardModel] = BoardModel.timed(BoardModel.MoveLatency) {
+    val builder: BoardModel.BoardModelBuilder = new BoardModel.BoardModelBuilder(this)
+    moveBlockInDirection(builder, player, cellTable.index(blockCellMap(player)), direction, player.getPushStrength)
+  }
+
   /**
     * Gets the cell for the given block.
     *
@@ -98,7 +210,14 @@ final class BoardModel(builder: BoardModelBuilder) {
     * @param cell The cell to get the block for.
     * @return Option of the Block at the cell. Empty if no block present.
     */
-  def getBlockAtCell(cell: Cell): Option[Block] = blockCellMap.find(_._2 == cell).map(_._1)
+  def getBlockAtCell(cell: Cell): Option[Block] = cellBlockMap.get(cell)
+
+  /**
+    * Gets the blocks moved by the move which produced this model, in the order they were moved.
+    *
+    * @return The List of Blocks, empty if this model was not produced by a move.
+    */
+  def getMovedBlocks: java.util.List[Block] = movedBlocks.reverse
 
   /**
     * Gets all blocks known to the model.
@@ -134,6 +253,13 @@ final class BoardModel(builder: BoardModelBuilder) {
     targetCellMap.keySet.toSet
   }
 
+  /**
+    * Gets the table of interned cells covering this model. Cells returned by the model are instances from this table.
+    *
+    * @return The CellTable.
+    */
+  def getCellTable: CellTable = cellTable
+
   def getMinCell: Cell = {
     minCell
   }
@@ -169,6 +295,31 @@ final class BoardModel(builder: BoardModelBuilder) {
     }
   }
 
+  private def moveBlockInDirection(builder: BoardModel.BoardModelBuilder, block: Block, from: Int, direction: Direction, pushStrength: Int): Option[BoardModel] = {
+    val to = cellTable.neighbour(from, direction)
+    if (to < 0) {
+      // Moving beyond the cells of this model, so no blocks can be in the way.
+      val fromCell = cellTable.cell(from)
+      moveBlocksBetweenCell(builder, block, fromCell, fromCell.translate(direction.getVector), pushStrength)
+    } else {
+      builder.blockCell(block, cellTable.cell(to))
+      val targetCellBlock = cellBlockMap.getOrElse(cellTable.cell(to), null)
+      if (targetCellBlock == null) {
+        Some(builder.build)
+      } else if (pushStrength < targetCellBlock.getEffortToMove) {
+        None
+      } else {
+        val translatedPushVector = targetCellBlock.translatePushVector(direction.getVector)
+        if (translatedPushVector eq direction.getVector) {
+          moveBlockInDirection(builder, targetCellBlock, to, direction, pushStrength - targetCellBlock.getEffortToMove)
+        } else {
+          val toCell = cellTable.cell(to)
+          moveBlocksBetweenCell(builder, targetCellBlock, toCell, toCell.translate(translatedPushVector), pushStrength - targetCellBlock.getEffortToMove)
+        }
+      }
+    }
+  }
+
   /**
     * Move the requested block, applying the change to the given builder. Push other blocks out of the way if required
     * as long as the number of blocks that can be pushed is not breached.
@@ -2,6 +2,7 @@ package com.foomoo.box.model.immutable
 
 import java.util.Optional
 
+import com.foomoo.box.metrics.{LatencyHistogram, Metrics}
 import com.foomoo.box.{Block, Target}
 
 import scala.collection.JavaConversions._
@@ -16,7 +17,7 @@ class BoardModelDiff(first: BoardModel, second: BoardModel) {
     *
     * @return The Set of Blocks.
     */
-  def getMovedBlocks: Set[Block] = {
+  def getMovedBlocks: Set[Block] = BoardModel.timed(BoardModelDiff.DiffLatency) {
     getCommonBlocks.filter(block => first.getBlockCell(block) != second.getBlockCell(block))
   }
 
@@ -25,14 +26,18 @@ class BoardModelDiff(first: BoardModel, second: BoardModel) {
     *
     * @return The List of Targets.
     */
-  def getNewCompletedTargets: java.util.List[Target] = (getCompletedTargets(second) &~ getCompletedTargets(first)).toList
+  def getNewCompletedTargets: java.util.List[Target] = BoardModel.timed(BoardModelDiff.DiffLatency) {
+    (getCompletedTargets(second) &~ getCompletedTargets(first)).toList
+  }
 
   /**
     * Gets the targets that have been unsatisfied when moving from the first to the second BoardModel.
     *
     * @return The List of Targets.
     */
-  def getNewUncompletedTargets: java.util.List[Target] = (getCompletedTargets(first) &~ getCompletedTargets(second)).toList
+  def getNewUncompletedTargets: java.util.List[Target] = BoardModel.timed(BoardModelDiff.DiffLatency) {
+    (getCompletedTargets(first) &~ getCompletedTargets(second)).toList
+  }
 
   /**
     * Get the Blocks that are present in both the first and second model.
@@ -60,4 +65,9 @@ class BoardModelDiff(first: BoardModel, second: BoardModel) {
   }
 
   private def toOption[T](javaOp: Optional[T]): Option[T] = if (javaOp.isPresent) Some(javaOp.get()) else None
-}
\ No newline at end of file
+}
+
+object BoardModelDiff {
+
+  private val DiffLatency: LatencyHistogram = Metrics.histogram("model.diff")
+}
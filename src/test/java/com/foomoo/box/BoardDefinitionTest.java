@@ -57,4 +57,25 @@ public class BoardDefinitionTest {
 
         assertThat(blockTargetMap, hasEntry(new Block("A"), new Target("a")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void registryGivesDenseIdsInReadingOrder() {
+        PieceRegistry registry = definition1.getPieceRegistry();
+
+        assertThat(registry.getPieceCount(), equalTo(3));
+        assertThat(registry.getPlayerId(), equalTo(0));
+        assertThat(registry.getPieceId(new Block("A")), equalTo(1));
+        assertThat(registry.getPieceId(new Block("B")), equalTo(2));
+        assertThat(definition1.getPieceCell(1), equalTo(new Cell(2, 1)));
+    }
+
+    @Test
+    public void registryLinksBlocksAndTargets() {
+        PieceRegistry registry = definition1.getPieceRegistry();
+        int blockA = registry.getPieceId(new Block("A"));
+        int targetA = registry.getTargetId(new Target("a"));
+
+        assertThat(registry.getTargetForPiece(blockA), equalTo(targetA));
+        assertThat(registry.getPieceForTarget(registry.getTargetId(new Target("c"))), equalTo(PieceRegistry.NONE));
+    }
+}
@@ -0,0 +1,96 @@
+package com.foomoo.box
+
+import java.util.{Locale, SplittableRandom}
+
+import org.scalacheck.Gen
+
+/**
+  * ScalaCheck generators of large walled boards and long move sequences, shared by the engine properties
+  */
+object BoardGenerators {
+
+  /**
+    * Upper case letters usable as block names in a definition string, each with a distinct single character lower
+    * case form naming its target. X is excluded as it denotes a wall.
+    */
+  val BlockLetters: IndexedSeq[Char] = ('A' to '\u04FF').filter { letter =>
+    val lower = letter.toString.toLowerCase(Locale.ENGLISH)
+    letter != 'X' && Character.isUpperCase(letter) && lower.length == 1 && Character.isLowerCase(lower.charAt(0)) &&
+      lower.toUpperCase(Locale.ENGLISH) == letter.toString
+  }
+
+  /**
+    * Build the definition string of a board enclosed by walls, with random interior walls, blocks and targets. Every
+    * other block is linked to a target, and the unlinked targets may be satisfied by any block.
+    *
+    * @param width           The number of columns, including the outer walls.
+    * @param height          The number of rows, including the outer walls.
+    * @param wallDensity     The proportion of interior cells which are walls.
+    * @param blockDensity    The proportion of floor cells holding a block, limited by the number of block letters.
+    * @param unlinkedTargets The number of targets not linked to a block.
+    * @param seed            The seed of the random layout.
+    * @return The definition string.
+    */
+  def walledBoard(width: Int, height: Int, wallDensity: Double, blockDensity: Double, unlinkedTargets: Int,
+                  seed: Long): String = {
+    val random = new SplittableRandom(seed)
+    val grid = Array.tabulate(height, width) { (row, column) =>
+      val border = row == 0 || column == 0 || row == height - 1 || column == width - 1
+      if (border || random.nextDouble < wallDensity) 'X' else ' '
+    }
+
+    // A partial shuffle of the floor cells places the player, blocks and targets on distinct cells.
+    val player = (height / 2, width / 2)
+    grid(player._1)(player._2) = '@'
+    val floor = (for {
+      row <- 1 until height - 1
+      column <- 1 until width - 1
+      if grid(row)(column) == ' '
+    } yield (row, column)).toArray
+    def place(index: Int, text: Char): Unit = {
+      val swap = index + random.nextInt(floor.length - index)
+      val cell = floor(swap)
+      floor(swap) = floor(index)
+      floor(index) = cell
+      grid(cell._1)(cell._2) = text
+    }
+
+    val maxBlocks = Math.min(BlockLetters.size - unlinkedTargets, floor.length / 2)
+    val blocks = Math.min((floor.length * blockDensity).toInt, maxBlocks)
+    val linked = (0 until blocks by 2).map(block => BlockLetters(block).toLower)
+    val unlinked = (blocks until blocks + unlinkedTargets).map(letter => BlockLetters(letter).toLower)
+    val pieces = (0 until blocks).map(BlockLetters) ++ linked ++ unlinked
+    pieces.take(floor.length).zipWithIndex.foreach { case (text, index) => place(index, text) }
+
+    grid.map(new String(_)).mkString("\n")
+  }
+
+  /**
+    * Generator of walled board definitions with sides between the given sizes.
+    *
+    * @param minSize The smallest number of rows or columns, at least 3.
+    * @param maxSize The largest number of rows or columns.
+    * @return The Gen of definition strings.
+    */
+  def walledBoards(minSize: Int, maxSize: Int): Gen[String] = for {
+    width <- Gen.choose(minSize, maxSize)
+    height <- Gen.choose(minSize, maxSize)
+    wallDensity <- Gen.choose(0.0, 0.3)
+    blockDensity <- Gen.choose(0.0, 0.4)
+    unlinkedTargets <- Gen.choose(0, 5)
+    seed <- Gen.choose(Long.MinValue, Long.MaxValue)
+  } yield walledBoard(width, height, wallDensity, blockDensity, unlinkedTargets, seed)
+
+  /**
+    * Generator of move sequences with lengths between the given lengths.
+    *
+    * @param minLength The shortest sequence.
+    * @param maxLength The longest sequence.
+    * @return The Gen of directions.
+    */
+  def moveSequences(minLength: Int, maxLength: Int): Gen[Seq[Direction]] = for {
+    length <- Gen.choose(minLength, maxLength)
+    moves <- Gen.listOfN(length, Gen.oneOf(Direction.values.toSeq))
+  } yield moves
+
+}
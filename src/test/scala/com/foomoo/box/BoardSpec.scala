@@ -0,0 +1,153 @@
+package com.foomoo.box
+
+import java.lang.management.ManagementFactory
+
+import com.foomoo.box.model.immutable.BoardModel
+import com.foomoo.box.model.immutable.BoardModel.BoardModelBuilder
+
+/**
+  * Tests for moving pieces by Direction on the Board and BoardModel
+  */
+class BoardSpec extends UnitSpec {
+
+  private val CORRIDOR: String = "" +
+    "XXXXXXXXXX\n" +
+    "X@ AB    X\n" +
+    "X        X\n" +
+    "XXXXXXXXXX"
+
+  private val threadBean = ManagementFactory.getThreadMXBean.asInstanceOf[com.sun.management.ThreadMXBean]
+
+  private def allocatedBytes: Long = threadBean.getThreadAllocatedBytes(Thread.currentThread.getId)
+
+  /**
+    * Walk the player around a loop on the second and third rows, which never pushes any blocks.
+    */
+  private def walkLoops(board: Board, loops: Int): Unit = {
+    var i = 0
+    while (i < loops) {
+      board.move(Direction.DOWN)
+      board.move(Direction.UP)
+      i += 1
+    }
+  }
+
+  "A Board" should "move the player by direction" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+
+    board.move(Direction.RIGHT) shouldBe true
+    board.getCellForPiece(board.getPlayer.get) shouldBe new Cell(1, 2)
+  }
+
+  it should "push a chain of two blocks" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    board.move(Direction.RIGHT)
+    board.move(Direction.RIGHT) shouldBe true
+
+    board.getCellForPiece(new Block("A")) shouldBe new Cell(1, 4)
+    board.getCellForPiece(new Block("B")) shouldBe new Cell(1, 5)
+  }
+
+  it should "not move into walls" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+
+    board.move(Direction.LEFT) shouldBe false
+    board.move(Direction.UP) shouldBe false
+  }
+
+  it should "return interned cells" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    board.move(Direction.DOWN)
+
+    board.getCellForPiece(board.getPlayer.get) should be theSameInstanceAs board.getCell(2, 1)
+  }
+
+  it should "not allocate when moving in steady state" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    walkLoops(board, 100000)
+
+    // Measure the cost of the measurement itself, so that only the moves are counted.
+    val calibrationStart = allocatedBytes
+    val calibration = allocatedBytes - calibrationStart
+
+    val start = allocatedBytes
+    walkLoops(board, 100000)
+    val allocated = allocatedBytes - start - calibration
+
+    allocated should be < 1024L
+  }
+
+  it should "notify one MoveEvent for a chain push" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    val events = scala.collection.mutable.Buffer[MoveEvent]()
+    board.setMoveEventHandler(new Board.MoveEventHandler {
+      override def moved(event: MoveEvent): Unit = events += event
+    })
+
+    board.move(Direction.LEFT)
+    board.move(Direction.RIGHT)
+    board.move(Direction.RIGHT)
+
+    events.size shouldBe 2
+    val push = events(1)
+    push.getMovedCount shouldBe 3
+    (0 until push.getMovedCount).map(push.getPiece) shouldBe Seq(board.getPlayer.get, new Block("A"), new Block("B"))
+    push.getFromCell(2) shouldBe new Cell(1, 4)
+    push.getToCell(2) shouldBe new Cell(1, 5)
+  }
+
+  it should "report target changes in MoveEvents" in {
+    val board = new Board(BoardDefinition.fromString("XXXXXXXX\nX@A a  X\nXXXXXXXX"))
+    val events = scala.collection.mutable.Buffer[MoveEvent]()
+    board.setMoveEventHandler(new Board.MoveEventHandler {
+      override def moved(event: MoveEvent): Unit = events += event
+    })
+
+    board.move(Direction.RIGHT)
+    board.move(Direction.RIGHT)
+    board.move(Direction.RIGHT)
+
+    events(1).getCompletedTargets should contain only new Target("a")
+    events(2).getUncompletedTargets should contain only new Target("a")
+
+    val merged = events.reduce(_ merge _)
+    merged.getMovedCount shouldBe 2
+    merged.getFromCell(1) shouldBe new Cell(1, 2)
+    merged.getToCell(1) shouldBe new Cell(1, 5)
+    merged.getCompletedTargets shouldBe empty
+    merged.getUncompletedTargets shouldBe empty
+  }
+
+  "A BoardModel" should "move the player by direction" in {
+    val player = new Player("P")
+    val block = new Block("B1")
+    val model: BoardModel = new BoardModelBuilder(player, new Cell(2, 2))
+      .wall(new Cell(0, 0), new Cell(5, 5))
+      .blockCell(block, new Cell(2, 3))
+      .build
+
+    val moved = model.move(Direction.RIGHT).get
+
+    moved.getBlockCell(player).get shouldBe new Cell(2, 3)
+    moved.getBlockCell(block).get should be theSameInstanceAs moved.getCellTable.cell(2, 4)
+  }
+
+  it should "be created from a BoardDefinition" in {
+    val model = BoardModel.fromDefinition(BoardDefinition.fromString(CORRIDOR))
+
+    model.getBlockCell(new Block("A")).get shouldBe new Cell(1, 3)
+    model.move(Direction.RIGHT).flatMap(_.move(Direction.RIGHT)).get.getBlockCell(new Block("B")).get shouldBe new Cell(1, 5)
+    model.move(Direction.LEFT) shouldBe None
+  }
+
+  it should "not push blocks into walls" in {
+    val player = new Player("P")
+    val model: BoardModel = new BoardModelBuilder(player, new Cell(2, 3))
+      .wall(new Cell(0, 0), new Cell(5, 5))
+      .blockCell(new Block("B1"), new Cell(2, 4))
+      .build
+
+    model.move(Direction.RIGHT) shouldBe None
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.foomoo.box
+
+import com.foomoo.box.solver.{IdaStarSolver, SolverLevel}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Tests for the Symmetry and CanonicalLevel classes
+  */
+class CanonicalLevelSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXXX\n" +
+    "X@   X\n" +
+    "X A  X\n" +
+    "X   aX\n" +
+    "X    X\n" +
+    "XXXXXX"
+
+  "A Symmetry" should "be reversed by its inverse" in {
+    forAll(Symmetry.values) { symmetry =>
+      val cell = new Cell(1, 3)
+      val transformed = symmetry.apply(cell, 4, 6)
+      symmetry.inverse.apply(transformed, symmetry.transformedRows(4, 6), symmetry.transformedColumns(4, 6)) shouldBe cell
+    }
+  }
+
+  it should "map moves consistently with cells" in {
+    forAll(Symmetry.values) { symmetry =>
+      forAll(Direction.values) { direction =>
+        val from = new Cell(2, 2)
+        val to = from.translate(direction.getVector)
+        symmetry.apply(to, 5, 5).subtract(symmetry.apply(from, 5, 5)) shouldBe symmetry.apply(direction).getVector
+      }
+    }
+  }
+
+  it should "rotate a definition clockwise" in {
+    val definition = BoardDefinition.fromString("@A\n a\nXX").transform(Symmetry.ROTATE_CLOCKWISE)
+
+    definition.toDefinitionString shouldBe "X @\nXaA"
+  }
+
+  "A CanonicalLevel" should "be the same for every symmetric copy of a level" in {
+    val original = BoardDefinition.fromString(LEVEL)
+    val canonical = CanonicalLevel.of(original)
+
+    forAll(Symmetry.values) { symmetry =>
+      CanonicalLevel.of(original.transform(symmetry)) shouldBe canonical
+    }
+  }
+
+  it should "remove symmetric copies from a collection of levels" in {
+    val original = BoardDefinition.fromString(LEVEL)
+    val other = BoardDefinition.fromString("XXXXX\nX@AaX\nXXXXX")
+    val levels = Seq(original, original.transform(Symmetry.FLIP_ROWS), other, original.transform(Symmetry.TRANSPOSE))
+
+    CanonicalLevel.distinct(levels.asJava).asScala shouldBe Seq(original, other)
+  }
+
+  it should "map solutions of the canonical form back to the original" in {
+    forAll(Symmetry.values) { symmetry =>
+      val original = BoardDefinition.fromString(LEVEL).transform(symmetry)
+      val canonical = CanonicalLevel.of(original)
+      val solution = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(canonical.getDefinition).get
+
+      val mapped = new com.foomoo.box.solver.Solution(canonical.toOriginalMoves(solution.getMoves), solution.getStatistics)
+      mapped.solves(SolverLevel.fromDefinition(original)) shouldBe true
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.foomoo.box
+
+import com.foomoo.box.BoardGenerators.{moveSequences, walledBoards}
+import com.foomoo.box.model.immutable.BoardModel
+import org.scalacheck.Prop.{classify, forAllNoShrink, propBoolean}
+import org.scalacheck.{Gen, Properties}
+
+/**
+  * Differential properties of the two engines applying the push rules: the mutable Board and the immutable BoardModel
+  * must agree on every piece's cell after each move of any sequence.
+  */
+class EngineDifferentialProperties extends Properties("Board and BoardModel") {
+
+  // Mostly moderate boards, as each BoardModel move copies its map of blocks and walls.
+  val boards: Gen[String] = Gen.frequency((4, walledBoards(3, 32)), (1, walledBoards(33, 80)))
+
+  /**
+    * Play the moves through a Board and a BoardModel created from the same definition, comparing the cells of every
+    * piece after each move.
+    *
+    * @param definition The board definition.
+    * @param moves      The directions in which to move the player.
+    * @return Description of the first move after which the engines disagree, if any.
+    */
+  def firstDivergence(definition: BoardDefinition, moves: Seq[Direction]): Option[String] = {
+    val registry = definition.getPieceRegistry
+    val player = registry.getPlayer.get
+    val board = new Board(definition)
+    var model = BoardModel.fromDefinition(definition)
+
+    moves.zipWithIndex.toStream.flatMap { case (direction, index) =>
+      val to = board.getCellForPiece(player).translate(direction.getVector)
+      board.movePieceTo(player, to)
+      model = model.movePlayerPieceTo(to).getOrElse(model)
+
+      (0 until registry.getPieceCount).find { pieceId =>
+        val piece = registry.getPiece(pieceId)
+        !model.getBlockCell(piece).contains(board.getCellForPiece(piece))
+      }.map { pieceId =>
+        val piece = registry.getPiece(pieceId)
+        s"After move $index ($direction) piece ${piece.getText} is at ${board.getCellForPiece(piece)} on the Board " +
+          s"but ${model.getBlockCell(piece)} in the BoardModel"
+      }
+    }.headOption
+  }
+
+  property("Board and BoardModel agree after every move") =
+    forAllNoShrink(boards, moveSequences(50, 250)) { (definitionString, moves) =>
+      val definition = BoardDefinition.fromString(definitionString)
+      val divergence = firstDivergence(definition, moves)
+      classify(definition.getPieceRegistry.getPieceCount > 50, "many blocks") {
+        divergence.isEmpty :| divergence.getOrElse("") + "\n" + definitionString
+      }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.foomoo.box
+
+import java.util.function.Predicate
+
+/**
+  * Tests for the MoveInputQueue
+  */
+class MoveInputQueueSpec extends UnitSpec {
+
+  private val CORRIDOR: String = "" +
+    "XXXXXXXX\n" +
+    "X@     X\n" +
+    "XXXXXXXX"
+
+  private def queueFor(board: Board): MoveInputQueue = new MoveInputQueue(new Predicate[Direction] {
+    override def test(direction: Direction): Boolean = board.move(direction)
+  })
+
+  "A MoveInputQueue" should "apply moves immediately, ahead of rendering" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    val queue = queueFor(board)
+
+    queue.submit(Direction.RIGHT, 0) shouldBe true
+    queue.submit(Direction.RIGHT, 0) shouldBe true
+    queue.submit(Direction.UP, 0) shouldBe false
+
+    board.getCellForPiece(board.getPlayer.get) shouldBe new Cell(1, 3)
+    queue.getPendingCount shouldBe 2
+  }
+
+  it should "record input to frame latencies when frames are rendered" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    val queue = queueFor(board)
+    val millis = 1000000L
+
+    queue.submit(Direction.RIGHT, 0)
+    queue.submit(Direction.RIGHT, 10 * millis)
+    queue.frameRendered(16 * millis)
+
+    queue.getPendingCount shouldBe 0
+    queue.getLatencyCount shouldBe 2
+    queue.getMaxLatencyNanos shouldBe 16 * millis
+    queue.getMeanLatencyNanos shouldBe 11 * millis
+    queue.getLatencyPercentileNanos(50) shouldBe 7 * millis
+    queue.getLatencyPercentileNanos(100) shouldBe 16 * millis
+  }
+
+  it should "leave moves input after a frame was drawn pending when it is rendered" in {
+    val board = new Board(BoardDefinition.fromString(CORRIDOR))
+    val queue = queueFor(board)
+    val millis = 1000000L
+
+    queue.submit(Direction.RIGHT, 0)
+    queue.submit(Direction.RIGHT, 10 * millis)
+    queue.frameRendered(16 * millis, 1)
+
+    queue.getPendingCount shouldBe 1
+    queue.getLatencyCount shouldBe 1
+    queue.getMaxLatencyNanos shouldBe 16 * millis
+
+    queue.frameRendered(32 * millis, 5)
+    queue.getPendingCount shouldBe 0
+    queue.getMaxLatencyNanos shouldBe 22 * millis
+  }
+
+  it should "not lose inputs when many moves are pending" in {
+    val queue = new MoveInputQueue(new Predicate[Direction] {
+      override def test(direction: Direction): Boolean = true
+    })
+
+    for (i <- 0 until 100) {
+      queue.submit(Direction.LEFT, i)
+    }
+    queue.getPendingCount shouldBe 100
+    queue.frameRendered(100)
+
+    queue.getLatencyCount shouldBe 100
+    queue.getMaxLatencyNanos shouldBe 100
+  }
+}
@@ -0,0 +1,84 @@
+package com.foomoo.box
+
+import com.foomoo.box.BoardGenerators.{moveSequences, walledBoard}
+import com.foomoo.box.model.immutable.BoardModel
+import org.scalacheck.Prop.{forAllNoShrink, propBoolean}
+import org.scalacheck.{Gen, Prop, Properties}
+
+/**
+  * Timing budgets for moves on large boards, so that performance regressions in either engine fail the build.
+  *
+  * Each property times every move of a sequence and compares the median with its budget. The budgets are well above
+  * the measured cost, a microsecond per Board move and a few tens of microseconds per BoardModel move, so that only a
+  * change in the order of the cost fails them. A BoardModel move only touches the cells it changes, so its budget is
+  * the same on a 500x500 board as on a 100x100 one, and is below the cost of any work in proportion to the larger
+  * board's area, such as scanning its walls or allocating an array of its cells.
+  */
+class MoveTimingProperties extends Properties("Move timing") {
+
+  val BoardMoveBudgetNanos: Long = 20000
+  val BoardModelMoveBudgetNanos: Long = 250000
+
+  private val BoardCount = 4
+
+  private val LargeBoardModelMoves: Seq[Direction] = (0 until 200).map(move => Direction.fromOrdinal(move * 5 % 4))
+
+  // The boards are built once and shared by every evaluation, and each is warmed up so that the first moves timed on it
+  // are not interpreted.
+  private lazy val largeBoards: IndexedSeq[BoardDefinition] =
+    (0 until BoardCount).map { seed =>
+      val definition = BoardDefinition.fromString(walledBoard(500, 500, 0.2, 0.05, 5, seed))
+      val board = new Board(definition)
+      (0 until 20000).foreach(move => board.move(Direction.fromOrdinal(move * 7 % 4)))
+      definition
+    }
+
+  // The models timed are the warmed up ones, so every model is warmed whichever is picked.
+  private lazy val mediumModels: IndexedSeq[BoardModel] =
+    (0 until BoardCount).map(seed => warmedUp(
+      BoardModel.fromDefinition(BoardDefinition.fromString(walledBoard(100, 100, 0.2, 0.05, 5, seed))), 200))
+
+  private def warmedUp(model: BoardModel, moves: Int): BoardModel =
+    (0 until moves).foldLeft(model)((current, move) =>
+      current.move(Direction.fromOrdinal(move * 7 % 4)).getOrElse(current))
+
+  val boardIndices: Gen[Int] = Gen.choose(0, BoardCount - 1)
+
+  /**
+    * Gets the median time taken to apply each of the moves.
+    *
+    * @param moves The moves.
+    * @param move  The function applying a move.
+    * @return The median duration in nanoseconds.
+    */
+  def medianNanos(moves: Seq[Direction])(move: Direction => Unit): Long = {
+    val durations = moves.map { direction =>
+      val start = System.nanoTime
+      move(direction)
+      System.nanoTime - start
+    }.sorted
+    durations(durations.size / 2)
+  }
+
+  property("Board moves on a 500x500 board within budget") =
+    forAllNoShrink(boardIndices, moveSequences(100, 200)) { (index, moves) =>
+      val board = new Board(largeBoards(index))
+      val median = medianNanos(moves)(direction => board.move(direction))
+      (median <= BoardMoveBudgetNanos) :| s"Median Board move took ${median}ns"
+    }
+
+  property("BoardModel moves on a 100x100 board within budget") =
+    forAllNoShrink(boardIndices, moveSequences(10, 20)) { (index, moves) =>
+      var model = mediumModels(index)
+      val median = medianNanos(moves)(direction => model = model.move(direction).getOrElse(model))
+      (median <= BoardModelMoveBudgetNanos) :| s"Median BoardModel move took ${median}ns"
+    }
+
+  // A single evaluation of a fixed sequence, as building a 500x500 BoardModel takes about a second.
+  property("BoardModel moves on a 500x500 board within budget") = Prop.secure {
+    var model = warmedUp(BoardModel.fromDefinition(largeBoards.head), 2000)
+    val median = medianNanos(LargeBoardModelMoves)(direction => model = model.move(direction).getOrElse(model))
+    (median <= BoardModelMoveBudgetNanos) :| s"Median BoardModel move took ${median}ns"
+  }
+
+}
@@ -0,0 +1,70 @@
+package com.foomoo.box
+
+/**
+  * Tests for the TileGrid class and the tiled storage of large Boards
+  */
+class TileGridSpec extends UnitSpec {
+
+  /**
+    * A square room of the given size, walled at its edges, with the player in one corner and a block beside it.
+    */
+  private def room(size: Int): String = {
+    val wall = "X" * size
+    val floor = "X" + " " * (size - 2) + "X"
+    (Seq(wall, "X@A" + " " * (size - 4) + "X") ++ Seq.fill(size - 3)(floor) :+ wall).mkString("\n")
+  }
+
+  private def positions(grid: TileGrid, value: Boolean): Seq[(Int, Int)] = {
+    val visited = scala.collection.mutable.Buffer[(Int, Int)]()
+    grid.forEach(value, new TileGrid.CellVisitor {
+      override def visit(row: Int, column: Int): Unit = visited += ((row, column))
+    })
+    visited
+  }
+
+  "A TileGrid" should "read back the values set" in {
+    val grid = new TileGrid.Builder(70, 40, false).set(0, 0, true).set(69, 39, true).set(33, 5, true).build
+
+    grid.get(0, 0) shouldBe true
+    grid.get(33, 5) shouldBe true
+    grid.get(69, 39) shouldBe true
+    grid.get(1, 0) shouldBe false
+    grid.get(-1, 0) shouldBe false
+    positions(grid, value = true).toSet shouldBe Set((0, 0), (69, 39), (33, 5))
+    positions(grid, value = false).size shouldBe 70 * 40 - 3
+  }
+
+  it should "share storage for uniform tiles" in {
+    val builder = new TileGrid.Builder(100, 100, true)
+    for (row <- 0 until 100; column <- 0 until 100) {
+      builder.set(row, column, row >= 64)
+    }
+    val grid = builder.build
+
+    grid.getTileCount shouldBe 16
+    grid.getAllocatedTileCount shouldBe 0
+    grid.get(63, 0) shouldBe false
+    grid.get(64, 99) shouldBe true
+  }
+
+  "A BoardDefinition" should "store the walls of a large room in proportion to its edges" in {
+    val definition = BoardDefinition.fromString(room(1024))
+    val walls = definition.getWalls
+
+    walls.getTileCount shouldBe 32 * 32
+    walls.getAllocatedTileCount shouldBe 4 * 31
+    definition.cellIsWall(0, 10) shouldBe true
+    definition.cellIsWall(10, 10) shouldBe false
+  }
+
+  "A large Board" should "only allocate occupancy for the areas pieces visit" in {
+    val board = new Board(BoardDefinition.fromString(room(1024)))
+
+    board.move(Direction.DOWN) shouldBe true
+    board.move(Direction.RIGHT) shouldBe true
+    board.getPieceAtCell(new Cell(2, 2)) shouldBe board.getPlayer
+    board.getPieceAtCell(new Cell(1, 2)).get shouldBe new Block("A")
+    board.occupants.getAllocatedTileCount shouldBe 1
+    board.cellPositionsOnBoard.count shouldBe 1022L * 1022L
+  }
+}
@@ -0,0 +1,143 @@
+package com.foomoo.box.catalogue
+
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+import java.nio.file.attribute.FileTime
+import java.nio.file.{Files, Path}
+
+import com.foomoo.box.UnitSpec
+import com.foomoo.box.generator.{GeneratedLevel, LevelGenerator}
+
+/**
+  * Tests for the LevelCatalogue class
+  */
+class LevelCatalogueSpec extends UnitSpec {
+
+  private val FIRST: String = "" +
+    "XXXXXX\n" +
+    "X@A aX\n" +
+    "XXXXXX"
+
+  private val SECOND: String = "" +
+    "XXXXXXX\n" +
+    "X@ A  X\n" +
+    "X  B  X\n" +
+    "X a b X\n" +
+    "XXXXXXX"
+
+  private def withPack(contents: String)(test: Path => Unit): Unit = {
+    val directory = Files.createTempDirectory("catalogue")
+    val pack = directory.resolve("levels.txt")
+    Files.write(pack, contents.getBytes(StandardCharsets.UTF_8))
+    try {
+      test(pack)
+    } finally {
+      Files.deleteIfExists(LevelCatalogue.indexPathFor(pack))
+      Files.delete(pack)
+      Files.delete(directory)
+    }
+  }
+
+  "A LevelCatalogue" should "index the levels of a pack" in {
+    withPack("; 1\n" + FIRST + "\n\n; 2\n" + SECOND + "\n") { pack =>
+      val catalogue = LevelCatalogue.open(pack)
+
+      catalogue.size shouldBe 2
+      catalogue.getWidth(0) shouldBe 6
+      catalogue.getHeight(0) shouldBe 3
+      catalogue.getBlockCount(0) shouldBe 1
+      catalogue.getWidth(1) shouldBe 7
+      catalogue.getHeight(1) shouldBe 5
+      catalogue.getBlockCount(1) shouldBe 2
+      catalogue.getDefinitionString(1) shouldBe SECOND
+      Files.exists(LevelCatalogue.indexPathFor(pack)) shouldBe true
+    }
+  }
+
+  it should "measure levels in characters rather than bytes" in {
+    val letters: String = "" +
+      "XXXXXXX\n" +
+      "X@\u0416\u03a3 \u0436X\n" +
+      "X \u03c3 \ud801\udc00X\n" +
+      "XXXXXXX"
+
+    withPack(letters + "\n\n" + FIRST) { pack =>
+      val catalogue = LevelCatalogue.open(pack)
+      val definition = catalogue.getDefinition(0)
+
+      catalogue.getWidth(0) shouldBe 7
+      catalogue.getWidth(0) shouldBe definition.getWidth
+      catalogue.getBlockCount(0) shouldBe 2
+      catalogue.getBlockCount(0) shouldBe definition.getBlockCells.size
+      catalogue.getWidth(1) shouldBe 6
+    }
+  }
+
+  it should "parse definitions only when they are requested" in {
+    withPack(FIRST + "\n\n" + SECOND) { pack =>
+      val catalogue = LevelCatalogue.open(pack)
+      catalogue.getMaterialisedCount shouldBe 0
+
+      val definition = catalogue.getDefinition(1)
+      definition.toDefinitionString shouldBe SECOND
+      catalogue.getDefinition(1) should be theSameInstanceAs definition
+      catalogue.getMaterialisedCount shouldBe 1
+    }
+  }
+
+  it should "give levels with the same content the same hash" in {
+    withPack(FIRST + "\n\n" + SECOND + "\r\n\r\n" + FIRST.replace("\n", "\r\n")) { pack =>
+      val catalogue = LevelCatalogue.open(pack)
+
+      catalogue.size shouldBe 3
+      catalogue.getContentHash(0) shouldBe catalogue.getContentHash(2)
+      catalogue.getContentHash(0) should not be catalogue.getContentHash(1)
+      catalogue.getDefinitionString(2) shouldBe FIRST
+    }
+  }
+
+  it should "reuse a current index and rebuild a stale one" in {
+    withPack(FIRST) { pack =>
+      LevelCatalogue.open(pack).size shouldBe 1
+      val index = LevelCatalogue.indexPathFor(pack)
+      val built = Files.getLastModifiedTime(index)
+      Files.setLastModifiedTime(index, FileTime.fromMillis(built.toMillis - 60000))
+
+      LevelCatalogue.open(pack).size shouldBe 1
+      Files.getLastModifiedTime(index).toMillis shouldBe built.toMillis - 60000
+
+      Files.write(pack, (FIRST + "\n\n" + SECOND).getBytes(StandardCharsets.UTF_8))
+      Files.setLastModifiedTime(pack, FileTime.fromMillis(built.toMillis + 60000))
+      LevelCatalogue.open(pack).size shouldBe 2
+    }
+  }
+
+  it should "reject an index which is not a catalogue index" in {
+    withPack(FIRST) { pack =>
+      Files.write(LevelCatalogue.indexPathFor(pack), Array.fill[Byte](64)(1))
+
+      an[IOException] should be thrownBy LevelCatalogue.open(pack)
+    }
+  }
+
+  it should "reject level numbers outside of the catalogue" in {
+    withPack(FIRST) { pack =>
+      an[IndexOutOfBoundsException] should be thrownBy LevelCatalogue.open(pack).getDefinition(1)
+    }
+  }
+
+  it should "catalogue a generated pack" in {
+    val levels = new LevelGenerator.Builder().size(8, 6).blocks(2).steps(60).candidates(4).seed(7L).build
+      .generate(20).toArray.map(_.asInstanceOf[GeneratedLevel].getDefinitionString)
+
+    withPack(levels.mkString("", "\n\n", "\n\n")) { pack =>
+      val catalogue = LevelCatalogue.open(pack)
+
+      catalogue.size shouldBe levels.length
+      levels.indices.foreach { level =>
+        catalogue.getDefinitionString(level) shouldBe levels(level)
+        catalogue.getBlockCount(level) shouldBe 2
+      }
+    }
+  }
+}
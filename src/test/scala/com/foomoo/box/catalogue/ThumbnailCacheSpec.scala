@@ -0,0 +1,166 @@
+package com.foomoo.box.catalogue
+
+import java.nio.file.{Files, Path}
+import java.util.concurrent.{ExecutionException, TimeUnit}
+import java.util.function.{Consumer, Supplier}
+
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the ThumbnailRenderer and ThumbnailCache classes
+  */
+class ThumbnailCacheSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXX\n" +
+    "X@A X\n" +
+    "X  aX\n" +
+    "XXXXX"
+
+  private def definition = BoardDefinition.fromString(LEVEL)
+
+  private class CountingSupplier extends Supplier[BoardDefinition] {
+    var calls = 0
+
+    override def get: BoardDefinition = synchronized {
+      calls += 1
+      definition
+    }
+  }
+
+  private def await(cache: ThumbnailCache, key: Long, supplier: Supplier[BoardDefinition]): Thumbnail =
+    cache.get(key, supplier).get(10, TimeUnit.SECONDS)
+
+  private def deleteDirectory(directory: Path): Unit = {
+    Files.list(directory).forEach(new Consumer[Path] {
+      override def accept(file: Path): Unit = Files.delete(file)
+    })
+    Files.delete(directory)
+  }
+
+  "A ThumbnailRenderer" should "paint a block of pixels for each cell" in {
+    val thumbnail = new ThumbnailRenderer(2).render(definition)
+
+    thumbnail.getWidth shouldBe 10
+    thumbnail.getHeight shouldBe 8
+    thumbnail.getArgb(0, 0) shouldBe ThumbnailRenderer.WALL
+    thumbnail.getArgb(2, 2) shouldBe ThumbnailRenderer.PLAYER
+    thumbnail.getArgb(3, 3) shouldBe ThumbnailRenderer.PLAYER
+    thumbnail.getArgb(4, 2) shouldBe ThumbnailRenderer.BLOCK
+    thumbnail.getArgb(6, 2) shouldBe ThumbnailRenderer.FLOOR
+    thumbnail.getArgb(7, 5) shouldBe ThumbnailRenderer.TARGET
+    thumbnail.getByteSize shouldBe 10 * 8 * 4
+  }
+
+  "A ThumbnailCache" should "render each level once" in {
+    val cache = new ThumbnailCache.Builder().cellPixels(1).build
+    val supplier = new CountingSupplier
+    try {
+      val first = await(cache, 1L, supplier)
+      await(cache, 1L, supplier) should be theSameInstanceAs first
+
+      supplier.calls shouldBe 1
+      cache.getRenders shouldBe 1
+      cache.getHits shouldBe 1
+      cache.getIfPresent(1L).get should be theSameInstanceAs first
+    } finally {
+      cache.close()
+    }
+  }
+
+  it should "evict the least recently used thumbnails beyond its size" in {
+    val thumbnailBytes = new ThumbnailRenderer(1).render(definition).getByteSize
+    val cache = new ThumbnailCache.Builder().cellPixels(1).maxBytes(thumbnailBytes * 2).build
+    val supplier = new CountingSupplier
+    try {
+      await(cache, 1L, supplier)
+      await(cache, 2L, supplier)
+      await(cache, 1L, supplier)
+      await(cache, 3L, supplier)
+
+      cache.size shouldBe 2
+      cache.getTotalBytes shouldBe thumbnailBytes * 2
+      cache.getIfPresent(1L).isPresent shouldBe true
+      cache.getIfPresent(2L).isPresent shouldBe false
+      cache.getIfPresent(3L).isPresent shouldBe true
+    } finally {
+      cache.close()
+    }
+  }
+
+  it should "read thumbnails back from its disk tier" in {
+    val directory = Files.createTempDirectory("thumbnails")
+    val supplier = new CountingSupplier
+    val first = new ThumbnailCache.Builder().cellPixels(3).directory(directory).build
+    val rendered = try await(first, 5L, supplier) finally first.close()
+
+    val second = new ThumbnailCache.Builder().cellPixels(3).directory(directory).build
+    try {
+      val read = await(second, 5L, supplier)
+
+      supplier.calls shouldBe 1
+      second.getDiskHits shouldBe 1
+      read.getWidth shouldBe rendered.getWidth
+      read.getHeight shouldBe rendered.getHeight
+      for (x <- 0 until read.getWidth; y <- 0 until read.getHeight) {
+        read.getArgb(x, y) shouldBe rendered.getArgb(x, y)
+      }
+    } finally {
+      second.close()
+      deleteDirectory(directory)
+    }
+  }
+
+  it should "keep its disk tier within its budget" in {
+    val directory = Files.createTempDirectory("thumbnails")
+    val supplier = new CountingSupplier
+    try {
+      val first = new ThumbnailCache.Builder().cellPixels(3).directory(directory).build
+      try await(first, 1L, supplier) finally first.close()
+      val fileBytes = Files.size(Files.list(directory).findFirst.get)
+
+      val cache = new ThumbnailCache.Builder().cellPixels(3).directory(directory).maxDiskBytes(fileBytes * 5 / 2)
+        .build
+      try {
+        (2L to 4L).foreach(key => await(cache, key, supplier))
+      } finally {
+        cache.close()
+      }
+
+      Files.list(directory).count shouldBe 2
+    } finally {
+      deleteDirectory(directory)
+    }
+  }
+
+  it should "render again rather than trust a disk entry whose size does not fit its file" in {
+    val directory = Files.createTempDirectory("thumbnails")
+    val supplier = new CountingSupplier
+    val header = java.nio.ByteBuffer.allocate(16).putInt(0x42585448).putInt(100000).putInt(100000).array
+    Files.write(directory.resolve(f"${6L}%016x-1.thumb"), header)
+    val cache = new ThumbnailCache.Builder().cellPixels(1).directory(directory).build
+    try {
+      await(cache, 6L, supplier).getWidth shouldBe 5
+
+      cache.getRenders shouldBe 1
+      cache.getDiskHits shouldBe 0
+    } finally {
+      cache.close()
+      deleteDirectory(directory)
+    }
+  }
+
+  it should "fail the future when a level cannot be rendered" in {
+    val cache = new ThumbnailCache.Builder().build
+    try {
+      val future = cache.get(9L, new Supplier[BoardDefinition] {
+        override def get: BoardDefinition = throw new RuntimeException("Unreadable level")
+      })
+
+      an[ExecutionException] should be thrownBy future.get(10, TimeUnit.SECONDS)
+      cache.size shouldBe 0
+    } finally {
+      cache.close()
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.foomoo.box.engine
+
+import com.foomoo.box._
+
+import scala.util.Random
+
+/**
+  * Conformance tests run against every GameEngine implementation
+  */
+class GameEngineSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXXXXX\n" +
+    "X@     X\n" +
+    "X  A B X\n" +
+    "X      X\n" +
+    "X  a b X\n" +
+    "XXXXXXXX"
+
+  private val CHAIN: String = "" +
+    "XXXXXXXX\n" +
+    "X@AB   X\n" +
+    "XXXXXXXX"
+
+  private val LONG_CHAIN: String = "" +
+    "XXXXXXXX\n" +
+    "X@ABC  X\n" +
+    "XXXXXXXX"
+
+  private def lurd(engine: GameEngine, moves: String): Seq[Boolean] =
+    moves.map(move => engine.move(Direction.fromLurd(move).get))
+
+  private def cells(engine: GameEngine): Seq[Cell] =
+    (0 until engine.getRegistry.getPieceCount).map(engine.getPieceCell)
+
+  def gameEngine(create: BoardDefinition => GameEngine): Unit = {
+
+    it should "start with pieces at their defined cells" in {
+      val definition = BoardDefinition.fromString(LEVEL)
+      val engine = create(definition)
+
+      engine.getPieceAt(new Cell(1, 1)) shouldBe engine.getRegistry.getPlayerId
+      engine.getPieceAt(new Cell(1, 2)) shouldBe PieceRegistry.NONE
+      engine.getPieceAt(new Cell(-1, 2)) shouldBe PieceRegistry.NONE
+      engine.isFloor(new Cell(0, 0)) shouldBe false
+      engine.isFloor(new Cell(1, 2)) shouldBe true
+      engine.getMoveCount shouldBe 0
+      engine.getLastDiff shouldBe MoveDiff.EMPTY
+    }
+
+    it should "refuse to move into walls" in {
+      val engine = create(BoardDefinition.fromString(LEVEL))
+
+      lurd(engine, "lu") shouldBe Seq(false, false)
+      engine.getMoveCount shouldBe 0
+    }
+
+    it should "push a block and report it in the diff" in {
+      val engine = create(BoardDefinition.fromString(LEVEL))
+      val registry = engine.getRegistry
+      val a = registry.getPieceId(new Block("A"))
+
+      lurd(engine, "rrD") shouldBe Seq(true, true, true)
+
+      engine.getPieceCell(a) shouldBe new Cell(3, 3)
+      val diff = engine.getLastDiff
+      diff.getMovedCount shouldBe 2
+      diff.getMovedPiece(0) shouldBe registry.getPlayerId
+      diff.getMovedPiece(1) shouldBe a
+      diff.getFromCell(1) shouldBe new Cell(2, 3)
+      diff.getToCell(1) shouldBe new Cell(3, 3)
+    }
+
+    it should "push a chain of two blocks but not three" in {
+      val engine = create(BoardDefinition.fromString(CHAIN))
+
+      engine.move(Direction.RIGHT) shouldBe true
+      engine.getLastDiff.getMovedCount shouldBe 3
+
+      val blocked = create(BoardDefinition.fromString(LONG_CHAIN))
+      blocked.move(Direction.RIGHT) shouldBe false
+      blocked.getPieceCell(blocked.getRegistry.getPlayerId) shouldBe new Cell(1, 1)
+    }
+
+    it should "complete targets and report them in the diff" in {
+      val engine = create(BoardDefinition.fromString(LEVEL))
+      val registry = engine.getRegistry
+      val targetA = registry.getTargetId(new Target("a"))
+
+      lurd(engine, "rrDD").forall(identity) shouldBe true
+
+      engine.isTargetComplete(targetA) shouldBe true
+      engine.getLastDiff.getCompletedTargets shouldBe Array(targetA)
+      engine.isComplete shouldBe false
+
+      lurd(engine, "ruurDD").forall(identity) shouldBe true
+      engine.isComplete shouldBe true
+    }
+
+    it should "undo moves and pushes" in {
+      val engine = create(BoardDefinition.fromString(LEVEL))
+      val start = cells(engine)
+
+      lurd(engine, "rrDD")
+      engine.undo() shouldBe true
+      engine.getLastDiff.getUncompletedTargets shouldBe Array(engine.getRegistry.getTargetId(new Target("a")))
+
+      while (engine.getMoveCount > 0) {
+        engine.undo() shouldBe true
+      }
+      engine.undo() shouldBe false
+      cells(engine) shouldBe start
+    }
+  }
+
+  "An ArrayGameEngine" should behave like gameEngine(EngineType.ARRAY.create)
+
+  "A PersistentGameEngine" should behave like gameEngine(EngineType.PERSISTENT.create)
+
+  "The GameEngines" should "agree on random sequences of moves and undos" in {
+    val random = new Random(34)
+    for (level <- Seq(LEVEL, CHAIN, LONG_CHAIN)) {
+      val definition = BoardDefinition.fromString(level)
+      val array = EngineType.ARRAY.create(definition)
+      val persistent = EngineType.PERSISTENT.create(definition)
+
+      for (step <- 0 until 2000) {
+        if (random.nextInt(4) == 0) {
+          array.undo() shouldBe persistent.undo()
+        } else {
+          val direction = Direction.fromOrdinal(random.nextInt(4))
+          array.move(direction) shouldBe persistent.move(direction)
+        }
+        array.getLastDiff shouldBe persistent.getLastDiff
+        array.getMoveCount shouldBe persistent.getMoveCount
+        array.isComplete shouldBe persistent.isComplete
+        cells(array) shouldBe cells(persistent)
+      }
+    }
+  }
+
+  it should "be selected by name" in {
+    EngineType.fromName("array") shouldBe EngineType.ARRAY
+    EngineType.fromName("Persistent") shouldBe EngineType.PERSISTENT
+    a[RuntimeException] should be thrownBy EngineType.fromName("quantum")
+  }
+}
@@ -0,0 +1,89 @@
+package com.foomoo.box.generator
+
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.Collectors
+
+import com.foomoo.box.solver.{IdaStarSolver, SolverLevel}
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Tests for the LevelGenerator and XsbFormat classes
+  */
+class LevelGeneratorSpec extends UnitSpec {
+
+  private def generator(seed: Long, pool: ForkJoinPool = ForkJoinPool.commonPool()) = new LevelGenerator.Builder()
+    .size(7, 6).blocks(2).steps(80).candidates(16).seed(seed).pool(pool).build
+
+  private def generate(seed: Long, count: Int, pool: ForkJoinPool = ForkJoinPool.commonPool()): Seq[GeneratedLevel] =
+    generator(seed, pool).generate(count).collect(Collectors.toList[GeneratedLevel]).asScala
+
+  "A LevelGenerator" should "generate the requested number of valid levels" in {
+    val levels = generate(1L, 5)
+
+    levels should have size 5
+    levels.foreach { level =>
+      val definition = level.getDefinition
+      definition.getHeight shouldBe 6
+      definition.getWidth shouldBe 7
+      definition.getPieceRegistry.getTargetCount shouldBe 2
+      level.getPullCount should be > 0
+      level.getScore shouldBe level.getPushDistance + 2 * level.getBoxChanges
+    }
+  }
+
+  it should "generate levels which can be solved" in {
+    val solver = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build
+
+    generate(2L, 3).foreach { level =>
+      val solverLevel = SolverLevel.fromDefinition(level.getDefinition)
+      val solution = solver.solve(solverLevel)
+      solution.isPresent shouldBe true
+      solution.get.solves(solverLevel) shouldBe true
+    }
+  }
+
+  it should "generate the same levels from the same seed whatever the parallelism" in {
+    val single = new ForkJoinPool(1)
+    try {
+      generate(3L, 3, single).map(_.getDefinitionString) shouldBe generate(3L, 3).map(_.getDefinitionString)
+    } finally {
+      single.shutdown()
+    }
+  }
+
+  it should "generate a level again from its seed" in {
+    val level = generate(4L, 2).last
+
+    generator(99L).generateLevel(level.getSeed).getDefinitionString shouldBe level.getDefinitionString
+  }
+
+  it should "reject more blocks than there are block letters" in {
+    a[RuntimeException] should be thrownBy new LevelGenerator.Builder().blocks(26).build
+  }
+
+  "XsbFormat" should "write levels with XSB characters" in {
+    val definition = BoardDefinition.fromString("" +
+      "XXXXX\n" +
+      "X@A X\n" +
+      "X  aX\n" +
+      "XXXXX")
+
+    XsbFormat.toXsb(definition) shouldBe "" +
+      "#####\n" +
+      "#@$ #\n" +
+      "#  .#\n" +
+      "#####"
+  }
+
+  it should "append titled levels to a pack" in {
+    val definition = BoardDefinition.fromString("XXXXX\nX@AaX\nXXXXX")
+    val pack = new java.lang.StringBuilder
+
+    XsbFormat.appendLevel(pack, "1", definition)
+    XsbFormat.appendLevel(pack, "2", definition)
+
+    pack.toString shouldBe "; 1\n#####\n#@$.#\n#####\n\n; 2\n#####\n#@$.#\n#####\n\n"
+  }
+}
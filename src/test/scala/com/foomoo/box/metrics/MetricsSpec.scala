@@ -0,0 +1,96 @@
+package com.foomoo.box.metrics
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.{Callable, Executors, TimeUnit}
+import javax.management.ObjectName
+
+import com.foomoo.box.model.immutable.BoardModel
+import com.foomoo.box.{Board, BoardDefinition, Direction, UnitSpec}
+
+/**
+  * Tests for the Metrics, Counter and LatencyHistogram classes, and the instrumentation of the game classes
+  */
+class MetricsSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXXX\n" +
+    "X@A aX\n" +
+    "XXXXXX"
+
+  "A LatencyHistogram" should "place every value in a bucket whose bounds contain it" in {
+    val values = (0L until 200L) ++ Seq(1000L, 12345L, 1000000L, 987654321L, 1L << 39, (1L << 40) - 1, 1L << 40)
+    values.foreach { value =>
+      val bucket = LatencyHistogram.bucketIndex(value)
+      LatencyHistogram.bucketUpperBound(bucket) should be >= value
+      if (bucket > 0) {
+        LatencyHistogram.bucketUpperBound(bucket - 1) should be < value
+      }
+    }
+    LatencyHistogram.bucketIndex((1L << 40) - 1) shouldBe LatencyHistogram.BUCKETS - 2
+    LatencyHistogram.bucketIndex(1L << 40) shouldBe LatencyHistogram.BUCKETS - 1
+    LatencyHistogram.bucketIndex(Long.MaxValue) shouldBe LatencyHistogram.BUCKETS - 1
+  }
+
+  it should "report percentiles within the bucket precision" in {
+    val histogram = new LatencyHistogram
+    (1 to 1000).foreach(micros => histogram.record(micros * 1000L))
+
+    histogram.getCount shouldBe 1000
+    histogram.getMaxNanos shouldBe 1000000L
+    histogram.getMeanNanos shouldBe 500500.0 +- 1
+    histogram.getValueAtPercentileNanos(50).toDouble shouldBe 500000.0 +- 500000 * 0.07
+    histogram.getValueAtPercentileNanos(99).toDouble shouldBe 990000.0 +- 990000 * 0.07
+    histogram.getValueAtPercentileNanos(100) shouldBe 1000000L
+  }
+
+  it should "count every value recorded from many threads" in {
+    val histogram = new LatencyHistogram
+    val executor = Executors.newFixedThreadPool(4)
+    try {
+      val futures = (0 until 4).map(_ => executor.submit(new Callable[Unit] {
+        override def call(): Unit = (1 to 10000).foreach(value => histogram.record(value))
+      }))
+      futures.foreach(_.get(10, TimeUnit.SECONDS))
+    } finally {
+      executor.shutdown()
+    }
+
+    histogram.getCount shouldBe 40000
+    histogram.getMaxNanos shouldBe 10000
+    histogram.getValueAtPercentileNanos(100) shouldBe 10000
+  }
+
+  "Metrics" should "return the same metric for the same name" in {
+    Metrics.counter("spec.counter") should be theSameInstanceAs Metrics.counter("spec.counter")
+    Metrics.histogram("spec.histogram") should be theSameInstanceAs Metrics.histogram("spec.histogram")
+  }
+
+  it should "record moves and parsing in the game classes" in {
+    val boardMoves = Metrics.histogram("board.move").getCount
+    val modelMoves = Metrics.histogram("model.move").getCount
+    val parses = Metrics.histogram("definition.parse").getCount
+    val rejected = Metrics.counter("board.move.rejected").get
+
+    val definition = BoardDefinition.fromString(LEVEL)
+    val board = new Board(definition)
+    board.move(Direction.RIGHT)
+    board.move(Direction.UP)
+    BoardModel.fromDefinition(definition).move(Direction.RIGHT)
+
+    Metrics.histogram("definition.parse").getCount should be >= parses + 1
+    Metrics.histogram("board.move").getCount should be >= boardMoves + 2
+    Metrics.counter("board.move.rejected").get should be >= rejected + 1
+    Metrics.histogram("model.move").getCount should be >= modelMoves + 1
+  }
+
+  it should "expose the metrics through JMX once installed" in {
+    Metrics.counter("spec.jmx").add(3)
+    Metrics.install()
+    Metrics.install()
+
+    val server = ManagementFactory.getPlatformMBeanServer
+    val name = new ObjectName(Metrics.OBJECT_NAME)
+    server.isRegistered(name) shouldBe true
+    server.getAttribute(name, "Summary").asInstanceOf[String] should include("spec.jmx 3")
+  }
+}
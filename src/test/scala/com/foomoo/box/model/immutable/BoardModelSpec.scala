@@ -1,7 +1,9 @@
 package com.foomoo.box.model.immutable
 
 import com.foomoo.box.model.immutable.BoardModel.BoardModelBuilder
-import com.foomoo.box.{Cell, Player, UnitSpec}
+import com.foomoo.box.{Block, Cell, Direction, Player, UnitSpec}
+
+import scala.collection.JavaConverters._
 
 object  BoardModelSpec {
 
@@ -43,6 +45,20 @@ class BoardModelSpec extends UnitSpec {
 
   }
 
+  it should "record the blocks moved by the move which produced it" in {
+    val block = new Block("B")
+    val model = new BoardModel.BoardModelBuilder(TEST_PLAYER, new Cell(2, 2)).blockCell(block, new Cell(2, 3))
+      .wall(new Cell(0, 0), new Cell(10, 10)).build
+
+    model.getMovedBlocks.asScala shouldBe empty
+    val pushed = model.move(Direction.RIGHT).get
+    pushed.getMovedBlocks.asScala shouldBe Seq(TEST_PLAYER, block)
+    pushed.getBlockAtCell(new Cell(2, 2)) shouldBe None
+    pushed.getBlockAtCell(new Cell(2, 3)) shouldBe Some(TEST_PLAYER)
+    pushed.getBlockAtCell(new Cell(2, 4)) shouldBe Some(block)
+    pushed.move(Direction.DOWN).get.getMovedBlocks.asScala shouldBe Seq(TEST_PLAYER)
+  }
+
   def generateWalledBoardModel(wallCorner1: Cell, wallCorner2: Cell) = {
     val maxRow = Math.max(wallCorner1.getRow, wallCorner2.getRow)
     val maxColumn = Math.max(wallCorner1.getColumn, wallCorner2.getColumn)
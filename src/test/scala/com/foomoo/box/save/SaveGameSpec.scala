@@ -0,0 +1,146 @@
+package com.foomoo.box.save
+
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.zip.CRC32
+
+import com.foomoo.box._
+import com.foomoo.box.model.immutable.BoardModel
+
+/**
+  * Tests for the SaveGame and MoveHistory classes
+  */
+class SaveGameSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXXXXX\n" +
+    "X@ A   X\n" +
+    "X   B  X\n" +
+    "X  a b X\n" +
+    "XXXXXXXX"
+
+  private def walk(board: Board, history: MoveHistory, moves: Int): Unit = {
+    for (i <- 0 until moves) {
+      val direction = if (i % 2 == 0) Direction.DOWN else Direction.UP
+      board.move(direction)
+      history.add(direction, false)
+    }
+  }
+
+  /**
+    * Encode a snapshot of the given level with the given piece cells and no moves, as SaveGame would.
+    */
+  private def snapshot(level: String, cells: Seq[Int]): ByteBuffer = {
+    val buffer = ByteBuffer.allocate(1024)
+    def putVarint(value: Int): Unit = {
+      var remaining = value
+      while ((remaining & ~0x7F) != 0) {
+        buffer.put(((remaining & 0x7F) | 0x80).toByte)
+        remaining >>>= 7
+      }
+      buffer.put(remaining.toByte)
+    }
+    val levelBytes = level.getBytes(StandardCharsets.UTF_8)
+    buffer.putInt(SaveGame.MAGIC).put(SaveGame.VERSION.toByte)
+    putVarint(levelBytes.length)
+    buffer.put(levelBytes)
+    putVarint(cells.length)
+    cells.foreach(putVarint)
+    putVarint(0)
+    val crc = new CRC32
+    crc.update(buffer.array, 0, buffer.position)
+    buffer.putInt(crc.getValue.toInt)
+    buffer.flip()
+    buffer
+  }
+
+  "A MoveHistory" should "round trip moves in LURD notation" in {
+    val history = MoveHistory.fromLurd("rRuLdD")
+
+    history.size shouldBe 6
+    history.getDirection(3) shouldBe Direction.LEFT
+    history.isPush(3) shouldBe true
+    history.toLurd shouldBe "rRuLdD"
+  }
+
+  it should "remove the last move" in {
+    val history = MoveHistory.fromLurd("rRU")
+    history.removeLast()
+    history.add(Direction.DOWN, false)
+
+    history.toLurd shouldBe "rRd"
+  }
+
+  "A SaveGame" should "resume a Board at its saved position" in {
+    val definition = BoardDefinition.fromString(LEVEL)
+    val board = new Board(definition)
+    val history = new MoveHistory
+    board.move(Direction.RIGHT)
+    history.add(Direction.RIGHT, false)
+    board.move(Direction.RIGHT)
+    history.add(Direction.RIGHT, true)
+
+    val directory = Files.createTempDirectory("save")
+    val file = directory.resolve("game.sav")
+    SaveGame.of(definition, board, history).write(file)
+    val resumed = SaveGame.read(file)
+
+    resumed.getHistory.toLurd shouldBe "rR"
+    val resumedBoard = resumed.toBoard
+    resumedBoard.getCellForPiece(new Block("A")) shouldBe new Cell(1, 4)
+    resumedBoard.getCellForPiece(resumedBoard.getPlayer.get) shouldBe new Cell(1, 3)
+
+    Files.delete(file)
+    Files.delete(directory)
+  }
+
+  it should "resume a BoardModel at its saved position" in {
+    val definition = BoardDefinition.fromString(LEVEL)
+    val model = "drrr".foldLeft(BoardModel.fromDefinition(definition)) { (model, move) =>
+      model.move(Direction.fromLurd(move).get).get
+    }
+
+    val resumed = SaveGame.decode(SaveGame.of(definition, model, MoveHistory.fromLurd("drrR")).encode).toModel
+
+    resumed.getBlockCell(new Block("B")).get shouldBe new Cell(2, 5)
+    resumed.getBlockCell(new Player("@")).get shouldBe new Cell(2, 4)
+  }
+
+  it should "reject a snapshot with a bad checksum" in {
+    val definition = BoardDefinition.fromString(LEVEL)
+    val buffer = SaveGame.of(definition, new Board(definition), MoveHistory.fromLurd("r")).encode
+    buffer.put(10, (buffer.get(10) ^ 1).toByte)
+
+    an[IOException] should be thrownBy SaveGame.decode(buffer)
+  }
+
+  it should "reject a snapshot with a piece outside its level" in {
+    SaveGame.decode(snapshot(LEVEL, Seq(9, 11, 20))).getPieceCells shouldBe Array(9, 11, 20)
+
+    an[IOException] should be thrownBy SaveGame.decode(snapshot(LEVEL, Seq(9, -1, 20)))
+    an[IOException] should be thrownBy SaveGame.decode(snapshot(LEVEL, Seq(9, 40, 20)))
+  }
+
+  it should "reject a snapshot whose level cannot be parsed" in {
+    an[IOException] should be thrownBy SaveGame.decode(snapshot("", Seq()))
+  }
+
+  it should "store moves compactly and resume a long session quickly" in {
+    val definition = BoardDefinition.fromString(LEVEL)
+    val board = new Board(definition)
+    val history = new MoveHistory
+    walk(board, history, 100001)
+
+    val buffer = SaveGame.of(definition, board, history).encode
+    buffer.remaining should be < 40000
+
+    val start = System.nanoTime
+    val resumed = SaveGame.decode(buffer).toBoard
+    val elapsedMillis = (System.nanoTime - start) / 1000000
+
+    resumed.getCellForPiece(resumed.getPlayer.get) shouldBe new Cell(2, 1)
+    elapsedMillis should be < 1000L
+  }
+}
@@ -0,0 +1,165 @@
+package com.foomoo.box.server
+
+import java.io._
+import java.net.{InetAddress, InetSocketAddress, Socket}
+import java.nio.charset.StandardCharsets
+
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the GameSession and SessionServer classes
+  */
+class SessionServerSpec extends UnitSpec {
+
+  private val LEVEL: String = "" +
+    "XXXXXX\n" +
+    "X@A aX\n" +
+    "XXXXXX"
+
+  private def respond(session: GameSession, line: String): String = {
+    val response = new java.lang.StringBuilder
+    session.handle(line, response)
+    response.toString
+  }
+
+  private def withServer(test: SessionServer => Unit): Unit = {
+    val server = new SessionServer(new java.util.function.Supplier[BoardDefinition] {
+      override def get(): BoardDefinition = BoardDefinition.fromString(LEVEL)
+    }, new InetSocketAddress(InetAddress.getLoopbackAddress, 0))
+    val thread = server.start()
+    try {
+      test(server)
+    } finally {
+      server.close()
+      thread.join(5000)
+    }
+  }
+
+  private class Client(port: Int) {
+    val socket = new Socket(InetAddress.getLoopbackAddress, port)
+    socket.setSoTimeout(5000)
+    val reader = new BufferedReader(new InputStreamReader(socket.getInputStream, StandardCharsets.UTF_8))
+    val writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream, StandardCharsets.UTF_8), true)
+
+    def send(line: String): Unit = writer.print(line + "\n")
+
+    def flush(): Unit = writer.flush()
+
+    def readLine(): String = reader.readLine()
+
+    def close(): Unit = socket.close()
+  }
+
+  "A GameSession" should "answer moves with deltas" in {
+    val session = new GameSession(BoardDefinition.fromString(LEVEL))
+
+    respond(session, "MOVE r") shouldBe "MOVED 1 @:1,2 A:1,3\n"
+    respond(session, "MOVE R") shouldBe "MOVED 2 @:1,3 A:1,4 +a SOLVED\n"
+    respond(session, "MOVE r") shouldBe "BLOCKED 2\n"
+    session.isSolved shouldBe true
+  }
+
+  it should "describe and reset the board" in {
+    val session = new GameSession(BoardDefinition.fromString(LEVEL))
+    respond(session, "MOVE r")
+
+    respond(session, "RESET") shouldBe "BOARD XXXXXX|X@A aX|XXXXXX\nSTATE 0 @:1,1 A:1,2\n"
+  }
+
+  it should "load a new level" in {
+    val session = new GameSession(BoardDefinition.fromString(LEVEL))
+
+    respond(session, "LEVEL XXXX|X@aX|XXXX") should startWith("BOARD XXXX|X@aX|XXXX\n")
+    respond(session, "MOVE l") shouldBe "BLOCKED 0\n"
+  }
+
+  it should "report errors" in {
+    val session = new GameSession(BoardDefinition.fromString(LEVEL))
+
+    respond(session, "JUMP") shouldBe "ERROR Unknown command: JUMP\n"
+    respond(session, "MOVE x") shouldBe "ERROR Invalid move: x\n"
+  }
+
+  it should "run over a reader and stream" in {
+    val output = new ByteArrayOutputStream
+    val input = new BufferedReader(new StringReader("MOVE rr\nQUIT\nMOVE l\n"))
+
+    SessionServer.runSession(new GameSession(BoardDefinition.fromString(LEVEL)), input, new PrintStream(output, true, "UTF-8"))
+
+    val lines = new String(output.toByteArray, StandardCharsets.UTF_8).split("\n")
+    lines.map(_.split(" ")(0)) shouldBe Array("BOARD", "STATE", "MOVED", "MOVED", "BYE")
+  }
+
+  "A SessionServer" should "serve a session over loopback" in withServer { server =>
+    val client = new Client(server.getPort)
+
+    client.readLine() should startWith("BOARD ")
+    client.readLine() should startWith("STATE 0")
+    client.send("MOVE rr")
+    client.flush()
+    client.readLine() shouldBe "MOVED 1 @:1,2 A:1,3"
+    client.readLine() shouldBe "MOVED 2 @:1,3 A:1,4 +a SOLVED"
+    client.send("QUIT")
+    client.flush()
+    client.readLine() shouldBe "BYE"
+    client.readLine() shouldBe null
+    client.close()
+  }
+
+  it should "serve many independent sessions concurrently" in withServer { server =>
+    val clients = (1 to 500).map(_ => new Client(server.getPort))
+    clients.foreach { client => client.send("MOVE r"); client.flush() }
+
+    clients.foreach { client =>
+      client.readLine() should startWith("BOARD ")
+      client.readLine() should startWith("STATE 0")
+      client.readLine() shouldBe "MOVED 1 @:1,2 A:1,3"
+    }
+    server.getSessionCount shouldBe 500
+
+    clients.foreach(_.close())
+  }
+
+  it should "reassemble commands split across packets" in withServer { server =>
+    val client = new Client(server.getPort)
+    client.readLine()
+    client.readLine()
+
+    client.writer.print("MO")
+    client.flush()
+    Thread.sleep(50)
+    client.send("VE r")
+    client.flush()
+
+    client.readLine() shouldBe "MOVED 1 @:1,2 A:1,3"
+    client.close()
+  }
+
+  it should "disconnect a client which does not read its responses" in withServer { server =>
+    val flooder = new Client(server.getPort)
+    val wall = "X" * 90
+    val floor = "X" + " " * 88 + "X"
+    val rows = Seq(wall, "X@" + " " * 87 + "X") ++ Seq.fill(37)(floor) :+ wall
+    flooder.send("LEVEL " + rows.mkString("|"))
+    val boards = ("BOARD\n" * 1024).getBytes(StandardCharsets.US_ASCII)
+    val flooding = new Thread(new Runnable {
+      override def run(): Unit = try {
+        flooder.flush()
+        while (true) {
+          flooder.socket.getOutputStream.write(boards)
+        }
+      } catch {
+        case _: IOException => // Disconnected by the server.
+      }
+    })
+    flooding.setDaemon(true)
+    flooding.start()
+    flooding.join(10000)
+
+    flooding.isAlive shouldBe false
+    val client = new Client(server.getPort)
+    client.readLine() should startWith("BOARD ")
+    client.close()
+    flooder.close()
+  }
+}
@@ -0,0 +1,151 @@
+package com.foomoo.box.solver
+
+import java.util.Optional
+import java.util.concurrent.{Callable, CancellationException, Executors, TimeUnit}
+import java.util.function.{Consumer, Supplier}
+
+import com.foomoo.box.model.immutable.BoardModel
+import com.foomoo.box.{BoardDefinition, Direction, UnitSpec}
+
+/**
+  * Tests for the AsyncSolver and HintSearch classes, and solving with a SolveMonitor
+  */
+class AsyncSolverSpec extends UnitSpec {
+
+  private val AROUND_THE_CORNER: String = "" +
+    "XXXXXX\n" +
+    "X@   X\n" +
+    "X A  X\n" +
+    "X   aX\n" +
+    "XXXXXX"
+
+  /**
+    * Solver which reports progress until it is cancelled.
+    */
+  private class EndlessSolver extends Solver {
+    override def solve(level: SolverLevel): Optional[Solution] = solve(level, SolveMonitor.NONE)
+
+    override def solve(level: SolverLevel, monitor: SolveMonitor): Optional[Solution] = {
+      var nodes = 0L
+      while (!monitor.isCancelled) {
+        nodes += 1
+        if (nodes % 100000 == 0) {
+          monitor.progress(new SolveProgress(nodes, 1, 1, 1))
+        }
+      }
+      Optional.empty()
+    }
+  }
+
+  private def idaStar = new Supplier[Solver] {
+    override def get: Solver = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build
+  }
+
+  private def endless = new Supplier[Solver] {
+    override def get: Solver = new EndlessSolver
+  }
+
+  private def ignore[T] = new Consumer[T] {
+    override def accept(t: T): Unit = {}
+  }
+
+  private def level = SolverLevel.fromDefinition(BoardDefinition.fromString(AROUND_THE_CORNER))
+
+  "An IdaStarSolver" should "stop when its monitor cancels the solve" in {
+    val solver = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build
+
+    solver.solve(level, new SolveMonitor {
+      override def isCancelled: Boolean = true
+    }).isPresent shouldBe false
+    solver.solve(level, SolveMonitor.NONE).isPresent shouldBe true
+  }
+
+  it should "report the bound of each iteration" in {
+    val bounds = scala.collection.mutable.Buffer[Int]()
+    new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(level, new SolveMonitor {
+      override def isCancelled: Boolean = false
+
+      override def progress(progress: SolveProgress): Unit = bounds += progress.getBound
+    })
+
+    bounds should not be empty
+    bounds shouldBe sorted
+  }
+
+  "An AsyncSolver" should "solve on the injected executor" in {
+    val executor = Executors.newSingleThreadExecutor()
+    val solution = new AsyncSolver(idaStar, executor).solve(level).get(10, TimeUnit.SECONDS)
+
+    solution.get.solves(level) shouldBe true
+    executor.shutdown()
+  }
+
+  it should "stop a solve when its future is cancelled" in {
+    val executor = Executors.newSingleThreadExecutor()
+    val solver = new AsyncSolver(endless, executor)
+    val future = solver.solve(level)
+
+    future.cancel(false) shouldBe true
+    a[CancellationException] should be thrownBy future.get
+
+    // The executor's only thread is free again once the cancelled solve stops.
+    val next = solver.solve(level, 10, TimeUnit.MILLISECONDS, ignore[SolveProgress])
+    next.get(10, TimeUnit.SECONDS).isPresent shouldBe false
+    executor.shutdown()
+  }
+
+  it should "complete with no solution at its deadline and stream progress" in {
+    val executor = Executors.newSingleThreadExecutor()
+    val reports = new java.util.concurrent.atomic.AtomicInteger
+    val future = new AsyncSolver(endless, executor).solve(level, 100, TimeUnit.MILLISECONDS, new Consumer[SolveProgress] {
+      override def accept(progress: SolveProgress): Unit = reports.incrementAndGet()
+    })
+
+    future.get(10, TimeUnit.SECONDS).isPresent shouldBe false
+    reports.get should be > 0
+    executor.shutdown()
+  }
+
+  "A SolverLevel" should "be created from a BoardModel part way through a game" in {
+    val definition = BoardDefinition.fromString(AROUND_THE_CORNER)
+    val model = BoardModel.fromDefinition(definition).move(Direction.RIGHT).get
+    val fromModel = SolverLevel.fromModel(model)
+
+    val solution = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(fromModel).get
+    solution.solves(fromModel) shouldBe true
+    solution.solves(level.withPieceCells(8, level.getBlockCells)) shouldBe true
+    fromModel.getTargetBlock(0) shouldBe 0
+  }
+
+  "A HintSearch" should "deliver only the result of the latest search" in {
+    val results = scala.collection.mutable.Buffer[Optional[Solution]]()
+    val executor = Executors.newSingleThreadExecutor()
+
+    // HintSearch is confined to one thread, playing the part of the JavaFX application thread.
+    val callbacks = Executors.newSingleThreadExecutor()
+    def onCallbackThread[T](action: => T): T = callbacks.submit(new Callable[T] {
+      override def call: T = action
+    }).get
+
+    val search = new HintSearch(new AsyncSolver(idaStar, executor), 10000, callbacks, ignore[SolveProgress],
+      new Consumer[Optional[Solution]] {
+        override def accept(solution: Optional[Solution]): Unit = results += solution
+      })
+
+    val moved = level.withPieceCells(8, level.getBlockCells)
+    onCallbackThread {
+      search.start(level)
+      search.restart(moved)
+    }
+    while (onCallbackThread(search.isRunning)) {
+      Thread.sleep(1)
+    }
+
+    onCallbackThread {
+      results.size shouldBe 1
+      results.head.get.solves(moved) shouldBe true
+    }
+    executor.shutdown()
+    callbacks.shutdown()
+  }
+}
@@ -0,0 +1,86 @@
+package com.foomoo.box.solver
+
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the IdaStarSolver class
+  */
+class IdaStarSolverSpec extends UnitSpec {
+
+  private val SINGLE_PUSH: String = "" +
+    "XXXXXX\n" +
+    "X@A aX\n" +
+    "XXXXXX"
+
+  private val AROUND_THE_CORNER: String = "" +
+    "XXXXXX\n" +
+    "X@   X\n" +
+    "X A  X\n" +
+    "X   aX\n" +
+    "XXXXXX"
+
+  private val CHAIN_PUSH: String = "" +
+    "XXXXXXX\n" +
+    "X@AB abX\n" +
+    "XXXXXXX"
+
+  private val BLOCKED: String = "" +
+    "XXXXX\n" +
+    "X@ AX\n" +
+    "Xa  X\n" +
+    "XXXXX"
+
+  private def solver(policy: ReplacementPolicy): IdaStarSolver =
+    new IdaStarSolver.Builder().transpositionTableMegabytes(1).replacementPolicy(policy).build
+
+  "An IdaStarSolver" should "solve a single push level optimally" in {
+    val solution = solver(ReplacementPolicy.DEPTH_PREFERRED).solve(BoardDefinition.fromString(SINGLE_PUSH))
+
+    solution.isPresent shouldBe true
+    solution.get.getMoves shouldBe "RR"
+    solution.get.getPushCount shouldBe 2
+  }
+
+  it should "find the same optimal length with either replacement policy" in {
+    val definition = BoardDefinition.fromString(AROUND_THE_CORNER)
+    val depthPreferred = solver(ReplacementPolicy.DEPTH_PREFERRED).solve(definition)
+    val clock = solver(ReplacementPolicy.CLOCK).solve(definition)
+
+    depthPreferred.get.getMoveCount shouldBe clock.get.getMoveCount
+  }
+
+  it should "push a chain of two blocks" in {
+    val solution = solver(ReplacementPolicy.DEPTH_PREFERRED).solve(BoardDefinition.fromString(CHAIN_PUSH))
+
+    solution.get.getMoves shouldBe "RRR"
+  }
+
+  it should "report levels which cannot be solved" in {
+    val solution = solver(ReplacementPolicy.CLOCK).solve(BoardDefinition.fromString(BLOCKED))
+
+    solution.isPresent shouldBe false
+  }
+
+  it should "give up when the node limit is reached" in {
+    val limited = new IdaStarSolver.Builder().transpositionTableMegabytes(1).maxNodes(1).build
+
+    limited.solve(BoardDefinition.fromString(AROUND_THE_CORNER)).isPresent shouldBe false
+  }
+
+  "A TranspositionTable" should "use no more than its memory budget" in {
+    val table = new TranspositionTable(3, ReplacementPolicy.DEPTH_PREFERRED)
+
+    table.getCapacity.toLong * TranspositionTable.ENTRY_BYTES should be <= (3L << 20)
+  }
+
+  it should "keep the lowest g and highest bound for a key" in {
+    val table = new TranspositionTable(1, ReplacementPolicy.CLOCK)
+    table.store(42L, 7, 3, 1)
+    table.store(42L, 5, 2, 1)
+
+    val slot = table.find(42L)
+    table.getG(slot) shouldBe 5
+    table.getBound(slot) shouldBe 3
+  }
+
+}
@@ -0,0 +1,96 @@
+package com.foomoo.box.solver
+
+import java.nio.file.Files
+
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the PatternDatabase and PatternDatabaseHeuristic classes
+  */
+class PatternDatabaseSpec extends UnitSpec {
+
+  private val TWO_BLOCKS: String = "" +
+    "XXXXXXX\n" +
+    "X@    X\n" +
+    "X A B X\n" +
+    "X     X\n" +
+    "X a b X\n" +
+    "XXXXXXX"
+
+  private val SINGLE_PUSH: String = "" +
+    "XXXXXX\n" +
+    "X@A aX\n" +
+    "XXXXXX"
+
+  private def level(definition: String): SolverLevel = SolverLevel.fromDefinition(BoardDefinition.fromString(definition))
+
+  private def solver(heuristic: SolverLevel => Heuristic): IdaStarSolver =
+    new IdaStarSolver.Builder().transpositionTableMegabytes(1).heuristic(new java.util.function.Function[SolverLevel, Heuristic] {
+      override def apply(level: SolverLevel): Heuristic = heuristic(level)
+    }).build
+
+  "A PatternDatabase" should "pair linked blocks into patterns" in {
+    val database = PatternDatabase.build(level(TWO_BLOCKS), 2)
+
+    database.getPatternCount shouldBe 1
+    database.getPatternBlocks(0) shouldBe Array(0, 1)
+  }
+
+  it should "give the optimal cost of a pattern on its own" in {
+    val twoBlocks = level(TWO_BLOCKS)
+    val database = PatternDatabase.build(twoBlocks, 2)
+
+    database.lookup(0, twoBlocks.getBlockCells) shouldBe 4
+    database.lookup(0, Array(4 * 7 + 2, 4 * 7 + 4)) shouldBe 0
+  }
+
+  it should "mark placements which cannot be solved" in {
+    val twoBlocks = level(TWO_BLOCKS)
+    val database = PatternDatabase.build(twoBlocks, 1)
+    val cornered = Array(1 * 7 + 1, twoBlocks.getBlockCells()(1))
+
+    database.lookup(0, cornered) shouldBe PatternDatabase.UNREACHABLE
+    new PatternDatabaseHeuristic(database, twoBlocks).estimate(cornered) shouldBe Heuristic.DEADLOCK
+  }
+
+  it should "be written and loaded keyed by level hash" in {
+    val twoBlocks = level(TWO_BLOCKS)
+    val directory = Files.createTempDirectory("pdb")
+    val file = PatternDatabase.pathFor(directory, twoBlocks)
+    PatternDatabase.build(twoBlocks, 2).write(file)
+
+    val loaded = PatternDatabase.load(file)
+
+    file.getFileName.toString shouldBe f"${LevelHash.structureHash(twoBlocks)}%016x.pdb"
+    loaded.matches(twoBlocks) shouldBe true
+    loaded.lookup(0, twoBlocks.getBlockCells) shouldBe 4
+
+    Files.delete(file)
+    Files.delete(directory)
+  }
+
+  it should "not be used with a different level" in {
+    val database = PatternDatabase.build(level(TWO_BLOCKS), 2)
+
+    a[RuntimeException] should be thrownBy new PatternDatabaseHeuristic(database, level(SINGLE_PUSH))
+  }
+
+  "A PatternDatabaseHeuristic" should "solve with the same move count and fewer expansions than Manhattan" in {
+    val definition = BoardDefinition.fromString(TWO_BLOCKS)
+    val database = PatternDatabase.build(level(TWO_BLOCKS), 2)
+
+    val manhattan = solver(new ManhattanHeuristic(_)).solve(definition).get
+    val patterns = solver(new PatternDatabaseHeuristic(database, _)).solve(definition).get
+
+    patterns.getMoveCount shouldBe manhattan.getMoveCount
+    patterns.getStatistics.getNodesExpanded should be <= manhattan.getStatistics.getNodesExpanded
+  }
+
+  it should "fall back to Manhattan when a level has no database" in {
+    val directory = Files.createTempDirectory("pdb")
+
+    PatternDatabaseHeuristic.fromDirectory(directory).apply(level(SINGLE_PUSH)) shouldBe a[ManhattanHeuristic]
+
+    Files.delete(directory)
+  }
+}
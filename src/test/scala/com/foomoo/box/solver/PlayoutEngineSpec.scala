@@ -0,0 +1,94 @@
+package com.foomoo.box.solver
+
+import java.util.concurrent.ForkJoinPool
+
+import com.foomoo.box.generator.LevelGenerator
+import com.foomoo.box.model.immutable.BoardModel
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the PlayoutEngine class
+  */
+class PlayoutEngineSpec extends UnitSpec {
+
+  private val OPEN_ROW: String = "" +
+    "XXXXXXX\n" +
+    "X     X\n" +
+    "X@A  aX\n" +
+    "X     X\n" +
+    "XXXXXXX"
+
+  private val ONE_PUSH: String = "" +
+    "XXXXX\n" +
+    "X@AaX\n" +
+    "XXXXX"
+
+  private val DEAD_END: String = "" +
+    "XXXXXXX\n" +
+    "Xa @A X\n" +
+    "XXXXXXX"
+
+  private def level(definition: String) = SolverLevel.fromDefinition(BoardDefinition.fromString(definition))
+
+  private def engine = new PlayoutEngine.Builder().playouts(1000).maxMoves(100).seed(1)
+
+  "The push distances" should "count the pushes to the target and mark dead cells" in {
+    val openRow = level(OPEN_ROW)
+    val distances = PlayoutEngine.pushDistances(openRow)
+
+    distances(0)(2 * 7 + 2) shouldBe 3
+    distances(0)(2 * 7 + 5) shouldBe 0
+    distances(0)(1 * 7 + 1) shouldBe PlayoutEngine.DEAD
+    distances(0)(1 * 7 + 3) shouldBe PlayoutEngine.DEAD
+  }
+
+  "A PlayoutEngine" should "solve a level whose only move completes it" in {
+    val difficulty = engine.build.estimate(level(ONE_PUSH))
+
+    difficulty.getRandom.getSolvedRate shouldBe 1.0
+    difficulty.getGreedy.getSolvedRate shouldBe 1.0
+    difficulty.getGreedy.getMeanMoves shouldBe 1.0
+  }
+
+  it should "deadlock random play but not greedy play when a push would deadlock" in {
+    val difficulty = engine.build.estimate(level(DEAD_END))
+
+    difficulty.getRandom.getDeadlockRate should be > 0.9
+    difficulty.getRandom.getMeanPushesBeforeDeadlock shouldBe 1.0
+    difficulty.getGreedy.getDeadlockCount shouldBe 0
+    difficulty.getGreedy.getMoveLimitCount shouldBe 1000
+  }
+
+  it should "make the requested number of playouts with each policy" in {
+    val difficulty = engine.playouts(1001).build.estimate(level(OPEN_ROW))
+
+    difficulty.getRandom.getPlayouts shouldBe 1001
+    difficulty.getGreedy.getPlayouts shouldBe 1001
+    difficulty.get(PlayoutEngine.Policy.GREEDY) shouldBe difficulty.getGreedy
+    difficulty.getGreedy.getSolvedRate should be > difficulty.getRandom.getSolvedRate
+  }
+
+  it should "give the same statistics however many threads are used" in {
+    val generated = new LevelGenerator.Builder().seed(7).candidates(4).build.generateLevel(7)
+    val generatedLevel = SolverLevel.fromDefinition(generated.getDefinition)
+    val single = new ForkJoinPool(1)
+    val several = new ForkJoinPool(4)
+    try {
+      val one = engine.pool(single).build.estimate(generatedLevel)
+      val four = engine.pool(several).build.estimate(generatedLevel)
+
+      four.getRandom.toString shouldBe one.getRandom.toString
+      four.getGreedy.toString shouldBe one.getGreedy.toString
+      four.getRandom.getMeanMoves shouldBe one.getRandom.getMeanMoves
+    } finally {
+      single.shutdown()
+      several.shutdown()
+    }
+  }
+
+  it should "estimate the difficulty of a BoardModel" in {
+    val model = BoardModel.fromDefinition(BoardDefinition.fromString(ONE_PUSH))
+
+    engine.build.estimate(model).getRandom.getSolvedCount shouldBe 1000
+  }
+}
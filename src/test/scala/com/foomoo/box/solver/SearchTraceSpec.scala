@@ -0,0 +1,92 @@
+package com.foomoo.box.solver
+
+import java.io.IOException
+import java.nio.file.{Files, Path}
+
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Tests for the TraceWriter and TraceStatistics classes, and tracing by the IdaStarSolver
+  */
+class SearchTraceSpec extends UnitSpec {
+
+  private val TWO_BLOCKS: String = "" +
+    "XXXXXXX\n" +
+    "X@    X\n" +
+    "X A B X\n" +
+    "X  a bX\n" +
+    "XXXXXXX"
+
+  private def withTraceFile(test: Path => Unit): Unit = {
+    val file = Files.createTempFile("search", ".trace")
+    try test(file) finally Files.delete(file)
+  }
+
+  "A TraceWriter" should "write records which TraceStatistics reads back" in {
+    withTraceFile { file =>
+      val trace = new TraceWriter(file)
+      trace.iteration(1, 1)
+      val pruned = SearchTrace.Outcome.DEADLOCK.addTo(SearchTrace.Outcome.THRESHOLD.addTo(0L))
+      trace.node(2L, 1, 2, SearchTrace.Outcome.EXPANDED, pruned)
+      trace.node(5L, 1, 0, SearchTrace.Outcome.GOAL, 0L)
+      trace.node(1L, 0, 1, SearchTrace.Outcome.EXPANDED, 0L)
+      trace.close()
+
+      Files.size(file) shouldBe 8 + 4 * TraceWriter.RECORD_BYTES
+      val statistics = TraceStatistics.read(file)
+      statistics.getNodeCount shouldBe 5
+      statistics.getOutcomeCount(SearchTrace.Outcome.EXPANDED) shouldBe 2
+      statistics.getOutcomeCount(SearchTrace.Outcome.DEADLOCK) shouldBe 1
+      statistics.getOutcomeCount(SearchTrace.Outcome.THRESHOLD) shouldBe 1
+      statistics.getIterations.asScala.map(_.getNodes) shouldBe Seq(5L)
+      statistics.getIterations.asScala.map(_.getBound) shouldBe Seq(1)
+      statistics.getLargestSubtrees.asScala.map(subtree => (subtree.getKey, subtree.getSize)) shouldBe
+        Seq((2L, 3L), (5L, 1L))
+      statistics.getSolutionLength shouldBe 1
+      statistics.getHeuristicErrors.asScala shouldBe Map(0 -> 2)
+    }
+  }
+
+  it should "write traces larger than its buffers" in {
+    withTraceFile { file =>
+      val trace = new TraceWriter(file)
+      (0 until 200000).foreach(node => trace.node(node, 0, 0, SearchTrace.Outcome.THRESHOLD, 0L))
+      trace.close()
+
+      TraceStatistics.read(file).getOutcomeCount(SearchTrace.Outcome.THRESHOLD) shouldBe 200000
+    }
+  }
+
+  "TraceStatistics" should "reject files which are not traces" in {
+    withTraceFile { file =>
+      Files.write(file, Array[Byte](1, 2, 3, 4, 5, 6, 7, 8))
+
+      an[IOException] should be thrownBy TraceStatistics.read(file)
+    }
+  }
+
+  "An IdaStarSolver" should "trace every node of its search, counting pruned nodes in their parents" in {
+    withTraceFile { file =>
+      val level = SolverLevel.fromDefinition(BoardDefinition.fromString(TWO_BLOCKS))
+      val untraced = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(level).get
+
+      val trace = new TraceWriter(file)
+      val solution = new IdaStarSolver.Builder().transpositionTableMegabytes(1).trace(trace).build.solve(level).get
+      trace.close()
+
+      solution.getMoves shouldBe untraced.getMoves
+      val statistics = TraceStatistics.read(file)
+      statistics.getOutcomeCount(SearchTrace.Outcome.EXPANDED) shouldBe solution.getStatistics.getNodesExpanded
+      statistics.getIterations.size shouldBe solution.getStatistics.getIterations
+      statistics.getOutcomeCount(SearchTrace.Outcome.GOAL) shouldBe 1
+      statistics.getNodeCount should be > solution.getStatistics.getNodesExpanded
+      statistics.getIterations.asScala.map(_.getNodes).sum shouldBe statistics.getNodeCount
+      statistics.getSolutionLength shouldBe solution.getMoveCount
+      statistics.getHeuristicErrors.asScala.values.map(_.intValue).sum shouldBe solution.getMoveCount + 1
+      statistics.getHeuristicErrors.firstKey.intValue should be >= 0
+      statistics.report should include("Heuristic error along the solution path")
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.foomoo.box.solver
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+import java.util.Optional
+
+import com.foomoo.box.{BoardDefinition, Symmetry, UnitSpec}
+
+/**
+  * Tests for the SolutionCache and CachedSolver classes
+  */
+class SolutionCacheSpec extends UnitSpec {
+
+  private val SINGLE_PUSH: String = "" +
+    "XXXXXXX\n" +
+    "X@ A aX\n" +
+    "X     X\n" +
+    "XXXXXXX"
+
+  private val SINGLE_PUSH_MOVED_PLAYER: String = "" +
+    "XXXXXXX\n" +
+    "X  A aX\n" +
+    "X @   X\n" +
+    "XXXXXXX"
+
+  private val CHAIN_PUSH: String = "" +
+    "XXXXXXX\n" +
+    "X@AB abX\n" +
+    "XXXXXXX"
+
+  private def level(definition: String): SolverLevel = SolverLevel.fromDefinition(BoardDefinition.fromString(definition))
+
+  private def withCache(maxBytes: Long)(test: (Path, SolutionCache) => Unit): Unit = {
+    val directory = Files.createTempDirectory("solutions")
+    val cache = SolutionCache.open(directory, maxBytes)
+    try {
+      test(directory, cache)
+    } finally {
+      cache.close()
+      Files.list(directory).forEach(new java.util.function.Consumer[Path] {
+        override def accept(file: Path): Unit = Files.delete(file)
+      })
+      Files.delete(directory)
+    }
+  }
+
+  private def solve(definition: String): Solution =
+    new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(level(definition)).get
+
+  /**
+    * Solver which counts the levels it is asked to solve.
+    */
+  private class CountingSolver extends Solver {
+    var solves = 0
+
+    override def solve(level: SolverLevel): Optional[Solution] = {
+      solves += 1
+      new IdaStarSolver.Builder().transpositionTableMegabytes(1).build.solve(level)
+    }
+  }
+
+  "A SolutionCache" should "return a stored solution" in withCache(1 << 20) { (_, cache) =>
+    cache.put(level(SINGLE_PUSH), solve(SINGLE_PUSH))
+
+    cache.get(level(SINGLE_PUSH)).get.getMoves shouldBe "rRR"
+    cache.getHits shouldBe 1
+  }
+
+  it should "share solutions between positions differing only in player position" in withCache(1 << 20) { (_, cache) =>
+    cache.put(level(SINGLE_PUSH), solve(SINGLE_PUSH))
+
+    val solution = cache.get(level(SINGLE_PUSH_MOVED_PLAYER))
+
+    solution.isPresent shouldBe true
+    solution.get.solves(level(SINGLE_PUSH_MOVED_PLAYER)) shouldBe true
+  }
+
+  it should "miss for levels it has not stored" in withCache(1 << 20) { (_, cache) =>
+    cache.put(level(SINGLE_PUSH), solve(SINGLE_PUSH))
+
+    cache.get(level(CHAIN_PUSH)).isPresent shouldBe false
+    cache.getMisses shouldBe 1
+  }
+
+  it should "reject and remove solutions which do not replay" in withCache(1 << 20) { (directory, cache) =>
+    val singlePush = level(SINGLE_PUSH)
+    cache.put(singlePush, solve(SINGLE_PUSH))
+    val file = directory.resolve(f"${LevelHash.canonicalHash(singlePush)}%016x.sol")
+    Files.write(file, "moves=rR\n".getBytes(StandardCharsets.ISO_8859_1))
+
+    cache.get(singlePush).isPresent shouldBe false
+    cache.getRejections shouldBe 1
+    cache.size shouldBe 0
+  }
+
+  it should "evict the least recently used solution when full" in withCache(1 << 20) { (directory, cache) =>
+    val singlePush = level(SINGLE_PUSH)
+    cache.put(singlePush, solve(SINGLE_PUSH))
+    cache.put(level(CHAIN_PUSH), solve(CHAIN_PUSH))
+    cache.get(singlePush)
+    cache.close()
+
+    val bound = Files.size(directory.resolve(f"${LevelHash.canonicalHash(singlePush)}%016x.sol"))
+    val bounded = SolutionCache.open(directory, bound)
+    bounded.size shouldBe 1
+    bounded.get(level(CHAIN_PUSH)).isPresent shouldBe false
+    bounded.get(singlePush).isPresent shouldBe true
+    bounded.close()
+  }
+
+  it should "rebuild its contents from the index when reopened" in withCache(1 << 20) { (directory, cache) =>
+    cache.put(level(SINGLE_PUSH), solve(SINGLE_PUSH))
+    cache.put(level(CHAIN_PUSH), solve(CHAIN_PUSH))
+    val totalBytes = cache.getTotalBytes
+    cache.close()
+
+    val reopened = SolutionCache.open(directory, 1 << 20)
+    reopened.size shouldBe 2
+    reopened.getTotalBytes shouldBe totalBytes
+    reopened.get(level(CHAIN_PUSH)).get.getMoves shouldBe "RRR"
+    reopened.close()
+  }
+
+  "A CachedSolver" should "only solve each level once" in withCache(1 << 20) { (_, cache) =>
+    val counting = new CountingSolver
+    val solver = new CachedSolver(counting, cache)
+
+    solver.solve(level(CHAIN_PUSH)).get.getMoves shouldBe "RRR"
+    solver.solve(level(CHAIN_PUSH)).get.getMoves shouldBe "RRR"
+    counting.solves shouldBe 1
+  }
+
+  it should "share one solution between rotated and mirrored copies of a level" in withCache(1 << 20) { (_, cache) =>
+    val counting = new CountingSolver
+    val solver = new CachedSolver(counting, cache)
+    val original = BoardDefinition.fromString(SINGLE_PUSH)
+
+    Symmetry.values.foreach { symmetry =>
+      val copy = original.transform(symmetry)
+      solver.solve(copy).get.solves(SolverLevel.fromDefinition(copy)) shouldBe true
+    }
+    counting.solves shouldBe 1
+    cache.size shouldBe 1
+  }
+}
@@ -0,0 +1,88 @@
+package com.foomoo.box.solver
+
+import java.util.concurrent.ForkJoinPool
+
+import com.foomoo.box.generator.LevelGenerator
+import com.foomoo.box.model.immutable.BoardModel
+import com.foomoo.box.{BoardDefinition, UnitSpec}
+
+/**
+  * Tests for the SolutionOptimiser class
+  */
+class SolutionOptimiserSpec extends UnitSpec {
+
+  private val OPEN_ROW: String = "" +
+    "XXXXXXX\n" +
+    "X     X\n" +
+    "X@A  aX\n" +
+    "X     X\n" +
+    "XXXXXXX"
+
+  private def level = SolverLevel.fromDefinition(BoardDefinition.fromString(OPEN_ROW))
+
+  private def optimiser = new SolutionOptimiser.Builder().build
+
+  "A SolutionOptimiser" should "shorten the walks between pushes" in {
+    val optimised = optimiser.optimise(level, "udRRlrR")
+
+    optimised.getMoves shouldBe "RRR"
+    optimised.getOriginalMoveCount shouldBe 7
+    optimised.getMoveCount shouldBe 3
+  }
+
+  it should "remove pushes which are undone later" in {
+    val optimised = optimiser.optimise(level, "RurrdLulldRRR")
+
+    optimised.getMoves shouldBe "RRR"
+    optimised.getOriginalPushCount shouldBe 5
+    optimised.getPushCount shouldBe 3
+  }
+
+  it should "mark pushes in upper case whatever the case of the original moves" in {
+    optimiser.optimise(level, "rrr").getMoves shouldBe "RRR"
+  }
+
+  it should "drop moves made after the level is complete" in {
+    val optimised = optimiser.optimise(level, "RRRlll")
+
+    optimised.getMoves shouldBe "RRR"
+    optimised.getOriginalMoveCount shouldBe 3
+  }
+
+  it should "reject moves which are not legal" in {
+    a[RuntimeException] should be thrownBy optimiser.optimise(level, "lRRR")
+  }
+
+  it should "reject moves which do not solve the level" in {
+    a[RuntimeException] should be thrownBy optimiser.optimise(level, "RR")
+  }
+
+  it should "replay the moves through a BoardModel" in {
+    val model = BoardModel.fromDefinition(BoardDefinition.fromString(OPEN_ROW))
+
+    optimiser.optimise(model, "udRRR").getMoves shouldBe "RRR"
+    a[RuntimeException] should be thrownBy optimiser.optimise(model, "lRRR")
+  }
+
+  it should "produce solutions no longer than those of a solver" in {
+    val solver = new IdaStarSolver.Builder().transpositionTableMegabytes(1).build
+    val single = new ForkJoinPool(1)
+    val levels = new LevelGenerator.Builder().size(7, 6).blocks(2).steps(80).candidates(8).seed(5L).build
+    try {
+      (0 until 4).foreach { index =>
+        val solverLevel = SolverLevel.fromDefinition(levels.generateLevel(index).getDefinition)
+        val solution = solver.solve(solverLevel).get
+
+        val optimised = optimiser.optimise(solverLevel, solution.getMoves)
+        new Solution(optimised.getMoves, null).solves(solverLevel) shouldBe true
+        optimised.getMoveCount should be <= solution.getMoveCount
+
+        val sequential = new SolutionOptimiser.Builder().windowPushes(2).pool(single).build
+          .optimise(solverLevel, solution.getMoves)
+        new Solution(sequential.getMoves, null).solves(solverLevel) shouldBe true
+      }
+    } finally {
+      single.shutdown()
+    }
+  }
+}